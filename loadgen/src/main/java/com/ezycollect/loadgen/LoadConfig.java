@@ -0,0 +1,174 @@
+package com.ezycollect.loadgen;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Options of one load run, parsed from {@code --name value} command line arguments.
+ *
+ * @param rate requests per second, sent on a fixed schedule whether or not earlier requests have finished
+ * @param warmup time at the start of the run whose requests are sent but not recorded
+ * @param mix relative weights of fresh, duplicate and conflicting requests
+ * @param replayWindow how many of the most recent Idempotency-Keys duplicates and conflicts pick from
+ * @param maxInFlight requests allowed to wait for a response at once; when reached, later requests queue in the
+ *     generator and the wait counts towards their response time
+ */
+public record LoadConfig(
+        URI baseUrl,
+        double rate,
+        Duration warmup,
+        Duration duration,
+        Mix mix,
+        IntRange invoicesPerPayment,
+        int invoicePool,
+        IntRange cardNumberLength,
+        int replayWindow,
+        int maxInFlight,
+        Duration timeout,
+        Path output,
+        long seed) {
+
+    static final String USAGE = """
+            Usage: LoadGenerator [options]
+              --base-url URL          server to load (default $LOADGEN_BASE_URL or http://localhost:8080)
+              --rate N                requests per second (default 200)
+              --warmup DURATION       unrecorded ramp-in, e.g. 10s (default 10s)
+              --duration DURATION     recorded part of the run, e.g. 60s or 2m (default 60s)
+              --mix WEIGHTS           fresh=N,duplicate=N,conflict=N (default fresh=90,duplicate=8,conflict=2)
+              --invoices MIN-MAX      invoice ids per payment (default 1-3)
+              --invoice-pool N        distinct invoice ids to draw from (default 10000)
+              --card-length MIN-MAX   card number digits (default 16-16; the API accepts 12-19)
+              --replay-window N       recent keys reused by duplicates and conflicts (default 1000)
+              --max-in-flight N       concurrent requests before the generator queues (default 512)
+              --timeout DURATION      per-request timeout (default 10s)
+              --output DIR            report directory (default target/loadgen)
+              --seed N                seed for the request mix and payloads (default: time based)
+            """;
+
+    private static final Set<String> OPTIONS = Set.of(
+            "base-url", "rate", "warmup", "duration", "mix", "invoices", "invoice-pool", "card-length",
+            "replay-window", "max-in-flight", "timeout", "output", "seed");
+
+    public LoadConfig {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("--rate must be positive");
+        }
+        if (duration.isZero() || duration.isNegative() || warmup.isNegative()) {
+            throw new IllegalArgumentException("--duration must be positive and --warmup must not be negative");
+        }
+        if (invoicesPerPayment.min() < 1 || cardNumberLength.min() < 1) {
+            throw new IllegalArgumentException("--invoices and --card-length must be at least 1");
+        }
+        if (invoicePool < 1 || replayWindow < 1 || maxInFlight < 1) {
+            throw new IllegalArgumentException("--invoice-pool, --replay-window and --max-in-flight must be positive");
+        }
+    }
+
+    public static LoadConfig parse(String[] args, Map<String, String> env) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (!name.startsWith("--") || !OPTIONS.contains(name.substring(2))) {
+                throw new IllegalArgumentException("Unknown option " + name);
+            }
+            if (i + 1 == args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            options.put(name.substring(2), args[++i]);
+        }
+        return new LoadConfig(
+                URI.create(options.getOrDefault("base-url", env.getOrDefault("LOADGEN_BASE_URL", "http://localhost:8080"))),
+                Double.parseDouble(options.getOrDefault("rate", "200")),
+                duration(options.getOrDefault("warmup", "10s")),
+                duration(options.getOrDefault("duration", "60s")),
+                Mix.parse(options.getOrDefault("mix", "fresh=90,duplicate=8,conflict=2")),
+                IntRange.parse(options.getOrDefault("invoices", "1-3")),
+                Integer.parseInt(options.getOrDefault("invoice-pool", "10000")),
+                IntRange.parse(options.getOrDefault("card-length", "16-16")),
+                Integer.parseInt(options.getOrDefault("replay-window", "1000")),
+                Integer.parseInt(options.getOrDefault("max-in-flight", "512")),
+                duration(options.getOrDefault("timeout", "10s")),
+                Path.of(options.getOrDefault("output", "target/loadgen")),
+                options.containsKey("seed") ? Long.parseLong(options.get("seed")) : System.nanoTime());
+    }
+
+    /** Number of requests the schedule sends, warmup included. */
+    public long totalRequests() {
+        return (long) Math.ceil(rate * (warmup.plus(duration).toNanos() / 1e9));
+    }
+
+    /** Accepts ISO-8601 ({@code PT30S}) or a number with an {@code ms}, {@code s} or {@code m} suffix. */
+    static Duration duration(String value) {
+        if (value.startsWith("P") || value.startsWith("p")) {
+            return Duration.parse(value);
+        }
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        throw new IllegalArgumentException("Invalid duration " + value);
+    }
+
+    public record Mix(int fresh, int duplicate, int conflict) {
+
+        public Mix {
+            if (fresh < 0 || duplicate < 0 || conflict < 0 || fresh + duplicate + conflict == 0) {
+                throw new IllegalArgumentException("--mix weights must not be negative and must not all be zero");
+            }
+        }
+
+        static Mix parse(String value) {
+            Map<String, Integer> weights = new LinkedHashMap<>(Map.of("fresh", 0, "duplicate", 0, "conflict", 0));
+            for (String part : value.split(",")) {
+                String[] entry = part.trim().split("=", 2);
+                if (entry.length != 2 || !weights.containsKey(entry[0])) {
+                    throw new IllegalArgumentException("Invalid --mix entry " + part);
+                }
+                weights.put(entry[0], Integer.parseInt(entry[1]));
+            }
+            return new Mix(weights.get("fresh"), weights.get("duplicate"), weights.get("conflict"));
+        }
+
+        RequestKind pick(int roll) {
+            int bucket = Math.floorMod(roll, fresh + duplicate + conflict);
+            if (bucket < fresh) {
+                return RequestKind.FRESH;
+            }
+            return bucket < fresh + duplicate ? RequestKind.DUPLICATE : RequestKind.CONFLICT;
+        }
+
+        @Override
+        public String toString() {
+            return "fresh=%d,duplicate=%d,conflict=%d".formatted(fresh, duplicate, conflict);
+        }
+    }
+
+    public record IntRange(int min, int max) {
+
+        public IntRange {
+            if (max < min) {
+                throw new IllegalArgumentException("Invalid range %d-%d".formatted(min, max));
+            }
+        }
+
+        static IntRange parse(String value) {
+            String[] bounds = value.split("-", 2);
+            int min = Integer.parseInt(bounds[0].trim());
+            return new IntRange(min, bounds.length == 1 ? min : Integer.parseInt(bounds[1].trim()));
+        }
+
+        @Override
+        public String toString() {
+            return min + "-" + max;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.ezycollect.loadgen;
+
+import com.ezycollect.loadgen.LoadRun.RequestSender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Year;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import org.HdrHistogram.HistogramLogWriter;
+
+/**
+ * Command line entry point: waits for the server to be healthy, runs the configured load against {@code POST /payments}
+ * and writes the reports described in {@link LoadReport}. Exits with 1 if any measured request got an unexpected
+ * status or no response, and with 2 on invalid options.
+ */
+public final class LoadGenerator {
+
+    private static final Duration HEALTH_WAIT = Duration.ofSeconds(90);
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (Arrays.asList(args).contains("--help")) {
+            System.out.print(LoadConfig.USAGE);
+            return;
+        }
+        LoadConfig config;
+        try {
+            config = LoadConfig.parse(args, System.getenv());
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            System.err.print(LoadConfig.USAGE);
+            System.exit(2);
+            return;
+        }
+        System.exit(run(config, System.out) == 0 ? 0 : 1);
+    }
+
+    /** Runs the load and returns the number of unexpected outcomes. */
+    static long run(LoadConfig config, PrintStream out) throws IOException, InterruptedException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(config.timeout())
+                .build();
+        awaitHealthy(client, config);
+
+        RequestSender sender = paymentsSender(client, config);
+        PaymentRequestFactory requests = new PaymentRequestFactory(config, objectMapper, Year.now(ZoneOffset.UTC).getValue());
+        Files.createDirectories(config.output());
+        LoadResult result;
+        try (PrintStream intervalLog = new PrintStream(
+                Files.newOutputStream(config.output().resolve(LoadReport.INTERVAL_LOG_FILE)),
+                false,
+                StandardCharsets.UTF_8)) {
+            out.printf("Sending %d requests to %s at %.1f/s (%s warmup), seed %d%n",
+                    config.totalRequests(), config.baseUrl(), config.rate(), config.warmup(), config.seed());
+            result = new LoadRun(config, requests, sender, new HistogramLogWriter(intervalLog)).run(out);
+        }
+        LoadReport report = new LoadReport(objectMapper);
+        report.write(result, config.output());
+        report.print(result, out);
+        out.println("Reports written to " + config.output().toAbsolutePath());
+        return result.unexpected();
+    }
+
+    static RequestSender paymentsSender(HttpClient client, LoadConfig config) {
+        URI payments = config.baseUrl().resolve("/payments");
+        return request -> client.send(
+                        HttpRequest.newBuilder(payments)
+                                .timeout(config.timeout())
+                                .header("Content-Type", "application/json")
+                                .header("Idempotency-Key", request.idempotencyKey())
+                                .POST(BodyPublishers.ofByteArray(request.body()))
+                                .build(),
+                        BodyHandlers.discarding())
+                .statusCode();
+    }
+
+    /** Waits up to {@link #HEALTH_WAIT} for the server, which may still be starting when the generator is launched. */
+    private static void awaitHealthy(HttpClient client, LoadConfig config) throws InterruptedException {
+        URI health = config.baseUrl().resolve("/actuator/health");
+        HttpRequest request = HttpRequest.newBuilder(health).timeout(config.timeout()).GET().build();
+        long deadline = System.nanoTime() + HEALTH_WAIT.toNanos();
+        String lastOutcome;
+        do {
+            try {
+                int status = client.send(request, BodyHandlers.discarding()).statusCode();
+                if (status == 200) {
+                    return;
+                }
+                lastOutcome = "status " + status;
+            } catch (IOException ex) {
+                lastOutcome = ex.toString();
+            }
+            Thread.sleep(1000);
+        } while (System.nanoTime() < deadline);
+        throw new IllegalStateException("Server at " + config.baseUrl() + " is not healthy: " + health + " gave " + lastOutcome);
+    }
+}
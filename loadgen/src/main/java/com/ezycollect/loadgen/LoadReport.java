@@ -0,0 +1,136 @@
+package com.ezycollect.loadgen;
+
+import com.ezycollect.loadgen.LoadResult.KindResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Writes the reports of a run into the output directory:
+ * - {@code summary.json}: configuration, outcome counts and response/service time percentiles per request kind
+ * - {@code response-time.hgrm} and {@code service-time.hgrm}: full percentile distributions of all measured requests
+ *   in milliseconds, the format HdrHistogram's plotter reads
+ * - {@code response-time.hlog} (written during the run by {@link LoadRun}): per-second interval histograms tagged by
+ *   request kind, readable with HdrHistogram's HistogramLogProcessor
+ */
+public class LoadReport {
+
+    static final String SUMMARY_FILE = "summary.json";
+    static final String INTERVAL_LOG_FILE = "response-time.hlog";
+
+    private static final double MICROS_PER_MILLI = 1000.0;
+    private static final Map<String, Double> PERCENTILES = Map.of(
+            "p50", 50.0, "p90", 90.0, "p99", 99.0, "p99.9", 99.9, "p99.99", 99.99);
+
+    private final ObjectMapper objectMapper;
+
+    public LoadReport(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public void write(LoadResult result, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve(SUMMARY_FILE).toFile(), summary(result));
+        writeDistribution(result.responseTime(), directory.resolve("response-time.hgrm"));
+        writeDistribution(result.serviceTime(), directory.resolve("service-time.hgrm"));
+    }
+
+    public void print(LoadResult result, PrintStream out) {
+        out.printf("%d requests at %.1f/s on %s threads, %d unexpected%n",
+                result.requests(), achievedRate(result), result.threads(), result.unexpected());
+        result.kinds().forEach((kind, kindResult) -> {
+            if (kindResult.requests() > 0) {
+                Histogram responseTime = kindResult.responseTime();
+                out.printf("  %-9s %7d  p50 %8.2f ms  p99 %8.2f ms  p99.9 %8.2f ms  max %8.2f ms  %s%n",
+                        kind.label(),
+                        kindResult.requests(),
+                        millis(responseTime.getValueAtPercentile(50)),
+                        millis(responseTime.getValueAtPercentile(99)),
+                        millis(responseTime.getValueAtPercentile(99.9)),
+                        millis(responseTime.getMaxValue()),
+                        kindResult.outcomes());
+            }
+        });
+    }
+
+    Map<String, Object> summary(LoadResult result) {
+        LoadConfig config = result.config();
+        Map<String, Object> configuration = new LinkedHashMap<>();
+        configuration.put("baseUrl", config.baseUrl().toString());
+        configuration.put("rate", config.rate());
+        configuration.put("warmupSeconds", seconds(config.warmup()));
+        configuration.put("durationSeconds", seconds(config.duration()));
+        configuration.put("mix", config.mix().toString());
+        configuration.put("invoicesPerPayment", config.invoicesPerPayment().toString());
+        configuration.put("invoicePool", config.invoicePool());
+        configuration.put("cardNumberLength", config.cardNumberLength().toString());
+        configuration.put("replayWindow", config.replayWindow());
+        configuration.put("maxInFlight", config.maxInFlight());
+        configuration.put("timeoutSeconds", seconds(config.timeout()));
+        configuration.put("seed", config.seed());
+
+        Map<String, Object> kinds = new LinkedHashMap<>();
+        result.kinds().forEach((kind, kindResult) -> kinds.put(kind.label(), kind(kindResult)));
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("startedAt", result.startedAt().toString());
+        summary.put("config", configuration);
+        summary.put("threads", result.threads());
+        summary.put("requests", result.requests());
+        summary.put("unexpected", result.unexpected());
+        summary.put("achievedRate", achievedRate(result));
+        summary.put("responseTimeMs", percentiles(result.responseTime()));
+        summary.put("serviceTimeMs", percentiles(result.serviceTime()));
+        summary.put("schedulerLagMs", percentiles(result.schedulerLag()));
+        summary.put("kinds", kinds);
+        return summary;
+    }
+
+    private Map<String, Object> kind(KindResult kindResult) {
+        Map<String, Object> kind = new LinkedHashMap<>();
+        kind.put("requests", kindResult.requests());
+        kind.put("unexpected", kindResult.unexpected());
+        kind.put("outcomes", kindResult.outcomes());
+        kind.put("responseTimeMs", percentiles(kindResult.responseTime()));
+        kind.put("serviceTimeMs", percentiles(kindResult.serviceTime()));
+        return kind;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("count", histogram.getTotalCount());
+        if (histogram.getTotalCount() == 0) {
+            return percentiles;
+        }
+        percentiles.put("mean", millis(histogram.getMean()));
+        PERCENTILES.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(entry -> percentiles.put(entry.getKey(), millis(histogram.getValueAtPercentile(entry.getValue()))));
+        percentiles.put("max", millis(histogram.getMaxValue()));
+        return percentiles;
+    }
+
+    private static void writeDistribution(Histogram histogram, Path file) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            histogram.outputPercentileDistribution(out, MICROS_PER_MILLI);
+        }
+    }
+
+    private static double achievedRate(LoadResult result) {
+        return result.dispatchNanos() == 0 ? 0 : result.requests() / (result.dispatchNanos() / 1e9);
+    }
+
+    private static double seconds(Duration duration) {
+        return duration.toMillis() / 1000.0;
+    }
+
+    private static double millis(double micros) {
+        return micros / MICROS_PER_MILLI;
+    }
+}
@@ -0,0 +1,53 @@
+package com.ezycollect.loadgen;
+
+import java.time.Instant;
+import java.util.Map;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Outcome of the measured part of a run. Histograms hold microseconds.
+ *
+ * @param threads {@code virtual} or {@code platform}, whichever the requests were sent on
+ * @param dispatchNanos time the scheduler took to send the measured requests; close to the configured duration unless
+ *     the generator could not keep up
+ * @param schedulerLag how late each measured request was handed to a sending thread, a generator-side health check
+ */
+public record LoadResult(
+        LoadConfig config,
+        String threads,
+        Instant startedAt,
+        long dispatchNanos,
+        Map<RequestKind, KindResult> kinds,
+        Histogram schedulerLag) {
+
+    public long requests() {
+        return kinds.values().stream().mapToLong(KindResult::requests).sum();
+    }
+
+    public long unexpected() {
+        return kinds.values().stream().mapToLong(KindResult::unexpected).sum();
+    }
+
+    public Histogram responseTime() {
+        Histogram all = new Histogram(3);
+        kinds.values().forEach(kind -> all.add(kind.responseTime()));
+        return all;
+    }
+
+    public Histogram serviceTime() {
+        Histogram all = new Histogram(3);
+        kinds.values().forEach(kind -> all.add(kind.serviceTime()));
+        return all;
+    }
+
+    /**
+     * @param outcomes responses per HTTP status, and failed requests per exception (e.g. {@code HttpTimeoutException})
+     * @param unexpected requests answered with a status other than the one their kind expects, or not at all
+     */
+    public record KindResult(Map<String, Long> outcomes, long unexpected, Histogram responseTime, Histogram serviceTime) {
+
+        public long requests() {
+            return responseTime.getTotalCount();
+        }
+    }
+}
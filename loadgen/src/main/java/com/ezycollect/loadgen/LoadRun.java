@@ -0,0 +1,232 @@
+package com.ezycollect.loadgen;
+
+import com.ezycollect.loadgen.PaymentRequestFactory.PaymentRequest;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Sends {@link LoadConfig#totalRequests()} requests on a fixed schedule and records their latencies.
+ *
+ * <p>The schedule is open loop: request {@code i} is due at {@code start + i / rate} whatever happened to earlier
+ * requests, and if the generator falls behind (a stalled scheduler, or {@code maxInFlight} reached) it sends the
+ * overdue requests back to back. Response time is measured from the due time, not from when the request actually
+ * went out, so time a request spent waiting behind a slow server is recorded instead of silently skipped (coordinated
+ * omission). Service time, measured from the actual send, is recorded alongside for comparison.
+ *
+ * <p>Latencies are recorded in microseconds. Every second the response-time histograms of the past interval are
+ * written, tagged with the request kind, to an HdrHistogram interval log if one was given.
+ */
+public class LoadRun {
+
+    private static final long REPORT_INTERVAL_MILLIS = 1000;
+
+    private final LoadConfig config;
+    private final PaymentRequestFactory requests;
+    private final RequestSender sender;
+    private final HistogramLogWriter intervalLog;
+    private final Map<RequestKind, KindStats> stats = new EnumMap<>(RequestKind.class);
+
+    public LoadRun(LoadConfig config, PaymentRequestFactory requests, RequestSender sender, HistogramLogWriter intervalLog) {
+        this.config = config;
+        this.requests = requests;
+        this.sender = sender;
+        this.intervalLog = intervalLog;
+        for (RequestKind kind : RequestKind.values()) {
+            stats.put(kind, new KindStats());
+        }
+    }
+
+    public LoadResult run(PrintStream progress) throws InterruptedException {
+        long total = config.totalRequests();
+        double intervalNanos = 1e9 / config.rate();
+        Semaphore inFlight = new Semaphore(config.maxInFlight());
+        Histogram schedulerLag = new Histogram(3);
+        ExecutorService executor = requestExecutor();
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(daemon("loadgen-report"));
+
+        Instant startedAt = Instant.now();
+        long start = System.nanoTime();
+        long measureFrom = start + config.warmup().toNanos();
+        if (intervalLog != null) {
+            intervalLog.outputLogFormatVersion();
+            intervalLog.outputStartTime(startedAt.toEpochMilli());
+            intervalLog.setBaseTime(startedAt.toEpochMilli());
+            intervalLog.outputLegend();
+        }
+        reporter.scheduleAtFixedRate(
+                () -> collectIntervals(progress),
+                config.warmup().toMillis() + REPORT_INTERVAL_MILLIS,
+                REPORT_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+
+        long measuredDispatchStart = start;
+        boolean measuring = false;
+        try {
+            for (long i = 0; i < total; i++) {
+                long intended = start + (long) (i * intervalNanos);
+                long remaining;
+                while ((remaining = intended - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(remaining);
+                }
+                PaymentRequest request = requests.next();
+                inFlight.acquire();
+                boolean measured = intended >= measureFrom;
+                if (measured) {
+                    if (!measuring) {
+                        // Nothing measured is in flight yet, so the first interval can start here without losing values.
+                        stats.values().forEach(KindStats::startInterval);
+                        measuring = true;
+                        measuredDispatchStart = System.nanoTime();
+                    }
+                    schedulerLag.recordValue(Math.max(0, (System.nanoTime() - intended) / 1000));
+                }
+                executor.execute(() -> {
+                    try {
+                        send(request, intended, measured);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+            long dispatchNanos = System.nanoTime() - measuredDispatchStart;
+            executor.shutdown();
+            if (!executor.awaitTermination(config.timeout().toMillis() + 30_000, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Requests still in flight after the run");
+            }
+            reporter.shutdown();
+            reporter.awaitTermination(10, TimeUnit.SECONDS);
+            collectIntervals(null);
+            return result(startedAt, dispatchNanos, schedulerLag);
+        } finally {
+            executor.shutdownNow();
+            reporter.shutdownNow();
+        }
+    }
+
+    private void send(PaymentRequest request, long intended, boolean measured) {
+        long sent = System.nanoTime();
+        String outcome;
+        boolean expected = false;
+        try {
+            int status = sender.send(request);
+            outcome = Integer.toString(status);
+            expected = request.kind().expects(status);
+        } catch (IOException | RuntimeException ex) {
+            outcome = ex.getClass().getSimpleName();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            outcome = ex.getClass().getSimpleName();
+        }
+        long done = System.nanoTime();
+        if (measured) {
+            stats.get(request.kind()).record((done - intended) / 1000, (done - sent) / 1000, outcome, expected);
+        }
+    }
+
+    private synchronized void collectIntervals(PrintStream progress) {
+        long requests = 0;
+        long worstMicros = 0;
+        for (Map.Entry<RequestKind, KindStats> entry : stats.entrySet()) {
+            Histogram interval = entry.getValue().collectInterval();
+            requests += interval.getTotalCount();
+            worstMicros = Math.max(worstMicros, interval.getMaxValue());
+            if (intervalLog != null && interval.getTotalCount() > 0) {
+                interval.setTag(entry.getKey().label());
+                intervalLog.outputIntervalHistogram(interval);
+            }
+        }
+        if (progress != null) {
+            progress.printf("%d responses, max response time %.1f ms%n", requests, worstMicros / 1000.0);
+        }
+    }
+
+    private LoadResult result(Instant startedAt, long dispatchNanos, Histogram schedulerLag) {
+        Map<RequestKind, LoadResult.KindResult> kinds = new EnumMap<>(RequestKind.class);
+        stats.forEach((kind, kindStats) -> kinds.put(kind, kindStats.result()));
+        return new LoadResult(config, virtualThreads() ? "virtual" : "platform", startedAt, dispatchNanos, kinds, schedulerLag);
+    }
+
+    /** One virtual thread per request when the runtime has them (Java 21+), otherwise a growing platform pool. */
+    static ExecutorService requestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException ex) {
+            return Executors.newCachedThreadPool(daemon("loadgen-request"));
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new IllegalStateException("Failed to create a virtual thread executor", ex);
+        }
+    }
+
+    static boolean virtualThreads() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @FunctionalInterface
+    public interface RequestSender {
+
+        /** Sends the request and returns the HTTP status of the response. */
+        int send(PaymentRequest request) throws IOException, InterruptedException;
+    }
+
+    private static final class KindStats {
+
+        private final Recorder responseTime = new Recorder(3);
+        private final Recorder serviceTime = new Recorder(3);
+        private final Histogram responseTimeTotal = new Histogram(3);
+        private final Histogram serviceTimeTotal = new Histogram(3);
+        private final Map<String, LongAdder> outcomes = new ConcurrentHashMap<>();
+        private final LongAdder unexpected = new LongAdder();
+
+        void record(long responseMicros, long serviceMicros, String outcome, boolean expected) {
+            responseTime.recordValue(responseMicros);
+            serviceTime.recordValue(serviceMicros);
+            outcomes.computeIfAbsent(outcome, key -> new LongAdder()).increment();
+            if (!expected) {
+                unexpected.increment();
+            }
+        }
+
+        void startInterval() {
+            responseTime.reset();
+            serviceTime.reset();
+        }
+
+        Histogram collectInterval() {
+            Histogram interval = responseTime.getIntervalHistogram();
+            responseTimeTotal.add(interval);
+            serviceTimeTotal.add(serviceTime.getIntervalHistogram());
+            return interval;
+        }
+
+        LoadResult.KindResult result() {
+            Map<String, Long> counts = new TreeMap<>();
+            outcomes.forEach((outcome, count) -> counts.put(outcome, count.sum()));
+            return new LoadResult.KindResult(counts, unexpected.sum(), responseTimeTotal, serviceTimeTotal);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.ezycollect.loadgen;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Generates the request sequence of a run from its seed: fresh requests get a new Idempotency-Key and a random
+ * payload, duplicates resend one of the last {@code replayWindow} requests unchanged, and conflicts resend one of them
+ * with an extra invoice id so that the request hash differs. Not thread-safe; only the scheduler calls it.
+ */
+public class PaymentRequestFactory {
+
+    private static final String[] FIRST_NAMES = {"Ada", "Grace", "Alan", "Katherine", "Edsger", "Barbara", "José", "Zoë"};
+    private static final String[] LAST_NAMES = {"Lovelace", "Hopper", "Turing", "Johnson", "Dijkstra", "Liskov", "Núñez"};
+
+    private final LoadConfig config;
+    private final ObjectMapper objectMapper;
+    private final SplittableRandom random;
+    private final int expiryBaseYear;
+    private final PaymentRequest[] recent;
+    private long sent;
+
+    public PaymentRequestFactory(LoadConfig config, ObjectMapper objectMapper, int currentYear) {
+        this.config = config;
+        this.objectMapper = objectMapper;
+        this.random = new SplittableRandom(config.seed());
+        this.expiryBaseYear = currentYear % 100;
+        this.recent = new PaymentRequest[config.replayWindow()];
+    }
+
+    public PaymentRequest next() {
+        RequestKind kind = sent == 0 ? RequestKind.FRESH : config.mix().pick(random.nextInt(Integer.MAX_VALUE));
+        PaymentRequest request = switch (kind) {
+            case FRESH -> fresh();
+            case DUPLICATE -> {
+                PaymentRequest original = pickRecent();
+                yield new PaymentRequest(kind, original.idempotencyKey(), original.payload(), original.body());
+            }
+            case CONFLICT -> {
+                PaymentRequest original = pickRecent();
+                List<String> invoiceIds = new ArrayList<>(original.payload().invoiceIds());
+                invoiceIds.add(invoiceId(invoiceIds.size()));
+                PaymentPayload payload = original.payload().withInvoiceIds(invoiceIds);
+                yield new PaymentRequest(kind, original.idempotencyKey(), payload, serialize(payload));
+            }
+        };
+        if (kind == RequestKind.FRESH) {
+            recent[(int) (sent % recent.length)] = request;
+            sent++;
+        }
+        return request;
+    }
+
+    private PaymentRequest fresh() {
+        int invoices = between(config.invoicesPerPayment().min(), config.invoicesPerPayment().max());
+        List<String> invoiceIds = new ArrayList<>(invoices);
+        for (int i = 0; i < invoices; i++) {
+            invoiceIds.add(invoiceId(i));
+        }
+        PaymentPayload payload = new PaymentPayload(
+                FIRST_NAMES[random.nextInt(FIRST_NAMES.length)],
+                LAST_NAMES[random.nextInt(LAST_NAMES.length)],
+                "%02d/%02d".formatted(between(1, 12), (expiryBaseYear + between(1, 8)) % 100),
+                digits(between(3, 4)),
+                digits(between(config.cardNumberLength().min(), config.cardNumberLength().max())),
+                invoiceIds);
+        return new PaymentRequest(RequestKind.FRESH, UUID.randomUUID().toString(), payload, serialize(payload));
+    }
+
+    private PaymentRequest pickRecent() {
+        return recent[random.nextInt((int) Math.min(sent, recent.length))];
+    }
+
+    private String invoiceId(int position) {
+        // The position keeps ids within one payment distinct; popular invoices still repeat across payments.
+        return "INV-LOAD-%06d-%d".formatted(random.nextInt(config.invoicePool()), position);
+    }
+
+    private String digits(int length) {
+        StringBuilder digits = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            digits.append((char) ('0' + random.nextInt(10)));
+        }
+        return digits.toString();
+    }
+
+    private int between(int min, int max) {
+        return min + random.nextInt(max - min + 1);
+    }
+
+    private byte[] serialize(PaymentPayload payload) {
+        try {
+            return objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize payment payload", ex);
+        }
+    }
+
+    /** The JSON body of {@code POST /payments}, field for field as the server's CreatePaymentRequest. */
+    public record PaymentPayload(
+            String firstName,
+            String lastName,
+            String expiry,
+            String cvv,
+            String cardNumber,
+            List<String> invoiceIds) {
+
+        PaymentPayload withInvoiceIds(List<String> invoiceIds) {
+            return new PaymentPayload(firstName, lastName, expiry, cvv, cardNumber, List.copyOf(invoiceIds));
+        }
+    }
+
+    public record PaymentRequest(RequestKind kind, String idempotencyKey, PaymentPayload payload, byte[] body) {
+    }
+}
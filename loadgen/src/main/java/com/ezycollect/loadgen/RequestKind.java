@@ -0,0 +1,29 @@
+package com.ezycollect.loadgen;
+
+import java.util.Locale;
+import java.util.Set;
+
+/** What a generated request does with its Idempotency-Key, and the statuses the server answers it with. */
+public enum RequestKind {
+
+    /** A new key and payload; creates a payment. */
+    FRESH(Set.of(201)),
+    /** A recently sent key with the same payload; replayed, or coalesced with the original while it is in flight. */
+    DUPLICATE(Set.of(200)),
+    /** A recently sent key with a different payload; rejected as IDEMPOTENCY_KEY_REUSED. */
+    CONFLICT(Set.of(409));
+
+    private final Set<Integer> expectedStatuses;
+
+    RequestKind(Set<Integer> expectedStatuses) {
+        this.expectedStatuses = expectedStatuses;
+    }
+
+    public boolean expects(int status) {
+        return expectedStatuses.contains(status);
+    }
+
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,44 @@
+package com.ezycollect.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class LoadConfigTest {
+
+    @Test
+    void parsesOptionsOverDefaults() {
+        LoadConfig config = LoadConfig.parse(new String[] {
+                "--rate", "1500", "--warmup", "0s", "--duration", "PT2M", "--mix", "fresh=70,conflict=30",
+                "--invoices", "2-8", "--card-length", "12-19", "--timeout", "750ms", "--seed", "42"},
+                Map.of("LOADGEN_BASE_URL", "http://server:8080"));
+
+        assertThat(config.baseUrl()).isEqualTo(URI.create("http://server:8080"));
+        assertThat(config.rate()).isEqualTo(1500);
+        assertThat(config.duration()).isEqualTo(Duration.ofMinutes(2));
+        assertThat(config.mix()).isEqualTo(new LoadConfig.Mix(70, 0, 30));
+        assertThat(config.invoicesPerPayment()).isEqualTo(new LoadConfig.IntRange(2, 8));
+        assertThat(config.cardNumberLength()).isEqualTo(new LoadConfig.IntRange(12, 19));
+        assertThat(config.timeout()).isEqualTo(Duration.ofMillis(750));
+        assertThat(config.maxInFlight()).isEqualTo(512);
+        assertThat(config.seed()).isEqualTo(42);
+        assertThat(config.totalRequests()).isEqualTo(180_000);
+    }
+
+    @Test
+    void rejectsUnknownOptionsAndInvalidValues() {
+        assertThatThrownBy(() -> LoadConfig.parse(new String[] {"--threads", "8"}, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown option --threads");
+        assertThatThrownBy(() -> LoadConfig.parse(new String[] {"--mix", "fresh=0"}, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadConfig.parse(new String[] {"--invoices", "3-1"}, Map.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadConfig.parse(new String[] {"--rate"}, Map.of()))
+                .hasMessage("Missing value for --rate");
+    }
+}
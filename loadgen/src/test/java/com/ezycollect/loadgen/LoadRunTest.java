@@ -0,0 +1,64 @@
+package com.ezycollect.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.Test;
+
+class LoadRunTest {
+
+    private static final PrintStream DISCARD = new PrintStream(OutputStream.nullOutputStream());
+
+    @Test
+    void requestsQueuedBehindAStallCountTheWaitAsResponseTime() throws Exception {
+        // One request at a time, 100/s; the 10th response takes 500ms, so about 50 requests fall behind schedule.
+        LoadConfig config = config("--rate", "100", "--warmup", "0s", "--duration", "2s", "--max-in-flight", "1");
+        AtomicInteger sent = new AtomicInteger();
+        LoadRun run = new LoadRun(config, factory(config), request -> {
+            if (sent.incrementAndGet() == 10) {
+                Thread.sleep(500);
+            }
+            return 201;
+        }, null);
+
+        LoadResult result = run.run(DISCARD);
+
+        Histogram responseTime = result.responseTime();
+        Histogram serviceTime = result.serviceTime();
+        assertThat(result.requests()).isEqualTo(200);
+        assertThat(serviceTime.getValueAtPercentile(90)).isLessThan(50_000);
+        assertThat(responseTime.getValueAtPercentile(90)).isGreaterThan(100_000);
+        assertThat(responseTime.getMaxValue()).isGreaterThanOrEqualTo(490_000);
+    }
+
+    @Test
+    void countsOutcomesPerKindAndSkipsTheWarmup() throws Exception {
+        LoadConfig config = config("--rate", "200", "--warmup", "500ms", "--duration", "1s", "--mix", "fresh=1,conflict=1");
+        LoadRun run = new LoadRun(config, factory(config), request -> switch (request.kind()) {
+            case FRESH -> 201;
+            case DUPLICATE -> 200;
+            case CONFLICT -> 500;
+        }, null);
+
+        LoadResult result = run.run(DISCARD);
+
+        assertThat(result.requests()).isEqualTo(200);
+        LoadResult.KindResult conflicts = result.kinds().get(RequestKind.CONFLICT);
+        assertThat(conflicts.outcomes()).containsOnlyKeys("500");
+        assertThat(result.unexpected()).isEqualTo(conflicts.requests()).isPositive();
+        assertThat(result.kinds().get(RequestKind.FRESH).outcomes()).containsOnlyKeys("201");
+    }
+
+    private static LoadConfig config(String... args) {
+        return LoadConfig.parse(args, Map.of());
+    }
+
+    private static PaymentRequestFactory factory(LoadConfig config) {
+        return new PaymentRequestFactory(config, new ObjectMapper(), 2026);
+    }
+}
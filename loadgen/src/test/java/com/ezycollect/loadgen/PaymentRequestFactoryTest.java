@@ -0,0 +1,72 @@
+package com.ezycollect.loadgen;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.loadgen.PaymentRequestFactory.PaymentRequest;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class PaymentRequestFactoryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void duplicatesResendAKeyUnchangedAndConflictsChangeItsPayload() {
+        PaymentRequestFactory factory = factory("--mix", "fresh=50,duplicate=30,conflict=20");
+        Map<String, PaymentRequest> sent = new HashMap<>();
+        Map<RequestKind, Integer> kinds = new HashMap<>();
+
+        for (int i = 0; i < 2000; i++) {
+            PaymentRequest request = factory.next();
+            kinds.merge(request.kind(), 1, Integer::sum);
+            switch (request.kind()) {
+                case FRESH -> assertThat(sent.put(request.idempotencyKey(), request)).isNull();
+                case DUPLICATE -> assertThat(request.body()).isEqualTo(sent.get(request.idempotencyKey()).body());
+                case CONFLICT -> assertThat(request.body()).isNotEqualTo(sent.get(request.idempotencyKey()).body());
+            }
+        }
+
+        assertThat(kinds.get(RequestKind.FRESH)).isBetween(900, 1100);
+        assertThat(kinds.get(RequestKind.DUPLICATE)).isBetween(500, 700);
+        assertThat(kinds.get(RequestKind.CONFLICT)).isBetween(300, 500);
+    }
+
+    @Test
+    void payloadsStayWithinTheApiConstraints() throws Exception {
+        PaymentRequestFactory factory = factory("--invoices", "2-5", "--card-length", "12-19", "--mix", "fresh=1");
+
+        for (int i = 0; i < 500; i++) {
+            PaymentRequest request = factory.next();
+            Map<String, Object> body = objectMapper.readValue(request.body(), new TypeReference<>() {});
+            assertThat(body.keySet()).containsExactly("firstName", "lastName", "expiry", "cvv", "cardNumber", "invoiceIds");
+            assertThat((String) body.get("cardNumber")).matches("\\d{12,19}");
+            assertThat((String) body.get("cvv")).matches("\\d{3,4}");
+            assertThat((String) body.get("expiry")).matches("(0[1-9]|1[0-2])/\\d{2}");
+            assertThat((List<?>) body.get("invoiceIds")).hasSizeBetween(2, 5).doesNotHaveDuplicates();
+        }
+    }
+
+    @Test
+    void sameSeedGivesTheSamePayloads() {
+        PaymentRequestFactory first = factory("--seed", "7");
+        PaymentRequestFactory second = factory("--seed", "7");
+        List<String> firstBodies = new ArrayList<>();
+        List<String> secondBodies = new ArrayList<>();
+
+        for (int i = 0; i < 100; i++) {
+            firstBodies.add(first.next().payload().toString());
+            secondBodies.add(second.next().payload().toString());
+        }
+
+        assertThat(firstBodies).isEqualTo(secondBodies);
+    }
+
+    private PaymentRequestFactory factory(String... args) {
+        return new PaymentRequestFactory(LoadConfig.parse(args, Map.of()), objectMapper, 2026);
+    }
+}
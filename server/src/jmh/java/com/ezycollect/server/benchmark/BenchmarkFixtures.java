@@ -0,0 +1,45 @@
+package com.ezycollect.server.benchmark;
+
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+public final class BenchmarkFixtures {
+
+    public static final String ENCRYPTION_KEY_B64 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+    private BenchmarkFixtures() {
+    }
+
+    public static CreatePaymentRequest request(String firstName, int invoiceCount) {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setFirstName(firstName);
+        request.setLastName("Lovelace");
+        request.setExpiry("12/29");
+        request.setCvv("123");
+        request.setCardNumber("4242424242424242");
+        request.setInvoiceIds(invoiceIds(invoiceCount));
+        return request;
+    }
+
+    public static List<String> invoiceIds(int count) {
+        List<String> invoiceIds = new ArrayList<>(count);
+        for (int i = count; i > 0; i--) {
+            invoiceIds.add("INV-2025-%05d".formatted(i));
+        }
+        return invoiceIds;
+    }
+
+    /**
+     * Mirrors the ObjectMapper Spring Boot builds from application.yml, so JSON benchmarks measure the same
+     * configuration that PaymentService gets injected.
+     */
+    public static ObjectMapper applicationObjectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package com.ezycollect.server.benchmark;
+
+import com.ezycollect.server.EzyCollectApplication;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * Boots the application without a web server against an in-memory H2 database running in MySQL mode, so
+ * end-to-end benchmarks exercise the real service and repositories without external infrastructure. The schema
+ * comes from benchmark-schema.sql because H2 cannot run the MySQL-specific Flyway migrations.
+ *
+ * <p>Benchmarks whose result depends on real commit latency can run against MySQL instead by passing
+ * {@code -jvmArgsAppend "-Dbenchmark.datasource.url=jdbc:mysql://... -Dbenchmark.datasource.username=...
+ * -Dbenchmark.datasource.password=..."}; the schema is then created by the Flyway migrations.
+ *
+ * <p>{@code benchmark.commit-latency=<duration>} (passed like any other property) makes every JDBC commit sleep while
+ * holding its connection, standing in for the MySQL redo-log fsync and network round trip that H2 does not have.
+ */
+public final class LocalDatabaseContext implements AutoCloseable {
+
+    private final ConfigurableApplicationContext context;
+
+    private LocalDatabaseContext(ConfigurableApplicationContext context) {
+        this.context = context;
+    }
+
+    public static LocalDatabaseContext start(String... extraProperties) {
+        return start(WebApplicationType.NONE, extraProperties);
+    }
+
+    /** Like {@link #start}, but also serves HTTP on a random local port (see {@link #port()}). */
+    public static LocalDatabaseContext startWebServer(String... extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(extraProperties));
+        properties.add("server.port=0");
+        return start(WebApplicationType.SERVLET, properties.toArray(String[]::new));
+    }
+
+    private static LocalDatabaseContext start(WebApplicationType webApplicationType, String... extraProperties) {
+        List<String> args = new ArrayList<>(datasourceArgs());
+        args.addAll(List.of(
+                "--spring.jpa.open-in-view=false",
+                "--logging.level.root=WARN",
+                "--PAYMENTS_ENCRYPTION_KEY_B64=" + BenchmarkFixtures.ENCRYPTION_KEY_B64));
+        for (String property : extraProperties) {
+            args.add("--" + property);
+        }
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(EzyCollectApplication.class)
+                .web(webApplicationType)
+                .initializers(LocalDatabaseContext::addCommitLatency)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+        return new LocalDatabaseContext(context);
+    }
+
+    private static List<String> datasourceArgs() {
+        String mysqlUrl = System.getProperty("benchmark.datasource.url");
+        if (mysqlUrl != null) {
+            return List.of(
+                    "--spring.datasource.url=" + mysqlUrl,
+                    "--spring.datasource.username=" + System.getProperty("benchmark.datasource.username", "ezy"),
+                    "--spring.datasource.password=" + System.getProperty("benchmark.datasource.password", ""));
+        }
+        String databaseName = "bench_" + UUID.randomUUID().toString().replace("-", "");
+        return List.of(
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.url=jdbc:h2:mem:" + databaseName
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.sql.init.mode=always",
+                "--spring.sql.init.schema-locations=classpath:benchmark-schema.sql",
+                "--spring.jpa.hibernate.ddl-auto=none");
+    }
+
+    private static void addCommitLatency(ConfigurableApplicationContext context) {
+        Duration latency = context.getEnvironment().getProperty("benchmark.commit-latency", Duration.class, Duration.ZERO);
+        if (latency.isZero()) {
+            return;
+        }
+        context.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource dataSource ? new CommitLatencyDataSource(dataSource, latency) : bean;
+            }
+        });
+    }
+
+    public int port() {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static final class CommitLatencyDataSource extends DelegatingDataSource {
+
+        private final Duration latency;
+
+        private CommitLatencyDataSource(DataSource target, Duration latency) {
+            super(target);
+            this.latency = latency;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return withCommitLatency(super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            return withCommitLatency(super.getConnection(username, password));
+        }
+
+        private Connection withCommitLatency(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().equals("commit")) {
+                            Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getTargetException();
+                        }
+                    });
+        }
+    }
+}
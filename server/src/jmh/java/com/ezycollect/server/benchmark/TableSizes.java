@@ -0,0 +1,44 @@
+package com.ezycollect.server.benchmark;
+
+import java.util.Map;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** Prints a table's data and index sizes from InnoDB statistics; H2 has no equivalent, so it only says so there. */
+public final class TableSizes {
+
+    private TableSizes() {
+    }
+
+    public static void print(JdbcTemplate jdbcTemplate, String table) {
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"MySQL".equals(product)) {
+            System.out.printf("%n[%s] index sizes are only reported on MySQL (running on %s)%n", table, product);
+            return;
+        }
+        jdbcTemplate.execute("ANALYZE TABLE " + table);
+        Map<String, Object> sizes = jdbcTemplate.queryForMap(
+                """
+                SELECT table_rows, data_length, index_length
+                FROM information_schema.tables
+                WHERE table_schema = DATABASE() AND table_name = ?
+                """,
+                table);
+        System.out.printf("%n[%s] rows~%s clustered (PK + rows)=%.1f MiB secondary indexes=%.1f MiB%n",
+                table, sizes.get("table_rows"), mib(sizes.get("data_length")), mib(sizes.get("index_length")));
+        jdbcTemplate.queryForList(
+                        """
+                        SELECT index_name, stat_name, stat_value, stat_value * @@innodb_page_size AS bytes
+                        FROM mysql.innodb_index_stats
+                        WHERE database_name = DATABASE() AND table_name = ? AND stat_name IN ('size', 'n_leaf_pages')
+                        """,
+                        table)
+                .forEach(row -> System.out.printf("[%s]   %s %s=%s (%.1f MiB)%n",
+                        table, row.get("index_name"), row.get("stat_name"), row.get("stat_value"), mib(row.get("bytes"))));
+    }
+
+    private static double mib(Object bytes) {
+        return ((Number) bytes).doubleValue() / (1024 * 1024);
+    }
+}
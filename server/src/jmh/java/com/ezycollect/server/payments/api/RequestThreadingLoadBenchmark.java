@@ -0,0 +1,106 @@
+package com.ezycollect.server.payments.api;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * HTTP load against POST /payments with request handling on Tomcat's platform threads versus virtual threads.
+ * Each invocation sends {@value #CONCURRENCY} requests at once and waits for all of them, so more requests are in
+ * flight than Tomcat's 200-thread pool. Every commit sleeps for benchmark.commit-latency to stand in for a
+ * MySQL round trip.
+ *
+ * <p>Modes use the pool sizes the server would run with: platform = default Hikari pool (10), virtual = the
+ * virtual-threads profile (50). The virtual mode needs a Java 21 runtime:
+ * {@code ./mvnw -Pbenchmarks,java21 -DskipTests test-compile exec:exec -Djmh.args="RequestThreadingLoadBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class RequestThreadingLoadBenchmark {
+
+    private static final int CONCURRENCY = 400;
+
+    @Param({"platform", "virtual"})
+    private String threads;
+
+    @Param({"5ms"})
+    private String commitLatency;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private LocalDatabaseContext server;
+    private HttpClient client;
+    private URI paymentsUri;
+    private String body;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        boolean virtual = "virtual".equals(threads);
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual-thread mode needs a Java 21 runtime (-Pjava21)");
+        }
+        server = LocalDatabaseContext.startWebServer(
+                "spring.threads.virtual.enabled=" + virtual,
+                "spring.datasource.hikari.maximum-pool-size=" + (virtual ? 50 : 10),
+                "benchmark.commit-latency=" + commitLatency);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        paymentsUri = URI.create("http://localhost:" + server.port() + "/payments");
+        body = new ObjectMapper().writeValueAsString(BenchmarkFixtures.request("Ada", 3));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int createPayments() {
+        List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(CONCURRENCY);
+        for (int i = 0; i < CONCURRENCY; i++) {
+            HttpRequest request = HttpRequest.newBuilder(paymentsUri)
+                    .header("Content-Type", "application/json")
+                    .header("Idempotency-Key", "load-" + keySequence.incrementAndGet())
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding()));
+        }
+        int created = 0;
+        for (CompletableFuture<HttpResponse<Void>> response : responses) {
+            if (response.join().statusCode() == 201) {
+                created++;
+            }
+        }
+        if (created != CONCURRENCY) {
+            throw new IllegalStateException("Only " + created + " of " + CONCURRENCY + " requests succeeded");
+        }
+        return created;
+    }
+}
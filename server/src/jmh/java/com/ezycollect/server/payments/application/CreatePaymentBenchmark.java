@@ -0,0 +1,80 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.application.error.IdempotencyConflictException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end PaymentService.createPayment against the local H2 stand-in:
+ * - fresh: every invocation uses a new Idempotency-Key and creates a payment
+ * - replay: the same key and payload are sent again and the stored response is replayed
+ * - conflict: the same key is sent with a different payload and rejected
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreatePaymentBenchmark {
+
+    private static final String EXISTING_KEY = "bench-existing-key";
+
+    @Param({"fresh", "replay", "conflict"})
+    private String scenario;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private LocalDatabaseContext database;
+    private PaymentService paymentService;
+    private CreatePaymentRequest request;
+    private CreatePaymentRequest conflictingRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start();
+        paymentService = database.bean(PaymentService.class);
+        request = BenchmarkFixtures.request("Ada", 3);
+        conflictingRequest = BenchmarkFixtures.request("Grace", 3);
+        paymentService.createPayment(EXISTING_KEY, request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object createPayment() {
+        return switch (scenario) {
+            case "fresh" -> paymentService.createPayment("bench-" + keySequence.incrementAndGet(), request);
+            case "replay" -> paymentService.createPayment(EXISTING_KEY, request);
+            case "conflict" -> conflict();
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        };
+    }
+
+    private Object conflict() {
+        try {
+            return paymentService.createPayment(EXISTING_KEY, conflictingRequest);
+        } catch (IdempotencyConflictException ex) {
+            return ex;
+        }
+    }
+}
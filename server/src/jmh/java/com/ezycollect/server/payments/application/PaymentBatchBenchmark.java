@@ -0,0 +1,67 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItem;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fresh-key batches through PaymentBatchService on the H2 stand-in; divide by batchSize for per-payment cost and
+ * compare with CreatePaymentBenchmark's {@code fresh} scenario.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentBatchBenchmark {
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private LocalDatabaseContext database;
+    private PaymentBatchService paymentBatchService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start();
+        paymentBatchService = database.bean(PaymentBatchService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public CreatePaymentBatchResponse createBatch() {
+        List<CreatePaymentBatchItem> items = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            CreatePaymentBatchItem item = new CreatePaymentBatchItem();
+            item.setIdempotencyKey("bench-batch-" + keySequence.incrementAndGet());
+            item.setPayment(BenchmarkFixtures.request("Ada", 3));
+            items.add(item);
+        }
+        return paymentBatchService.createPayments(items);
+    }
+}
@@ -0,0 +1,79 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fresh payment creation under concurrency in direct-commit mode versus journal mode
+ * (payments.journal.enabled=true). SampleTime reports p99; Throughput reports ops/ms across all threads.
+ * Concurrent callers are what let the journal group several records into one fsync.
+ *
+ * <p>The in-memory H2 stand-in has no commit cost, so the direct mode is flattered here; pass
+ * -Dbenchmark.datasource.url (see LocalDatabaseContext) to compare against a real MySQL commit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class PaymentJournalBenchmark {
+
+    @Param({"direct", "journal"})
+    private String mode;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private Path journalDirectory;
+    private LocalDatabaseContext database;
+    private PaymentService paymentService;
+    private CreatePaymentRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        journalDirectory = Files.createTempDirectory("payment-journal-bench");
+        database = LocalDatabaseContext.start(
+                "payments.journal.enabled=" + "journal".equals(mode),
+                "payments.journal.directory=" + journalDirectory);
+        paymentService = database.bean(PaymentService.class);
+        request = BenchmarkFixtures.request("Ada", 3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+        try (Stream<Path> files = Files.walk(journalDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object createPayment() {
+        return paymentService.createPayment("bench-" + keySequence.incrementAndGet(), request);
+    }
+}
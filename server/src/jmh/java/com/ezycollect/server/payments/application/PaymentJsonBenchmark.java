@@ -0,0 +1,63 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Covers the ObjectMapper calls made per payment: invoice ID serialization, response serialization for the
+ * idempotency record and response deserialization, which only batch replays still need (see PaymentReplayBenchmark).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentJsonBenchmark {
+
+    private ObjectMapper objectMapper;
+    private List<String> invoiceIds;
+    private CreatePaymentResponse response;
+    private String responseJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = BenchmarkFixtures.applicationObjectMapper();
+        invoiceIds = BenchmarkFixtures.invoiceIds(10);
+        response = new CreatePaymentResponse(
+                "b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400",
+                "CREATED",
+                Instant.parse("2026-02-25T12:34:56Z"));
+        responseJson = objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public String serializeInvoiceIds() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(invoiceIds);
+    }
+
+    @Benchmark
+    public String serializeResponse() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(response);
+    }
+
+    @Benchmark
+    public CreatePaymentResponse deserializeResponse() throws JsonProcessingException {
+        return objectMapper.readValue(responseJson, CreatePaymentResponse.class);
+    }
+}
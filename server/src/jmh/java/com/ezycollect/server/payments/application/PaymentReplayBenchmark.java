@@ -0,0 +1,97 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+/**
+ * Writing a stored idempotency response to the HTTP response, as Spring MVC does for POST /payments replays:
+ * - reserialized: the stored JSON is parsed into a CreatePaymentResponse and Jackson's converter writes it again
+ *   (the replay path before response bodies were kept as bytes)
+ * - storedBytes: the stored bytes go through the byte array converter unchanged
+ *
+ * <p>Both write into a reused buffer, so the difference is the parse and re-serialization alone; the default
+ * {@code -prof gc} arguments report the allocation per replay next to the latency.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentReplayBenchmark {
+
+    private ObjectMapper objectMapper;
+    private MappingJackson2HttpMessageConverter jsonConverter;
+    private ByteArrayHttpMessageConverter byteArrayConverter;
+    private byte[] storedBody;
+    private ReusableOutputMessage output;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = BenchmarkFixtures.applicationObjectMapper();
+        jsonConverter = new MappingJackson2HttpMessageConverter(objectMapper);
+        byteArrayConverter = new ByteArrayHttpMessageConverter();
+        storedBody = objectMapper.writeValueAsBytes(new CreatePaymentResponse(
+                "b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400",
+                "CREATED",
+                Instant.parse("2026-02-25T12:34:56Z")));
+        output = new ReusableOutputMessage();
+    }
+
+    @Benchmark
+    public int reserialized() throws IOException {
+        output.reset();
+        CreatePaymentResponse response = objectMapper.readValue(storedBody, CreatePaymentResponse.class);
+        jsonConverter.write(response, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    @Benchmark
+    public int storedBytes() throws IOException {
+        output.reset();
+        byteArrayConverter.write(storedBody, MediaType.APPLICATION_JSON, output);
+        return output.body.size();
+    }
+
+    private static final class ReusableOutputMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream(256);
+
+        void reset() {
+            headers.clear();
+            body.reset();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public OutputStream getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentStatusChange;
+import com.ezycollect.server.payments.domain.PaymentTransition;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Authorizes {@value #PAYMENTS} payments per invocation, one transaction per payment ({@code single}) versus
+ * {@code chunkSize} conditional updates per transaction and JDBC batch ({@code bulk}); scores are transitions per
+ * second. Against MySQL ({@code benchmark.datasource.url}) the single path pays a commit per transition.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentTransitionBenchmark {
+
+    private static final int PAYMENTS = 10_000;
+
+    @Param({"1000"})
+    private int chunkSize;
+
+    private LocalDatabaseContext database;
+    private JdbcTemplate jdbcTemplate;
+    private PaymentTransitionService paymentTransitionService;
+    private List<UUID> paymentIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start();
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        paymentTransitionService = database.bean(PaymentTransitionService.class);
+        paymentIds = new ArrayList<>(PAYMENTS);
+        List<Object[]> payments = new ArrayList<>(PAYMENTS);
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < PAYMENTS; i++) {
+            UUID id = PaymentIds.next();
+            paymentIds.add(id);
+            payments.add(new Object[] {
+                    PaymentIds.toBytes(id), "Ada", "Lovelace", "4242", "[\"INV-2025-00001\"]",
+                    new byte[32], new byte[12], "k1", "CREATED", now});
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO payments (
+                  id, first_name, last_name, card_last4, invoice_ids_json,
+                  card_number_ciphertext, card_number_iv, card_number_key_id, status, created_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                payments);
+    }
+
+    /** Runs once per invocation, which authorizes every payment and takes far longer than this reset. */
+    @Setup(Level.Invocation)
+    public void resetStatuses() {
+        jdbcTemplate.update("UPDATE payments SET status = 'CREATED'");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYMENTS)
+    public void single() {
+        for (UUID paymentId : paymentIds) {
+            paymentTransitionService.transition(paymentId, PaymentTransition.AUTHORIZE);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PAYMENTS)
+    public int bulk() {
+        int applied = 0;
+        for (int from = 0; from < PAYMENTS; from += chunkSize) {
+            List<PaymentStatusChange> changes = paymentIds.subList(from, Math.min(from + chunkSize, PAYMENTS)).stream()
+                    .map(paymentId -> new PaymentStatusChange(paymentId, PaymentTransition.AUTHORIZE))
+                    .toList();
+            applied += paymentTransitionService.transitionAll(changes).results().size();
+        }
+        return applied;
+    }
+}
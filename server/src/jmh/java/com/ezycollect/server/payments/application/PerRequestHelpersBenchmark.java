@@ -0,0 +1,81 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.application.hash.PaymentRequestHashService;
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptionKeyProvider;
+import com.ezycollect.server.payments.domain.IdempotencyStorageEncoding;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per-request helper work of a payment creation: request hash, key digest, card number encryption and payment id.
+ * {@code pooled} is the application's path, with helpers kept in pools across requests. {@code freshHelpers} builds
+ * every helper for each request, which is what the earlier per-thread caches amounted to with a new virtual thread
+ * per request: a new hasher, {@code SHA-256} digest, cipher with its IV prefix, and a {@code SHA1PRNG} seeded from the
+ * shared {@link SecureRandom}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class PerRequestHelpersBenchmark {
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private EncryptionKeyProvider keyProvider;
+    private PaymentRequestHashService hashService;
+    private AesGcmCrypto crypto;
+    private CreatePaymentRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keyProvider = new EncryptionKeyProvider(BenchmarkFixtures.ENCRYPTION_KEY_B64);
+        hashService = new PaymentRequestHashService();
+        crypto = new AesGcmCrypto(keyProvider);
+        request = BenchmarkFixtures.request("Ada", 3);
+    }
+
+    @Benchmark
+    public void pooled(Blackhole blackhole) {
+        blackhole.consume(hashService.hash(request));
+        blackhole.consume(IdempotencyStorageEncoding.keyDigest("key-" + request.getFirstName()));
+        blackhole.consume(crypto.encrypt(request.getCardNumber()));
+        blackhole.consume(PaymentIds.next());
+    }
+
+    @Benchmark
+    public void freshHelpers(Blackhole blackhole) throws GeneralSecurityException {
+        blackhole.consume(new PaymentRequestHashService().hash(request));
+        blackhole.consume(MessageDigest.getInstance("SHA-256")
+                .digest(("key-" + request.getFirstName()).getBytes(StandardCharsets.UTF_8)));
+        blackhole.consume(new AesGcmCrypto(keyProvider).encrypt(request.getCardNumber()));
+        SecureRandom generator = SecureRandom.getInstance("SHA1PRNG");
+        byte[] seed = new byte[32];
+        SECURE_RANDOM.nextBytes(seed);
+        generator.setSeed(seed);
+        blackhole.consume(generator.nextLong());
+        blackhole.consume(PaymentIds.next());
+    }
+}
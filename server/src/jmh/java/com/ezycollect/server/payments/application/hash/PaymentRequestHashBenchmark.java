@@ -0,0 +1,90 @@
+package com.ezycollect.server.payments.application.hash;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Streaming canonical hasher used by PaymentRequestHashService versus the previous implementation (canonical record
+ * serialized by a sorted-properties ObjectMapper, MessageDigest per call, String.format hex encoding).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentRequestHashBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int invoiceCount;
+
+    private PaymentRequestHashService hashService;
+    private ObjectMapper canonicalObjectMapper;
+    private CreatePaymentRequest request;
+
+    @Setup
+    public void setUp() {
+        hashService = new PaymentRequestHashService();
+        canonicalObjectMapper = new ObjectMapper()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        request = BenchmarkFixtures.request("Ada", invoiceCount);
+        if (!hashService.hash(request).equals(legacyObjectMapper())) {
+            throw new IllegalStateException("Streaming and ObjectMapper hashes differ");
+        }
+    }
+
+    @Benchmark
+    public String streaming() {
+        return hashService.hash(request);
+    }
+
+    @Benchmark
+    public String legacyObjectMapper() {
+        String cardNumber = request.getCardNumber();
+        LegacyCanonicalRequest payload = new LegacyCanonicalRequest(
+                request.getFirstName(),
+                request.getLastName(),
+                request.getExpiry(),
+                cardNumber.substring(Math.max(0, cardNumber.length() - 4)),
+                request.getInvoiceIds().stream().sorted().toList());
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonicalObjectMapper.writeValueAsBytes(payload));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record LegacyCanonicalRequest(
+            String firstName,
+            String lastName,
+            String expiry,
+            String cardLast4,
+            List<String> invoiceIds
+    ) {
+    }
+}
@@ -0,0 +1,105 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.IdempotencyClaimOutcome;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Claims and completes a key through each {@link IdempotencyStore} inside a transaction, as payment creation does.
+ * {@code fresh} claims a new key and completes it; {@code duplicate} claims a key that is already completed. The
+ * {@code jdbc} store runs against the in-memory benchmark database, so it measures the statements without network
+ * latency; against MySQL the gap to {@code mmap} is wider.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class IdempotencyStoreBenchmark {
+
+    private static final String REQUEST_HASH = "a".repeat(64);
+    private static final String EXISTING_KEY = "bench-existing-key";
+    private static final UUID PAYMENT_ID = UUID.fromString("b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400");
+    private static final byte[] RESPONSE_BODY =
+            "{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"jdbc", "mmap"})
+    private String store;
+
+    @Param({"fresh", "duplicate"})
+    private String scenario;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private Path tableDirectory;
+    private LocalDatabaseContext database;
+    private TransactionTemplate transactionTemplate;
+    private IdempotencyStore idempotencyStore;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        tableDirectory = Files.createTempDirectory("idempotency-store-bench");
+        database = LocalDatabaseContext.start(
+                "payments.idempotency.store=" + store,
+                "payments.idempotency.mmap.file=" + tableDirectory.resolve("idempotency.table"),
+                // Fresh keys expire quickly so the table's fixed capacity is recycled instead of filling up.
+                "payments.idempotency.retention=" + ("fresh".equals(scenario) ? "2s" : "24h"),
+                "payments.idempotency.purge.interval=1s");
+        transactionTemplate = database.bean(TransactionTemplate.class);
+        idempotencyStore = database.bean(IdempotencyStore.class);
+
+        Instant now = Instant.now();
+        idempotencyStore.claim(EXISTING_KEY, REQUEST_HASH, now);
+        idempotencyStore.complete(EXISTING_KEY, PAYMENT_ID, 201, RESPONSE_BODY, now);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+        try (Stream<Path> files = Files.walk(tableDirectory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Object claimAndComplete() {
+        return transactionTemplate.execute(status -> {
+            String key = "fresh".equals(scenario) ? "bench-" + keySequence.incrementAndGet() : EXISTING_KEY;
+            IdempotencyClaim claim = idempotencyStore.claim(key, REQUEST_HASH, Instant.now());
+            if (claim.outcome() == IdempotencyClaimOutcome.NEW) {
+                idempotencyStore.complete(key, PAYMENT_ID, 201, RESPONSE_BODY, Instant.now());
+            }
+            return claim;
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.ezycollect.server.payments.application.metrics;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.application.PaymentService;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Outcome;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Sample;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Stage;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of the {@code payments.create} stage timers.
+ * - sampleLifecycle: one request's worth of laps and timer updates, against a Prometheus registry with percentile
+ *   histograms ("enabled") or a registry without children whose timers are no-ops ("disabled")
+ * - createPayment / replayPayment: end-to-end PaymentService.createPayment on H2 with the application's metrics
+ *   configuration, and with the payments meters denied through {@code management.metrics.enable.payments=false}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentCreationMetricsBenchmark {
+
+    private static final String EXISTING_KEY = "bench-existing-key";
+
+    @Param({"enabled", "disabled"})
+    private String instrumentation;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private PaymentCreationMetrics standaloneMetrics;
+    private LocalDatabaseContext database;
+    private PaymentService paymentService;
+    private CreatePaymentRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean enabled = "enabled".equals(instrumentation);
+        if (enabled) {
+            PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+            registry.config().meterFilter(new MeterFilter() {
+                @Override
+                public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                    return DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config);
+                }
+            });
+            standaloneMetrics = new PaymentCreationMetrics(registry);
+        } else {
+            standaloneMetrics = new PaymentCreationMetrics(new CompositeMeterRegistry());
+        }
+
+        database = enabled
+                ? LocalDatabaseContext.start()
+                : LocalDatabaseContext.start("management.metrics.enable.payments=false");
+        paymentService = database.bean(PaymentService.class);
+        request = BenchmarkFixtures.request("Ada", 3);
+        paymentService.createPayment(EXISTING_KEY, request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Sample sampleLifecycle() {
+        Sample sample = standaloneMetrics.start();
+        sample.lap(Stage.HASH);
+        sample.lap(Stage.REPLAY_LOOKUP);
+        sample.lap(Stage.CLAIM);
+        sample.lap(Stage.ENCRYPT);
+        sample.lap(Stage.SAVE);
+        sample.lap(Stage.FINALIZE);
+        sample.lap(Stage.COMMIT);
+        sample.outcome(Outcome.CREATED);
+        sample.finish();
+        return sample;
+    }
+
+    @Benchmark
+    public Object createPayment() {
+        return paymentService.createPayment("bench-" + keySequence.incrementAndGet(), request);
+    }
+
+    @Benchmark
+    public Object replayPayment() {
+        return paymentService.createPayment(EXISTING_KEY, request);
+    }
+}
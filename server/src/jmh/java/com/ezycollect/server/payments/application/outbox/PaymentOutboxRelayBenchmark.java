@@ -0,0 +1,118 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentOutboxRepository;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Drains {@code events} outbox rows into the in-process queue sink with {@code relays} relays claiming concurrently
+ * through {@code FOR UPDATE SKIP LOCKED}. Against MySQL ({@code benchmark.datasource.url}) each batch pays a commit,
+ * which is where additional relays help.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PaymentOutboxRelayBenchmark {
+
+    private static final byte[] PAYLOAD = ("{\"type\":\"PaymentCreated\",\"paymentId\":\"01950c84-6a2e-7cc1-9d3b-3f6f0b0e2a10\","
+            + "\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\",\"invoiceIds\":[\"INV-2025-00001\"]}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"20000"})
+    private int events;
+
+    @Param({"1", "4"})
+    private int relays;
+
+    @Param({"500"})
+    private int batchSize;
+
+    private LocalDatabaseContext database;
+    private PaymentOutboxRepository paymentOutboxRepository;
+    private QueuePaymentEventSink sink;
+    private PaymentOutboxRelay relay;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start(
+                "payments.outbox.enabled=true",
+                "payments.outbox.sink=queue",
+                "payments.outbox.queue.capacity=" + events,
+                "payments.outbox.relay.interval=1h");
+        paymentOutboxRepository = database.bean(PaymentOutboxRepository.class);
+        sink = database.bean(QueuePaymentEventSink.class);
+        relay = new PaymentOutboxRelay(
+                paymentOutboxRepository,
+                sink,
+                database.bean(TransactionTemplate.class),
+                batchSize,
+                Integer.MAX_VALUE,
+                Duration.ofHours(1));
+        executor = Executors.newFixedThreadPool(relays);
+    }
+
+    @Setup(Level.Iteration)
+    public void fillOutbox() {
+        List<OutboxEvent> rows = new ArrayList<>(events);
+        Instant now = Instant.now();
+        for (int i = 0; i < events; i++) {
+            rows.add(new OutboxEvent(0, PaymentOutbox.PAYMENT_CREATED, PaymentIds.next(), PAYLOAD, now));
+        }
+        database.bean(TransactionTemplate.class).executeWithoutResult(status -> paymentOutboxRepository.insertAll(rows));
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkDrained() {
+        int published = sink.drainTo(new ArrayList<>(events), Integer.MAX_VALUE);
+        Integer left = database.bean(JdbcTemplate.class).queryForObject("SELECT COUNT(*) FROM payment_outbox", Integer.class);
+        if (published != events || left != 0) {
+            throw new IllegalStateException(published + " events published, " + left + " left in the outbox");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        database.close();
+    }
+
+    @Benchmark
+    public void drain() throws Exception {
+        List<Future<?>> running = new ArrayList<>(relays);
+        for (int i = 0; i < relays; i++) {
+            running.add(executor.submit(relay::relay));
+        }
+        for (Future<?> future : running) {
+            future.get();
+        }
+    }
+}
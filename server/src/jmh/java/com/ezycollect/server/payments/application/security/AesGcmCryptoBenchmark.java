@@ -0,0 +1,116 @@
+package com.ezycollect.server.payments.application.security;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AesGcmCrypto (per-thread cipher, prefix + counter IVs) versus the previous implementation
+ * (Cipher.getInstance per call, IVs from one shared SecureRandom) at 1, 4 and all available threads. Both share one
+ * instance across threads, as the Spring singleton does; compare throughput between thread counts for scaling.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AesGcmCryptoBenchmark {
+
+    private static final String CARD_NUMBER = "4242424242424242";
+    private static final int BATCH_SIZE = 100;
+    private static final List<String> CARD_NUMBERS = Collections.nCopies(BATCH_SIZE, CARD_NUMBER);
+
+    private AesGcmCrypto crypto;
+    private LegacyAesGcmCrypto legacyCrypto;
+
+    @Setup
+    public void setUp() {
+        EncryptionKeyProvider keyProvider = new EncryptionKeyProvider(BenchmarkFixtures.ENCRYPTION_KEY_B64);
+        crypto = new AesGcmCrypto(keyProvider);
+        legacyCrypto = new LegacyAesGcmCrypto(keyProvider);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public EncryptedPayload engine1Thread() {
+        return crypto.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public EncryptedPayload engine4Threads() {
+        return crypto.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public EncryptedPayload engineMaxThreads() {
+        return crypto.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<EncryptedPayload> engineEncryptAllMaxThreads() {
+        return crypto.encryptAll(CARD_NUMBERS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public EncryptedPayload legacy1Thread() {
+        return legacyCrypto.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public EncryptedPayload legacy4Threads() {
+        return legacyCrypto.encrypt(CARD_NUMBER);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public EncryptedPayload legacyMaxThreads() {
+        return legacyCrypto.encrypt(CARD_NUMBER);
+    }
+
+    private static final class LegacyAesGcmCrypto {
+
+        private final EncryptionKeyProvider keyProvider;
+        private final SecureRandom secureRandom = new SecureRandom();
+
+        private LegacyAesGcmCrypto(EncryptionKeyProvider keyProvider) {
+            this.keyProvider = keyProvider;
+        }
+
+        EncryptedPayload encrypt(String plaintext) {
+            byte[] iv = new byte[12];
+            secureRandom.nextBytes(iv);
+            try {
+                Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+                cipher.init(Cipher.ENCRYPT_MODE, keyProvider.secretKey(), new GCMParameterSpec(128, iv));
+                return new EncryptedPayload(keyProvider.activeKeyId(), iv, cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8)));
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.ezycollect.server.payments.application.security;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.domain.CardNumberReencryptionRepository;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * One full re-encryption pass over {@code rows} payments stored under a retired key, unthrottled, with the crypto
+ * work on 1 worker versus one per core. Each iteration puts every row back on the retired key and starts a new cursor.
+ * Against in-memory H2 the pass is dominated by crypto; against MySQL ({@code benchmark.datasource.url}) the batched
+ * reads and updates weigh more.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CardNumberReencryptionBenchmark {
+
+    private static final String RETIRED_KEY_B64 = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    @Param({"50000"})
+    private int rows;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    @Param({"1000"})
+    private int chunkSize;
+
+    private LocalDatabaseContext database;
+    private JdbcTemplate jdbcTemplate;
+    private EncryptedPayload retiredCiphertext;
+    private CardNumberReencryption reencryption;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start(
+                "PAYMENTS_ENCRYPTION_KEY_ID=k2",
+                "PAYMENTS_ENCRYPTION_DECRYPTION_KEYS=k1:" + RETIRED_KEY_B64);
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        retiredCiphertext = new AesGcmCrypto(new EncryptionKeyProvider(RETIRED_KEY_B64))
+                .encrypt("4242424242424242");
+        List<Object[]> payments = new ArrayList<>(rows);
+        Timestamp now = Timestamp.from(Instant.now());
+        for (int i = 0; i < rows; i++) {
+            payments.add(new Object[] {
+                    PaymentIds.toBytes(PaymentIds.next()), "Ada", "Lovelace", "4242", "[\"INV-2025-00001\"]",
+                    retiredCiphertext.ciphertext(), retiredCiphertext.iv(), "k1", "CREATED", now});
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT INTO payments (
+                  id, first_name, last_name, card_last4, invoice_ids_json,
+                  card_number_ciphertext, card_number_iv, card_number_key_id, status, created_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                payments);
+    }
+
+    @Setup(Level.Iteration)
+    public void retireAllRows() {
+        jdbcTemplate.update(
+                "UPDATE payments SET card_number_key_id = 'k1', card_number_iv = ?, card_number_ciphertext = ?",
+                retiredCiphertext.iv(),
+                retiredCiphertext.ciphertext());
+        jdbcTemplate.update("DELETE FROM card_number_reencryption");
+        reencryption = new CardNumberReencryption(
+                database.bean(CardNumberReencryptionRepository.class),
+                database.bean(AesGcmCrypto.class),
+                database.bean(TransactionTemplate.class),
+                chunkSize,
+                Integer.MAX_VALUE,
+                parallelism,
+                Duration.ofHours(1));
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkPass() {
+        reencryption.shutdown();
+        Integer retired = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM payments WHERE card_number_key_id <> 'k2'", Integer.class);
+        if (!reencryption.complete() || retired != 0) {
+            throw new IllegalStateException(retired + " payments were left on the retired key");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public boolean fullPass() {
+        reencryption.reencrypt();
+        return reencryption.complete();
+    }
+}
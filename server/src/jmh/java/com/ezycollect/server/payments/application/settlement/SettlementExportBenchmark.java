@@ -0,0 +1,141 @@
+package com.ezycollect.server.payments.application.settlement;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.domain.PaymentExportRepository;
+import com.ezycollect.server.payments.domain.PaymentExportRepository.ExportCursor;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Writes a settlement file of {@code rows} payments. {@code pipeline} is {@link SettlementExportService} with
+ * {@code parallelism} decrypt workers; {@code rowAtATime} decrypts each row into a new array on the reading thread
+ * and writes it through a {@link BufferedWriter}, as a loop over single payments would. Against in-memory H2 the run is
+ * dominated by decryption and formatting, which is the part that scales with cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SettlementExportBenchmark {
+
+    @Param({"100000"})
+    private int rows;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private LocalDatabaseContext database;
+    private PaymentExportRepository paymentExportRepository;
+    private AesGcmCrypto aesGcmCrypto;
+    private SettlementExportService settlementExportService;
+    private Path directory;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = LocalDatabaseContext.start("payments.settlement.parallelism=" + parallelism);
+        paymentExportRepository = database.bean(PaymentExportRepository.class);
+        aesGcmCrypto = database.bean(AesGcmCrypto.class);
+        settlementExportService = database.bean(SettlementExportService.class);
+        directory = Files.createTempDirectory("settlement-bench");
+
+        List<Object[]> payments = new ArrayList<>(rows);
+        Instant createdAt = Instant.now().minusSeconds(rows);
+        for (int i = 0; i < rows; i++) {
+            EncryptedPayload payload = aesGcmCrypto.encrypt("4242424242424242");
+            payments.add(new Object[] {
+                    PaymentIds.toBytes(PaymentIds.next()), "Ada", "Lovelace", "4242", "[\"INV-2025-00001\"]",
+                    payload.ciphertext(), payload.iv(), payload.keyId(), "CREATED",
+                    Timestamp.from(createdAt.plusSeconds(i))});
+        }
+        database.bean(JdbcTemplate.class).batchUpdate(
+                """
+                INSERT INTO payments (
+                  id, first_name, last_name, card_last4, invoice_ids_json,
+                  card_number_ciphertext, card_number_iv, card_number_key_id, status, created_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                payments);
+    }
+
+    @Setup(Level.Iteration)
+    public void newFile() {
+        file = directory.resolve("settlement-" + System.nanoTime() + ".csv");
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkFile() throws IOException {
+        long lines;
+        try (var stream = Files.lines(file)) {
+            lines = stream.count();
+        }
+        Files.delete(file);
+        if (lines != rows + 1) {
+            throw new IllegalStateException("Settlement file has " + lines + " lines for " + rows + " payments");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        database.close();
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public SettlementFile pipeline() throws IOException {
+        return settlementExportService.write(null, null, file);
+    }
+
+    @Benchmark
+    public long rowAtATime() throws IOException {
+        Instant to = Instant.now();
+        long[] written = {0};
+        ExportCursor[] cursor = {null};
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.US_ASCII)) {
+            writer.write("payment_id,card_number,created_at\n");
+            int page;
+            do {
+                page = paymentExportRepository.streamCardNumbers(null, to, cursor[0], 10_000, row -> {
+                    byte[] plaintext = aesGcmCrypto.decrypt(new EncryptedPayload(row.keyId(), row.iv(), row.ciphertext()));
+                    try {
+                        writer.write(row.paymentId() + "," + new String(plaintext, StandardCharsets.US_ASCII) + ","
+                                + row.createdAt() + "\n");
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    cursor[0] = new ExportCursor(row.createdAt(), row.paymentId());
+                    written[0]++;
+                });
+            } while (page == 10_000);
+        }
+        return written[0];
+    }
+}
@@ -0,0 +1,72 @@
+package com.ezycollect.server.payments.application.validation;
+
+import com.ezycollect.server.benchmark.BenchmarkFixtures;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaymentValidationBenchmark {
+
+    private final ExpiryValidator expiryValidator = new ExpiryValidator();
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private CreatePaymentRequest validRequest;
+    private CreatePaymentRequest invalidRequest;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        validRequest = BenchmarkFixtures.request("Ada", 10);
+        invalidRequest = BenchmarkFixtures.request("Ada", 10);
+        invalidRequest.setExpiry("13/29");
+        invalidRequest.setCvv("12");
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public boolean expiryValid() {
+        return expiryValidator.isValid("12/29", null);
+    }
+
+    @Benchmark
+    public boolean expiryInvalid() {
+        return expiryValidator.isValid("13/29", null);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreatePaymentRequest>> validateValidRequest() {
+        return validator.validate(validRequest);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreatePaymentRequest>> validateInvalidRequest() {
+        return validator.validate(invalidRequest);
+    }
+}
@@ -0,0 +1,122 @@
+package com.ezycollect.server.payments.domain;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Compares the previous claim flow (INSERT that throws DuplicateKeyException, JPA findById, JPA save merge on
+ * finalize) with {@link PaymentIdempotencyClaimRepository#claim} and {@link PaymentIdempotencyClaimRepository#complete}.
+ * {@code fresh} claims a new key and finalizes it; {@code duplicate} claims a key that is already completed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdempotencyClaimBenchmark {
+
+    private static final String REQUEST_HASH = "a".repeat(64);
+    private static final String EXISTING_KEY = "bench-existing-key";
+    private static final UUID PAYMENT_ID = UUID.fromString("b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400");
+    private static final byte[] RESPONSE_BODY =
+            "{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @Param({"fresh", "duplicate"})
+    private String scenario;
+
+    private final AtomicLong keySequence = new AtomicLong();
+
+    private LocalDatabaseContext database;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private PaymentIdempotencyClaimRepository claimRepository;
+    private PaymentIdempotencyRepository idempotencyRepository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start();
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        transactionTemplate = database.bean(TransactionTemplate.class);
+        claimRepository = database.bean(PaymentIdempotencyClaimRepository.class);
+        idempotencyRepository = database.bean(PaymentIdempotencyRepository.class);
+
+        Instant now = Instant.now();
+        claimRepository.claim(EXISTING_KEY, REQUEST_HASH, now);
+        claimRepository.complete(EXISTING_KEY, PAYMENT_ID, 201, RESPONSE_BODY, now);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Object legacyFlow() {
+        return transactionTemplate.execute(status -> {
+            String key = nextKey();
+            byte[] keyDigest = IdempotencyStorageEncoding.keyDigest(key);
+            byte[] requestHash = IdempotencyStorageEncoding.requestHashBytes(REQUEST_HASH);
+            Instant now = Instant.now();
+            PaymentIdempotencyEntity idempotency = new PaymentIdempotencyEntity();
+            idempotency.setKeyDigest(keyDigest);
+            idempotency.setIdempotencyKey(key);
+            idempotency.setRequestHash(requestHash);
+            idempotency.setCreatedAt(now);
+            try {
+                jdbcTemplate.update(
+                        """
+                        INSERT INTO payment_idempotency (key_digest, idempotency_key, request_hash, created_at, updated_at)
+                        VALUES (?, ?, ?, ?, ?)
+                        """,
+                        keyDigest, key, requestHash, Timestamp.from(now), Timestamp.from(now));
+            } catch (DuplicateKeyException ex) {
+                return idempotencyRepository.findById(keyDigest).orElseThrow();
+            }
+            idempotency.setPaymentId(PAYMENT_ID);
+            idempotency.setResponseStatus(201);
+            idempotency.setResponseBody(RESPONSE_BODY);
+            idempotency.setUpdatedAt(Instant.now());
+            return idempotencyRepository.save(idempotency);
+        });
+    }
+
+    @Benchmark
+    public Object singleStatementClaim() {
+        return transactionTemplate.execute(status -> {
+            String key = nextKey();
+            Instant now = Instant.now();
+            IdempotencyClaim claim = claimRepository.claim(key, REQUEST_HASH, now);
+            if (claim.outcome() == IdempotencyClaimOutcome.NEW) {
+                claimRepository.complete(key, PAYMENT_ID, 201, RESPONSE_BODY, Instant.now());
+            }
+            return claim;
+        });
+    }
+
+    private String nextKey() {
+        return "fresh".equals(scenario) ? "bench-" + keySequence.incrementAndGet() : EXISTING_KEY;
+    }
+}
@@ -0,0 +1,170 @@
+package com.ezycollect.server.payments.domain;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.benchmark.TableSizes;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Pre-V7 ({@code legacy}: VARCHAR(255) key, CHAR(64) hex hash) versus V7 ({@code binary}: BINARY(32) key digest and
+ * hash) idempotency storage on a table preloaded with {@code rows} UUID-keyed records:
+ * - insert: autocommit claim insert of a new random key
+ * - lookup: primary-key read of a random preloaded key
+ *
+ * <p>At teardown the data and index sizes of the scratch table are printed. Sizes come from InnoDB statistics, so run
+ * against MySQL for meaningful numbers (add {@code rewriteBatchedStatements=true} to the URL to keep the preload fast):
+ * {@code -p rows=5000000 -jvmArgsAppend "-Dbenchmark.datasource.url=jdbc:mysql://...&rewriteBatchedStatements=true ..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IdempotencyStorageFormatBenchmark {
+
+    private static final int PRELOAD_BATCH_SIZE = 5_000;
+    private static final String REQUEST_HASH = "3f1b".repeat(16);
+    private static final String RESPONSE_BODY =
+            "{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}";
+
+    @Param({"legacy", "binary"})
+    private String format;
+
+    @Param({"200000"})
+    private int rows;
+
+    private LocalDatabaseContext database;
+    private JdbcTemplate jdbcTemplate;
+    private String table;
+    private String[] preloadedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start("payments.idempotency.purge.enabled=false");
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        table = "bench_idempotency_" + format;
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute(binary()
+                ? """
+                  CREATE TABLE %s (
+                    key_digest BINARY(32) PRIMARY KEY,
+                    idempotency_key VARCHAR(255) NOT NULL,
+                    request_hash BINARY(32) NOT NULL,
+                    payment_id BINARY(16) NULL,
+                    response_status INT NULL,
+                    response_body LONGTEXT NULL,
+                    created_at TIMESTAMP(6) NOT NULL,
+                    updated_at TIMESTAMP(6) NULL
+                  )
+                  """.formatted(table)
+                : """
+                  CREATE TABLE %s (
+                    idempotency_key VARCHAR(255) PRIMARY KEY,
+                    request_hash CHAR(64) NOT NULL,
+                    payment_id VARCHAR(36) NULL,
+                    response_status INT NULL,
+                    response_body LONGTEXT NULL,
+                    created_at TIMESTAMP(6) NOT NULL,
+                    updated_at TIMESTAMP(6) NULL
+                  )
+                  """.formatted(table));
+        jdbcTemplate.execute("CREATE INDEX idx_%s_created_at ON %s (created_at)".formatted(table, table));
+
+        preloadedKeys = new String[rows];
+        for (int offset = 0; offset < rows; offset += PRELOAD_BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(PRELOAD_BATCH_SIZE);
+            for (int i = offset; i < Math.min(rows, offset + PRELOAD_BATCH_SIZE); i++) {
+                preloadedKeys[i] = UUID.randomUUID().toString();
+                batch.add(completedRow(preloadedKeys[i]));
+            }
+            jdbcTemplate.batchUpdate(completedInsertSql(), batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            TableSizes.print(jdbcTemplate, table);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        } finally {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public int insert() {
+        String key = UUID.randomUUID().toString();
+        Timestamp now = Timestamp.from(Instant.now());
+        return binary()
+                ? jdbcTemplate.update(
+                        "INSERT IGNORE INTO " + table
+                                + " (key_digest, idempotency_key, request_hash, created_at, updated_at) VALUES (?, ?, ?, ?, ?)",
+                        IdempotencyStorageEncoding.keyDigest(key),
+                        key,
+                        IdempotencyStorageEncoding.requestHashBytes(REQUEST_HASH),
+                        now,
+                        now)
+                : jdbcTemplate.update(
+                        "INSERT IGNORE INTO " + table
+                                + " (idempotency_key, request_hash, created_at, updated_at) VALUES (?, ?, ?, ?)",
+                        key,
+                        REQUEST_HASH,
+                        now,
+                        now);
+    }
+
+    @Benchmark
+    public Object lookup() {
+        String key = preloadedKeys[ThreadLocalRandom.current().nextInt(preloadedKeys.length)];
+        return binary()
+                ? jdbcTemplate.queryForList(
+                        "SELECT request_hash, response_status, response_body FROM " + table + " WHERE key_digest = ?",
+                        (Object) IdempotencyStorageEncoding.keyDigest(key))
+                : jdbcTemplate.queryForList(
+                        "SELECT request_hash, response_status, response_body FROM " + table + " WHERE idempotency_key = ?",
+                        key);
+    }
+
+    private boolean binary() {
+        return "binary".equals(format);
+    }
+
+    private String completedInsertSql() {
+        return binary()
+                ? "INSERT INTO " + table + " (key_digest, idempotency_key, request_hash, payment_id, response_status,"
+                        + " response_body, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+                : "INSERT INTO " + table + " (idempotency_key, request_hash, payment_id, response_status,"
+                        + " response_body, created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    private Object[] completedRow(String key) {
+        Timestamp createdAt = Timestamp.from(Instant.now());
+        UUID paymentId = UUID.randomUUID();
+        return binary()
+                ? new Object[] {
+                        IdempotencyStorageEncoding.keyDigest(key), key,
+                        IdempotencyStorageEncoding.requestHashBytes(REQUEST_HASH), PaymentIds.toBytes(paymentId), 201,
+                        RESPONSE_BODY, createdAt, createdAt}
+                : new Object[] {key, REQUEST_HASH, paymentId.toString(), 201, RESPONSE_BODY, createdAt, createdAt};
+    }
+}
@@ -0,0 +1,127 @@
+package com.ezycollect.server.payments.domain;
+
+import com.ezycollect.server.benchmark.LocalDatabaseContext;
+import com.ezycollect.server.benchmark.TableSizes;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Payment inserts keyed by random {@code UUID.randomUUID()} strings in {@code VARCHAR(36)} (pre-V8, {@code uuid4-varchar})
+ * versus {@link PaymentIds} UUIDv7 values in {@code BINARY(16)} ({@code uuid7-binary}), into a payments-shaped table
+ * preloaded with {@code rows} records, 8 threads inserting one autocommit row each like {@code POST /payments}.
+ *
+ * <p>Page splits only show up once the clustered index outgrows the buffer pool, so run against MySQL with a few
+ * million rows or more; teardown prints the resulting index sizes there:
+ * {@code -p rows=10000000 -jvmArgsAppend "-Dbenchmark.datasource.url=jdbc:mysql://...&rewriteBatchedStatements=true ..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(8)
+@Fork(1)
+public class PaymentIdBenchmark {
+
+    private static final int PRELOAD_BATCH_SIZE = 5_000;
+    private static final byte[] CIPHERTEXT = new byte[32];
+    private static final byte[] IV = new byte[12];
+    private static final String INVOICE_IDS_JSON = "[\"INV-2025-00003\",\"INV-2025-00002\",\"INV-2025-00001\"]";
+
+    @Param({"uuid4-varchar", "uuid7-binary"})
+    private String idFormat;
+
+    @Param({"200000"})
+    private int rows;
+
+    private LocalDatabaseContext database;
+    private JdbcTemplate jdbcTemplate;
+    private String table;
+    private String insertSql;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = LocalDatabaseContext.start("payments.idempotency.purge.enabled=false");
+        jdbcTemplate = database.bean(JdbcTemplate.class);
+        table = "bench_payments_" + idFormat.replace('-', '_');
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        jdbcTemplate.execute("""
+                CREATE TABLE %s (
+                  id %s PRIMARY KEY,
+                  first_name VARCHAR(100) NOT NULL,
+                  last_name VARCHAR(100) NOT NULL,
+                  card_last4 VARCHAR(4) NULL,
+                  status VARCHAR(32) NOT NULL,
+                  created_at TIMESTAMP(6) NOT NULL,
+                  card_number_ciphertext LONGBLOB NOT NULL,
+                  card_number_iv BINARY(12) NOT NULL,
+                  invoice_ids_json LONGTEXT NOT NULL
+                )
+                """.formatted(table, binary() ? "BINARY(16)" : "VARCHAR(36)"));
+        insertSql = """
+                INSERT INTO %s (
+                  id, first_name, last_name, card_last4, status, created_at,
+                  card_number_ciphertext, card_number_iv, invoice_ids_json
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """.formatted(table);
+
+        for (int offset = 0; offset < rows; offset += PRELOAD_BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(PRELOAD_BATCH_SIZE);
+            for (int i = offset; i < Math.min(rows, offset + PRELOAD_BATCH_SIZE); i++) {
+                batch.add(row());
+            }
+            jdbcTemplate.batchUpdate(insertSql, batch);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            TableSizes.print(jdbcTemplate, table);
+            jdbcTemplate.execute("DROP TABLE IF EXISTS " + table);
+        } finally {
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public int insert() {
+        return jdbcTemplate.update(insertSql, row());
+    }
+
+    /** ID generation alone, under the same 8-thread contention. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object generate() {
+        return binary() ? PaymentIds.toBytes(PaymentIds.next()) : UUID.randomUUID().toString();
+    }
+
+    private boolean binary() {
+        return "uuid7-binary".equals(idFormat);
+    }
+
+    private Object[] row() {
+        Object id = binary() ? PaymentIds.toBytes(PaymentIds.next()) : UUID.randomUUID().toString();
+        return new Object[] {
+                id, "Ada", "Lovelace", "4242", "CREATED", Timestamp.from(Instant.now()), CIPHERTEXT, IV, INVOICE_IDS_JSON};
+    }
+}
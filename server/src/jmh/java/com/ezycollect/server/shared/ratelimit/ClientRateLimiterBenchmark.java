@@ -0,0 +1,93 @@
+package com.ezycollect.server.shared.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-request cost of the rate limit check with 32 threads, for one hot client and for 1000 clients. {@code cas-N}
+ * is {@link ClientRateLimiter} with N stripes per bucket; {@code synchronized} is a conventional token bucket that
+ * refills under a per-client lock. Limits are high enough that nothing is rejected.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class ClientRateLimiterBenchmark {
+
+    private static final RateLimit UNREACHABLE = new RateLimit(1e12, 1_000_000_000);
+
+    @Param({"1", "1000"})
+    private int clients;
+
+    @Param({"cas-1", "cas-8", "synchronized"})
+    private String limiter;
+
+    private String[] clientIds;
+    private ClientRateLimiter clientRateLimiter;
+    private final Map<String, LockedBucket> lockedBuckets = new ConcurrentHashMap<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        clientIds = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            clientIds[i] = "client-" + i;
+        }
+        if (limiter.startsWith("cas-")) {
+            int stripes = Integer.parseInt(limiter.substring(4));
+            clientRateLimiter = new ClientRateLimiter(UNREACHABLE, Map.of(), stripes, 100_000);
+        }
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        String clientId = clientIds[ThreadLocalRandom.current().nextInt(clients)];
+        if (clientRateLimiter != null) {
+            return clientRateLimiter.tryAcquire(clientId);
+        }
+        return lockedBuckets.computeIfAbsent(clientId, id -> new LockedBucket(UNREACHABLE)).tryAcquire();
+    }
+
+    /** Token count plus last refill time, refilled and taken under the bucket's monitor. */
+    private static final class LockedBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        LockedBucket(RateLimit limit) {
+            this.tokensPerNano = limit.ratePerSecond() / 1e9;
+            this.capacity = limit.burst();
+            this.tokens = capacity;
+        }
+
+        synchronized long tryAcquire() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens < 1) {
+                return (long) ((1 - tokens) / tokensPerNano);
+            }
+            tokens--;
+            return 0;
+        }
+    }
+}
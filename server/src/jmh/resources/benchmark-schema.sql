@@ -0,0 +1,73 @@
+-- H2 (MySQL mode) equivalent of the schema produced by db/migration, used by LocalDatabaseContext.
+-- Keep in sync with new Flyway migrations; H2 cannot run the MySQL-specific ALTER syntax directly.
+CREATE TABLE payments (
+  id BINARY(16) PRIMARY KEY,
+  first_name VARCHAR(100) NOT NULL,
+  last_name VARCHAR(100) NOT NULL,
+  card_last4 VARCHAR(4) NULL,
+  status VARCHAR(32) NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL,
+  card_number_ciphertext LONGBLOB NOT NULL,
+  card_number_iv BINARY(12) NOT NULL,
+  invoice_ids_json LONGTEXT NOT NULL,
+  card_number_key_id VARCHAR(32) NOT NULL DEFAULT 'k1'
+);
+
+CREATE INDEX idx_payments_created_at_id ON payments (created_at, id);
+
+CREATE TABLE payment_idempotency (
+  key_digest BINARY(32) PRIMARY KEY,
+  idempotency_key VARCHAR(255) NOT NULL,
+  request_hash BINARY(32) NOT NULL,
+  payment_id BINARY(16) NULL,
+  response_status INT NULL,
+  response_body LONGBLOB NULL,
+  created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  updated_at TIMESTAMP(6) NULL DEFAULT NULL
+);
+
+CREATE INDEX idx_payment_idempotency_created_at ON payment_idempotency (created_at);
+
+CREATE TABLE payment_idempotency_legacy (
+  idempotency_key VARCHAR(255) PRIMARY KEY,
+  request_hash CHAR(64) NOT NULL,
+  payment_id VARCHAR(36) NULL,
+  response_status INT NULL,
+  response_body LONGTEXT NULL,
+  created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  updated_at TIMESTAMP(6) NULL DEFAULT NULL
+);
+
+CREATE INDEX idx_payment_idempotency_legacy_created_at ON payment_idempotency_legacy (created_at);
+
+CREATE TABLE payment_invoices (
+  invoice_id VARCHAR(100) NOT NULL,
+  payment_id BINARY(16) NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL,
+  PRIMARY KEY (invoice_id, payment_id)
+);
+
+CREATE TABLE payment_invoices_backfill (
+  id TINYINT PRIMARY KEY,
+  last_payment_id BINARY(16) NULL,
+  completed_at TIMESTAMP(6) NULL
+);
+
+INSERT INTO payment_invoices_backfill (id) VALUES (1);
+
+CREATE TABLE card_number_reencryption (
+  target_key_id VARCHAR(32) PRIMARY KEY,
+  last_payment_id BINARY(16) NULL,
+  scanned_rows BIGINT NOT NULL DEFAULT 0,
+  reencrypted_rows BIGINT NOT NULL DEFAULT 0,
+  started_at TIMESTAMP(6) NOT NULL,
+  completed_at TIMESTAMP(6) NULL
+);
+
+CREATE TABLE payment_outbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  event_type VARCHAR(64) NOT NULL,
+  payment_id BINARY(16) NOT NULL,
+  payload LONGBLOB NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL
+);
@@ -1,37 +1,77 @@
 package com.ezycollect.server.payments.api;
 
+import com.ezycollect.server.payments.application.PaymentBatchService;
+import com.ezycollect.server.payments.application.PaymentExportService;
+import com.ezycollect.server.payments.application.PaymentExportService.PaymentExport;
+import com.ezycollect.server.payments.application.PaymentQueryService;
 import com.ezycollect.server.payments.application.PaymentService;
 import com.ezycollect.server.payments.application.PaymentServiceResult;
+import com.ezycollect.server.payments.application.PaymentTransitionService;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchRequest;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchResponse;
 import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
 import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.ezycollect.server.payments.application.dto.InvoicePaymentsResponse;
+import com.ezycollect.server.payments.application.dto.PaymentStatusResponse;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionBatchRequest;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionBatchResponse;
+import com.ezycollect.server.payments.application.dto.PaymentView;
+import com.ezycollect.server.payments.application.error.InvalidQueryParameterException;
+import com.ezycollect.server.payments.application.error.PaymentNotFoundException;
+import com.ezycollect.server.payments.application.view.RenderedPaymentView;
+import com.ezycollect.server.payments.application.error.InvalidIdempotencyKeyException;
 import com.ezycollect.server.payments.application.error.MissingIdempotencyKeyException;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import com.ezycollect.server.payments.domain.PaymentTransition;
 import com.ezycollect.server.shared.api.ApiErrorResponse;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.ExampleObject;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 @RestController
 @RequestMapping(path = "/payments", produces = MediaType.APPLICATION_JSON_VALUE)
 @RequiredArgsConstructor
-@Tag(name = "Payments", description = "Payment creation API")
+@Tag(name = "Payments", description = "Payment creation and lookup API")
 public class PaymentsController {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 500;
+    static final String NDJSON = "application/x-ndjson";
+
     private final PaymentService paymentService;
+    private final PaymentBatchService paymentBatchService;
+    private final PaymentQueryService paymentQueryService;
+    private final PaymentExportService paymentExportService;
+    private final PaymentTransitionService paymentTransitionService;
 
     @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
     @Operation(
@@ -49,7 +89,8 @@ public class PaymentsController {
                                     value = "{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}"))),
             @ApiResponse(
                     responseCode = "200",
-                    description = "Idempotent replay (same key and same payload)",
+                    description = "Idempotent replay (same key and same payload), including requests that arrive while "
+                            + "the first one is still running and wait for its response",
                     content = @Content(
                             mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = CreatePaymentResponse.class),
@@ -58,7 +99,7 @@ public class PaymentsController {
                                     value = "{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}"))),
             @ApiResponse(
                     responseCode = "400",
-                    description = "Validation error or missing/blank Idempotency-Key header",
+                    description = "Validation error or missing/blank/over-long Idempotency-Key header",
                     content = @Content(
                             mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = ApiErrorResponse.class),
@@ -68,17 +109,34 @@ public class PaymentsController {
                                             value = "{\"code\":\"VALIDATION_ERROR\",\"message\":\"Request validation failed\",\"fieldErrors\":[{\"field\":\"expiry\",\"message\":\"expiry must be in MM/YY format with month 01-12\"}]}"),
                                     @ExampleObject(
                                             name = "missingIdempotencyKey",
-                                            value = "{\"code\":\"MISSING_IDEMPOTENCY_KEY\",\"message\":\"Idempotency-Key header is required\",\"fieldErrors\":[]}")
+                                            value = "{\"code\":\"MISSING_IDEMPOTENCY_KEY\",\"message\":\"Idempotency-Key header is required\",\"fieldErrors\":[]}"),
+                                    @ExampleObject(
+                                            name = "invalidIdempotencyKey",
+                                            value = "{\"code\":\"INVALID_IDEMPOTENCY_KEY\",\"message\":\"Idempotency-Key must be at most 255 characters\",\"fieldErrors\":[]}")
                             })),
             @ApiResponse(
                     responseCode = "409",
-                    description = "Idempotency key reused with a different payload",
+                    description = "Idempotency key reused with a different payload, an invoice already has a payment "
+                            + "(only with payments.invoices.reject-already-paid), or a request with the same key is still "
+                            + "running after the wait budget; retry the last case after Retry-After seconds",
+                    headers = @Header(
+                            name = HttpHeaders.RETRY_AFTER,
+                            description = "Seconds to wait before retrying; only with IDEMPOTENCY_REQUEST_IN_PROGRESS",
+                            schema = @Schema(type = "integer", example = "1")),
                     content = @Content(
                             mediaType = MediaType.APPLICATION_JSON_VALUE,
                             schema = @Schema(implementation = ApiErrorResponse.class),
-                            examples = @ExampleObject(
-                                    name = "idempotencyConflict",
-                                    value = "{\"code\":\"IDEMPOTENCY_KEY_REUSED\",\"message\":\"Idempotency-Key was already used with a different request payload\",\"fieldErrors\":[]}")))
+                            examples = {
+                                    @ExampleObject(
+                                            name = "idempotencyConflict",
+                                            value = "{\"code\":\"IDEMPOTENCY_KEY_REUSED\",\"message\":\"Idempotency-Key was already used with a different request payload\",\"fieldErrors\":[]}"),
+                                    @ExampleObject(
+                                            name = "invoiceAlreadyPaid",
+                                            value = "{\"code\":\"INVOICE_ALREADY_PAID\",\"message\":\"Invoices already have a payment: INV-2025-008\",\"fieldErrors\":[]}"),
+                                    @ExampleObject(
+                                            name = "idempotencyRequestInProgress",
+                                            value = "{\"code\":\"IDEMPOTENCY_REQUEST_IN_PROGRESS\",\"message\":\"A request with this Idempotency-Key is still being processed; retry later\",\"fieldErrors\":[]}")
+                            }))
     })
     public ResponseEntity<?> createPayment(
             @Parameter(
@@ -101,8 +159,307 @@ public class PaymentsController {
         if (idempotencyKey == null || idempotencyKey.isBlank()) {
             throw new MissingIdempotencyKeyException();
         }
+        if (idempotencyKey.length() > PaymentIdempotencyClaimRepository.MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(PaymentIdempotencyClaimRepository.MAX_IDEMPOTENCY_KEY_LENGTH);
+        }
 
         PaymentServiceResult result = paymentService.createPayment(idempotencyKey, request);
-        return ResponseEntity.status(result.httpStatus()).body(result.response());
+        // The body is already JSON; as byte[] it is written as is instead of going through Jackson again.
+        return ResponseEntity.status(result.httpStatus())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(result.responseBody());
+    }
+
+    @PostMapping(path = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Create payments in bulk",
+            description = "Creates up to 10000 payments in one transaction. Each item carries its own idempotency key and "
+                    + "gets its own result (CREATED, REPLAYED, CONFLICT or IN_PROGRESS) in request order.")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed; see per-item outcomes",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = CreatePaymentBatchResponse.class),
+                            examples = @ExampleObject(
+                                    name = "batchResults",
+                                    value = "{\"results\":[{\"idempotencyKey\":\"payment-create-001\",\"outcome\":\"CREATED\",\"payment\":{\"id\":\"b9ec8bf8-34ef-4d90-97d2-3ec9bd4b3400\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}},{\"idempotencyKey\":\"payment-create-002\",\"outcome\":\"CONFLICT\",\"payment\":null}]}"))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Validation error in the batch or any of its items",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "validationError",
+                                    value = "{\"code\":\"VALIDATION_ERROR\",\"message\":\"Request validation failed\",\"fieldErrors\":[{\"field\":\"items[0].payment.expiry\",\"message\":\"expiry must be in MM/YY format with month 01-12\"}]}")))
+    })
+    public ResponseEntity<CreatePaymentBatchResponse> createPayments(
+            @Valid @RequestBody CreatePaymentBatchRequest request) {
+        return ResponseEntity.ok(paymentBatchService.createPayments(request.getItems()));
+    }
+
+    @PostMapping("/{id}/{transition:authorize|capture|fail|refund}")
+    @Operation(
+            summary = "Move a payment to its next status",
+            description = "authorize: CREATED to AUTHORIZED; capture: AUTHORIZED to CAPTURED; fail: CREATED or "
+                    + "AUTHORIZED to FAILED; refund: CAPTURED to REFUNDED. Applied with a single conditional update, so "
+                    + "of two concurrent transitions of one payment at most one succeeds.")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Transition applied",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PaymentStatusResponse.class),
+                            examples = @ExampleObject(
+                                    name = "captured",
+                                    value = "{\"id\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\",\"status\":\"CAPTURED\"}"))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Malformed payment id",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class))),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No such payment",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class))),
+            @ApiResponse(
+                    responseCode = "409",
+                    description = "The payment's current status does not allow the transition",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "invalidStatusTransition",
+                                    value = "{\"code\":\"INVALID_STATUS_TRANSITION\",\"message\":\"Payment 0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b is REFUNDED and cannot be captured\",\"fieldErrors\":[]}")))
+    })
+    public ResponseEntity<PaymentStatusResponse> transitionPayment(
+            @Parameter(description = "Payment ID", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+            @PathVariable("id") String id,
+            @Parameter(description = "authorize, capture, fail or refund", example = "capture")
+            @PathVariable("transition") String transition) {
+        UUID paymentId = parseId("id", id, "id must be a payment UUID");
+        return ResponseEntity.ok(paymentTransitionService.transition(
+                paymentId, PaymentTransition.valueOf(transition.toUpperCase(Locale.ROOT))));
+    }
+
+    @PostMapping(path = "/transitions", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(
+            summary = "Apply status transitions in bulk",
+            description = "Applies up to 10000 transitions in request order in one transaction, as one batch of "
+                    + "conditional updates. Each item gets its own outcome (APPLIED, REJECTED or NOT_FOUND).")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Batch processed; see per-item outcomes",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PaymentTransitionBatchResponse.class),
+                            examples = @ExampleObject(
+                                    name = "transitionResults",
+                                    value = "{\"results\":[{\"paymentId\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\",\"transition\":\"CAPTURE\",\"outcome\":\"APPLIED\",\"status\":\"CAPTURED\"},{\"paymentId\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7c\",\"transition\":\"REFUND\",\"outcome\":\"REJECTED\",\"status\":\"AUTHORIZED\"}]}"))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Validation error in the batch or any of its items",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "validationError",
+                                    value = "{\"code\":\"VALIDATION_ERROR\",\"message\":\"Request validation failed\",\"fieldErrors\":[{\"field\":\"items[0].transition\",\"message\":\"transition is required\"}]}")))
+    })
+    public ResponseEntity<PaymentTransitionBatchResponse> transitionPayments(
+            @Valid @RequestBody PaymentTransitionBatchRequest request) {
+        return ResponseEntity.ok(paymentTransitionService.transitionItems(request.getItems()));
+    }
+
+    @GetMapping
+    @Operation(
+            summary = "List the payments covering an invoice",
+            description = "Returns payments oldest first in pages of up to 500. Pass nextCursor from the previous page "
+                    + "as cursor to continue; nextCursor is null on the last page.")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "One page of payments",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = InvoicePaymentsResponse.class),
+                            examples = @ExampleObject(
+                                    name = "invoicePayments",
+                                    value = "{\"invoiceId\":\"INV-2025-008\",\"payments\":[{\"id\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\"}],\"nextCursor\":null}"))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Missing invoiceId, malformed cursor or limit out of range",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "validationError",
+                                    value = "{\"code\":\"VALIDATION_ERROR\",\"message\":\"Request validation failed\",\"fieldErrors\":[{\"field\":\"invoiceId\",\"message\":\"invoiceId is required\"}]}")))
+    })
+    public ResponseEntity<InvoicePaymentsResponse> listPayments(
+            @Parameter(description = "Invoice ID", required = true, example = "INV-2025-008")
+            @RequestParam(name = "invoiceId", required = false) String invoiceId,
+            @Parameter(description = "nextCursor of the previous page")
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @Parameter(description = "Page size (1-500)", example = "50")
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        if (invoiceId == null || invoiceId.isBlank()) {
+            throw new InvalidQueryParameterException("invoiceId", "invoiceId is required");
+        }
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : limit;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new InvalidQueryParameterException("limit", "limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return ResponseEntity.ok(paymentQueryService.paymentsForInvoice(invoiceId.trim(), parseCursor(cursor), pageSize));
+    }
+
+    @GetMapping(path = "/export", produces = NDJSON)
+    @Operation(
+            summary = "Export payments as NDJSON",
+            description = "Streams masked payments created in [from, to), one JSON object per line, ordered by "
+                    + "createdAt then id. to defaults to the time of the request. After an interrupted export, pass the "
+                    + "id of the last line received as after to resume. Sending Accept-Encoding: gzip compresses the "
+                    + "stream. Exports are rate limited and run one at a time.")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "NDJSON stream of payments",
+                    content = @Content(mediaType = NDJSON, schema = @Schema(implementation = PaymentView.class))),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Malformed from/to, or after is not an existing payment id",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class))),
+            @ApiResponse(
+                    responseCode = "429",
+                    description = "Another export is running",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "exportInProgress",
+                                    value = "{\"code\":\"EXPORT_IN_PROGRESS\",\"message\":\"Too many payment exports are running (limit 1); retry later\",\"fieldErrors\":[]}")))
+    })
+    public void exportPayments(
+            @Parameter(description = "Inclusive lower bound on createdAt (ISO-8601)", example = "2026-02-24T00:00:00Z")
+            @RequestParam(name = "from", required = false) String from,
+            @Parameter(description = "Exclusive upper bound on createdAt (ISO-8601)", example = "2026-02-25T00:00:00Z")
+            @RequestParam(name = "to", required = false) String to,
+            @Parameter(description = "Resume after this payment id (the last line received)")
+            @RequestParam(name = "after", required = false) String after,
+            @Parameter(hidden = true) @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        Instant fromInstant = parseInstant("from", from);
+        Instant toInstant = parseInstant("to", to);
+        UUID afterId = after == null || after.isEmpty() ? null : parseId("after", after, "after must be a payment UUID");
+        try (PaymentExport export = paymentExportService.open(fromInstant, toInstant, afterId)) {
+            response.setContentType(NDJSON);
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (acceptsGzip(acceptEncoding)) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+                GZIPOutputStream gzip = new GZIPOutputStream(response.getOutputStream(), true);
+                export.writeTo(gzip);
+                gzip.finish();
+            } else {
+                OutputStream out = response.getOutputStream();
+                export.writeTo(out);
+            }
+        }
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+            summary = "Get a payment",
+            description = "Returns the masked payment with a strong ETag. Send it back in If-None-Match to get 304 "
+                    + "while the payment is unchanged.")
+    @ApiResponses({
+            @ApiResponse(
+                    responseCode = "200",
+                    description = "Payment found",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = PaymentView.class),
+                            examples = @ExampleObject(
+                                    name = "payment",
+                                    value = "{\"id\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-25T12:34:56Z\",\"firstName\":\"Jane\",\"lastName\":\"Doe\",\"cardLast4\":\"4242\",\"invoiceIds\":[\"INV-2025-008\"]}"))),
+            @ApiResponse(
+                    responseCode = "304",
+                    description = "Not modified (If-None-Match matches the current ETag)",
+                    content = @Content),
+            @ApiResponse(
+                    responseCode = "400",
+                    description = "Malformed payment id",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class))),
+            @ApiResponse(
+                    responseCode = "404",
+                    description = "No such payment",
+                    content = @Content(
+                            mediaType = MediaType.APPLICATION_JSON_VALUE,
+                            schema = @Schema(implementation = ApiErrorResponse.class),
+                            examples = @ExampleObject(
+                                    name = "notFound",
+                                    value = "{\"code\":\"PAYMENT_NOT_FOUND\",\"message\":\"Payment not found: 0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\",\"fieldErrors\":[]}")))
+    })
+    public ResponseEntity<byte[]> getPayment(
+            @Parameter(description = "Payment ID", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+            @PathVariable("id") String id) {
+        UUID paymentId = parseId("id", id, "id must be a payment UUID");
+        RenderedPaymentView view = paymentQueryService.payment(paymentId)
+                .orElseThrow(() -> new PaymentNotFoundException(id));
+        // The body is already serialized; for a matching If-None-Match, Spring answers 304 without writing it.
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(view.etag())
+                .cacheControl(CacheControl.noCache())
+                .body(view.json());
+    }
+
+    private static UUID parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        return parseId("cursor", cursor, "cursor must be a nextCursor value returned by this endpoint");
+    }
+
+    private static Instant parseInstant(String parameter, String value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException ex) {
+            throw new InvalidQueryParameterException(parameter, parameter + " must be an ISO-8601 instant such as 2026-02-24T00:00:00Z");
+        }
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().toLowerCase(Locale.ROOT).split(";");
+            if (parts[0].trim().equals("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static UUID parseId(String parameter, String value, String message) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidQueryParameterException(parameter, message);
+        }
     }
 }
@@ -0,0 +1,26 @@
+package com.ezycollect.server.payments.api;
+
+import com.ezycollect.server.payments.application.idempotency.IdempotencyReplayCache;
+import com.ezycollect.server.payments.application.idempotency.ReplayCacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/api/diagnostics", produces = MediaType.APPLICATION_JSON_VALUE)
+@RequiredArgsConstructor
+@Tag(name = "Diagnostics", description = "Operational statistics for the payments API")
+public class PaymentsDiagnosticsController {
+
+    private final IdempotencyReplayCache idempotencyReplayCache;
+
+    @GetMapping("/idempotency-replay-cache")
+    @Operation(summary = "Idempotency replay cache statistics (hits, misses, evictions, size)")
+    public ReplayCacheStats idempotencyReplayCache() {
+        return idempotencyReplayCache.stats();
+    }
+}
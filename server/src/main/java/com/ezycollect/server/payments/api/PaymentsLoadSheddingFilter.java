@@ -0,0 +1,128 @@
+package com.ezycollect.server.payments.api;
+
+import com.ezycollect.server.payments.application.idempotency.IdempotencyReplayCache;
+import com.ezycollect.server.shared.api.ApiErrorResponse;
+import com.ezycollect.server.shared.concurrency.GradientConcurrencyLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Sheds load on {@code POST /payments} and {@code POST /payments/batch} once more requests are in flight than a
+ * {@link GradientConcurrencyLimit} allows. Excess requests get {@code 503 OVERLOADED} with {@code Retry-After} at
+ * once instead of waiting for a Tomcat thread or a connection, so when MySQL slows down the requests already admitted
+ * keep their latency.
+ *
+ * <p>Requests whose Idempotency-Key has a cached replay are answered from memory and may exceed the limit by
+ * {@code replay-headroom} of it, so clients retrying completed payments get their answer while new creations are shed.
+ * Their latency is not sampled. Batches count toward the limit like any request, but their latency is not sampled
+ * either: one large batch would otherwise read as queueing and shrink the limit for single creations. Responses of
+ * 500 and above back the limit off.
+ */
+@Component
+@ConditionalOnProperty(prefix = "payments.concurrency-limit", name = "enabled", havingValue = "true")
+public class PaymentsLoadSheddingFilter extends OncePerRequestFilter implements MeterBinder {
+
+    private static final String BATCH_PATH = "/payments/batch";
+
+    private final GradientConcurrencyLimit limit;
+    private final IdempotencyReplayCache idempotencyReplayCache;
+    private final ObjectMapper objectMapper;
+    private final double replayHeadroom;
+    private final String retryAfterSeconds;
+    private final AtomicLong rejectedCreations = new AtomicLong();
+    private final AtomicLong rejectedReplays = new AtomicLong();
+
+    public PaymentsLoadSheddingFilter(
+            IdempotencyReplayCache idempotencyReplayCache,
+            ObjectMapper objectMapper,
+            @Value("${payments.concurrency-limit.initial-limit:20}") int initialLimit,
+            @Value("${payments.concurrency-limit.min-limit:4}") int minLimit,
+            @Value("${payments.concurrency-limit.max-limit:200}") int maxLimit,
+            @Value("${payments.concurrency-limit.tolerance:1.5}") double tolerance,
+            @Value("${payments.concurrency-limit.window:500ms}") Duration window,
+            @Value("${payments.concurrency-limit.replay-headroom:0.5}") double replayHeadroom,
+            @Value("${payments.concurrency-limit.retry-after:1s}") Duration retryAfter) {
+        this.limit = new GradientConcurrencyLimit(initialLimit, minLimit, maxLimit, tolerance, window);
+        this.idempotencyReplayCache = idempotencyReplayCache;
+        this.objectMapper = objectMapper;
+        this.replayHeadroom = replayHeadroom;
+        this.retryAfterSeconds = Long.toString(Math.max(1, (retryAfter.toMillis() + 999) / 1000));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return true;
+        }
+        String path = path(request);
+        return !path.equals("/payments") && !path.equals(BATCH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader("Idempotency-Key");
+        boolean replay = idempotencyKey != null && idempotencyReplayCache.contains(idempotencyKey);
+        long startNanos = limit.tryAcquire(replay ? (int) Math.ceil(limit.limit() * replayHeadroom) : 0);
+        if (startNanos < 0) {
+            (replay ? rejectedReplays : rejectedCreations).incrementAndGet();
+            reject(response);
+            return;
+        }
+        boolean sampled = !replay && !path(request).equals(BATCH_PATH);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            limit.release(startNanos, sampled, failed);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payments.concurrency.limit", limit, GradientConcurrencyLimit::limit)
+                .description("Current cap on concurrent payment creation requests")
+                .register(registry);
+        Gauge.builder("payments.concurrency.in_flight", limit, GradientConcurrencyLimit::inFlight)
+                .description("Payment creation requests admitted and not yet completed")
+                .register(registry);
+        FunctionCounter.builder("payments.concurrency.rejected", rejectedCreations, AtomicLong::get)
+                .description("Payment creation requests shed with 503")
+                .tag("kind", "create")
+                .register(registry);
+        FunctionCounter.builder("payments.concurrency.rejected", rejectedReplays, AtomicLong::get)
+                .description("Payment creation requests shed with 503")
+                .tag("kind", "replay")
+                .register(registry);
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiErrorResponse.simple(
+                "OVERLOADED", "Too many payment requests are in progress; retry after " + retryAfterSeconds + " seconds"));
+    }
+}
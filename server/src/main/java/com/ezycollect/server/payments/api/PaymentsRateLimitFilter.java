@@ -0,0 +1,172 @@
+package com.ezycollect.server.payments.api;
+
+import com.ezycollect.server.shared.api.ApiErrorResponse;
+import com.ezycollect.server.shared.ratelimit.ClientRateLimiter;
+import com.ezycollect.server.shared.ratelimit.RateLimit;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Rate limits {@code /payments} requests per client. The client is the value of {@code client-header} (an API key
+ * by default). Requests without the header share the {@value #ANONYMOUS} client. Over-limit requests get
+ * {@code 429 RATE_LIMITED} with {@code Retry-After} before they reach the load-shedding filter, so one client cannot
+ * take the concurrency slots and connections of the others.
+ *
+ * <p>Per-client limits come from {@code clients-file}, a properties file of {@code client=rate[,burst]} lines where
+ * the {@code default} entry replaces {@code default-rate}/{@code default-burst}. The file is re-read when its
+ * modification time changes. The same task evicts buckets of idle clients every {@code reload-interval}.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 10)
+@ConditionalOnProperty(prefix = "payments.rate-limit", name = "enabled", havingValue = "true")
+public class PaymentsRateLimitFilter extends OncePerRequestFilter implements SchedulingConfigurer, MeterBinder {
+
+    static final String ANONYMOUS = "anonymous";
+    private static final String DEFAULT_ENTRY = "default";
+
+    private final ObjectMapper objectMapper;
+    private final String clientHeader;
+    private final RateLimit configuredDefault;
+    private final Path clientsFile;
+    private final Duration reloadInterval;
+    private final ClientRateLimiter limiter;
+    private final AtomicLong rejected = new AtomicLong();
+    private FileTime clientsFileModified;
+
+    public PaymentsRateLimitFilter(
+            ObjectMapper objectMapper,
+            @Value("${payments.rate-limit.client-header:X-Api-Key}") String clientHeader,
+            @Value("${payments.rate-limit.default-rate:50}") double defaultRate,
+            @Value("${payments.rate-limit.default-burst:100}") int defaultBurst,
+            @Value("${payments.rate-limit.clients-file:}") String clientsFile,
+            @Value("${payments.rate-limit.reload-interval:10s}") Duration reloadInterval,
+            @Value("${payments.rate-limit.stripes:0}") int stripes,
+            @Value("${payments.rate-limit.max-clients:100000}") int maxClients) {
+        this.objectMapper = objectMapper;
+        this.clientHeader = clientHeader;
+        this.configuredDefault = new RateLimit(defaultRate, defaultBurst);
+        this.clientsFile = clientsFile.isBlank() ? null : Path.of(clientsFile);
+        this.reloadInterval = reloadInterval;
+        Map<String, RateLimit> clientLimits = new HashMap<>();
+        RateLimit defaultLimit = this.clientsFile == null ? configuredDefault : readClientsFile(clientLimits);
+        this.limiter = new ClientRateLimiter(
+                defaultLimit,
+                clientLimits,
+                stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors(),
+                maxClients);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals("/payments") && !path.startsWith("/payments/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientId = request.getHeader(clientHeader);
+        long waitNanos = limiter.tryAcquire(clientId == null || clientId.isBlank() ? ANONYMOUS : clientId);
+        if (waitNanos > 0) {
+            rejected.incrementAndGet();
+            reject(response, Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1)));
+            return;
+        }
+        chain.doFilter(request, response);
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::refresh, reloadInterval, reloadInterval));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.rate_limit.rejected", rejected, AtomicLong::get)
+                .description("Payments API requests rejected with 429 by the per-client rate limit")
+                .register(registry);
+        Gauge.builder("payments.rate_limit.clients", limiter, ClientRateLimiter::clients)
+                .description("Clients with a token bucket that has not refilled yet")
+                .register(registry);
+    }
+
+    void refresh() {
+        if (clientsFile != null) {
+            try {
+                if (!Files.getLastModifiedTime(clientsFile).equals(clientsFileModified)) {
+                    Map<String, RateLimit> clientLimits = new HashMap<>();
+                    RateLimit defaultLimit = readClientsFile(clientLimits);
+                    limiter.replaceLimits(defaultLimit, clientLimits);
+                    log.info("Reloaded rate limits for {} clients from {}", clientLimits.size(), clientsFile);
+                }
+            } catch (IOException | RuntimeException ex) {
+                log.warn("Could not reload rate limits from {}; keeping the current limits", clientsFile, ex);
+            }
+        }
+        limiter.evictIdle();
+    }
+
+    /** Reads the client limits into {@code clientLimits} and returns the default limit. */
+    private RateLimit readClientsFile(Map<String, RateLimit> clientLimits) {
+        Properties properties = new Properties();
+        try {
+            FileTime modified = Files.getLastModifiedTime(clientsFile);
+            try (Reader reader = Files.newBufferedReader(clientsFile)) {
+                properties.load(reader);
+            }
+            clientsFileModified = modified;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not read rate limits from " + clientsFile, ex);
+        }
+        RateLimit defaultLimit = configuredDefault;
+        for (String client : properties.stringPropertyNames()) {
+            RateLimit limit = RateLimit.parse(properties.getProperty(client));
+            if (client.equals(DEFAULT_ENTRY)) {
+                defaultLimit = limit;
+            } else {
+                clientLimits.put(client, limit);
+            }
+        }
+        return defaultLimit;
+    }
+
+    private void reject(HttpServletResponse response, long retryAfterSeconds) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ApiErrorResponse.simple(
+                "RATE_LIMITED", "Rate limit exceeded for this client; retry after " + retryAfterSeconds + " seconds"));
+    }
+}
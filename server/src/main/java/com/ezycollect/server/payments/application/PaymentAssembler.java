@@ -0,0 +1,119 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.ezycollect.server.payments.application.dto.PaymentView;
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds payment rows and idempotency response bodies from validated requests; shared by the single and batch
+ * creation paths so both persist identical data.
+ */
+@Component
+@RequiredArgsConstructor
+class PaymentAssembler {
+
+    private static final TypeReference<List<String>> INVOICE_IDS = new TypeReference<>() {
+    };
+
+    private final AesGcmCrypto aesGcmCrypto;
+    private final ObjectMapper objectMapper;
+
+    EncryptedPayload encryptCardNumber(CreatePaymentRequest request) {
+        return aesGcmCrypto.encrypt(request.getCardNumber());
+    }
+
+    /** Bulk path: card numbers are encrypted in one pass with the same thread's cipher. */
+    List<PaymentEntity> newPayments(List<UUID> ids, List<CreatePaymentRequest> requests, Instant now) {
+        List<EncryptedPayload> encryptedCardNumbers = aesGcmCrypto.encryptAll(
+                requests.stream().map(CreatePaymentRequest::getCardNumber).toList());
+        List<PaymentEntity> payments = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            payments.add(newPayment(ids.get(i), requests.get(i), encryptedCardNumbers.get(i), now));
+        }
+        return payments;
+    }
+
+    PaymentEntity newPayment(UUID id, CreatePaymentRequest request, EncryptedPayload encryptedCardNumber, Instant now) {
+        PaymentEntity entity = new PaymentEntity();
+        entity.setId(id);
+        entity.setFirstName(request.getFirstName());
+        entity.setLastName(request.getLastName());
+        entity.setInvoiceIdsJson(serializeInvoiceIds(request.getInvoiceIds()));
+        entity.setCardLast4(last4(request.getCardNumber()));
+        entity.setCardNumberCiphertext(encryptedCardNumber.ciphertext());
+        entity.setCardNumberIv(encryptedCardNumber.iv());
+        entity.setCardNumberKeyId(encryptedCardNumber.keyId());
+        entity.setStatus(PaymentStatus.CREATED);
+        entity.setCreatedAt(now);
+        // TODO: store encrypted expiry in a dedicated column in a future phase if required.
+        return entity;
+    }
+
+    CreatePaymentResponse createdResponse(PaymentEntity entity) {
+        return new CreatePaymentResponse(entity.getId().toString(), entity.getStatus().name(), entity.getCreatedAt());
+    }
+
+    /** Masked read model of a stored payment; the card number is reduced to its last four digits. */
+    PaymentView view(PaymentEntity entity) {
+        return new PaymentView(
+                entity.getId().toString(),
+                entity.getStatus().name(),
+                entity.getCreatedAt(),
+                entity.getFirstName(),
+                entity.getLastName(),
+                entity.getCardLast4(),
+                deserializeInvoiceIds(entity.getInvoiceIdsJson()));
+    }
+
+    /** UTF-8 JSON of the response: stored with the idempotency claim and sent as is, both now and on replay. */
+    byte[] serializeResponse(CreatePaymentResponse response) {
+        try {
+            return objectMapper.writeValueAsBytes(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize payment response", ex);
+        }
+    }
+
+    CreatePaymentResponse deserializeResponse(byte[] responseBody) {
+        try {
+            return objectMapper.readValue(responseBody, CreatePaymentResponse.class);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to deserialize stored idempotency response", ex);
+        }
+    }
+
+    private String last4(String cardNumber) {
+        int length = cardNumber.length();
+        return cardNumber.substring(Math.max(0, length - 4));
+    }
+
+    private List<String> deserializeInvoiceIds(String invoiceIdsJson) {
+        try {
+            return objectMapper.readValue(invoiceIdsJson, INVOICE_IDS);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to parse stored invoice IDs", ex);
+        }
+    }
+
+    private String serializeInvoiceIds(List<String> invoiceIds) {
+        try {
+            return objectMapper.writeValueAsString(invoiceIds);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize invoice IDs", ex);
+        }
+    }
+}
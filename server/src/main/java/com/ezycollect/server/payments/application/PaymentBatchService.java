@@ -0,0 +1,290 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItem;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItemResult;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItemResult.BatchItemOutcome;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchResponse;
+import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.ezycollect.server.payments.application.hash.PaymentRequestHashService;
+import com.ezycollect.server.payments.application.idempotency.CachedReplay;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyReplayCache;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyStore;
+import com.ezycollect.server.payments.application.invoice.PaidInvoiceCheck;
+import com.ezycollect.server.payments.application.journal.PaymentJournalService;
+import com.ezycollect.server.payments.application.outbox.PaymentOutbox;
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import com.ezycollect.server.payments.domain.PaymentJdbcRepository;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Creates many payments in one transaction. Items are processed in chunks: each chunk claims its keys in the
+ * {@link IdempotencyStore} with one call and writes new claims and payments as batches, so JDBC buffers and encrypted rows
+ * are held for one chunk at a time.
+ */
+@Service
+public class PaymentBatchService {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int NOT_CREATED = -1;
+    private static final int REJECTED = -2;
+
+    private final IdempotencyStore idempotencyStore;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final PaymentOutbox paymentOutbox;
+    private final PaidInvoiceCheck paidInvoiceCheck;
+    private final PaymentRequestHashService paymentRequestHashService;
+    private final PaymentAssembler paymentAssembler;
+    private final IdempotencyReplayCache idempotencyReplayCache;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentJournalService paymentJournalService;
+    private final int chunkSize;
+
+    public PaymentBatchService(
+            IdempotencyStore idempotencyStore,
+            PaymentJdbcRepository paymentJdbcRepository,
+            PaymentInvoiceRepository paymentInvoiceRepository,
+            PaymentOutbox paymentOutbox,
+            PaidInvoiceCheck paidInvoiceCheck,
+            PaymentRequestHashService paymentRequestHashService,
+            PaymentAssembler paymentAssembler,
+            IdempotencyReplayCache idempotencyReplayCache,
+            TransactionTemplate transactionTemplate,
+            ObjectProvider<PaymentJournalService> paymentJournalService,
+            @Value("${payments.batch.chunk-size:500}") int chunkSize) {
+        this.idempotencyStore = idempotencyStore;
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.paymentInvoiceRepository = paymentInvoiceRepository;
+        this.paymentOutbox = paymentOutbox;
+        this.paidInvoiceCheck = paidInvoiceCheck;
+        this.paymentRequestHashService = paymentRequestHashService;
+        this.paymentAssembler = paymentAssembler;
+        this.idempotencyReplayCache = idempotencyReplayCache;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentJournalService = paymentJournalService.getIfAvailable();
+        this.chunkSize = chunkSize;
+    }
+
+    public CreatePaymentBatchResponse createPayments(List<CreatePaymentBatchItem> items) {
+        List<String> requestHashes = items.stream()
+                .map(item -> paymentRequestHashService.hash(item.getPayment()))
+                .toList();
+
+        for (int attempt = 1; ; attempt++) {
+            List<String> reservedKeys = new ArrayList<>();
+            try {
+                BatchRun run = transactionTemplate.execute(status -> process(items, requestHashes, reservedKeys));
+                run.keys().forEach((key, state) -> {
+                    if (state.responseBody() != null) {
+                        idempotencyReplayCache.put(key, new CachedReplay(state.requestHash(), state.responseBody()));
+                    }
+                });
+                return new CreatePaymentBatchResponse(Arrays.asList(run.results()));
+            } catch (PessimisticLockingFailureException ex) {
+                // Concurrent batches touching the same key gaps can deadlock; the loser is rolled back entirely.
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+            } finally {
+                // After commit the rows are visible in MySQL; after rollback the keys are free again.
+                for (String key : reservedKeys) {
+                    paymentJournalService.release(key);
+                }
+            }
+        }
+    }
+
+    private BatchRun process(List<CreatePaymentBatchItem> items, List<String> requestHashes, List<String> reservedKeys) {
+        BatchRun run = new BatchRun(new CreatePaymentBatchItemResult[items.size()], new HashMap<>(), reservedKeys);
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            processChunk(items, requestHashes, from, Math.min(items.size(), from + chunkSize), run);
+        }
+        return run;
+    }
+
+    private void processChunk(List<CreatePaymentBatchItem> items, List<String> requestHashes, int from, int to, BatchRun run) {
+        Map<String, Integer> pending = new LinkedHashMap<>();
+        List<Integer> deferred = new ArrayList<>();
+
+        for (int i = from; i < to; i++) {
+            String key = items.get(i).getIdempotencyKey();
+            KeyState known = run.keys().get(key);
+            if (known != null) {
+                run.results()[i] = resolve(i, key, requestHashes.get(i), known);
+            } else if (pending.containsKey(key)) {
+                deferred.add(i);
+            } else {
+                CachedReplay cached = idempotencyReplayCache.get(key);
+                if (cached != null) {
+                    KeyState state = replayState(cached.requestHash(), cached.responseBody());
+                    run.keys().put(key, state);
+                    run.results()[i] = resolve(i, key, requestHashes.get(i), state);
+                } else {
+                    pending.put(key, i);
+                }
+            }
+        }
+
+        Instant now = Instant.now();
+        Map<String, StoredIdempotency> journaled = reserveInJournal(pending, requestHashes, run);
+        Map<String, String> pendingHashes = new LinkedHashMap<>();
+        pending.forEach((key, index) -> pendingHashes.put(key, requestHashes.get(index)));
+        Map<String, StoredIdempotency> existing = new HashMap<>(idempotencyStore.claimAll(pendingHashes, now));
+        existing.putAll(journaled);
+        List<Integer> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            String key = entry.getKey();
+            int index = entry.getValue();
+            StoredIdempotency stored = existing.get(key);
+            if (stored != null) {
+                KeyState state = storedState(stored);
+                run.keys().put(key, state);
+                run.results()[index] = resolve(index, key, requestHashes.get(index), state);
+            } else {
+                candidates.add(index);
+            }
+        }
+        List<Integer> created = rejectPaidInvoices(items, requestHashes, candidates, run);
+
+        List<PaymentEntity> payments = paymentAssembler.newPayments(
+                created.stream().map(index -> PaymentIds.next()).toList(),
+                created.stream().map(index -> items.get(index).getPayment()).toList(),
+                now);
+        List<CompletedIdempotency> claims = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            int index = created.get(i);
+            String key = items.get(index).getIdempotencyKey();
+            String requestHash = requestHashes.get(index);
+            PaymentEntity payment = payments.get(i);
+            CreatePaymentResponse response = paymentAssembler.createdResponse(payment);
+            byte[] responseBody = paymentAssembler.serializeResponse(response);
+            claims.add(new CompletedIdempotency(
+                    key,
+                    requestHash,
+                    payment.getId(),
+                    HttpStatus.CREATED.value(),
+                    responseBody,
+                    now));
+            KeyState state = new KeyState(requestHash, response, responseBody, index);
+            run.keys().put(key, state);
+            run.results()[index] = resolve(index, key, requestHash, state);
+        }
+
+        if (!claims.isEmpty()) {
+            idempotencyStore.completeAll(claims);
+            paymentJdbcRepository.insertAll(payments);
+            paymentInvoiceRepository.insertFor(payments);
+            paymentOutbox.paymentsCreated(payments);
+        }
+
+        for (int index : deferred) {
+            String key = items.get(index).getIdempotencyKey();
+            run.results()[index] = resolve(index, key, requestHashes.get(index), run.keys().get(key));
+        }
+    }
+
+    /**
+     * With the paid-invoice check enabled, rejects candidates paying an invoice that already has a payment, or that
+     * an earlier item of this batch pays; returns the accepted candidates in order. The keys of rejected items stay bound
+     * to their hash for the rest of the batch, so later items with the same key resolve alike in every chunk.
+     */
+    private List<Integer> rejectPaidInvoices(
+            List<CreatePaymentBatchItem> items, List<String> requestHashes, List<Integer> candidates, BatchRun run) {
+        if (!paidInvoiceCheck.enabled() || candidates.isEmpty()) {
+            return candidates;
+        }
+        Set<String> invoiceIds = new HashSet<>();
+        for (int index : candidates) {
+            invoiceIds.addAll(items.get(index).getPayment().getInvoiceIds());
+        }
+        Set<String> paid = new HashSet<>(paidInvoiceCheck.lockPaid(invoiceIds));
+        List<Integer> accepted = new ArrayList<>(candidates.size());
+        for (int index : candidates) {
+            List<String> itemInvoiceIds = items.get(index).getPayment().getInvoiceIds();
+            if (itemInvoiceIds.stream().anyMatch(paid::contains)) {
+                String key = items.get(index).getIdempotencyKey();
+                KeyState state = new KeyState(requestHashes.get(index), null, null, REJECTED);
+                run.keys().put(key, state);
+                run.results()[index] = resolve(index, key, requestHashes.get(index), state);
+            } else {
+                paid.addAll(itemInvoiceIds);
+                accepted.add(index);
+            }
+        }
+        return accepted;
+    }
+
+    /**
+     * In journal mode, keys accepted by the single-payment path may not be in MySQL yet. Reserving every new key in
+     * the journal's index makes the two paths mutually exclusive; keys already held there are returned as stored.
+     */
+    private Map<String, StoredIdempotency> reserveInJournal(
+            Map<String, Integer> pending, List<String> requestHashes, BatchRun run) {
+        if (paymentJournalService == null) {
+            return Map.of();
+        }
+        Map<String, StoredIdempotency> held = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : pending.entrySet()) {
+            StoredIdempotency existing = paymentJournalService.reserve(entry.getKey(), requestHashes.get(entry.getValue()));
+            if (existing != null) {
+                held.put(entry.getKey(), existing);
+            } else {
+                run.reservedKeys().add(entry.getKey());
+            }
+        }
+        return held;
+    }
+
+    private KeyState storedState(StoredIdempotency stored) {
+        return replayState(stored.requestHash(), stored.responseStatus() == null ? null : stored.responseBody());
+    }
+
+    /** Batch results embed the response as an object, so stored bodies are parsed here, once per key. */
+    private KeyState replayState(String requestHash, byte[] responseBody) {
+        CreatePaymentResponse response = responseBody == null ? null : paymentAssembler.deserializeResponse(responseBody);
+        return new KeyState(requestHash, response, responseBody, NOT_CREATED);
+    }
+
+    private CreatePaymentBatchItemResult resolve(int index, String key, String requestHash, KeyState state) {
+        if (!state.requestHash().equals(requestHash)) {
+            return new CreatePaymentBatchItemResult(key, BatchItemOutcome.CONFLICT, null);
+        }
+        if (state.createdByIndex() == REJECTED) {
+            return new CreatePaymentBatchItemResult(key, BatchItemOutcome.INVOICE_ALREADY_PAID, null);
+        }
+        if (state.response() == null) {
+            return new CreatePaymentBatchItemResult(key, BatchItemOutcome.IN_PROGRESS, null);
+        }
+        BatchItemOutcome outcome = state.createdByIndex() == index ? BatchItemOutcome.CREATED : BatchItemOutcome.REPLAYED;
+        return new CreatePaymentBatchItemResult(key, outcome, state.response());
+    }
+
+    private record BatchRun(CreatePaymentBatchItemResult[] results, Map<String, KeyState> keys, List<String> reservedKeys) {
+    }
+
+    /**
+     * What is known about one idempotency key: the hash it is bound to, its response (parsed and as stored) once
+     * completed and the index of the batch item that created it (later items with the same key are replays of it), or
+     * {@code REJECTED} when the first item with the key paid an already paid invoice and nothing was stored.
+     */
+    private record KeyState(String requestHash, CreatePaymentResponse response, byte[] responseBody, int createdByIndex) {
+    }
+}
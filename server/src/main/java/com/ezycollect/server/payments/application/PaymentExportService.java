@@ -0,0 +1,160 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.payments.application.error.ExportInProgressException;
+import com.ezycollect.server.payments.application.error.InvalidQueryParameterException;
+import com.ezycollect.server.payments.domain.PaymentExportRepository;
+import com.ezycollect.server.payments.domain.PaymentExportRepository.ExportCursor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Streams masked payments as NDJSON (one {@code PaymentView} object per line) in {@code (createdAt, id)} order.
+ *
+ * <p>Rows are read in keyset pages of {@code chunk-size} and written to the output as they arrive, so memory use does
+ * not depend on the size of the export. To leave the connection pool and MySQL to the payment creation path, at most
+ * {@code max-concurrent} exports run at a time and each is paced to {@code max-rows-per-second}; the pause happens
+ * between pages, after the page's result set is closed.
+ */
+@Service
+public class PaymentExportService implements MeterBinder {
+
+    private final PaymentExportRepository paymentExportRepository;
+    private final PaymentAssembler paymentAssembler;
+    private final ObjectWriter lineWriter;
+    private final int chunkSize;
+    private final int maxRowsPerSecond;
+    private final int maxConcurrent;
+    private final Semaphore permits;
+    private final AtomicLong exportedRows = new AtomicLong();
+
+    public PaymentExportService(
+            PaymentExportRepository paymentExportRepository,
+            PaymentAssembler paymentAssembler,
+            ObjectMapper objectMapper,
+            @Value("${payments.export.chunk-size:1000}") int chunkSize,
+            @Value("${payments.export.max-rows-per-second:5000}") int maxRowsPerSecond,
+            @Value("${payments.export.max-concurrent:1}") int maxConcurrent) {
+        this.paymentExportRepository = paymentExportRepository;
+        this.paymentAssembler = paymentAssembler;
+        // Pages are flushed as a whole; flushing every row would send one HTTP chunk per payment.
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Reserves an export slot and resolves the resume position; call before committing the response, so rejections
+     * can still be reported as API errors. {@code to} defaults to now, which keeps payments created while the export
+     * runs out of it.
+     */
+    public PaymentExport open(Instant from, Instant to, UUID after) {
+        ExportCursor cursor = null;
+        if (after != null) {
+            cursor = paymentExportRepository.cursorOf(after)
+                    .orElseThrow(() -> new InvalidQueryParameterException("after", "after must be the id of an existing payment"));
+        }
+        if (!permits.tryAcquire()) {
+            throw new ExportInProgressException(maxConcurrent);
+        }
+        return new PaymentExport(from, to == null ? Instant.now() : to, cursor);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.export.rows", exportedRows, AtomicLong::get)
+                .description("Payments written by the NDJSON export")
+                .baseUnit("payments")
+                .register(registry);
+    }
+
+    /** An open export; {@link #close()} releases its slot. */
+    public final class PaymentExport implements AutoCloseable {
+
+        private final Instant from;
+        private final Instant to;
+        private ExportCursor cursor;
+        private boolean closed;
+
+        private PaymentExport(Instant from, Instant to, ExportCursor cursor) {
+            this.from = from;
+            this.to = to;
+            this.cursor = cursor;
+        }
+
+        /** Writes every remaining payment of the range to {@code out} and returns how many were written. */
+        public long writeTo(OutputStream out) throws IOException {
+            long written = 0;
+            long startNanos = System.nanoTime();
+            try (JsonGenerator generator = lineWriter.createGenerator(out)) {
+                // The servlet container owns the response stream, and lines end in '\n' rather than Jackson's
+                // default root value separator.
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                generator.setRootValueSeparator(null);
+                while (true) {
+                    int rows;
+                    try {
+                        rows = paymentExportRepository.streamPage(from, to, cursor, chunkSize, payment -> {
+                            try {
+                                lineWriter.writeValue(generator, paymentAssembler.view(payment));
+                                generator.writeRaw('\n');
+                            } catch (IOException ex) {
+                                throw new UncheckedIOException(ex);
+                            }
+                            cursor = new ExportCursor(payment.getCreatedAt(), payment.getId());
+                        });
+                    } catch (UncheckedIOException ex) {
+                        throw ex.getCause();
+                    }
+                    written += rows;
+                    exportedRows.addAndGet(rows);
+                    generator.flush();
+                    if (rows < chunkSize) {
+                        return written;
+                    }
+                    pace(written, startNanos);
+                }
+            }
+        }
+
+        /** Sleeps until {@code written} rows are within the {@code max-rows-per-second} budget. */
+        private void pace(long written, long startNanos) throws InterruptedIOException {
+            long dueNanos = TimeUnit.SECONDS.toNanos(written) / maxRowsPerSecond;
+            long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+            if (aheadNanos <= 0) {
+                return;
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Payment export interrupted");
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.payments.application.dto.InvoicePaymentsResponse;
+import com.ezycollect.server.payments.application.dto.PaymentSummary;
+import com.ezycollect.server.payments.application.view.PaymentViewCache;
+import com.ezycollect.server.payments.application.view.RenderedPaymentView;
+import com.ezycollect.server.payments.domain.InvoicePayment;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import com.ezycollect.server.payments.domain.PaymentRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+/** Read side of the payments API. */
+@Service
+@RequiredArgsConstructor
+public class PaymentQueryService {
+
+    private static final int ETAG_BYTES = 16;
+
+    private final PaymentRepository paymentRepository;
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final PaymentViewCache paymentViewCache;
+    private final PaymentAssembler paymentAssembler;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The masked view of one payment, serialized, with an ETag derived from its bytes. Served from
+     * {@link PaymentViewCache}; a miss loads the row and renders it once.
+     */
+    public Optional<RenderedPaymentView> payment(UUID paymentId) {
+        return Optional.ofNullable(paymentViewCache.get(paymentId, this::render));
+    }
+
+    /**
+     * One page of the payments covering {@code invoiceId}. The cursor is the id of the last payment of the previous
+     * page, so pages stay stable while new payments are added and cost one primary key range scan each.
+     */
+    public InvoicePaymentsResponse paymentsForInvoice(String invoiceId, UUID cursor, int limit) {
+        // One extra row tells whether another page follows without a COUNT.
+        List<InvoicePayment> rows = paymentInvoiceRepository.findPayments(invoiceId, cursor, limit + 1);
+        boolean more = rows.size() > limit;
+        List<PaymentSummary> payments = rows.stream()
+                .limit(limit)
+                .map(row -> new PaymentSummary(row.paymentId().toString(), row.status().name(), row.createdAt()))
+                .toList();
+        String nextCursor = more ? payments.get(payments.size() - 1).id() : null;
+        return new InvoicePaymentsResponse(invoiceId, payments, nextCursor);
+    }
+
+    private RenderedPaymentView render(UUID paymentId) {
+        PaymentEntity payment = paymentRepository.findById(paymentId).orElse(null);
+        if (payment == null) {
+            return null;
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(paymentAssembler.view(payment));
+            return new RenderedPaymentView(json, etag(json));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize payment view", ex);
+        }
+    }
+
+    /** Strong validator: equal ETags mean byte-identical bodies. */
+    private static String etag(byte[] json) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+            return "\"" + HexFormat.of().formatHex(digest, 0, ETAG_BYTES) + "\"";
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is unavailable", ex);
+        }
+    }
+}
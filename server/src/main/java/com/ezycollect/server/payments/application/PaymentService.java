@@ -1,123 +1,283 @@
 package com.ezycollect.server.payments.application;
 
 import com.ezycollect.server.payments.application.error.IdempotencyConflictException;
+import com.ezycollect.server.payments.application.error.IdempotencyRequestInProgressException;
+import com.ezycollect.server.payments.application.error.InvoiceAlreadyPaidException;
 import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
-import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
 import com.ezycollect.server.payments.application.hash.PaymentRequestHashService;
-import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.idempotency.CachedReplay;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyCoalescer;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyCoalescer.InFlight;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyReplayCache;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyStore;
+import com.ezycollect.server.payments.application.invoice.PaidInvoiceCheck;
+import com.ezycollect.server.payments.application.journal.PaymentJournalService;
+import com.ezycollect.server.payments.application.outbox.PaymentOutbox;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Outcome;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Sample;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Stage;
 import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.IdempotencyClaimOutcome;
 import com.ezycollect.server.payments.domain.PaymentEntity;
-import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
-import com.ezycollect.server.payments.domain.PaymentIdempotencyEntity;
-import com.ezycollect.server.payments.domain.PaymentIdempotencyRepository;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
 import com.ezycollect.server.payments.domain.PaymentRepository;
-import com.ezycollect.server.payments.domain.PaymentStatus;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import java.time.Instant;
 import java.util.List;
-import java.util.UUID;
-import lombok.RequiredArgsConstructor;
-import org.springframework.dao.DuplicateKeyException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
-@RequiredArgsConstructor
 public class PaymentService {
 
+    private static final int MAX_ATTEMPTS = 3;
+
     private final PaymentRepository paymentRepository;
-    private final PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository;
-    private final PaymentIdempotencyRepository paymentIdempotencyRepository;
-    private final AesGcmCrypto aesGcmCrypto;
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final PaymentOutbox paymentOutbox;
+    private final PaidInvoiceCheck paidInvoiceCheck;
+    private final IdempotencyStore idempotencyStore;
     private final PaymentRequestHashService paymentRequestHashService;
-    private final ObjectMapper objectMapper;
+    private final PaymentAssembler paymentAssembler;
+    private final IdempotencyReplayCache idempotencyReplayCache;
+    private final IdempotencyCoalescer idempotencyCoalescer;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentJournalService paymentJournalService;
+    private final PaymentCreationMetrics paymentCreationMetrics;
 
-    @Transactional
-    public PaymentServiceResult createPayment(String idempotencyKey, CreatePaymentRequest request) {
-        String requestHash = paymentRequestHashService.hash(request);
-        Instant now = Instant.now();
+    public PaymentService(
+            PaymentRepository paymentRepository,
+            PaymentInvoiceRepository paymentInvoiceRepository,
+            PaymentOutbox paymentOutbox,
+            PaidInvoiceCheck paidInvoiceCheck,
+            IdempotencyStore idempotencyStore,
+            PaymentRequestHashService paymentRequestHashService,
+            PaymentAssembler paymentAssembler,
+            IdempotencyReplayCache idempotencyReplayCache,
+            IdempotencyCoalescer idempotencyCoalescer,
+            TransactionTemplate transactionTemplate,
+            ObjectProvider<PaymentJournalService> paymentJournalService,
+            PaymentCreationMetrics paymentCreationMetrics) {
+        this.paymentRepository = paymentRepository;
+        this.paymentInvoiceRepository = paymentInvoiceRepository;
+        this.paymentOutbox = paymentOutbox;
+        this.paidInvoiceCheck = paidInvoiceCheck;
+        this.idempotencyStore = idempotencyStore;
+        this.paymentRequestHashService = paymentRequestHashService;
+        this.paymentAssembler = paymentAssembler;
+        this.idempotencyReplayCache = idempotencyReplayCache;
+        this.idempotencyCoalescer = idempotencyCoalescer;
+        this.transactionTemplate = transactionTemplate;
+        // Null unless payments.journal.enabled=true.
+        this.paymentJournalService = paymentJournalService.getIfAvailable();
+        this.paymentCreationMetrics = paymentCreationMetrics;
+    }
 
-        PaymentIdempotencyEntity idempotency = new PaymentIdempotencyEntity();
-        idempotency.setIdempotencyKey(idempotencyKey);
-        idempotency.setRequestHash(requestHash);
-        idempotency.setCreatedAt(now);
-        idempotency.setUpdatedAt(now);
+    public PaymentServiceResult createPayment(String idempotencyKey, CreatePaymentRequest request) {
+        Sample sample = paymentCreationMetrics.start();
         try {
-            paymentIdempotencyClaimRepository.insertClaim(idempotencyKey, requestHash, now);
-        } catch (DuplicateKeyException ex) {
-            return handleExistingIdempotency(idempotencyKey, requestHash);
-        }
-
-        String id = UUID.randomUUID().toString();
-
-        PaymentEntity entity = new PaymentEntity();
-        entity.setId(id);
-        entity.setFirstName(request.getFirstName());
-        entity.setLastName(request.getLastName());
-        entity.setInvoiceIdsJson(serializeInvoiceIds(request.getInvoiceIds()));
-        entity.setCardLast4(last4(request.getCardNumber()));
-        EncryptedPayload encryptedCardNumber = aesGcmCrypto.encrypt(request.getCardNumber());
-        entity.setCardNumberCiphertext(encryptedCardNumber.ciphertext());
-        entity.setCardNumberIv(encryptedCardNumber.iv());
-        entity.setStatus(PaymentStatus.CREATED);
-        entity.setCreatedAt(now);
-        // TODO: store encrypted expiry in a dedicated column in a future phase if required.
-        paymentRepository.save(entity);
+            String requestHash = paymentRequestHashService.hash(request);
+            sample.lap(Stage.HASH);
 
-        CreatePaymentResponse response = new CreatePaymentResponse(id, PaymentStatus.CREATED.name(), now);
-        idempotency.setPaymentId(id);
-        idempotency.setResponseStatus(HttpStatus.CREATED.value());
-        idempotency.setResponseBody(serializeResponse(response));
-        idempotency.setUpdatedAt(Instant.now());
-        paymentIdempotencyRepository.save(idempotency);
+            // Replays of completed claims are answered from memory before a transaction (and connection) is opened.
+            CachedReplay cached = idempotencyReplayCache.get(idempotencyKey);
+            sample.lap(Stage.REPLAY_LOOKUP);
+            if (cached != null) {
+                return replay(cached, requestHash, sample);
+            }
 
-        return new PaymentServiceResult(response, HttpStatus.CREATED);
+            long deadline = idempotencyCoalescer.deadline();
+            while (true) {
+                InFlight leader = idempotencyCoalescer.lead(idempotencyKey, requestHash);
+                if (leader != null) {
+                    PaymentServiceResult followed = follow(leader, requestHash, deadline, sample);
+                    if (followed != null) {
+                        return followed;
+                    }
+                    // The leader failed; this request makes its own attempt, unless another follower leads by now.
+                    continue;
+                }
+                try {
+                    PaymentServiceResult result = createAsLeader(idempotencyKey, requestHash, request, deadline, sample);
+                    // Cached only after commit so the cache never serves a response whose payment was rolled back.
+                    idempotencyReplayCache.put(idempotencyKey, new CachedReplay(requestHash, result.responseBody()));
+                    idempotencyCoalescer.complete(idempotencyKey, result.responseBody());
+                    return result;
+                } catch (RuntimeException ex) {
+                    idempotencyCoalescer.abandon(idempotencyKey);
+                    throw ex;
+                }
+            }
+        } finally {
+            sample.finish();
+        }
     }
 
-    private String last4(String cardNumber) {
-        int length = cardNumber.length();
-        return cardNumber.substring(Math.max(0, length - 4));
+    private PaymentServiceResult follow(InFlight leader, String requestHash, long deadline, Sample sample) {
+        if (!leader.requestHash().equals(requestHash)) {
+            sample.outcome(Outcome.CONFLICT);
+            throw new IdempotencyConflictException();
+        }
+        byte[] responseBody;
+        try {
+            responseBody = idempotencyCoalescer.await(leader, deadline);
+        } catch (IdempotencyRequestInProgressException ex) {
+            sample.outcome(Outcome.IN_PROGRESS);
+            throw ex;
+        }
+        if (responseBody == null) {
+            return null;
+        }
+        sample.outcome(Outcome.REPLAYED);
+        return new PaymentServiceResult(responseBody, HttpStatus.OK);
     }
 
-    private String serializeInvoiceIds(List<String> invoiceIds) {
-        try {
-            return objectMapper.writeValueAsString(invoiceIds);
-        } catch (JsonProcessingException ex) {
-            throw new IllegalStateException("Failed to serialize invoice IDs", ex);
+    private PaymentServiceResult createAsLeader(
+            String idempotencyKey, String requestHash, CreatePaymentRequest request, long deadline, Sample sample) {
+        while (true) {
+            try {
+                if (paymentJournalService != null) {
+                    return createJournaled(idempotencyKey, requestHash, request, sample);
+                }
+                PaymentServiceResult result = createInTransaction(idempotencyKey, requestHash, request, sample);
+                sample.lap(Stage.COMMIT);
+                return result;
+            } catch (IdempotencyRequestInProgressException ex) {
+                // The key is claimed by an unfinished request on another instance (or, in journal mode, a batch):
+                // wait until that claim completes or disappears, then claim again to replay or take it over.
+                if (!idempotencyCoalescer.poll(deadline, () -> claimSettled(idempotencyKey))) {
+                    throw ex;
+                }
+            }
         }
     }
 
-    private PaymentServiceResult handleExistingIdempotency(String idempotencyKey, String requestHash) {
-        PaymentIdempotencyEntity existing = paymentIdempotencyRepository.findById(idempotencyKey)
-                .orElseThrow(() -> new IllegalStateException("Idempotency record lookup failed after duplicate key"));
+    private boolean claimSettled(String idempotencyKey) {
+        if (paymentJournalService != null) {
+            return !paymentJournalService.inProgress(idempotencyKey);
+        }
+        return idempotencyStore.find(idempotencyKey)
+                .map(stored -> stored.responseStatus() != null)
+                .orElse(true);
+    }
 
-        if (!existing.getRequestHash().equals(requestHash)) {
-            throw new IdempotencyConflictException();
+    private PaymentServiceResult createInTransaction(
+            String idempotencyKey, String requestHash, CreatePaymentRequest request, Sample sample) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> createOrReplay(idempotencyKey, requestHash, request, sample));
+            } catch (PessimisticLockingFailureException ex) {
+                // Concurrent payments of one invoice can deadlock on the paid-invoice check's gap locks. The claim is
+                // rolled back with the loser, whose retry then sees the winner's payment.
+                if (attempt >= MAX_ATTEMPTS) {
+                    throw ex;
+                }
+            }
         }
+    }
+
+    private PaymentServiceResult createOrReplay(
+            String idempotencyKey, String requestHash, CreatePaymentRequest request, Sample sample) {
+        Instant now = Instant.now();
 
-        if (existing.getResponseBody() == null || existing.getResponseStatus() == null) {
-            throw new IllegalStateException("Idempotency request is already in progress");
+        IdempotencyClaim claim = idempotencyStore.claim(idempotencyKey, requestHash, now);
+        sample.lap(Stage.CLAIM);
+        if (claim.outcome() != IdempotencyClaimOutcome.NEW) {
+            return handleExistingIdempotency(claim, sample);
         }
+        requireUnpaidInvoices(request.getInvoiceIds(), sample);
+
+        EncryptedPayload encryptedCardNumber = paymentAssembler.encryptCardNumber(request);
+        sample.lap(Stage.ENCRYPT);
+        PaymentEntity entity = paymentAssembler.newPayment(PaymentIds.next(), request, encryptedCardNumber, now);
+        paymentRepository.save(entity);
+        paymentInvoiceRepository.insertFor(List.of(entity));
+        paymentOutbox.paymentsCreated(List.of(entity));
+        sample.lap(Stage.SAVE);
+
+        byte[] responseBody = paymentAssembler.serializeResponse(paymentAssembler.createdResponse(entity));
+        idempotencyStore.complete(
+                idempotencyKey,
+                entity.getId(),
+                HttpStatus.CREATED.value(),
+                responseBody,
+                Instant.now());
+        sample.lap(Stage.FINALIZE);
 
-        CreatePaymentResponse response = deserializeResponse(existing.getResponseBody());
-        return new PaymentServiceResult(response, HttpStatus.OK);
+        sample.outcome(Outcome.CREATED);
+        return new PaymentServiceResult(responseBody, HttpStatus.CREATED);
     }
 
-    private String serializeResponse(CreatePaymentResponse response) {
+    private PaymentServiceResult createJournaled(
+            String idempotencyKey, String requestHash, CreatePaymentRequest request, Sample sample) {
+        IdempotencyClaim claim = paymentJournalService.claim(idempotencyKey, requestHash);
+        sample.lap(Stage.CLAIM);
+        if (claim.outcome() != IdempotencyClaimOutcome.NEW) {
+            return handleExistingIdempotency(claim, sample);
+        }
+
         try {
-            return objectMapper.writeValueAsString(response);
-        } catch (JsonProcessingException ex) {
-            throw new IllegalStateException("Failed to serialize payment response", ex);
+            requireUnpaidInvoices(request.getInvoiceIds(), sample);
+            EncryptedPayload encryptedCardNumber = paymentAssembler.encryptCardNumber(request);
+            sample.lap(Stage.ENCRYPT);
+            PaymentEntity entity = paymentAssembler.newPayment(
+                    PaymentIds.next(), request, encryptedCardNumber, Instant.now());
+            byte[] responseBody = paymentAssembler.serializeResponse(paymentAssembler.createdResponse(entity));
+            paymentJournalService.append(
+                    idempotencyKey,
+                    requestHash,
+                    entity,
+                    HttpStatus.CREATED.value(),
+                    responseBody);
+            sample.lap(Stage.SAVE);
+            sample.outcome(Outcome.CREATED);
+            return new PaymentServiceResult(responseBody, HttpStatus.CREATED);
+        } catch (RuntimeException ex) {
+            paymentJournalService.release(idempotencyKey);
+            throw ex;
         }
     }
 
-    private CreatePaymentResponse deserializeResponse(String responseBody) {
+    private void requireUnpaidInvoices(List<String> invoiceIds, Sample sample) {
         try {
-            return objectMapper.readValue(responseBody, CreatePaymentResponse.class);
-        } catch (JsonProcessingException ex) {
-            throw new IllegalStateException("Failed to deserialize stored idempotency response", ex);
+            paidInvoiceCheck.requireUnpaid(invoiceIds);
+        } catch (InvoiceAlreadyPaidException ex) {
+            sample.outcome(Outcome.INVOICE_ALREADY_PAID);
+            throw ex;
+        } finally {
+            sample.lap(Stage.CLAIM);
+        }
+    }
+
+    private PaymentServiceResult handleExistingIdempotency(IdempotencyClaim claim, Sample sample) {
+        return switch (claim.outcome()) {
+            case REPLAY -> {
+                sample.outcome(Outcome.REPLAYED);
+                yield new PaymentServiceResult(claim.responseBody(), HttpStatus.OK);
+            }
+            case CONFLICT -> {
+                sample.outcome(Outcome.CONFLICT);
+                throw new IdempotencyConflictException();
+            }
+            case IN_PROGRESS -> {
+                sample.outcome(Outcome.IN_PROGRESS);
+                throw idempotencyCoalescer.inProgress();
+            }
+            case NEW -> throw new IllegalStateException("New idempotency claim cannot be replayed");
+        };
+    }
+
+    private PaymentServiceResult replay(CachedReplay cached, String requestHash, Sample sample) {
+        if (!cached.requestHash().equals(requestHash)) {
+            sample.outcome(Outcome.CONFLICT);
+            throw new IdempotencyConflictException();
         }
+        sample.outcome(Outcome.REPLAYED);
+        return new PaymentServiceResult(cached.responseBody(), HttpStatus.OK);
     }
 }
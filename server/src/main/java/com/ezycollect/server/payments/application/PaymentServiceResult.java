@@ -1,11 +1,13 @@
 package com.ezycollect.server.payments.application;
 
-import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
 import org.springframework.http.HttpStatus;
 
+/**
+ * The JSON response body of a payment creation, as UTF-8 bytes: the same bytes that are stored with the idempotency
+ * claim, so a replay sends exactly what the original request received without parsing or re-serializing it.
+ */
 public record PaymentServiceResult(
-        CreatePaymentResponse response,
+        byte[] responseBody,
         HttpStatus httpStatus
 ) {
 }
-
@@ -0,0 +1,100 @@
+package com.ezycollect.server.payments.application;
+
+import com.ezycollect.server.payments.application.dto.PaymentStatusResponse;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionBatchItem;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionBatchResponse;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionItemResult;
+import com.ezycollect.server.payments.application.dto.PaymentTransitionItemResult.TransitionOutcome;
+import com.ezycollect.server.payments.application.error.InvalidPaymentTransitionException;
+import com.ezycollect.server.payments.application.error.PaymentNotFoundException;
+import com.ezycollect.server.payments.application.outbox.PaymentOutbox;
+import com.ezycollect.server.payments.application.view.PaymentViewCache;
+import com.ezycollect.server.payments.domain.PaymentJdbcRepository;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import com.ezycollect.server.payments.domain.PaymentStatusChange;
+import com.ezycollect.server.payments.domain.PaymentTransition;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves payments through their {@link PaymentStatus} lifecycle with conditional updates instead of loading and saving
+ * entities, so concurrent transitions of one payment cannot overwrite each other: the first to commit wins and the
+ * others find the status already changed. Only payments that did not move are read back, to tell a missing payment
+ * from one in the wrong status.
+ *
+ * <p>These are JDBC writes, so the JPA listener does not see them; cached views of moved payments are evicted here.
+ * Payments still waiting in the write-ahead journal are not in MySQL yet and are reported as not found.
+ */
+@Service
+@RequiredArgsConstructor
+public class PaymentTransitionService {
+
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final PaymentViewCache paymentViewCache;
+    private final PaymentOutbox paymentOutbox;
+    private final TransactionTemplate transactionTemplate;
+
+    public PaymentStatusResponse transition(UUID paymentId, PaymentTransition transition) {
+        PaymentTransitionItemResult result = transitionAll(List.of(new PaymentStatusChange(paymentId, transition)))
+                .results()
+                .get(0);
+        return switch (result.outcome()) {
+            case APPLIED -> new PaymentStatusResponse(result.paymentId(), result.status());
+            case REJECTED -> throw new InvalidPaymentTransitionException(
+                    paymentId, PaymentStatus.valueOf(result.status()), transition);
+            case NOT_FOUND -> throw new PaymentNotFoundException(paymentId.toString());
+        };
+    }
+
+    public PaymentTransitionBatchResponse transitionItems(List<PaymentTransitionBatchItem> items) {
+        return transitionAll(items.stream()
+                .map(item -> new PaymentStatusChange(item.getPaymentId(), item.getTransition()))
+                .toList());
+    }
+
+    /** Applies the changes in request order in one transaction, as one batch of conditional updates. */
+    PaymentTransitionBatchResponse transitionAll(List<PaymentStatusChange> changes) {
+        return transactionTemplate.execute(status -> {
+            int[] updated = paymentJdbcRepository.transitionAll(changes);
+            List<PaymentStatusChange> applied = new ArrayList<>(changes.size());
+            Set<UUID> unchanged = new HashSet<>();
+            for (int i = 0; i < changes.size(); i++) {
+                if (updated[i] > 0) {
+                    applied.add(changes.get(i));
+                } else {
+                    unchanged.add(changes.get(i).paymentId());
+                }
+            }
+            Map<UUID, PaymentStatus> current = paymentJdbcRepository.findStatuses(unchanged);
+            paymentViewCache.invalidateAll(applied.stream().map(PaymentStatusChange::paymentId).toList());
+            paymentOutbox.paymentsTransitioned(applied, Instant.now());
+
+            List<PaymentTransitionItemResult> results = new ArrayList<>(changes.size());
+            for (int i = 0; i < changes.size(); i++) {
+                PaymentStatusChange change = changes.get(i);
+                results.add(result(change, updated[i] > 0, current.get(change.paymentId())));
+            }
+            return new PaymentTransitionBatchResponse(results);
+        });
+    }
+
+    private static PaymentTransitionItemResult result(PaymentStatusChange change, boolean applied, PaymentStatus current) {
+        String paymentId = change.paymentId().toString();
+        if (applied) {
+            return new PaymentTransitionItemResult(
+                    paymentId, change.transition(), TransitionOutcome.APPLIED, change.transition().target().name());
+        }
+        if (current == null) {
+            return new PaymentTransitionItemResult(paymentId, change.transition(), TransitionOutcome.NOT_FOUND, null);
+        }
+        return new PaymentTransitionItemResult(paymentId, change.transition(), TransitionOutcome.REJECTED, current.name());
+    }
+}
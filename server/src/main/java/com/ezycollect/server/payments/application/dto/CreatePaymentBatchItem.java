@@ -0,0 +1,28 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Schema(name = "CreatePaymentBatchItem", description = "One payment of a batch with its own idempotency key")
+public class CreatePaymentBatchItem {
+
+    @Schema(
+            description = "Unique client-provided key used to deduplicate this payment",
+            maxLength = 255,
+            example = "payment-create-001")
+    @NotBlank(message = "idempotencyKey is required")
+    @Size(max = 255, message = "idempotencyKey must be at most 255 characters")
+    private String idempotencyKey;
+
+    @Schema(description = "Payment creation payload")
+    @NotNull(message = "payment is required")
+    @Valid
+    private CreatePaymentRequest payment;
+}
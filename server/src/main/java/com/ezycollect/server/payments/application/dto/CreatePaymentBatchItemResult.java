@@ -0,0 +1,23 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record CreatePaymentBatchItemResult(
+        @Schema(description = "Idempotency key of the batch item", example = "payment-create-001")
+        String idempotencyKey,
+        @Schema(description = "CREATED for a new payment, REPLAYED for a known key with the same payload, "
+                + "CONFLICT for a known key with a different payload, IN_PROGRESS if the key is still being processed, "
+                + "INVOICE_ALREADY_PAID if an invoice already has a payment (only with payments.invoices.reject-already-paid)",
+                example = "CREATED")
+        BatchItemOutcome outcome,
+        @Schema(description = "Created or replayed payment; null for CONFLICT, IN_PROGRESS and INVOICE_ALREADY_PAID")
+        CreatePaymentResponse payment
+) {
+    public enum BatchItemOutcome {
+        CREATED,
+        REPLAYED,
+        CONFLICT,
+        IN_PROGRESS,
+        INVOICE_ALREADY_PAID
+    }
+}
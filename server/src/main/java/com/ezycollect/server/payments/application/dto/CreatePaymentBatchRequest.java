@@ -0,0 +1,26 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Schema(name = "CreatePaymentBatchRequest", description = "Batch payment creation request")
+public class CreatePaymentBatchRequest {
+
+    public static final int MAX_ITEMS = 10_000;
+
+    @NotEmpty(message = "items is required")
+    @Size(max = MAX_ITEMS, message = "items must contain at most 10000 entries")
+    @ArraySchema(
+            arraySchema = @Schema(description = "Payments to create; results are returned in the same order"),
+            maxItems = MAX_ITEMS)
+    private List<@NotNull(message = "items entries must not be null") @Valid CreatePaymentBatchItem> items;
+}
@@ -0,0 +1,13 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+public record CreatePaymentBatchResponse(
+        @ArraySchema(
+                arraySchema = @Schema(description = "One result per request item, in request order"),
+                schema = @Schema(implementation = CreatePaymentBatchItemResult.class))
+        List<CreatePaymentBatchItemResult> results
+) {
+}
@@ -0,0 +1,20 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.util.List;
+
+public record InvoicePaymentsResponse(
+        @Schema(description = "Invoice the payments cover", example = "INV-2025-008")
+        String invoiceId,
+        @ArraySchema(
+                arraySchema = @Schema(description = "Payments covering the invoice, oldest first"),
+                schema = @Schema(implementation = PaymentSummary.class))
+        List<PaymentSummary> payments,
+        @Schema(
+                description = "Pass as cursor to fetch the next page; null on the last page",
+                example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b",
+                nullable = true)
+        String nextCursor
+) {
+}
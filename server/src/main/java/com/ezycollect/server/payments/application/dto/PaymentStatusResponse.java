@@ -0,0 +1,11 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record PaymentStatusResponse(
+        @Schema(description = "Payment identifier (UUID)", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+        String id,
+        @Schema(description = "Status after the transition", example = "CAPTURED")
+        String status
+) {
+}
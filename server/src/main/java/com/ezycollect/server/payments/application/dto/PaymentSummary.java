@@ -0,0 +1,14 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+
+public record PaymentSummary(
+        @Schema(description = "Payment identifier (UUID)", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+        String id,
+        @Schema(description = "Payment processing status", example = "CREATED")
+        String status,
+        @Schema(description = "Creation timestamp in ISO-8601 UTC", example = "2026-02-25T12:34:56Z")
+        Instant createdAt
+) {
+}
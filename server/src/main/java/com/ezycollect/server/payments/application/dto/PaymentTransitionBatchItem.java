@@ -0,0 +1,22 @@
+package com.ezycollect.server.payments.application.dto;
+
+import com.ezycollect.server.payments.domain.PaymentTransition;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@Schema(name = "PaymentTransitionBatchItem", description = "One status transition of a bulk request")
+public class PaymentTransitionBatchItem {
+
+    @Schema(description = "Payment identifier (UUID)", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+    @NotNull(message = "paymentId is required")
+    private UUID paymentId;
+
+    @Schema(description = "Transition to apply", example = "CAPTURE")
+    @NotNull(message = "transition is required")
+    private PaymentTransition transition;
+}
@@ -0,0 +1,25 @@
+package com.ezycollect.server.payments.application.dto;
+
+import com.ezycollect.server.payments.domain.PaymentTransition;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+public record PaymentTransitionItemResult(
+        @Schema(description = "Payment identifier (UUID)", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+        String paymentId,
+        @Schema(description = "Requested transition", example = "CAPTURE")
+        PaymentTransition transition,
+        @Schema(description = "APPLIED if the payment moved, REJECTED if its status does not allow the transition, "
+                + "NOT_FOUND if there is no such payment",
+                example = "APPLIED")
+        TransitionOutcome outcome,
+        @Schema(description = "The new status for APPLIED, the status after the whole batch for REJECTED, "
+                + "null for NOT_FOUND",
+                example = "CAPTURED")
+        String status
+) {
+    public enum TransitionOutcome {
+        APPLIED,
+        REJECTED,
+        NOT_FOUND
+    }
+}
@@ -0,0 +1,27 @@
+package com.ezycollect.server.payments.application.dto;
+
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Schema;
+import java.time.Instant;
+import java.util.List;
+
+@Schema(description = "Stored payment with card data masked; card number, CVV and expiry are never returned")
+public record PaymentView(
+        @Schema(description = "Payment identifier (UUID)", example = "0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b")
+        String id,
+        @Schema(description = "Payment processing status", example = "CREATED")
+        String status,
+        @Schema(description = "Creation timestamp in ISO-8601 UTC", example = "2026-02-25T12:34:56Z")
+        Instant createdAt,
+        @Schema(description = "Cardholder first name", example = "Jane")
+        String firstName,
+        @Schema(description = "Cardholder last name", example = "Doe")
+        String lastName,
+        @Schema(description = "Last four digits of the card number", example = "4242", nullable = true)
+        String cardLast4,
+        @ArraySchema(
+                arraySchema = @Schema(description = "Invoices the payment covers"),
+                schema = @Schema(example = "INV-2025-008"))
+        List<String> invoiceIds
+) {
+}
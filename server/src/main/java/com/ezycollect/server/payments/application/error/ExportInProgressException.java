@@ -0,0 +1,8 @@
+package com.ezycollect.server.payments.application.error;
+
+public class ExportInProgressException extends RuntimeException {
+
+    public ExportInProgressException(int maxConcurrentExports) {
+        super("Too many payment exports are running (limit " + maxConcurrentExports + "); retry later");
+    }
+}
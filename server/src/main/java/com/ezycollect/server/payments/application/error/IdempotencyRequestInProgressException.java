@@ -0,0 +1,17 @@
+package com.ezycollect.server.payments.application.error;
+
+import java.time.Duration;
+
+public class IdempotencyRequestInProgressException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public IdempotencyRequestInProgressException(Duration retryAfter) {
+        super("A request with this Idempotency-Key is still being processed; retry later");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
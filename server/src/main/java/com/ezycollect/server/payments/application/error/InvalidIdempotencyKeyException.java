@@ -0,0 +1,8 @@
+package com.ezycollect.server.payments.application.error;
+
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(int maxLength) {
+        super("Idempotency-Key must be at most " + maxLength + " characters");
+    }
+}
@@ -0,0 +1,20 @@
+package com.ezycollect.server.payments.application.error;
+
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import com.ezycollect.server.payments.domain.PaymentTransition;
+import java.util.Locale;
+import java.util.UUID;
+
+public class InvalidPaymentTransitionException extends RuntimeException {
+
+    private final PaymentStatus status;
+
+    public InvalidPaymentTransitionException(UUID paymentId, PaymentStatus status, PaymentTransition transition) {
+        super("Payment " + paymentId + " is " + status + " and cannot be " + transition.target().name().toLowerCase(Locale.ROOT));
+        this.status = status;
+    }
+
+    public PaymentStatus getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,15 @@
+package com.ezycollect.server.payments.application.error;
+
+public class InvalidQueryParameterException extends RuntimeException {
+
+    private final String parameter;
+
+    public InvalidQueryParameterException(String parameter, String message) {
+        super(message);
+        this.parameter = parameter;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ezycollect.server.payments.application.error;
+
+import java.util.List;
+
+public class InvoiceAlreadyPaidException extends RuntimeException {
+
+    private final List<String> invoiceIds;
+
+    public InvoiceAlreadyPaidException(List<String> invoiceIds) {
+        super("Invoices already have a payment: " + String.join(", ", invoiceIds));
+        this.invoiceIds = List.copyOf(invoiceIds);
+    }
+
+    public List<String> getInvoiceIds() {
+        return invoiceIds;
+    }
+}
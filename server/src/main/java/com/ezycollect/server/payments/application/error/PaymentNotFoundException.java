@@ -0,0 +1,8 @@
+package com.ezycollect.server.payments.application.error;
+
+public class PaymentNotFoundException extends RuntimeException {
+
+    public PaymentNotFoundException(String paymentId) {
+        super("Payment not found: " + paymentId);
+    }
+}
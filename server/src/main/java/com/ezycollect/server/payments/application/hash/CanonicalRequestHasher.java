@@ -0,0 +1,198 @@
+package com.ezycollect.server.payments.application.hash;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams the canonical JSON of a payment request straight into a SHA-256 digest.
+ *
+ * <p>The bytes fed to the digest are exactly what Jackson's {@code writeValueAsBytes} produced for the previous
+ * {@code CanonicalPaymentRequest} record with alphabetically sorted properties:
+ * {@code {"cardLast4":..,"expiry":..,"firstName":..,"invoiceIds":[..],"lastName":..}}, nulls written as
+ * {@code null}, and strings escaped the way Jackson's UTF-8 generator does (short escapes for {@code \b \t \n \f \r},
+ * six-character unicode escapes with uppercase hex for other control characters and for each UTF-16 surrogate).
+ * Stored request hashes therefore stay valid.
+ *
+ * <p>Instances hold mutable buffers and are not thread-safe; {@link PaymentRequestHashService} pools them.
+ */
+final class CanonicalRequestHasher {
+
+    private static final byte[] LOWER_HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPPER_HEX = "0123456789ABCDEF".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] CARD_LAST4 = ascii("{\"cardLast4\":");
+    private static final byte[] EXPIRY = ascii(",\"expiry\":");
+    private static final byte[] FIRST_NAME = ascii(",\"firstName\":");
+    private static final byte[] INVOICE_IDS = ascii(",\"invoiceIds\":[");
+    private static final byte[] LAST_NAME = ascii("],\"lastName\":");
+    private static final byte[] NULL = ascii("null");
+
+    // Worst case per char is a six-byte escape.
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    /** For ASCII characters: 0 = literal, a positive value = two-character escape, -1 = six-character unicode escape. */
+    private static final int[] ASCII_ESCAPES = new int[128];
+
+    static {
+        for (int ch = 0; ch < 0x20; ch++) {
+            ASCII_ESCAPES[ch] = -1;
+        }
+        ASCII_ESCAPES['"'] = '"';
+        ASCII_ESCAPES['\\'] = '\\';
+        ASCII_ESCAPES['\b'] = 'b';
+        ASCII_ESCAPES['\t'] = 't';
+        ASCII_ESCAPES['\f'] = 'f';
+        ASCII_ESCAPES['\n'] = 'n';
+        ASCII_ESCAPES['\r'] = 'r';
+    }
+
+    private final MessageDigest digest;
+    private final byte[] buffer = new byte[512];
+    private final byte[] hash = new byte[32];
+    private final byte[] hex = new byte[64];
+    private String[] sortedInvoiceIds = new String[16];
+    private int count;
+
+    CanonicalRequestHasher() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 algorithm is unavailable", ex);
+        }
+    }
+
+    String hash(String firstName, String lastName, String expiry, String cardNumber, List<String> invoiceIds) {
+        digest.reset();
+        count = 0;
+
+        write(CARD_LAST4);
+        if (cardNumber == null) {
+            write(NULL);
+        } else {
+            writeString(cardNumber, Math.max(0, cardNumber.length() - 4));
+        }
+        write(EXPIRY);
+        writeNullableString(expiry);
+        write(FIRST_NAME);
+        writeNullableString(firstName);
+        write(INVOICE_IDS);
+        writeSortedInvoiceIds(invoiceIds);
+        write(LAST_NAME);
+        writeNullableString(lastName);
+        writeByte('}');
+
+        digest.update(buffer, 0, count);
+        try {
+            digest.digest(hash, 0, hash.length);
+        } catch (DigestException ex) {
+            throw new IllegalStateException("Failed to hash payment request", ex);
+        }
+        for (int i = 0; i < hash.length; i++) {
+            hex[i * 2] = LOWER_HEX[(hash[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = LOWER_HEX[hash[i] & 0xF];
+        }
+        return new String(hex, StandardCharsets.ISO_8859_1);
+    }
+
+    private void writeSortedInvoiceIds(List<String> invoiceIds) {
+        if (invoiceIds == null || invoiceIds.isEmpty()) {
+            return;
+        }
+        int size = invoiceIds.size();
+        if (sortedInvoiceIds.length < size) {
+            sortedInvoiceIds = new String[Math.max(size, sortedInvoiceIds.length * 2)];
+        }
+        String[] sorted = sortedInvoiceIds;
+        for (int i = 0; i < size; i++) {
+            sorted[i] = invoiceIds.get(i);
+        }
+        try {
+            Arrays.sort(sorted, 0, size);
+            for (int i = 0; i < size; i++) {
+                if (i > 0) {
+                    writeByte(',');
+                }
+                writeNullableString(sorted[i]);
+            }
+        } finally {
+            // Do not keep request data reachable from the pooled scratch array.
+            Arrays.fill(sorted, 0, size, null);
+        }
+    }
+
+    private void writeNullableString(String value) {
+        if (value == null) {
+            write(NULL);
+        } else {
+            writeString(value, 0);
+        }
+    }
+
+    private void writeString(String value, int from) {
+        writeByte('"');
+        for (int i = from, length = value.length(); i < length; i++) {
+            if (count + MAX_BYTES_PER_CHAR > buffer.length) {
+                drain();
+            }
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                int escape = ASCII_ESCAPES[ch];
+                if (escape == 0) {
+                    buffer[count++] = (byte) ch;
+                } else if (escape > 0) {
+                    buffer[count++] = '\\';
+                    buffer[count++] = (byte) escape;
+                } else {
+                    writeUnicodeEscape(ch);
+                }
+            } else if (ch < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (ch >> 6));
+                buffer[count++] = (byte) (0x80 | (ch & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                writeUnicodeEscape(ch);
+            } else {
+                buffer[count++] = (byte) (0xE0 | (ch >> 12));
+                buffer[count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (ch & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeUnicodeEscape(char ch) {
+        buffer[count++] = '\\';
+        buffer[count++] = 'u';
+        buffer[count++] = UPPER_HEX[(ch >> 12) & 0xF];
+        buffer[count++] = UPPER_HEX[(ch >> 8) & 0xF];
+        buffer[count++] = UPPER_HEX[(ch >> 4) & 0xF];
+        buffer[count++] = UPPER_HEX[ch & 0xF];
+    }
+
+    private void write(byte[] bytes) {
+        if (count + bytes.length > buffer.length) {
+            drain();
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void writeByte(char ch) {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) ch;
+    }
+
+    private void drain() {
+        digest.update(buffer, 0, count);
+        count = 0;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,8 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+/** A completed claim: the request hash it is bound to and the stored response body, ready to send. */
+public record CachedReplay(
+        String requestHash,
+        byte[] responseBody
+) {
+}
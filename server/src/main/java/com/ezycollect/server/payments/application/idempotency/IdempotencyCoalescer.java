@@ -0,0 +1,161 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.application.error.IdempotencyRequestInProgressException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Coalesces concurrent requests that reuse an Idempotency-Key before the first one has finished.
+ *
+ * <p>Within this instance the first request for a key leads: it claims the key and creates the payment, and requests
+ * that arrive with the same key meanwhile wait for its response instead of running into its unfinished claim. A claim
+ * held by a request on another instance is polled with jittered exponential backoff until it completes or is rolled
+ * back. Both waits share the budget {@code payments.idempotency.in-progress.max-wait}; when it runs out the request
+ * fails with {@link IdempotencyRequestInProgressException}, which carries a {@code Retry-After} hint.
+ */
+@Component
+public class IdempotencyCoalescer implements MeterBinder {
+
+    private final ConcurrentHashMap<String, InFlight> inFlight = new ConcurrentHashMap<>();
+    private final Duration maxWait;
+    private final long pollIntervalNanos;
+    private final long maxPollIntervalNanos;
+    private final Duration retryAfter;
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+
+    public IdempotencyCoalescer(
+            @Value("${payments.idempotency.in-progress.max-wait:3s}") Duration maxWait,
+            @Value("${payments.idempotency.in-progress.poll-interval:20ms}") Duration pollInterval,
+            @Value("${payments.idempotency.in-progress.max-poll-interval:250ms}") Duration maxPollInterval,
+            @Value("${payments.idempotency.in-progress.retry-after:1s}") Duration retryAfter) {
+        this.maxWait = maxWait;
+        this.pollIntervalNanos = Math.max(1, pollInterval.toNanos());
+        this.maxPollIntervalNanos = Math.max(pollIntervalNanos, maxPollInterval.toNanos());
+        this.retryAfter = retryAfter;
+    }
+
+    /** Deadline (in {@link System#nanoTime()} terms) of a request that starts now. */
+    public long deadline() {
+        return System.nanoTime() + maxWait.toNanos();
+    }
+
+    /**
+     * Makes the caller the leader for the key and returns {@code null}; the leader must end with {@link #complete} or
+     * {@link #abandon}. If another request already leads the key, returns that request instead.
+     */
+    public InFlight lead(String idempotencyKey, String requestHash) {
+        return inFlight.putIfAbsent(idempotencyKey, new InFlight(requestHash));
+    }
+
+    /** Hands the leader's response to its followers; the next request for the key leads again. */
+    public void complete(String idempotencyKey, byte[] responseBody) {
+        InFlight leader = inFlight.remove(idempotencyKey);
+        if (leader != null) {
+            leader.response.complete(responseBody);
+        }
+    }
+
+    /** The leader failed without a response; each follower goes on to make its own attempt. */
+    public void abandon(String idempotencyKey) {
+        InFlight leader = inFlight.remove(idempotencyKey);
+        if (leader != null) {
+            leader.response.complete(null);
+        }
+    }
+
+    /**
+     * Waits until the leader finishes and returns its response body, or {@code null} if it was abandoned. Throws
+     * {@link IdempotencyRequestInProgressException} if the deadline passes first.
+     */
+    public byte[] await(InFlight leader, long deadline) {
+        try {
+            byte[] responseBody = leader.response.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            if (responseBody != null) {
+                coalesced.incrementAndGet();
+            }
+            return responseBody;
+        } catch (TimeoutException ex) {
+            throw inProgress();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw inProgress();
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("In-flight idempotency request failed", ex);
+        }
+    }
+
+    /**
+     * Sleeps with jittered exponential backoff and checks {@code settled} after every sleep; returns {@code true} as
+     * soon as it holds, or {@code false} once the deadline has passed.
+     */
+    public boolean poll(long deadline, BooleanSupplier settled) {
+        long interval = pollIntervalNanos;
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            // Jitter keeps followers that saw the same claim from polling MySQL in lockstep.
+            long sleep = Math.min(remaining, ThreadLocalRandom.current().nextLong(interval / 2, interval + 1));
+            try {
+                TimeUnit.NANOSECONDS.sleep(sleep);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            polls.incrementAndGet();
+            if (settled.getAsBoolean()) {
+                return true;
+            }
+            interval = Math.min(interval * 2, maxPollIntervalNanos);
+        }
+    }
+
+    public IdempotencyRequestInProgressException inProgress() {
+        return new IdempotencyRequestInProgressException(retryAfter);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payments.idempotency.in_flight", inFlight, ConcurrentHashMap::size)
+                .description("Idempotency keys with a request in progress on this instance")
+                .register(registry);
+        FunctionCounter.builder("payments.idempotency.coalesced", coalesced, AtomicLong::get)
+                .description("Requests answered with the response of a concurrent request for the same key")
+                .baseUnit("requests")
+                .register(registry);
+        FunctionCounter.builder("payments.idempotency.in_progress_polls", polls, AtomicLong::get)
+                .description("Polls of an idempotency claim held by an unfinished request")
+                .baseUnit("polls")
+                .register(registry);
+    }
+
+    /** The request leading a key on this instance. */
+    public static final class InFlight {
+
+        private final String requestHash;
+        private final CompletableFuture<byte[]> response = new CompletableFuture<>();
+
+        private InFlight(String requestHash) {
+            this.requestHash = requestHash;
+        }
+
+        public String requestHash() {
+            return requestHash;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.PaymentIdempotencyLegacyRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Moves idempotency records written before V7 from {@code payment_idempotency_legacy} into the binary-keyed table.
+ *
+ * <p>Each batch is its own short transaction that locks at most {@code batch-size} legacy rows, and batches are
+ * separated by a pause, so the backfill runs alongside live traffic. Rows are moved newest first, and after each batch
+ * the repository re-reads when the newest remaining row expires; from then on requests stop consulting the legacy
+ * table. Once the legacy table is empty, runs return without touching the database.
+ */
+@Slf4j
+@Component
+public class IdempotencyLegacyBackfill implements SchedulingConfigurer, MeterBinder {
+
+    private final PaymentIdempotencyLegacyRepository legacyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final Duration interval;
+    private final AtomicLong movedRows = new AtomicLong();
+
+    public IdempotencyLegacyBackfill(
+            PaymentIdempotencyLegacyRepository legacyRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${payments.idempotency.backfill.batch-size:500}") int batchSize,
+            @Value("${payments.idempotency.backfill.batch-pause:50ms}") Duration batchPause,
+            @Value("${payments.idempotency.backfill.interval:30s}") Duration interval) {
+        this.legacyRepository = legacyRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.interval = interval;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::backfill, interval, Duration.ZERO));
+    }
+
+    public void backfill() {
+        if (legacyRepository.drained()) {
+            return;
+        }
+        try {
+            while (true) {
+                Integer moved = transactionTemplate.execute(status -> legacyRepository.moveBatch(batchSize));
+                movedRows.addAndGet(moved);
+                legacyRepository.refreshLiveUntil();
+                if (legacyRepository.drained()) {
+                    log.info("Idempotency legacy backfill complete; {} records moved by this instance", movedRows.get());
+                    return;
+                }
+                if (moved < batchSize) {
+                    return;
+                }
+                Thread.sleep(batchPause.toMillis());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency legacy backfill failed; retrying on the next run", ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.idempotency.backfilled", movedRows, AtomicLong::get)
+                .description("Legacy idempotency records moved into the binary-keyed table")
+                .baseUnit("rows")
+                .register(registry);
+    }
+}
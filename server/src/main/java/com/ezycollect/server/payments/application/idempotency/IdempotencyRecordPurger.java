@@ -0,0 +1,108 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+/**
+ * Deletes idempotency records older than {@code payments.idempotency.retention}.
+ *
+ * <p>Each run deletes in batches of {@code batch-size} rows, one short autocommit statement per batch with a pause in
+ * between, so row locks and undo are bounded per statement and replicas can keep up. A run stops after
+ * {@code max-batches-per-run}; whatever is left is picked up by the next run and shows up as purge lag. Expired rows
+ * that are still present are ignored by claims and lookups, so lag only costs storage.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "payments.idempotency.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyRecordPurger implements SchedulingConfigurer, MeterBinder {
+
+    private final PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final int maxBatchesPerRun;
+    private final Duration interval;
+    private final Duration initialDelay;
+    private final AtomicLong purgedRows = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public IdempotencyRecordPurger(
+            PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository,
+            @Value("${payments.idempotency.purge.batch-size:1000}") int batchSize,
+            @Value("${payments.idempotency.purge.batch-pause:100ms}") Duration batchPause,
+            @Value("${payments.idempotency.purge.max-batches-per-run:500}") int maxBatchesPerRun,
+            @Value("${payments.idempotency.purge.interval:1m}") Duration interval,
+            @Value("${payments.idempotency.purge.initial-delay:30s}") Duration initialDelay) {
+        this.paymentIdempotencyClaimRepository = paymentIdempotencyClaimRepository;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.interval = interval;
+        this.initialDelay = initialDelay;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::purge, interval, initialDelay));
+    }
+
+    public void purge() {
+        Instant cutoff = Instant.now().minus(paymentIdempotencyClaimRepository.retention());
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int deleted = paymentIdempotencyClaimRepository.purgeExpired(cutoff, batchSize);
+                purgedRows.addAndGet(deleted);
+                if (deleted < batchSize) {
+                    break;
+                }
+                Thread.sleep(batchPause.toMillis());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency record purge failed; retrying on the next run", ex);
+        }
+        updateLag();
+    }
+
+    /** How long the oldest expired record has been past its expiry; zero when nothing expired is left. */
+    Duration lag() {
+        return Duration.ofMillis(lagMillis.get());
+    }
+
+    private void updateLag() {
+        try {
+            Duration retention = paymentIdempotencyClaimRepository.retention();
+            long lag = paymentIdempotencyClaimRepository.oldestCreatedAt()
+                    .map(oldest -> Duration.between(oldest.plus(retention), Instant.now()).toMillis())
+                    .orElse(0L);
+            lagMillis.set(Math.max(0, lag));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to measure idempotency purge lag", ex);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.idempotency.purged", purgedRows, AtomicLong::get)
+                .description("Expired idempotency records deleted by the purger")
+                .baseUnit("rows")
+                .register(registry);
+        TimeGauge.builder("payments.idempotency.purge.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age past expiry of the oldest idempotency record still stored, as of the last purge run")
+                .register(registry);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-memory cache of completed idempotency claims keyed by Idempotency-Key.
+ * Caffeine's W-TinyLFU policy keeps frequently retried keys resident, and entries expire after the configured TTL.
+ * Only completed claims (request hash + final response) may be stored, so a hit can be replayed without MySQL.
+ */
+@Component
+public class IdempotencyReplayCache implements MeterBinder {
+
+    private final Cache<String, CachedReplay> cache;
+
+    public IdempotencyReplayCache(
+            @Value("${payments.idempotency.replay-cache.maximum-size:100000}") long maximumSize,
+            @Value("${payments.idempotency.replay-cache.ttl:10m}") Duration ttl,
+            @Value("${payments.idempotency.retention:24h}") Duration retention) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                // Never replay a key from memory after its stored record has expired.
+                .expireAfterWrite(ttl.compareTo(retention) < 0 ? ttl : retention)
+                .recordStats()
+                .build();
+    }
+
+    public CachedReplay get(String idempotencyKey) {
+        return cache.getIfPresent(idempotencyKey);
+    }
+
+    /** Whether a replay is cached for the key, without counting a hit or miss. */
+    public boolean contains(String idempotencyKey) {
+        return cache.asMap().containsKey(idempotencyKey);
+    }
+
+    public void put(String idempotencyKey, CachedReplay replay) {
+        cache.put(idempotencyKey, replay);
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /** Exposes hit/miss/eviction counters and size as {@code cache.*} meters tagged {@code cache=idempotency-replay}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "idempotency-replay");
+    }
+
+    public ReplayCacheStats stats() {
+        CacheStats stats = cache.stats();
+        return new ReplayCacheStats(stats.hitCount(), stats.missCount(), stats.evictionCount(), cache.estimatedSize());
+    }
+}
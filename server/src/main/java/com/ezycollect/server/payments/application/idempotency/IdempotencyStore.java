@@ -0,0 +1,42 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Where Idempotency-Key claims and the responses they replay are kept, selected with
+ * {@code payments.idempotency.store}: {@code jdbc} (default, {@link JdbcIdempotencyStore}) or {@code mmap}
+ * ({@link MappedIdempotencyStore}).
+ *
+ * <p>Payment creation calls the store inside the transaction that writes the payment. A key the caller claims stays
+ * reserved for it until that transaction ends: if it rolls back the key is free again, and a completion becomes
+ * visible to other callers no later than the commit. Records expire {@code payments.idempotency.retention} after their
+ * creation time; expired records are invisible and their keys can be claimed again.
+ */
+public interface IdempotencyStore {
+
+    /** Claims an unused key for the caller ({@code NEW}) or classifies the unexpired record that holds it. */
+    IdempotencyClaim claim(String idempotencyKey, String requestHash, Instant now);
+
+    /**
+     * Batch form of {@link #claim}: returns the unexpired records holding any of the keys (request hash by key).
+     * Every other key is reserved for the caller until the transaction ends; keys not passed to
+     * {@link #completeAll} by then are free again afterwards.
+     */
+    Map<String, StoredIdempotency> claimAll(Map<String, String> requestHashes, Instant now);
+
+    /** Stores the response of a key the caller claimed. */
+    void complete(String idempotencyKey, UUID paymentId, int responseStatus, byte[] responseBody, Instant now);
+
+    /** Stores the responses of keys reserved by {@link #claimAll}. */
+    void completeAll(List<CompletedIdempotency> records);
+
+    /** Returns the unexpired record holding the key; its response is {@code null} while the claim is in progress. */
+    Optional<StoredIdempotency> find(String idempotencyKey);
+}
@@ -0,0 +1,54 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * The default store: {@code payment_idempotency} in MySQL, written in the payment transaction itself. Single claims
+ * insert an in-progress row that the rollback removes; batch claims lock the existing rows and the gaps of missing keys
+ * with SELECT ... FOR UPDATE and insert completed rows only.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "payments.idempotency", name = "store", havingValue = "jdbc", matchIfMissing = true)
+public class JdbcIdempotencyStore implements IdempotencyStore {
+
+    private final PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository;
+
+    @Override
+    public IdempotencyClaim claim(String idempotencyKey, String requestHash, Instant now) {
+        return paymentIdempotencyClaimRepository.claim(idempotencyKey, requestHash, now);
+    }
+
+    @Override
+    public Map<String, StoredIdempotency> claimAll(Map<String, String> requestHashes, Instant now) {
+        // Expired records would otherwise be returned here and then collide with the plain INSERT of a new claim.
+        paymentIdempotencyClaimRepository.deleteExpired(requestHashes.keySet());
+        return paymentIdempotencyClaimRepository.lockExisting(requestHashes.keySet());
+    }
+
+    @Override
+    public void complete(String idempotencyKey, UUID paymentId, int responseStatus, byte[] responseBody, Instant now) {
+        paymentIdempotencyClaimRepository.complete(idempotencyKey, paymentId, responseStatus, responseBody, now);
+    }
+
+    @Override
+    public void completeAll(List<CompletedIdempotency> records) {
+        paymentIdempotencyClaimRepository.insertCompleted(records);
+    }
+
+    @Override
+    public Optional<StoredIdempotency> find(String idempotencyKey) {
+        return paymentIdempotencyClaimRepository.find(idempotencyKey);
+    }
+}
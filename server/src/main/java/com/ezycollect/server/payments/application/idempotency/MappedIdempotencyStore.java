@@ -0,0 +1,240 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Keeps idempotency records off-heap in a memory-mapped file ({@link MappedIdempotencyTable}) instead of MySQL, so
+ * claims and replays never wait on a row lock or a round trip. The file survives restarts; claims still in progress
+ * when the process died are dropped when it is reopened.
+ *
+ * <p>Claims take effect in the table immediately, so concurrent requests see them, and are tied to the current
+ * transaction: after a commit the completions recorded in it are written, and every other key it claimed is released.
+ * Without a transaction each call applies at once. Dirty pages are forced to disk every {@code sync-interval}; a crash
+ * between a payment commit and the next sync can lose its record, after which a retry with the same key creates a
+ * second payment.
+ *
+ * <p>The file is local to the process, so this store is for a single node serving the payments API, and it cannot be
+ * combined with journal mode, which keeps its own reservations in MySQL.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "payments.idempotency", name = "store", havingValue = "mmap")
+public class MappedIdempotencyStore implements IdempotencyStore, MeterBinder {
+
+    private final MappedIdempotencyTable table;
+    private final Duration retention;
+    private final ScheduledExecutorService maintenance;
+
+    public MappedIdempotencyStore(
+            @Value("${payments.idempotency.mmap.file:data/idempotency.table}") Path file,
+            @Value("${payments.idempotency.mmap.capacity:1048576}") int capacity,
+            @Value("${payments.idempotency.mmap.segments:64}") int segments,
+            @Value("${payments.idempotency.mmap.max-response-size:156B}") DataSize maxResponseSize,
+            @Value("${payments.idempotency.mmap.sync-interval:1s}") Duration syncInterval,
+            @Value("${payments.idempotency.purge.interval:1m}") Duration purgeInterval,
+            @Value("${payments.idempotency.retention:24h}") Duration retention,
+            @Value("${payments.journal.enabled:false}") boolean journalEnabled) {
+        if (journalEnabled) {
+            throw new IllegalStateException(
+                    "payments.idempotency.store=mmap cannot be combined with payments.journal.enabled=true");
+        }
+        this.retention = retention;
+        this.table = new MappedIdempotencyTable(file, capacity, segments, Math.toIntExact(maxResponseSize.toBytes()));
+        if (table.abandonedClaims() > 0) {
+            log.warn("Dropped {} idempotency claims left in progress by a previous process", table.abandonedClaims());
+        }
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "idempotency-table-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(
+                this::forceQuietly, syncInterval.toMillis(), syncInterval.toMillis(), TimeUnit.MILLISECONDS);
+        maintenance.scheduleWithFixedDelay(
+                this::purgeQuietly, purgeInterval.toMillis(), purgeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public IdempotencyClaim claim(String idempotencyKey, String requestHash, Instant now) {
+        StoredIdempotency existing = table.claim(idempotencyKey, requestHash, now.toEpochMilli(), expiredBefore());
+        if (existing != null) {
+            return existing.toClaim(requestHash);
+        }
+        hold(idempotencyKey);
+        return IdempotencyClaim.claimed(requestHash);
+    }
+
+    @Override
+    public Map<String, StoredIdempotency> claimAll(Map<String, String> requestHashes, Instant now) {
+        long expiredBefore = expiredBefore();
+        Map<String, StoredIdempotency> existing = new LinkedHashMap<>();
+        requestHashes.forEach((idempotencyKey, requestHash) -> {
+            StoredIdempotency stored = table.claim(idempotencyKey, requestHash, now.toEpochMilli(), expiredBefore);
+            if (stored != null) {
+                existing.put(idempotencyKey, stored);
+            } else {
+                hold(idempotencyKey);
+            }
+        });
+        return existing;
+    }
+
+    @Override
+    public void complete(String idempotencyKey, UUID paymentId, int responseStatus, byte[] responseBody, Instant now) {
+        checkResponseSize(responseBody);
+        long createdAt = now.toEpochMilli();
+        afterCommit(idempotencyKey, () -> table.complete(
+                idempotencyKey, null, paymentId, responseStatus, responseBody, createdAt, expiredBefore()));
+    }
+
+    @Override
+    public void completeAll(List<CompletedIdempotency> records) {
+        records.forEach(record -> checkResponseSize(record.responseBody()));
+        for (CompletedIdempotency record : records) {
+            afterCommit(record.idempotencyKey(), () -> table.complete(
+                    record.idempotencyKey(),
+                    record.requestHash(),
+                    record.paymentId(),
+                    record.responseStatus(),
+                    record.responseBody(),
+                    record.createdAt().toEpochMilli(),
+                    expiredBefore()));
+        }
+    }
+
+    @Override
+    public Optional<StoredIdempotency> find(String idempotencyKey) {
+        return Optional.ofNullable(table.find(idempotencyKey, expiredBefore()));
+    }
+
+    /** Records currently in the table, including expired ones not purged yet. */
+    public long size() {
+        return table.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payments.idempotency.store.entries", this, MappedIdempotencyStore::size)
+                .description("Idempotency records in the memory-mapped table, including expired ones not purged yet")
+                .register(registry);
+        Gauge.builder("payments.idempotency.store.capacity", table, MappedIdempotencyTable::capacity)
+                .description("Idempotency records the memory-mapped table can hold")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        maintenance.shutdown();
+        maintenance.awaitTermination(30, TimeUnit.SECONDS);
+        table.close();
+    }
+
+    private void hold(String idempotencyKey) {
+        TransactionClaims claims = transactionClaims();
+        if (claims != null) {
+            claims.hold(idempotencyKey);
+        }
+    }
+
+    private void afterCommit(String idempotencyKey, Runnable write) {
+        TransactionClaims claims = transactionClaims();
+        if (claims == null) {
+            write.run();
+        } else {
+            claims.complete(idempotencyKey, write);
+        }
+    }
+
+    /** Claims of the current transaction, registered on first use; {@code null} outside a transaction. */
+    private TransactionClaims transactionClaims() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        TransactionClaims claims = (TransactionClaims) TransactionSynchronizationManager.getResource(this);
+        if (claims == null) {
+            claims = new TransactionClaims();
+            TransactionSynchronizationManager.bindResource(this, claims);
+            TransactionSynchronizationManager.registerSynchronization(claims);
+        }
+        return claims;
+    }
+
+    // Checked before the commit: once the payment is committed its record has to fit.
+    private void checkResponseSize(byte[] responseBody) {
+        if (responseBody.length > table.maxResponseSize()) {
+            throw new IllegalStateException("Idempotent response of " + responseBody.length
+                    + " bytes exceeds payments.idempotency.mmap.max-response-size of " + table.maxResponseSize());
+        }
+    }
+
+    private long expiredBefore() {
+        return System.currentTimeMillis() - retention.toMillis();
+    }
+
+    private void forceQuietly() {
+        try {
+            table.force();
+        } catch (RuntimeException ex) {
+            log.warn("Syncing the idempotency table failed; retrying on the next run", ex);
+        }
+    }
+
+    private void purgeQuietly() {
+        try {
+            table.purgeExpired(expiredBefore());
+        } catch (RuntimeException ex) {
+            log.warn("Idempotency table purge failed; retrying on the next run", ex);
+        }
+    }
+
+    private final class TransactionClaims implements TransactionSynchronization {
+
+        /** Keys claimed in the transaction, each with the write that completes it or {@code null}. */
+        private final Map<String, Runnable> completions = new LinkedHashMap<>();
+
+        void hold(String idempotencyKey) {
+            completions.putIfAbsent(idempotencyKey, null);
+        }
+
+        void complete(String idempotencyKey, Runnable write) {
+            completions.put(idempotencyKey, write);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(MappedIdempotencyStore.this);
+            completions.forEach((idempotencyKey, write) -> {
+                if (status == STATUS_COMMITTED && write != null) {
+                    write.run();
+                } else {
+                    table.release(idempotencyKey);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,434 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.payments.domain.IdempotencyStorageEncoding;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Off-heap hash table of idempotency records in a memory-mapped file, so records outlive the process.
+ *
+ * <p>The file is a 4 KiB header followed by independent segments, each mapped separately and guarded by its own lock.
+ * A key's SHA-256 digest picks the segment and the home slot; collisions are resolved by linear probing, and deletion
+ * shifts the rest of the probe run back instead of leaving tombstones, so lookups of unknown keys stop at the first
+ * empty slot. A slot is a fixed-size record:
+ * {@code [byte state][int status][long createdAtMillis][32 key digest][32 request hash][16 payment id][int length][body]}.
+ * The state is written last; an entry moved by a deletion is copied before its old slot is cleared, so a crash can at
+ * worst leave a harmless second copy.
+ *
+ * <p>Writes reach the page cache immediately and survive a process crash; {@link #force()} makes them durable across
+ * a machine crash. Claims still in progress when the file is opened again were left by a process that is gone and are
+ * dropped.
+ */
+final class MappedIdempotencyTable implements AutoCloseable {
+
+    static final int HEADER_BYTES = 4096;
+    static final int MAX_LOAD_PERCENT = 75;
+
+    private static final int MIN_SLOTS_PER_SEGMENT = 4;
+
+    private static final int MAGIC = 0x49444d50;
+    private static final int VERSION = 1;
+    private static final int SLOT_ALIGNMENT = 64;
+
+    private static final int STATE = 0;
+    private static final int RESPONSE_STATUS = 4;
+    private static final int CREATED_AT = 8;
+    private static final int KEY_DIGEST = 16;
+    private static final int REQUEST_HASH = 48;
+    private static final int PAYMENT_ID = 80;
+    private static final int BODY_LENGTH = 96;
+    private static final int BODY = 100;
+    private static final int DIGEST_BYTES = 32;
+
+    private static final byte EMPTY = 0;
+    private static final byte CLAIMED = 1;
+    private static final byte COMPLETED = 2;
+
+    private final FileChannel channel;
+    private final Segment[] segments;
+    private final int slotSize;
+    private final int maxResponseSize;
+    private final int abandonedClaims;
+    private volatile boolean closed;
+
+    MappedIdempotencyTable(Path file, int capacity, int segmentCount, int maxResponseSize) {
+        if (segmentCount < 1 || capacity / segmentCount < MIN_SLOTS_PER_SEGMENT || maxResponseSize < 1) {
+            throw new IllegalArgumentException("Idempotency table needs at least " + MIN_SLOTS_PER_SEGMENT
+                    + " slots per segment and a positive response size");
+        }
+        int slotsPerSegment = (capacity + segmentCount - 1) / segmentCount;
+        this.slotSize = (BODY + maxResponseSize + SLOT_ALIGNMENT - 1) / SLOT_ALIGNMENT * SLOT_ALIGNMENT;
+        this.maxResponseSize = slotSize - BODY;
+        long segmentBytes = (long) slotsPerSegment * slotSize;
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Idempotency table segments exceed 2 GB; use more segments");
+        }
+        this.segments = new Segment[segmentCount];
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                checkOrWriteHeader(file, segmentCount, slotsPerSegment);
+            } catch (IllegalStateException ex) {
+                channel.close();
+                throw ex;
+            }
+            int abandoned = 0;
+            for (int i = 0; i < segmentCount; i++) {
+                MappedByteBuffer buffer = channel.map(
+                        FileChannel.MapMode.READ_WRITE, HEADER_BYTES + i * segmentBytes, segmentBytes);
+                segments[i] = new Segment(buffer, slotsPerSegment);
+                abandoned += segments[i].recover();
+            }
+            this.abandonedClaims = abandoned;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open idempotency table " + file, ex);
+        }
+    }
+
+    /**
+     * Claims the key and returns {@code null}, or returns the unexpired record that holds it. Records created before
+     * {@code expiredBefore} (epoch millis) are replaced.
+     */
+    StoredIdempotency claim(String idempotencyKey, String requestHash, long createdAt, long expiredBefore) {
+        byte[] digest = IdempotencyStorageEncoding.keyDigest(idempotencyKey);
+        Segment segment = segmentFor(digest);
+        segment.lock.lock();
+        try {
+            ensureOpen();
+            int slot = segment.find(digest);
+            if (slot >= 0 && segment.createdAt(slot) >= expiredBefore) {
+                return segment.read(slot, idempotencyKey);
+            }
+            if (slot < 0) {
+                slot = segment.insert(digest, expiredBefore);
+            }
+            segment.write(slot, CLAIMED, digest, requestHash, createdAt, null, 0, null);
+            return null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Stores the response, keeping the creation time of the key's unexpired claim if there is one. A {@code null}
+     * request hash keeps the claim's.
+     */
+    void complete(String idempotencyKey, String requestHash, UUID paymentId, int responseStatus, byte[] responseBody,
+            long createdAt, long expiredBefore) {
+        if (responseBody.length > maxResponseSize) {
+            throw new IllegalArgumentException("Response of " + responseBody.length + " bytes exceeds the idempotency table's "
+                    + maxResponseSize + " byte limit");
+        }
+        byte[] digest = IdempotencyStorageEncoding.keyDigest(idempotencyKey);
+        Segment segment = segmentFor(digest);
+        segment.lock.lock();
+        try {
+            ensureOpen();
+            int slot = segment.find(digest);
+            if (slot >= 0) {
+                long claimedAt = segment.createdAt(slot);
+                if (claimedAt >= expiredBefore) {
+                    createdAt = claimedAt;
+                }
+            } else if (requestHash == null) {
+                throw new IllegalStateException("Idempotency key to complete is not claimed");
+            } else {
+                slot = segment.insert(digest, expiredBefore);
+            }
+            segment.write(slot, COMPLETED, digest, requestHash, createdAt, paymentId, responseStatus, responseBody);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /** Frees the key if it is claimed but not completed. */
+    void release(String idempotencyKey) {
+        byte[] digest = IdempotencyStorageEncoding.keyDigest(idempotencyKey);
+        Segment segment = segmentFor(digest);
+        segment.lock.lock();
+        try {
+            ensureOpen();
+            int slot = segment.find(digest);
+            if (slot >= 0 && segment.buffer.get(segment.offset(slot) + STATE) == CLAIMED) {
+                segment.remove(slot);
+            }
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    StoredIdempotency find(String idempotencyKey, long expiredBefore) {
+        byte[] digest = IdempotencyStorageEncoding.keyDigest(idempotencyKey);
+        Segment segment = segmentFor(digest);
+        segment.lock.lock();
+        try {
+            ensureOpen();
+            int slot = segment.find(digest);
+            return slot >= 0 && segment.createdAt(slot) >= expiredBefore ? segment.read(slot, idempotencyKey) : null;
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /** Removes records created before {@code expiredBefore}, one segment lock at a time; returns the count. */
+    int purgeExpired(long expiredBefore) {
+        int purged = 0;
+        for (Segment segment : segments) {
+            segment.lock.lock();
+            try {
+                ensureOpen();
+                purged += segment.purgeExpired(expiredBefore);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+        return purged;
+    }
+
+    /** Number of stored records, including expired ones not purged yet. */
+    long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    long capacity() {
+        return (long) segments.length * segments[0].slots;
+    }
+
+    int maxResponseSize() {
+        return maxResponseSize;
+    }
+
+    /** In-progress claims dropped when the file was opened. */
+    int abandonedClaims() {
+        return abandonedClaims;
+    }
+
+    /** Writes changed pages to the storage device. */
+    void force() {
+        if (!closed) {
+            for (Segment segment : segments) {
+                segment.buffer.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        force();
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to close idempotency table", ex);
+        }
+    }
+
+    private void checkOrWriteHeader(Path file, int segmentCount, int slotsPerSegment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(24);
+        if (channel.size() == 0) {
+            header.putInt(MAGIC).putInt(VERSION).putInt(segmentCount).putInt(slotsPerSegment).putInt(slotSize).flip();
+            channel.write(header, 0);
+            return;
+        }
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < 20 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IllegalStateException(file + " is not an idempotency table");
+        }
+        int storedSegments = header.getInt();
+        int storedSlots = header.getInt();
+        int storedSlotSize = header.getInt();
+        if (storedSegments != segmentCount || storedSlots != slotsPerSegment || storedSlotSize != slotSize) {
+            throw new IllegalStateException(("%s was created with %d segments of %d slots of %d bytes; configure the same "
+                    + "capacity, segments and max response size, or move the file away").formatted(
+                    file, storedSegments, storedSlots, storedSlotSize));
+        }
+    }
+
+    private Segment segmentFor(byte[] digest) {
+        return segments[Math.floorMod(ByteBuffer.wrap(digest).getInt(0), segments.length)];
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Idempotency table is closed");
+        }
+    }
+
+    private final class Segment {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final MappedByteBuffer buffer;
+        private final int slots;
+        private final int maxSize;
+        private volatile int size;
+
+        Segment(MappedByteBuffer buffer, int slots) {
+            this.buffer = buffer;
+            this.slots = slots;
+            this.maxSize = (int) ((long) slots * MAX_LOAD_PERCENT / 100);
+        }
+
+        /** Counts the records and removes claims of a previous process; returns how many were removed. */
+        int recover() {
+            int abandoned = 0;
+            int count = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                byte state = buffer.get(offset(slot) + STATE);
+                if (state != EMPTY) {
+                    count++;
+                }
+            }
+            size = count;
+            for (int slot = 0; slot < slots; ) {
+                if (buffer.get(offset(slot) + STATE) == CLAIMED) {
+                    remove(slot);
+                    abandoned++;
+                } else {
+                    slot++;
+                }
+            }
+            return abandoned;
+        }
+
+        int find(byte[] digest) {
+            byte[] stored = new byte[DIGEST_BYTES];
+            for (int i = 0, slot = home(digest); i < slots; i++, slot = next(slot)) {
+                int offset = offset(slot);
+                if (buffer.get(offset + STATE) == EMPTY) {
+                    return -1;
+                }
+                buffer.get(offset + KEY_DIGEST, stored);
+                if (Arrays.equals(stored, digest)) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /** Returns the empty slot a new key goes into, purging expired records first if the segment is full. */
+        int insert(byte[] digest, long expiredBefore) {
+            if (size >= maxSize) {
+                purgeExpired(expiredBefore);
+                if (size >= maxSize) {
+                    throw new IllegalStateException(
+                            "Idempotency table segment is full; raise payments.idempotency.mmap.capacity");
+                }
+            }
+            int slot = home(digest);
+            while (buffer.get(offset(slot) + STATE) != EMPTY) {
+                slot = next(slot);
+            }
+            size++;
+            return slot;
+        }
+
+        void write(int slot, byte state, byte[] digest, String requestHash, long createdAt, UUID paymentId,
+                int responseStatus, byte[] responseBody) {
+            int offset = offset(slot);
+            buffer.put(offset + KEY_DIGEST, digest);
+            if (requestHash != null) {
+                buffer.put(offset + REQUEST_HASH, IdempotencyStorageEncoding.requestHashBytes(requestHash));
+            }
+            buffer.putLong(offset + CREATED_AT, createdAt);
+            buffer.putInt(offset + RESPONSE_STATUS, responseStatus);
+            buffer.put(offset + PAYMENT_ID, paymentId == null ? new byte[16] : PaymentIds.toBytes(paymentId));
+            buffer.putInt(offset + BODY_LENGTH, responseBody == null ? 0 : responseBody.length);
+            if (responseBody != null) {
+                buffer.put(offset + BODY, responseBody);
+            }
+            buffer.put(offset + STATE, state);
+        }
+
+        StoredIdempotency read(int slot, String idempotencyKey) {
+            int offset = offset(slot);
+            byte[] requestHash = new byte[DIGEST_BYTES];
+            buffer.get(offset + REQUEST_HASH, requestHash);
+            if (buffer.get(offset + STATE) != COMPLETED) {
+                return new StoredIdempotency(idempotencyKey, IdempotencyStorageEncoding.requestHashHex(requestHash), null, null);
+            }
+            byte[] responseBody = new byte[buffer.getInt(offset + BODY_LENGTH)];
+            buffer.get(offset + BODY, responseBody);
+            return new StoredIdempotency(
+                    idempotencyKey,
+                    IdempotencyStorageEncoding.requestHashHex(requestHash),
+                    buffer.getInt(offset + RESPONSE_STATUS),
+                    responseBody);
+        }
+
+        long createdAt(int slot) {
+            return buffer.getLong(offset(slot) + CREATED_AT);
+        }
+
+        int purgeExpired(long expiredBefore) {
+            int purged = 0;
+            for (int slot = 0; slot < slots; ) {
+                if (buffer.get(offset(slot) + STATE) != EMPTY && createdAt(slot) < expiredBefore) {
+                    // Another record may shift into this slot, so it is checked again.
+                    remove(slot);
+                    purged++;
+                } else {
+                    slot++;
+                }
+            }
+            return purged;
+        }
+
+        /** Backward-shift deletion: later records of the probe run that may live here move up, then the last hole is cleared. */
+        void remove(int slot) {
+            int hole = slot;
+            byte[] digest = new byte[DIGEST_BYTES];
+            for (int candidate = next(hole); buffer.get(offset(candidate) + STATE) != EMPTY; candidate = next(candidate)) {
+                buffer.get(offset(candidate) + KEY_DIGEST, digest);
+                int home = home(digest);
+                boolean staysAfterHole = hole <= candidate
+                        ? hole < home && home <= candidate
+                        : hole < home || home <= candidate;
+                if (!staysAfterHole) {
+                    copy(candidate, hole);
+                    hole = candidate;
+                }
+            }
+            buffer.put(offset(hole) + STATE, EMPTY);
+            size--;
+        }
+
+        private void copy(int from, int to) {
+            byte[] record = new byte[slotSize];
+            buffer.get(offset(from), record);
+            buffer.put(offset(to) + 1, record, 1, slotSize - 1);
+            buffer.put(offset(to) + STATE, record[STATE]);
+        }
+
+        private int home(byte[] digest) {
+            return (int) Math.floorMod(ByteBuffer.wrap(digest).getLong(4), (long) slots);
+        }
+
+        private int next(int slot) {
+            return slot + 1 == slots ? 0 : slot + 1;
+        }
+
+        private int offset(int slot) {
+            return slot * slotSize;
+        }
+    }
+}
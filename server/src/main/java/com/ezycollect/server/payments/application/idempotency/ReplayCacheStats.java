@@ -0,0 +1,9 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+public record ReplayCacheStats(
+        long hitCount,
+        long missCount,
+        long evictionCount,
+        long estimatedSize
+) {
+}
@@ -0,0 +1,87 @@
+package com.ezycollect.server.payments.application.invoice;
+
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Indexes the invoices of payments created before V9 into {@code payment_invoices}.
+ *
+ * <p>Payments are read in primary key order, one short transaction per batch with a pause in between; the cursor is
+ * stored in {@code payment_invoices_backfill}, so a restart resumes where the last committed batch ended. Once the
+ * cursor is marked complete, this instance stops scheduling database work.
+ */
+@Slf4j
+@Component
+public class InvoiceIndexBackfill implements SchedulingConfigurer, MeterBinder {
+
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration batchPause;
+    private final Duration interval;
+    private final AtomicLong indexedPayments = new AtomicLong();
+    private volatile boolean complete;
+
+    public InvoiceIndexBackfill(
+            PaymentInvoiceRepository paymentInvoiceRepository,
+            TransactionTemplate transactionTemplate,
+            @Value("${payments.invoices.backfill.batch-size:1000}") int batchSize,
+            @Value("${payments.invoices.backfill.batch-pause:50ms}") Duration batchPause,
+            @Value("${payments.invoices.backfill.interval:30s}") Duration interval) {
+        this.paymentInvoiceRepository = paymentInvoiceRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.batchPause = batchPause;
+        this.interval = interval;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::backfill, interval, Duration.ZERO));
+    }
+
+    public void backfill() {
+        if (complete) {
+            return;
+        }
+        try {
+            while (true) {
+                Integer indexed = transactionTemplate.execute(status -> paymentInvoiceRepository.backfillBatch(batchSize));
+                indexedPayments.addAndGet(indexed);
+                if (indexed < batchSize) {
+                    complete = true;
+                    log.info("Invoice index backfill complete; {} payments indexed by this instance", indexedPayments.get());
+                    return;
+                }
+                Thread.sleep(batchPause.toMillis());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("Invoice index backfill failed; retrying on the next run", ex);
+        }
+    }
+
+    public boolean complete() {
+        return complete;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.invoices.backfilled", indexedPayments, AtomicLong::get)
+                .description("Payments created before V9 whose invoices were indexed")
+                .baseUnit("payments")
+                .register(registry);
+    }
+}
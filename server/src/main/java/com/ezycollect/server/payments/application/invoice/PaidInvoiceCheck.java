@@ -0,0 +1,51 @@
+package com.ezycollect.server.payments.application.invoice;
+
+import com.ezycollect.server.payments.application.error.InvoiceAlreadyPaidException;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional rejection of payments for invoices that already have one ({@code payments.invoices.reject-already-paid}),
+ * answered from the {@code payment_invoices} primary key.
+ *
+ * <p>Called inside the creating transaction, the check locks the invoices it reads, so two concurrent payments of
+ * one invoice cannot both pass. It only sees indexed payments: payments created before V9 count once the invoice
+ * backfill has reached them, and in journal mode payments count once they are flushed.
+ */
+@Component
+public class PaidInvoiceCheck {
+
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final boolean enabled;
+
+    public PaidInvoiceCheck(
+            PaymentInvoiceRepository paymentInvoiceRepository,
+            @Value("${payments.invoices.reject-already-paid:false}") boolean enabled) {
+        this.paymentInvoiceRepository = paymentInvoiceRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /** Throws if any of the invoices already has a payment; a no-op while the check is disabled. */
+    public void requireUnpaid(List<String> invoiceIds) {
+        if (!enabled) {
+            return;
+        }
+        Set<String> paid = paymentInvoiceRepository.lockPaid(invoiceIds);
+        if (!paid.isEmpty()) {
+            throw new InvoiceAlreadyPaidException(invoiceIds.stream().filter(paid::contains).distinct().toList());
+        }
+    }
+
+    /** The subset of {@code invoiceIds} that already has a payment; empty while the check is disabled. */
+    public Set<String> lockPaid(Collection<String> invoiceIds) {
+        return enabled ? paymentInvoiceRepository.lockPaid(invoiceIds) : Set.of();
+    }
+}
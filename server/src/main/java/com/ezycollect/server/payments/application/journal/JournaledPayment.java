@@ -0,0 +1,23 @@
+package com.ezycollect.server.payments.application.journal;
+
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+
+/** One accepted payment as written to the journal: the payment row plus the completed idempotency claim. */
+record JournaledPayment(
+        String idempotencyKey,
+        String requestHash,
+        int responseStatus,
+        byte[] responseBody,
+        PaymentEntity payment
+) {
+    StoredIdempotency toStored() {
+        return new StoredIdempotency(idempotencyKey, requestHash, responseStatus, responseBody);
+    }
+
+    CompletedIdempotency toCompleted() {
+        return new CompletedIdempotency(
+                idempotencyKey, requestHash, payment.getId(), responseStatus, responseBody, payment.getCreatedAt());
+    }
+}
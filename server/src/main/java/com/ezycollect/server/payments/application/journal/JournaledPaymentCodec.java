@@ -0,0 +1,105 @@
+package com.ezycollect.server.payments.application.journal;
+
+import com.ezycollect.server.payments.application.security.EncryptionKeyProvider;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Compact binary form of {@link JournaledPayment}: a version byte followed by length-prefixed fields. Only the
+ * card ciphertext, IV and key id are written, never the card number itself. Version 1 records predate key ids and
+ * were encrypted with {@link EncryptionKeyProvider#INITIAL_KEY_ID}.
+ */
+final class JournaledPaymentCodec {
+
+    private static final byte VERSION_WITHOUT_KEY_ID = 1;
+    private static final byte VERSION = 2;
+
+    private JournaledPaymentCodec() {
+    }
+
+    static byte[] encode(JournaledPayment record) {
+        PaymentEntity payment = record.payment();
+        byte[][] fields = {
+                utf8(record.idempotencyKey()),
+                utf8(record.requestHash()),
+                record.responseBody(),
+                utf8(payment.getId().toString()),
+                utf8(payment.getFirstName()),
+                utf8(payment.getLastName()),
+                utf8(payment.getCardLast4()),
+                utf8(payment.getInvoiceIdsJson()),
+                payment.getCardNumberCiphertext(),
+                payment.getCardNumberIv(),
+                utf8(payment.getStatus().name()),
+                utf8(payment.getCardNumberKeyId())
+        };
+        int size = 1 + Integer.BYTES + Long.BYTES + Integer.BYTES;
+        for (byte[] field : fields) {
+            size += Integer.BYTES + (field == null ? 0 : field.length);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putInt(record.responseStatus());
+        buffer.putLong(payment.getCreatedAt().getEpochSecond());
+        buffer.putInt(payment.getCreatedAt().getNano());
+        for (byte[] field : fields) {
+            if (field == null) {
+                buffer.putInt(-1);
+            } else {
+                buffer.putInt(field.length);
+                buffer.put(field);
+            }
+        }
+        return buffer.array();
+    }
+
+    static JournaledPayment decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte version = buffer.get();
+        if (version != VERSION && version != VERSION_WITHOUT_KEY_ID) {
+            throw new IllegalStateException("Unsupported payment journal record version " + version);
+        }
+        int responseStatus = buffer.getInt();
+        Instant createdAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        String idempotencyKey = string(buffer);
+        String requestHash = string(buffer);
+        byte[] responseBody = bytes(buffer);
+
+        PaymentEntity payment = new PaymentEntity();
+        payment.setId(UUID.fromString(string(buffer)));
+        payment.setFirstName(string(buffer));
+        payment.setLastName(string(buffer));
+        payment.setCardLast4(string(buffer));
+        payment.setInvoiceIdsJson(string(buffer));
+        payment.setCardNumberCiphertext(bytes(buffer));
+        payment.setCardNumberIv(bytes(buffer));
+        payment.setStatus(PaymentStatus.valueOf(string(buffer)));
+        payment.setCardNumberKeyId(version == VERSION ? string(buffer) : EncryptionKeyProvider.INITIAL_KEY_ID);
+        payment.setCreatedAt(createdAt);
+        return new JournaledPayment(idempotencyKey, requestHash, responseStatus, responseBody, payment);
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = bytes(buffer);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
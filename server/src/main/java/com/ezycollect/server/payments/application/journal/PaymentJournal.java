@@ -0,0 +1,359 @@
+package com.ezycollect.server.payments.application.journal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped write-ahead journal with group commit.
+ *
+ * <p>The journal is a sequence of fixed-size segment files addressed by a global byte position
+ * (segment base + offset). Each record is {@code [int length][int crc32c][payload]}; a zero length marks the unused
+ * tail of a segment. Appenders copy records into the mapped segment under a lock and then wait in
+ * {@link #awaitDurable(long)} while a single sync thread forces the mapping to disk, so one fsync covers every
+ * record appended since the previous one. Records up to {@link #checkpoint()} have been applied elsewhere and
+ * their segments are deleted once fully consumed.
+ *
+ * <p>If forcing a segment fails, the sync thread stops and the journal fails every waiting and later append with that
+ * error rather than acknowledging records it could not make durable. Only reopening the journal clears the failure.
+ */
+final class PaymentJournal implements AutoCloseable {
+
+    static final int RECORD_HEADER_BYTES = 8;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ConcurrentSkipListMap<Long, MappedByteBuffer> segments = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition written = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private final Consumer<MappedByteBuffer> sync;
+    private final Thread syncThread;
+
+    private long writePosition;
+    private volatile long durablePosition;
+    private volatile long checkpointPosition;
+    private volatile boolean running = true;
+    private volatile RuntimeException syncFailure;
+
+    PaymentJournal(Path directory, int segmentSize) {
+        this(directory, segmentSize, MappedByteBuffer::force);
+    }
+
+    /** {@code sync} forces the segment holding a group of appended records; tests substitute a failing one. */
+    PaymentJournal(Path directory, int segmentSize, Consumer<MappedByteBuffer> sync) {
+        if (segmentSize <= RECORD_HEADER_BYTES) {
+            throw new IllegalArgumentException("Journal segment size is too small: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.sync = sync;
+        try {
+            Files.createDirectories(directory);
+            this.checkpointPosition = readCheckpoint();
+            openExistingSegments();
+            this.writePosition = recoverEndPosition();
+            this.durablePosition = writePosition;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to open payment journal in " + directory, ex);
+        }
+        this.syncThread = new Thread(this::syncLoop, "payment-journal-sync");
+        this.syncThread.setDaemon(true);
+        this.syncThread.start();
+    }
+
+    /** Appends one record and returns the position just after it; the record is durable once {@link #awaitDurable} returns. */
+    long append(byte[] payload) {
+        int recordLength = RECORD_HEADER_BYTES + payload.length;
+        if (recordLength > segmentSize) {
+            throw new IllegalArgumentException("Journal record of " + payload.length + " bytes exceeds the segment size");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+
+        lock.lock();
+        try {
+            ensureOpen();
+            int offset = offset(writePosition);
+            if (offset + recordLength > segmentSize) {
+                writePosition = nextSegmentBase(writePosition);
+                rollTo(writePosition);
+                offset = 0;
+            }
+            MappedByteBuffer segment = segmentFor(writePosition);
+            segment.putInt(offset + 4, (int) crc.getValue());
+            segment.put(offset + RECORD_HEADER_BYTES, payload);
+            segment.putInt(offset, payload.length);
+            writePosition += recordLength;
+            if (offset(writePosition) == 0) {
+                rollTo(writePosition);
+            }
+            written.signal();
+            return writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void awaitDurable(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durablePosition < position) {
+                ensureOpen();
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long durablePosition() {
+        return durablePosition;
+    }
+
+    long checkpoint() {
+        return checkpointPosition;
+    }
+
+    /** Reads up to {@code maxRecords} durable records starting at {@code from}. */
+    List<JournalEntry> readDurable(long from, int maxRecords) {
+        long limit = durablePosition;
+        List<JournalEntry> entries = new ArrayList<>();
+        long position = from;
+        while (position < limit && entries.size() < maxRecords) {
+            int offset = offset(position);
+            MappedByteBuffer segment = segmentFor(position);
+            int length = offset + RECORD_HEADER_BYTES <= segmentSize ? segment.getInt(offset) : 0;
+            if (length == 0) {
+                position = nextSegmentBase(position);
+                continue;
+            }
+            byte[] payload = new byte[length];
+            segment.get(offset + RECORD_HEADER_BYTES, payload);
+            position += RECORD_HEADER_BYTES + length;
+            entries.add(new JournalEntry(payload, position));
+        }
+        return entries;
+    }
+
+    /** Marks everything before {@code position} as applied, persists the mark and deletes fully consumed segments. */
+    void checkpoint(long position) {
+        try {
+            Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+            try (FileChannel channel = FileChannel.open(
+                    temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+                channel.force(true);
+            }
+            Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            checkpointPosition = position;
+            deleteSegmentsBefore(segmentBase(position));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to write payment journal checkpoint", ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            running = false;
+            written.signalAll();
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            syncThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        segments.values().forEach(MappedByteBuffer::force);
+    }
+
+    private void syncLoop() {
+        while (true) {
+            long target;
+            MappedByteBuffer segment;
+            lock.lock();
+            try {
+                while (running && writePosition == durablePosition) {
+                    written.awaitUninterruptibly();
+                }
+                if (!running) {
+                    return;
+                }
+                target = writePosition;
+                segment = segmentFor(target - 1);
+            } finally {
+                lock.unlock();
+            }
+
+            // Forced outside the lock so appenders keep filling the next group while this one is synced.
+            RuntimeException failure = null;
+            try {
+                sync.accept(segment);
+            } catch (RuntimeException ex) {
+                failure = ex;
+            }
+
+            lock.lock();
+            try {
+                if (failure != null) {
+                    syncFailure = failure;
+                } else {
+                    durablePosition = Math.max(durablePosition, target);
+                }
+                durable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (failure != null) {
+                return;
+            }
+        }
+    }
+
+    private void rollTo(long base) {
+        // Everything in the previous segment must be on disk before records exist only in the next one.
+        segmentFor(base - 1).force();
+        mapSegment(base);
+    }
+
+    private long recoverEndPosition() throws IOException {
+        long position = Math.max(checkpointPosition, segments.isEmpty() ? 0 : segments.firstKey());
+        while (segments.containsKey(segmentBase(position))) {
+            int offset = offset(position);
+            MappedByteBuffer segment = segmentFor(position);
+            int length = offset + RECORD_HEADER_BYTES <= segmentSize ? segment.getInt(offset) : 0;
+            if (length == 0 && segments.containsKey(nextSegmentBase(position))) {
+                position = nextSegmentBase(position);
+                continue;
+            }
+            if (length <= 0 || offset + RECORD_HEADER_BYTES + length > segmentSize || !checksumMatches(segment, offset, length)) {
+                break;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        if (!segments.containsKey(segmentBase(position))) {
+            mapSegment(segmentBase(position));
+        }
+        // Zero the torn or never-acknowledged tail so stale bytes can never be read back as records later on.
+        MappedByteBuffer segment = segmentFor(position);
+        for (int i = offset(position); i < segmentSize; i++) {
+            segment.put(i, (byte) 0);
+        }
+        segment.force();
+        for (Long base : new ArrayList<>(segments.tailMap(segmentBase(position), false).keySet())) {
+            segments.remove(base);
+            Files.deleteIfExists(segmentPath(base));
+        }
+        return position;
+    }
+
+    private boolean checksumMatches(MappedByteBuffer segment, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer payload = segment.slice(offset + RECORD_HEADER_BYTES, length);
+        crc.update(payload);
+        return (int) crc.getValue() == segment.getInt(offset + 4);
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path checkpoint = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpoint)) {
+            return 0;
+        }
+        byte[] bytes = Files.readAllBytes(checkpoint);
+        return bytes.length == Long.BYTES ? ByteBuffer.wrap(bytes).getLong() : 0;
+    }
+
+    private void openExistingSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    long base = Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+                    if (base + segmentSize <= checkpointPosition) {
+                        Files.delete(file);
+                    } else {
+                        mapSegment(base);
+                    }
+                }
+            }
+        }
+    }
+
+    private void mapSegment(long base) {
+        try (FileChannel channel = FileChannel.open(
+                segmentPath(base), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segments.put(base, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to map payment journal segment " + base, ex);
+        }
+    }
+
+    private void deleteSegmentsBefore(long base) throws IOException {
+        for (Map.Entry<Long, MappedByteBuffer> entry : new ArrayList<>(segments.headMap(base, false).entrySet())) {
+            segments.remove(entry.getKey());
+            Files.deleteIfExists(segmentPath(entry.getKey()));
+        }
+    }
+
+    private MappedByteBuffer segmentFor(long position) {
+        MappedByteBuffer segment = segments.get(segmentBase(position));
+        if (segment == null) {
+            throw new IllegalStateException("Payment journal segment for position " + position + " is not mapped");
+        }
+        return segment;
+    }
+
+    private Path segmentPath(long base) {
+        return directory.resolve(SEGMENT_PREFIX + String.format("%020d", base) + SEGMENT_SUFFIX);
+    }
+
+    private long segmentBase(long position) {
+        return position - (position % segmentSize);
+    }
+
+    private long nextSegmentBase(long position) {
+        return segmentBase(position) + segmentSize;
+    }
+
+    private int offset(long position) {
+        return (int) (position % segmentSize);
+    }
+
+    private void ensureOpen() {
+        if (syncFailure != null) {
+            throw new IllegalStateException("Payment journal sync failed; records are no longer acknowledged", syncFailure);
+        }
+        if (!running) {
+            throw new IllegalStateException("Payment journal is closed");
+        }
+    }
+
+    record JournalEntry(byte[] payload, long endPosition) {
+    }
+}
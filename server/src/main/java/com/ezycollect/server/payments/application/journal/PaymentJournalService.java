@@ -0,0 +1,279 @@
+package com.ezycollect.server.payments.application.journal;
+
+import com.ezycollect.server.payments.application.journal.PaymentJournal.JournalEntry;
+import com.ezycollect.server.payments.application.outbox.PaymentOutbox;
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import com.ezycollect.server.payments.domain.PaymentJdbcRepository;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Journal mode for payment creation ({@code payments.journal.enabled=true}).
+ *
+ * <p>Accepted payments are appended to a local {@link PaymentJournal} and acknowledged once the group-committed
+ * fsync covers them; a background flusher drains the journal into {@code payments} and {@code payment_idempotency}
+ * in batches and advances the checkpoint only after the batch commits. The flush uses INSERT IGNORE, so records
+ * replayed after a crash between commit and checkpoint are applied once. Until a record is flushed its completed
+ * claim lives in an in-memory index that is consulted before MySQL and rebuilt from the journal on startup.
+ *
+ * <p>A batch that fails {@code max-flush-attempts} times in a row is retried one record per transaction, so a single
+ * record MySQL keeps rejecting cannot hold back the ones after it. A record that fails on its own that many times is
+ * written to {@code quarantine/} in the journal directory, in the journal's record encoding, and skipped; it is
+ * counted in {@code payments.journal.quarantined} and has to be applied by hand.
+ *
+ * <p>The index is per process: journal mode assumes a single writer node for the payments API.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "payments.journal", name = "enabled", havingValue = "true")
+public class PaymentJournalService implements MeterBinder {
+
+    private final PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final PaymentInvoiceRepository paymentInvoiceRepository;
+    private final PaymentOutbox paymentOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentJournal journal;
+    private final int flushBatchSize;
+    private final int maxFlushAttempts;
+    private final Path quarantineDirectory;
+    private final AtomicLong quarantined = new AtomicLong();
+    private final ConcurrentHashMap<String, StoredIdempotency> unflushed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    /** Journal position the failed attempts were counted at; guarded by the {@link #flush} lock. */
+    private long failedPosition = -1;
+    private int failedAttempts;
+    /** End of the last batch that kept failing; records before it are flushed one at a time. */
+    private long isolateUntil;
+
+    public PaymentJournalService(
+            PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository,
+            PaymentJdbcRepository paymentJdbcRepository,
+            PaymentInvoiceRepository paymentInvoiceRepository,
+            PaymentOutbox paymentOutbox,
+            TransactionTemplate transactionTemplate,
+            @Value("${payments.journal.directory:data/journal}") Path directory,
+            @Value("${payments.journal.segment-size:64MB}") DataSize segmentSize,
+            @Value("${payments.journal.flush-interval:200ms}") Duration flushInterval,
+            @Value("${payments.journal.flush-batch-size:1000}") int flushBatchSize,
+            @Value("${payments.journal.max-flush-attempts:5}") int maxFlushAttempts) {
+        if (maxFlushAttempts < 1) {
+            throw new IllegalStateException("payments.journal.max-flush-attempts must be positive: " + maxFlushAttempts);
+        }
+        this.paymentIdempotencyClaimRepository = paymentIdempotencyClaimRepository;
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.paymentInvoiceRepository = paymentInvoiceRepository;
+        this.paymentOutbox = paymentOutbox;
+        this.transactionTemplate = transactionTemplate;
+        this.flushBatchSize = flushBatchSize;
+        this.maxFlushAttempts = maxFlushAttempts;
+        this.quarantineDirectory = directory.resolve("quarantine");
+        this.journal = new PaymentJournal(directory, Math.toIntExact(segmentSize.toBytes()));
+
+        // Records after the checkpoint were acknowledged but may not be in MySQL yet.
+        for (JournalEntry entry : journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE)) {
+            StoredIdempotency stored = JournaledPaymentCodec.decode(entry.payload()).toStored();
+            unflushed.put(stored.idempotencyKey(), stored);
+        }
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-journal-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flusher.scheduleWithFixedDelay(
+                this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reserves the key for the caller or classifies the record that already holds it. A NEW claim must be followed
+     * by {@link #append} or {@link #release}.
+     */
+    public IdempotencyClaim claim(String idempotencyKey, String requestHash) {
+        StoredIdempotency existing = reserve(idempotencyKey, requestHash);
+        if (existing != null) {
+            return existing.toClaim(requestHash);
+        }
+        // Checked only while holding the reservation, so a concurrent request cannot flush the same key in between.
+        Optional<StoredIdempotency> stored = paymentIdempotencyClaimRepository.find(idempotencyKey);
+        if (stored.isPresent()) {
+            release(idempotencyKey);
+            return stored.get().toClaim(requestHash);
+        }
+        return IdempotencyClaim.claimed(requestHash);
+    }
+
+    /**
+     * Reserves the key in the unflushed index without touching MySQL; returns the record already holding it, or
+     * {@code null} when the reservation was taken.
+     */
+    public StoredIdempotency reserve(String idempotencyKey, String requestHash) {
+        return unflushed.putIfAbsent(idempotencyKey, new StoredIdempotency(idempotencyKey, requestHash, null, null));
+    }
+
+    /** Whether the key is reserved by a request that has not appended its payment yet. */
+    public boolean inProgress(String idempotencyKey) {
+        StoredIdempotency stored = unflushed.get(idempotencyKey);
+        return stored != null && stored.responseStatus() == null;
+    }
+
+    public void release(String idempotencyKey) {
+        unflushed.computeIfPresent(idempotencyKey, (key, stored) -> stored.responseStatus() == null ? null : stored);
+    }
+
+    /** Journals a payment for a reserved key and returns once the record is durable on local disk. */
+    public void append(String idempotencyKey, String requestHash, PaymentEntity payment, int responseStatus, byte[] responseBody) {
+        JournaledPayment record = new JournaledPayment(idempotencyKey, requestHash, responseStatus, responseBody, payment);
+        journal.awaitDurable(journal.append(JournaledPaymentCodec.encode(record)));
+        unflushed.put(idempotencyKey, record.toStored());
+    }
+
+    /** Number of acknowledged payments not yet written to MySQL. */
+    public int unflushedCount() {
+        return (int) unflushed.values().stream().filter(stored -> stored.responseStatus() != null).count();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("payments.journal.unflushed", this, PaymentJournalService::unflushedCount)
+                .description("Journaled payments not yet flushed to MySQL")
+                .register(registry);
+        FunctionCounter.builder("payments.journal.quarantined", quarantined, AtomicLong::get)
+                .description("Journaled payments MySQL kept rejecting, moved to the quarantine directory")
+                .register(registry);
+    }
+
+    /** Drains every durable record into MySQL; used by the flusher and on shutdown. */
+    public synchronized void flush() {
+        while (true) {
+            long checkpoint = journal.checkpoint();
+            boolean isolating = checkpoint < isolateUntil;
+            List<JournalEntry> entries = journal.readDurable(checkpoint, isolating ? 1 : flushBatchSize);
+            if (entries.isEmpty()) {
+                return;
+            }
+            long end = entries.get(entries.size() - 1).endPosition();
+            List<JournaledPayment> records;
+            try {
+                records = write(entries);
+                failedAttempts = 0;
+            } catch (RuntimeException ex) {
+                if (checkpoint != failedPosition) {
+                    failedPosition = checkpoint;
+                    failedAttempts = 0;
+                }
+                if (++failedAttempts < maxFlushAttempts) {
+                    throw ex;
+                }
+                failedAttempts = 0;
+                if (!isolating) {
+                    isolateUntil = end;
+                    throw ex;
+                }
+                quarantine(checkpoint, entries.get(0), ex);
+                records = List.of();
+            }
+            journal.checkpoint(end);
+            for (JournaledPayment record : records) {
+                unflushed.remove(record.idempotencyKey(), record.toStored());
+            }
+            if (!isolating && entries.size() < flushBatchSize) {
+                return;
+            }
+        }
+    }
+
+    private List<JournaledPayment> write(List<JournalEntry> entries) {
+        List<JournaledPayment> records = new ArrayList<>(entries.size());
+        List<PaymentEntity> payments = new ArrayList<>(entries.size());
+        List<CompletedIdempotency> claims = new ArrayList<>(entries.size());
+        for (JournalEntry entry : entries) {
+            JournaledPayment record = JournaledPaymentCodec.decode(entry.payload());
+            records.add(record);
+            payments.add(record.payment());
+            claims.add(record.toCompleted());
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            paymentJdbcRepository.insertAllIfAbsent(payments);
+            paymentInvoiceRepository.insertFor(payments);
+            paymentOutbox.paymentsCreated(payments);
+            // A claim accepted over an expired, not yet purged record must replace it rather than be ignored.
+            paymentIdempotencyClaimRepository.deleteExpired(
+                    records.stream().map(JournaledPayment::idempotencyKey).toList());
+            paymentIdempotencyClaimRepository.insertCompletedIfAbsent(claims);
+        });
+        return records;
+    }
+
+    /** Durably copies the record out of the journal before the checkpoint moves past it. */
+    private void quarantine(long position, JournalEntry entry, RuntimeException cause) {
+        Path file = quarantineDirectory.resolve("payment-%020d.bin".formatted(position));
+        try {
+            Files.createDirectories(quarantineDirectory);
+            try (FileChannel channel = FileChannel.open(file,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                channel.write(ByteBuffer.wrap(entry.payload()));
+                channel.force(true);
+            }
+        } catch (IOException ex) {
+            ex.addSuppressed(cause);
+            throw new UncheckedIOException("Failed to quarantine payment journal record at " + position, ex);
+        }
+        quarantined.incrementAndGet();
+        log.error("Quarantined journaled payment to {} after {} failed flushes", file, maxFlushAttempts, cause);
+        try {
+            JournaledPayment record = JournaledPaymentCodec.decode(entry.payload());
+            unflushed.remove(record.idempotencyKey(), record.toStored());
+        } catch (RuntimeException ex) {
+            // The key cannot be read back from an undecodable record; its index entry is dropped on restart.
+        }
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        flusher.shutdown();
+        flusher.awaitTermination(30, TimeUnit.SECONDS);
+        flushQuietly();
+        journal.close();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException ex) {
+            // Records stay in the journal and the index; the next run retries from the same checkpoint.
+            log.warn("Payment journal flush failed; {} payments pending", unflushedCount(), ex);
+        }
+    }
+}
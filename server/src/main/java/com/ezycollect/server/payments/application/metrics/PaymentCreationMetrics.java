@@ -0,0 +1,125 @@
+package com.ezycollect.server.payments.application.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stage timers for {@code POST /payments}.
+ *
+ * <p>Every request records {@code payments.create} and one {@code payments.create.stage} timer per stage it reached,
+ * all tagged with the request's final outcome, so a slow claim can be told apart for created and replayed requests.
+ * Timers are registered up front and a {@link Sample} only holds a {@code long[]} of stage durations, which keeps the
+ * per-request cost to one {@code System.nanoTime()} per stage plus the timer updates at the end.
+ *
+ * <p>Percentile histograms are enabled in {@code application.yml} through {@code management.metrics.distribution}.
+ */
+@Component
+public class PaymentCreationMetrics {
+
+    public static final String CREATE_TIMER = "payments.create";
+    public static final String STAGE_TIMER = "payments.create.stage";
+
+    public enum Stage {
+        /** Canonical request hashing. */
+        HASH,
+        /** In-memory replay cache lookup. */
+        REPLAY_LOOKUP,
+        /**
+         * Idempotency claim insert (or journal reservation), including connection acquisition, and the optional
+         * paid-invoice check.
+         */
+        CLAIM,
+        /** Card number encryption. */
+        ENCRYPT,
+        /** Payment insert, or the durable journal append in journal mode. */
+        SAVE,
+        /** Idempotency record completion. */
+        FINALIZE,
+        /** Transaction commit. */
+        COMMIT;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    public enum Outcome {
+        CREATED,
+        REPLAYED,
+        CONFLICT,
+        IN_PROGRESS,
+        INVOICE_ALREADY_PAID,
+        /** Any other failure, e.g. a database error. */
+        ERROR;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    private final Timer[] createTimers = new Timer[OUTCOMES.length];
+    private final Timer[][] stageTimers = new Timer[STAGES.length][OUTCOMES.length];
+
+    public PaymentCreationMetrics(MeterRegistry meterRegistry) {
+        for (Outcome outcome : OUTCOMES) {
+            createTimers[outcome.ordinal()] = Timer.builder(CREATE_TIMER)
+                    .description("POST /payments service time by outcome")
+                    .tag("outcome", outcome.tag)
+                    .register(meterRegistry);
+            for (Stage stage : STAGES) {
+                stageTimers[stage.ordinal()][outcome.ordinal()] = Timer.builder(STAGE_TIMER)
+                        .description("POST /payments time per stage by request outcome")
+                        .tag("stage", stage.tag)
+                        .tag("outcome", outcome.tag)
+                        .register(meterRegistry);
+            }
+        }
+    }
+
+    public Sample start() {
+        return new Sample();
+    }
+
+    /** Timings of one request; not thread-safe. */
+    public final class Sample {
+
+        private final long startNanos;
+        private final long[] stageNanos = new long[STAGES.length];
+        private long lapNanos;
+        private Outcome outcome;
+
+        private Sample() {
+            Arrays.fill(stageNanos, -1L);
+            this.startNanos = System.nanoTime();
+            this.lapNanos = startNanos;
+        }
+
+        /** Attributes the time since the previous lap to {@code stage}. */
+        public void lap(Stage stage) {
+            long now = System.nanoTime();
+            long elapsed = now - lapNanos;
+            int index = stage.ordinal();
+            stageNanos[index] = stageNanos[index] < 0 ? elapsed : stageNanos[index] + elapsed;
+            lapNanos = now;
+        }
+
+        public void outcome(Outcome outcome) {
+            this.outcome = outcome;
+        }
+
+        /** Records all reached stages under the outcome set so far, or {@link Outcome#ERROR} if none was set. */
+        public void finish() {
+            long total = System.nanoTime() - startNanos;
+            int outcomeIndex = (outcome == null ? Outcome.ERROR : outcome).ordinal();
+            createTimers[outcomeIndex].record(total, TimeUnit.NANOSECONDS);
+            for (int i = 0; i < stageNanos.length; i++) {
+                if (stageNanos[i] >= 0) {
+                    stageTimers[i][outcomeIndex].record(stageNanos[i], TimeUnit.NANOSECONDS);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends event payloads as NDJSON lines to {@code payments.outbox.file}. Each batch is written with one gather write
+ * and forced to disk before {@link #publish} returns; a batch that fails part way is truncated away again, so the file
+ * only ever holds whole lines. The file is opened on the first publish.
+ */
+@Component
+@ConditionalOnProperty(prefix = "payments.outbox", name = "sink", havingValue = "file", matchIfMissing = true)
+public class FilePaymentEventSink implements PaymentEventSink {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final Path file;
+    private FileChannel channel;
+
+    public FilePaymentEventSink(@Value("${payments.outbox.file:data/outbox/payment-events.ndjson}") Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        ByteBuffer[] lines = new ByteBuffer[events.size() * 2];
+        long remaining = 0;
+        for (int i = 0; i < events.size(); i++) {
+            lines[2 * i] = ByteBuffer.wrap(events.get(i).payload());
+            lines[2 * i + 1] = ByteBuffer.wrap(NEWLINE);
+            remaining += events.get(i).payload().length + NEWLINE.length;
+        }
+        long start = -1;
+        try {
+            FileChannel out = channel();
+            start = out.size();
+            while (remaining > 0) {
+                remaining -= out.write(lines);
+            }
+            out.force(false);
+        } catch (IOException ex) {
+            truncate(start);
+            throw new IllegalStateException("Failed to append payment events to " + file, ex);
+        }
+    }
+
+    @PreDestroy
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            Path directory = file.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void truncate(long size) {
+        if (channel == null || size < 0) {
+            return;
+        }
+        try {
+            channel.truncate(size);
+        } catch (IOException ex) {
+            // The partial batch stays; consumers skip the incomplete line and the batch is published again.
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import java.time.Instant;
+import java.util.UUID;
+
+/** Payload of a {@code PaymentCreated} outbox event; {@code invoiceIds} is the stored JSON array, written as is. */
+record PaymentCreatedEvent(
+        String type,
+        UUID paymentId,
+        String status,
+        Instant createdAt,
+        @JsonRawValue String invoiceIds
+) {
+}
@@ -0,0 +1,16 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import java.util.List;
+
+/**
+ * Where {@link PaymentOutboxRelay} publishes outbox events ({@code payments.outbox.sink}).
+ *
+ * <p>{@link #publish} must return only once the events are durably handed over: the relay deletes them from the
+ * outbox afterwards. If it throws, the events stay in the outbox and are claimed again, so consumers can see an event
+ * more than once and should deduplicate on its type and payment id.
+ */
+public interface PaymentEventSink {
+
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,97 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentOutboxRepository;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import com.ezycollect.server.payments.domain.PaymentStatusChange;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records {@code PaymentCreated} events in {@code payment_outbox} when {@code payments.outbox.enabled} is set, in the
+ * transaction that writes the payments, so an event exists exactly when its payment committed. Single creation,
+ * batches and the journal flush all write through here; {@link PaymentOutboxRelay} publishes the events.
+ *
+ * <p>Status transitions record one event per new status ({@code PaymentAuthorized}, {@code PaymentCaptured},
+ * {@code PaymentFailed}, {@code PaymentRefunded}). The lifecycle has no cycles, so a payment reaches each status at
+ * most once and consumers can still deduplicate on event type and payment id.
+ */
+@Component
+public class PaymentOutbox {
+
+    public static final String PAYMENT_CREATED = "PaymentCreated";
+    public static final String PAYMENT_AUTHORIZED = "PaymentAuthorized";
+    public static final String PAYMENT_CAPTURED = "PaymentCaptured";
+    public static final String PAYMENT_FAILED = "PaymentFailed";
+    public static final String PAYMENT_REFUNDED = "PaymentRefunded";
+
+    private final PaymentOutboxRepository paymentOutboxRepository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+
+    public PaymentOutbox(
+            PaymentOutboxRepository paymentOutboxRepository,
+            ObjectMapper objectMapper,
+            @Value("${payments.outbox.enabled:false}") boolean enabled) {
+        this.paymentOutboxRepository = paymentOutboxRepository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    /** Appends one event per payment; call in the transaction that inserts them. */
+    public void paymentsCreated(List<PaymentEntity> payments) {
+        if (!enabled || payments.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> events = new ArrayList<>(payments.size());
+        for (PaymentEntity payment : payments) {
+            PaymentCreatedEvent event = new PaymentCreatedEvent(
+                    PAYMENT_CREATED,
+                    payment.getId(),
+                    payment.getStatus().name(),
+                    payment.getCreatedAt(),
+                    payment.getInvoiceIdsJson());
+            events.add(new OutboxEvent(0, PAYMENT_CREATED, payment.getId(), serialize(event), payment.getCreatedAt()));
+        }
+        paymentOutboxRepository.insertAll(events);
+    }
+
+    /** Appends one event per applied change; call in the transaction that updates the payments. */
+    public void paymentsTransitioned(List<PaymentStatusChange> applied, Instant changedAt) {
+        if (!enabled || applied.isEmpty()) {
+            return;
+        }
+        List<OutboxEvent> events = new ArrayList<>(applied.size());
+        for (PaymentStatusChange change : applied) {
+            PaymentStatus status = change.transition().target();
+            String type = eventType(status);
+            PaymentStatusChangedEvent event = new PaymentStatusChangedEvent(type, change.paymentId(), status.name(), changedAt);
+            events.add(new OutboxEvent(0, type, change.paymentId(), serialize(event), changedAt));
+        }
+        paymentOutboxRepository.insertAll(events);
+    }
+
+    private static String eventType(PaymentStatus status) {
+        return switch (status) {
+            case CREATED -> PAYMENT_CREATED;
+            case AUTHORIZED -> PAYMENT_AUTHORIZED;
+            case CAPTURED -> PAYMENT_CAPTURED;
+            case FAILED -> PAYMENT_FAILED;
+            case REFUNDED -> PAYMENT_REFUNDED;
+        };
+    }
+
+    private byte[] serialize(Object event) {
+        try {
+            return objectMapper.writeValueAsBytes(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize payment event", ex);
+        }
+    }
+}
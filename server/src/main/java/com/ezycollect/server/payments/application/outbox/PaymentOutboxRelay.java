@@ -0,0 +1,117 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.payments.domain.PaymentOutboxRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Publishes {@code payment_outbox} events to the configured {@link PaymentEventSink}.
+ *
+ * <p>Each batch is one transaction: up to {@code batch-size} of the oldest events are locked with
+ * {@code FOR UPDATE SKIP LOCKED}, published, and deleted with one statement. Relays on other instances skip the locked
+ * rows and claim the next ones, so adding instances adds relay throughput without two relays holding the same event.
+ * A failed publish rolls back and leaves its events for the next run. Full batches are followed by another one
+ * straight away, up to {@code max-batches-per-run}; lag is the age of the oldest event left after a run.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "payments.outbox", name = "enabled", havingValue = "true")
+public class PaymentOutboxRelay implements SchedulingConfigurer, MeterBinder {
+
+    private final PaymentOutboxRepository paymentOutboxRepository;
+    private final PaymentEventSink paymentEventSink;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Duration interval;
+    private final AtomicLong publishedEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    public PaymentOutboxRelay(
+            PaymentOutboxRepository paymentOutboxRepository,
+            PaymentEventSink paymentEventSink,
+            TransactionTemplate transactionTemplate,
+            @Value("${payments.outbox.relay.batch-size:500}") int batchSize,
+            @Value("${payments.outbox.relay.max-batches-per-run:100}") int maxBatchesPerRun,
+            @Value("${payments.outbox.relay.interval:200ms}") Duration interval) {
+        this.paymentOutboxRepository = paymentOutboxRepository;
+        this.paymentEventSink = paymentEventSink;
+        this.transactionTemplate = transactionTemplate;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.interval = interval;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::relay, interval, interval));
+    }
+
+    public void relay() {
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int published = transactionTemplate.execute(status -> relayBatch());
+                publishedEvents.addAndGet(published);
+                if (published < batchSize) {
+                    break;
+                }
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Payment outbox relay failed; unpublished events are retried on the next run", ex);
+        }
+        updateLag();
+    }
+
+    /** Age of the oldest event still in the outbox, as of the last run; zero when it was empty. */
+    Duration lag() {
+        return Duration.ofMillis(lagMillis.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.outbox.published", publishedEvents, AtomicLong::get)
+                .description("Outbox events published and deleted by this instance's relay")
+                .baseUnit("events")
+                .register(registry);
+        TimeGauge.builder("payments.outbox.lag", lagMillis, TimeUnit.MILLISECONDS, AtomicLong::get)
+                .description("Age of the oldest outbox event not yet published, as of the last relay run")
+                .register(registry);
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = paymentOutboxRepository.claim(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        paymentEventSink.publish(events);
+        paymentOutboxRepository.deleteAll(events);
+        return events.size();
+    }
+
+    private void updateLag() {
+        try {
+            long lag = paymentOutboxRepository.oldestCreatedAt()
+                    .map(oldest -> Duration.between(oldest, Instant.now()).toMillis())
+                    .orElse(0L);
+            lagMillis.set(Math.max(0, lag));
+        } catch (RuntimeException ex) {
+            log.warn("Failed to measure payment outbox lag", ex);
+        }
+    }
+}
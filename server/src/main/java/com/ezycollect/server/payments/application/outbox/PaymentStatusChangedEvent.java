@@ -0,0 +1,13 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** Payload of the outbox event recorded when a payment moves to {@code status}. */
+record PaymentStatusChangedEvent(
+        String type,
+        UUID paymentId,
+        String status,
+        Instant changedAt
+) {
+}
@@ -0,0 +1,51 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands events to in-process consumers through a bounded queue of {@code payments.outbox.queue.capacity} events. A
+ * batch that does not fit is rejected whole and stays in the outbox, so a slow consumer backs up the outbox rather
+ * than the heap. Events still queued when the process stops are lost to this process's consumers.
+ */
+@Component
+@ConditionalOnProperty(prefix = "payments.outbox", name = "sink", havingValue = "queue")
+public class QueuePaymentEventSink implements PaymentEventSink {
+
+    private final BlockingQueue<OutboxEvent> queue;
+
+    public QueuePaymentEventSink(@Value("${payments.outbox.queue.capacity:10000}") int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public synchronized void publish(List<OutboxEvent> events) {
+        // Only publishers add, and they are serialized here, so the capacity cannot shrink before the batch is added.
+        if (queue.remainingCapacity() < events.size()) {
+            throw new IllegalStateException("Payment event queue is full; " + queue.size() + " events are waiting");
+        }
+        queue.addAll(events);
+    }
+
+    /** Takes the next event, waiting up to {@code timeout}; null if none arrived. */
+    public OutboxEvent poll(Duration timeout) throws InterruptedException {
+        return queue.poll(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /** Moves up to {@code maxEvents} queued events to {@code target} without waiting. */
+    public int drainTo(Collection<? super OutboxEvent> target, int maxEvents) {
+        return queue.drainTo(target, maxEvents);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
@@ -1,39 +1,244 @@
 package com.ezycollect.server.payments.application.security;
 
+import com.ezycollect.server.shared.concurrency.BoundedPool;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import org.springframework.stereotype.Component;
 
+/**
+ * AES-256-GCM encryption of card numbers.
+ *
+ * <p>{@link Cipher}s are kept in a {@link BoundedPool}, so encryption neither calls {@code Cipher.getInstance} per
+ * value, nor per request when each request runs on a new virtual thread, and a cipher is used by one caller at a
+ * time. IVs use the deterministic construction from NIST SP 800-38D: an 8-byte prefix drawn from {@link SecureRandom}
+ * followed by a 4-byte invocation counter, both held by this instance rather than by a thread. IVs stay unique and
+ * counted however requests are spread over threads, including with a new virtual thread per request. A new prefix is
+ * drawn for every 2^32 invocations, so the counter never wraps under one prefix.
+ *
+ * <p>Plaintext bytes are staged in a scratch buffer pooled with the cipher and zeroed after every encryption.
+ *
+ * <p>Values are encrypted with the active key of {@link EncryptionKeyProvider} and decrypted with the key named by
+ * their payload, so ciphertexts written under a retired key stay readable during a rotation.
+ */
 @Component
 public class AesGcmCrypto {
 
     private static final String TRANSFORMATION = "AES/GCM/NoPadding";
     private static final int IV_LENGTH_BYTES = 12;
+    private static final int IV_PREFIX_BYTES = 8;
     private static final int TAG_LENGTH_BITS = 128;
 
-    private final SecretKey secretKey;
-    private final SecureRandom secureRandom = new SecureRandom();
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private final EncryptionKeyProvider encryptionKeyProvider;
+    private final String activeKeyId;
+    private final SecretKey activeKey;
+    private final BoundedPool<Engine> engines = new BoundedPool<>(Engine::new);
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicReference<IvPrefix> ivPrefix = new AtomicReference<>(IvPrefix.draw(0));
 
     public AesGcmCrypto(EncryptionKeyProvider encryptionKeyProvider) {
-        this.secretKey = encryptionKeyProvider.secretKey();
+        this.encryptionKeyProvider = encryptionKeyProvider;
+        this.activeKeyId = encryptionKeyProvider.activeKeyId();
+        this.activeKey = encryptionKeyProvider.secretKey();
+    }
+
+    /** Id of the key new payloads are encrypted with. */
+    public String activeKeyId() {
+        return activeKeyId;
     }
 
     public EncryptedPayload encrypt(String plaintext) {
-        byte[] iv = new byte[IV_LENGTH_BYTES];
-        secureRandom.nextBytes(iv);
+        return encrypt(CharBuffer.wrap(plaintext));
+    }
 
+    /** Encrypts the UTF-8 encoding of the remaining characters; the buffer's position is left unchanged. */
+    public EncryptedPayload encrypt(CharBuffer plaintext) {
+        Engine engine = engines.acquire();
         try {
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
-            byte[] ciphertext = cipher.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-            return new EncryptedPayload(iv, ciphertext);
-        } catch (GeneralSecurityException ex) {
-            throw new IllegalStateException("Failed to encrypt card number", ex);
+            return engine.encrypt(plaintext.duplicate());
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /** Encrypts raw bytes. The caller keeps ownership of {@code plaintext} and should zero it when done. */
+    public EncryptedPayload encrypt(byte[] plaintext) {
+        Engine engine = engines.acquire();
+        try {
+            return engine.encrypt(plaintext, plaintext.length);
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /** Encrypts values in order with one pooled cipher; intended for bulk paths such as batch creation. */
+    public List<EncryptedPayload> encryptAll(List<? extends CharSequence> plaintexts) {
+        Engine engine = engines.acquire();
+        try {
+            List<EncryptedPayload> payloads = new ArrayList<>(plaintexts.size());
+            for (CharSequence plaintext : plaintexts) {
+                payloads.add(engine.encrypt(CharBuffer.wrap(plaintext)));
+            }
+            return payloads;
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /**
+     * Decrypts a payload with the key it names and returns the plaintext bytes; the caller owns them and should zero
+     * them when done.
+     */
+    public byte[] decrypt(EncryptedPayload payload) {
+        Engine engine = engines.acquire();
+        try {
+            return engine.decrypt(payload);
+        } finally {
+            engines.release(engine);
+        }
+    }
+
+    /**
+     * Decrypts a payload into the start of {@code out} and returns the plaintext length, so bulk readers can reuse one
+     * scratch array and zero it once instead of zeroing an array per value. {@code out} must hold at least
+     * {@link #plaintextLength} bytes of the ciphertext.
+     */
+    public int decrypt(EncryptedPayload payload, byte[] out) {
+        Engine engine = engines.acquire();
+        try {
+            return engine.decrypt(payload, out);
+        } finally {
+            engines.release(engine);
         }
     }
-}
 
+    /** Length of the plaintext behind a ciphertext, known without decrypting it. */
+    public static int plaintextLength(byte[] ciphertext) {
+        return ciphertext.length - TAG_LENGTH_BITS / Byte.SIZE;
+    }
+
+    /**
+     * Returns the next IV: the prefix of the current block of 2^32 invocations followed by the invocation's position in
+     * it. The first invocation of a new block installs a fresh prefix; invocations that raced with the switch retry,
+     * so every prefix is only ever combined with counters of its own block.
+     */
+    private byte[] nextIv() {
+        while (true) {
+            IvPrefix prefix = ivPrefix.get();
+            long invocation = invocations.getAndIncrement();
+            long block = invocation >>> Integer.SIZE;
+            if (block == prefix.block()) {
+                return prefix.iv((int) invocation);
+            }
+            if (block > prefix.block()) {
+                ivPrefix.compareAndSet(prefix, IvPrefix.draw(block));
+            }
+        }
+    }
+
+    private record IvPrefix(long block, byte[] bytes) {
+
+        static IvPrefix draw(long block) {
+            byte[] bytes = new byte[IV_PREFIX_BYTES];
+            SECURE_RANDOM.nextBytes(bytes);
+            return new IvPrefix(block, bytes);
+        }
+
+        byte[] iv(int counter) {
+            byte[] iv = Arrays.copyOf(bytes, IV_LENGTH_BYTES);
+            iv[8] = (byte) (counter >>> 24);
+            iv[9] = (byte) (counter >>> 16);
+            iv[10] = (byte) (counter >>> 8);
+            iv[11] = (byte) counter;
+            return iv;
+        }
+    }
+
+    private final class Engine {
+
+        private final Cipher cipher;
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        private byte[] scratch = new byte[64];
+
+        private Engine() {
+            try {
+                this.cipher = Cipher.getInstance(TRANSFORMATION);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("AES-GCM cipher is unavailable", ex);
+            }
+        }
+
+        EncryptedPayload encrypt(CharBuffer plaintext) {
+            int length = utf8Length(plaintext);
+            try {
+                return encrypt(scratch, length);
+            } finally {
+                Arrays.fill(scratch, 0, length, (byte) 0);
+            }
+        }
+
+        EncryptedPayload encrypt(byte[] plaintext, int length) {
+            byte[] iv = nextIv();
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, activeKey, new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+                return new EncryptedPayload(activeKeyId, iv, cipher.doFinal(plaintext, 0, length));
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Failed to encrypt card number", ex);
+            }
+        }
+
+        byte[] decrypt(EncryptedPayload payload) {
+            SecretKey key = encryptionKeyProvider.secretKey(payload.keyId());
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload.iv()));
+                return cipher.doFinal(payload.ciphertext());
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Failed to decrypt card number with key " + payload.keyId(), ex);
+            }
+        }
+
+        int decrypt(EncryptedPayload payload, byte[] out) {
+            SecretKey key = encryptionKeyProvider.secretKey(payload.keyId());
+            try {
+                cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BITS, payload.iv()));
+                return cipher.doFinal(payload.ciphertext(), 0, payload.ciphertext().length, out, 0);
+            } catch (GeneralSecurityException ex) {
+                throw new IllegalStateException("Failed to decrypt card number with key " + payload.keyId(), ex);
+            }
+        }
+
+        private int utf8Length(CharBuffer plaintext) {
+            int maxLength = (int) (plaintext.remaining() * encoder.maxBytesPerChar());
+            if (scratch.length < maxLength) {
+                Arrays.fill(scratch, (byte) 0);
+                scratch = new byte[maxLength];
+            }
+            ByteBuffer out = ByteBuffer.wrap(scratch);
+            encoder.reset();
+            CoderResult result = encoder.encode(plaintext, out, true);
+            if (!result.isUnderflow()) {
+                Arrays.fill(scratch, 0, out.position(), (byte) 0);
+                throw new IllegalArgumentException("Card number is not valid UTF-16 text");
+            }
+            encoder.flush(out);
+            return out.position();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.ezycollect.server.payments.application.security;
+
+import com.ezycollect.server.payments.domain.CardNumberCiphertext;
+import com.ezycollect.server.payments.domain.CardNumberReencryptionRepository;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.ReencryptionCursor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Re-encrypts stored card numbers with the active key, so retired keys can be removed after a rotation.
+ *
+ * <p>Payments are read in primary key order in chunks of {@code chunk-size}, one short transaction per chunk. Rows
+ * under another key are decrypted and encrypted again on {@code parallelism} worker threads and written back as one
+ * JDBC batch. The cursor in {@code card_number_reencryption} is advanced in the same transaction, so a restart resumes
+ * after the last committed chunk and instances running the job take turns. Scanning is paced to
+ * {@code max-rows-per-second} across the run. Once the cursor of the active key is complete this instance stops
+ * scheduling database work; rotating again starts a new cursor.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "payments.encryption.reencryption", name = "enabled", havingValue = "true")
+public class CardNumberReencryption implements SchedulingConfigurer, MeterBinder {
+
+    private final CardNumberReencryptionRepository cardNumberReencryptionRepository;
+    private final AesGcmCrypto aesGcmCrypto;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int maxRowsPerSecond;
+    private final int parallelism;
+    private final Duration interval;
+    private final ExecutorService workers;
+    private final AtomicLong reencryptedRows = new AtomicLong();
+    private volatile ReencryptionCursor cursor;
+
+    public CardNumberReencryption(
+            CardNumberReencryptionRepository cardNumberReencryptionRepository,
+            AesGcmCrypto aesGcmCrypto,
+            TransactionTemplate transactionTemplate,
+            @Value("${payments.encryption.reencryption.chunk-size:1000}") int chunkSize,
+            @Value("${payments.encryption.reencryption.max-rows-per-second:5000}") int maxRowsPerSecond,
+            @Value("${payments.encryption.reencryption.parallelism:0}") int parallelism,
+            @Value("${payments.encryption.reencryption.interval:1m}") Duration interval) {
+        if (chunkSize < 1 || maxRowsPerSecond < 1) {
+            throw new IllegalStateException(
+                    "payments.encryption.reencryption.chunk-size and max-rows-per-second must be positive");
+        }
+        this.cardNumberReencryptionRepository = cardNumberReencryptionRepository;
+        this.aesGcmCrypto = aesGcmCrypto;
+        this.transactionTemplate = transactionTemplate;
+        this.chunkSize = chunkSize;
+        this.maxRowsPerSecond = maxRowsPerSecond;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.interval = interval;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "card-reencryption-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar registrar) {
+        registrar.addFixedDelayTask(new FixedDelayTask(this::reencrypt, interval, Duration.ZERO));
+    }
+
+    /** Processes chunks until the cursor of the active key is complete or a chunk fails. */
+    public void reencrypt() {
+        if (complete()) {
+            return;
+        }
+        String targetKeyId = aesGcmCrypto.activeKeyId();
+        long startNanos = System.nanoTime();
+        long scanned = 0;
+        try {
+            cardNumberReencryptionRepository.createCursor(targetKeyId, Instant.now());
+            while (true) {
+                Chunk chunk = transactionTemplate.execute(status -> reencryptChunk(targetKeyId));
+                cursor = chunk.cursor();
+                scanned += chunk.scannedRows();
+                if (chunk.cursor().complete()) {
+                    log.info("Card numbers re-encrypted with key {}: {} of {} payments rewritten",
+                            targetKeyId, chunk.cursor().reencryptedRows(), chunk.cursor().scannedRows());
+                    return;
+                }
+                pace(scanned, startNanos);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            log.warn("Card number re-encryption with key {} failed; resuming from the last chunk on the next run",
+                    targetKeyId, ex);
+        }
+    }
+
+    public boolean complete() {
+        ReencryptionCursor current = cursor;
+        return current != null && current.complete();
+    }
+
+    /** Payments scanned for the active key by all instances, as of this instance's last chunk. */
+    public long scannedRows() {
+        ReencryptionCursor current = cursor;
+        return current == null ? 0 : current.scannedRows();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.encryption.reencrypted", reencryptedRows, AtomicLong::get)
+                .description("Card numbers re-encrypted with the active key by this instance")
+                .baseUnit("payments")
+                .register(registry);
+        Gauge.builder("payments.encryption.reencryption.scanned", this, CardNumberReencryption::scannedRows)
+                .description("Payments scanned by the re-encryption onto the active key, across all instances")
+                .baseUnit("payments")
+                .register(registry);
+        Gauge.builder("payments.encryption.reencryption.complete", this, job -> job.complete() ? 1 : 0)
+                .description("1 once every payment has been checked against the active key")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private Chunk reencryptChunk(String targetKeyId) {
+        Instant now = Instant.now();
+        ReencryptionCursor locked = cardNumberReencryptionRepository.lockCursor(targetKeyId);
+        if (locked.complete()) {
+            return new Chunk(locked, 0);
+        }
+        List<CardNumberCiphertext> chunk = cardNumberReencryptionRepository.readAfter(locked.lastPaymentId(), chunkSize);
+        List<CardNumberCiphertext> stale = chunk.stream()
+                .filter(cardNumber -> !targetKeyId.equals(cardNumber.keyId()))
+                .toList();
+        int reencrypted = cardNumberReencryptionRepository.updateAll(reencryptAll(stale));
+        byte[] lastPaymentId = chunk.isEmpty()
+                ? locked.lastPaymentId()
+                : PaymentIds.toBytes(chunk.get(chunk.size() - 1).paymentId());
+        Instant completedAt = chunk.size() < chunkSize ? now : null;
+        cardNumberReencryptionRepository.advance(targetKeyId, lastPaymentId, chunk.size(), reencrypted, completedAt);
+        reencryptedRows.addAndGet(reencrypted);
+        ReencryptionCursor advanced = new ReencryptionCursor(
+                targetKeyId,
+                lastPaymentId,
+                locked.scannedRows() + chunk.size(),
+                locked.reencryptedRows() + reencrypted,
+                locked.startedAt(),
+                completedAt);
+        return new Chunk(advanced, chunk.size());
+    }
+
+    /** Splits the rows into one contiguous slice per worker; each slice keeps its worker's cipher for the whole run. */
+    private List<CardNumberCiphertext> reencryptAll(List<CardNumberCiphertext> cardNumbers) {
+        if (cardNumbers.isEmpty()) {
+            return cardNumbers;
+        }
+        int sliceSize = (cardNumbers.size() + parallelism - 1) / parallelism;
+        List<Callable<List<CardNumberCiphertext>>> slices = new ArrayList<>();
+        for (int from = 0; from < cardNumbers.size(); from += sliceSize) {
+            List<CardNumberCiphertext> slice = cardNumbers.subList(from, Math.min(from + sliceSize, cardNumbers.size()));
+            slices.add(() -> slice.stream().map(this::reencrypt).toList());
+        }
+        List<CardNumberCiphertext> reencrypted = new ArrayList<>(cardNumbers.size());
+        try {
+            for (Future<List<CardNumberCiphertext>> slice : workers.invokeAll(slices)) {
+                reencrypted.addAll(slice.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Card number re-encryption interrupted", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Card number re-encryption failed", ex.getCause());
+        }
+        return reencrypted;
+    }
+
+    private CardNumberCiphertext reencrypt(CardNumberCiphertext cardNumber) {
+        byte[] plaintext = aesGcmCrypto.decrypt(new EncryptedPayload(cardNumber.keyId(), cardNumber.iv(), cardNumber.ciphertext()));
+        try {
+            EncryptedPayload payload = aesGcmCrypto.encrypt(plaintext);
+            return new CardNumberCiphertext(cardNumber.paymentId(), payload.keyId(), payload.iv(), payload.ciphertext());
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /** Sleeps until {@code scanned} rows are within the {@code max-rows-per-second} budget. */
+    private void pace(long scanned, long startNanos) throws InterruptedException {
+        long dueNanos = TimeUnit.SECONDS.toNanos(scanned) / maxRowsPerSecond;
+        long aheadNanos = dueNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(aheadNanos);
+        }
+    }
+
+    private record Chunk(ReencryptionCursor cursor, int scannedRows) {
+    }
+}
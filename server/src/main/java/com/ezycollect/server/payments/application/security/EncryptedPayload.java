@@ -1,8 +1,9 @@
 package com.ezycollect.server.payments.application.security;
 
+/** A card number ciphertext with its IV and the id of the key that encrypted it. */
 public record EncryptedPayload(
+        String keyId,
         byte[] iv,
         byte[] ciphertext
 ) {
 }
-
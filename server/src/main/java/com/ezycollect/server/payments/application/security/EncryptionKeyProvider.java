@@ -1,42 +1,109 @@
 package com.ezycollect.server.payments.application.security;
 
 import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Card number keys by id. New ciphertexts use the active key ({@code PAYMENTS_ENCRYPTION_KEY_B64}, id
+ * {@code PAYMENTS_ENCRYPTION_KEY_ID}); {@code PAYMENTS_ENCRYPTION_DECRYPTION_KEYS} lists retired keys as
+ * {@code id:base64,id:base64} so rows written under them stay readable until they are re-encrypted.
+ *
+ * <p>Every instance must be able to decrypt a key before any instance makes it active, so a rotation first deploys the
+ * new key as a decryption key and only then switches the active id.
+ */
 @Component
 public class EncryptionKeyProvider {
 
+    /** Id of the key that encrypted rows written before key ids were recorded (the V12 column default). */
+    public static final String INITIAL_KEY_ID = "k1";
+
     private static final int KEY_LENGTH_BYTES = 32;
+    private static final Pattern KEY_ID = Pattern.compile("[A-Za-z0-9._-]{1,32}");
+
+    private final String activeKeyId;
+    private final Map<String, SecretKey> keys;
 
-    private final SecretKey secretKey;
+    public EncryptionKeyProvider(String keyB64) {
+        this(keyB64, INITIAL_KEY_ID, "");
+    }
 
-    public EncryptionKeyProvider(@Value("${PAYMENTS_ENCRYPTION_KEY_B64:}") String keyB64) {
-        this.secretKey = new SecretKeySpec(decodeAndValidate(keyB64), "AES");
+    @Autowired
+    public EncryptionKeyProvider(
+            @Value("${PAYMENTS_ENCRYPTION_KEY_B64:}") String keyB64,
+            @Value("${PAYMENTS_ENCRYPTION_KEY_ID:" + INITIAL_KEY_ID + "}") String keyId,
+            @Value("${PAYMENTS_ENCRYPTION_DECRYPTION_KEYS:}") String decryptionKeys) {
+        Map<String, SecretKey> keys = new LinkedHashMap<>();
+        this.activeKeyId = validateKeyId(keyId, "PAYMENTS_ENCRYPTION_KEY_ID");
+        keys.put(activeKeyId, new SecretKeySpec(decodeAndValidate(keyB64), "AES"));
+        for (String entry : decryptionKeys.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            int separator = entry.indexOf(':');
+            if (separator < 0) {
+                throw new IllegalStateException("PAYMENTS_ENCRYPTION_DECRYPTION_KEYS entries must be id:base64");
+            }
+            String id = validateKeyId(entry.substring(0, separator).trim(), "PAYMENTS_ENCRYPTION_DECRYPTION_KEYS");
+            byte[] key = decodeAndValidate(entry.substring(separator + 1).trim(), "PAYMENTS_ENCRYPTION_DECRYPTION_KEYS");
+            if (keys.putIfAbsent(id, new SecretKeySpec(key, "AES")) != null) {
+                throw new IllegalStateException("Encryption key id " + id + " is configured more than once");
+            }
+        }
+        this.keys = Collections.unmodifiableMap(keys);
     }
 
+    /** The active key, used for all new ciphertexts. */
     public SecretKey secretKey() {
-        return secretKey;
+        return keys.get(activeKeyId);
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    public SecretKey secretKey(String keyId) {
+        SecretKey key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalStateException("No encryption key with id " + keyId
+                    + " is configured; add it to PAYMENTS_ENCRYPTION_DECRYPTION_KEYS");
+        }
+        return key;
     }
 
     static byte[] decodeAndValidate(String keyB64) {
+        return decodeAndValidate(keyB64, "PAYMENTS_ENCRYPTION_KEY_B64");
+    }
+
+    private static byte[] decodeAndValidate(String keyB64, String property) {
         if (keyB64 == null || keyB64.isBlank()) {
-            throw new IllegalStateException("PAYMENTS_ENCRYPTION_KEY_B64 is required and must be a base64-encoded 32-byte key");
+            throw new IllegalStateException(property + " is required and must be a base64-encoded 32-byte key");
         }
 
         byte[] keyBytes;
         try {
             keyBytes = Base64.getDecoder().decode(keyB64);
         } catch (IllegalArgumentException ex) {
-            throw new IllegalStateException("PAYMENTS_ENCRYPTION_KEY_B64 must be valid base64", ex);
+            throw new IllegalStateException(property + " must be valid base64", ex);
         }
 
         if (keyBytes.length != KEY_LENGTH_BYTES) {
-            throw new IllegalStateException("PAYMENTS_ENCRYPTION_KEY_B64 must decode to exactly 32 bytes (256-bit key)");
+            throw new IllegalStateException(property + " must decode to exactly 32 bytes (256-bit key)");
         }
         return keyBytes;
     }
-}
 
+    private static String validateKeyId(String keyId, String property) {
+        if (keyId == null || !KEY_ID.matcher(keyId).matches()) {
+            throw new IllegalStateException(property + " key ids must be 1-32 characters of letters, digits, '.', '_' or '-'");
+        }
+        return keyId;
+    }
+}
@@ -0,0 +1,278 @@
+package com.ezycollect.server.payments.application.settlement;
+
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.domain.PaymentExportRepository;
+import com.ezycollect.server.payments.domain.PaymentExportRepository.ExportCursor;
+import com.ezycollect.server.payments.domain.SettlementCardNumber;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Writes settlement files: the plaintext card number of every payment created in a range, as CSV lines
+ * {@code payment_id,card_number,created_at} in {@code (createdAt, id)} order.
+ *
+ * <p>The calling thread streams encrypted rows in keyset pages of {@code page-size} and hands them in batches of
+ * {@code batch-size} to a fork-join pool of {@code parallelism} workers. Each worker decrypts with its own cipher (see
+ * {@link AesGcmCrypto}) and formats its batch into an off-heap buffer, which the calling thread then writes to the
+ * file channel in submission order. At most {@code max-in-flight-batches} batches are being decrypted or waiting to
+ * be written; when the window is full, reading waits for the oldest one, so memory use does not grow with the file.
+ * Buffers and plaintext scratch arrays are zeroed as soon as their batch is written.
+ *
+ * <p>The file is written as {@code <name>.part}, owner-readable only where the file system has POSIX permissions,
+ * forced to disk and then renamed, so a settlement run never picks up a partial file.
+ */
+@Slf4j
+@Service
+public class SettlementExportService implements MeterBinder {
+
+    private static final byte[] HEADER = "payment_id,card_number,created_at\n".getBytes(StandardCharsets.US_ASCII);
+    /** A UUID, two commas, a newline and {@link Instant#toString} of a four-digit year with nanoseconds. */
+    private static final int LINE_OVERHEAD_BYTES = 36 + 3 + 30;
+    private static final byte[] ZEROS = new byte[8192];
+    private static final Set<OpenOption> PARTIAL_FILE_OPTIONS =
+            Set.of(StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+    private final PaymentExportRepository paymentExportRepository;
+    private final AesGcmCrypto aesGcmCrypto;
+    private final int pageSize;
+    private final int batchSize;
+    private final int maxInFlightBatches;
+    private final ForkJoinPool workers;
+    private final AtomicLong writtenRows = new AtomicLong();
+
+    public SettlementExportService(
+            PaymentExportRepository paymentExportRepository,
+            AesGcmCrypto aesGcmCrypto,
+            @Value("${payments.settlement.page-size:10000}") int pageSize,
+            @Value("${payments.settlement.batch-size:1000}") int batchSize,
+            @Value("${payments.settlement.max-in-flight-batches:0}") int maxInFlightBatches,
+            @Value("${payments.settlement.parallelism:0}") int parallelism) {
+        this.paymentExportRepository = paymentExportRepository;
+        this.aesGcmCrypto = aesGcmCrypto;
+        this.pageSize = pageSize;
+        this.batchSize = batchSize;
+        int workerCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        // Two batches per worker keep every worker busy while the calling thread writes.
+        this.maxInFlightBatches = maxInFlightBatches > 0 ? maxInFlightBatches : 2 * workerCount;
+        this.workers = new ForkJoinPool(workerCount, pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("settlement-decrypt-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+    }
+
+    /**
+     * Writes every payment created in {@code [from, to)} to a new file at {@code file} and returns its summary.
+     * {@code from} may be null for no lower bound; {@code to} defaults to now.
+     */
+    public SettlementFile write(Instant from, Instant to, Path file) throws IOException {
+        if (Files.exists(file)) {
+            throw new FileAlreadyExistsException(file.toString());
+        }
+        Instant until = to == null ? Instant.now() : to;
+        Path partial = file.resolveSibling(file.getFileName() + ".part");
+        long startNanos = System.nanoTime();
+        SettlementFile written;
+        try (FileChannel channel = FileChannel.open(partial, PARTIAL_FILE_OPTIONS, ownerOnly(partial))) {
+            SettlementRun run = new SettlementRun(channel);
+            try {
+                run.writeAll(from, until);
+            } catch (IOException | RuntimeException ex) {
+                run.abandon();
+                throw ex;
+            }
+            channel.force(true);
+            written = new SettlementFile(file, run.rows, channel.size());
+        } catch (IOException | RuntimeException ex) {
+            Files.deleteIfExists(partial);
+            throw ex;
+        }
+        Files.move(partial, file, StandardCopyOption.ATOMIC_MOVE);
+        log.info("Settlement file {} written: {} payments, {} bytes in {} ms",
+                file, written.rows(), written.bytes(), (System.nanoTime() - startNanos) / 1_000_000);
+        return written;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("payments.settlement.rows", writtenRows, AtomicLong::get)
+                .description("Card numbers written to settlement files")
+                .baseUnit("payments")
+                .register(registry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /** Decrypts and formats one batch into {@code out}; runs on a worker. */
+    private ByteBuffer format(List<SettlementCardNumber> rows, int maxPlaintextLength, ByteBuffer out) {
+        byte[] plaintext = new byte[maxPlaintextLength];
+        try {
+            for (SettlementCardNumber row : rows) {
+                int length = aesGcmCrypto.decrypt(new EncryptedPayload(row.keyId(), row.iv(), row.ciphertext()), plaintext);
+                out.put(row.paymentId().toString().getBytes(StandardCharsets.US_ASCII))
+                        .put((byte) ',')
+                        .put(plaintext, 0, length)
+                        .put((byte) ',')
+                        .put(row.createdAt().toString().getBytes(StandardCharsets.US_ASCII))
+                        .put((byte) '\n');
+            }
+            return out.flip();
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private static FileAttribute<?>[] ownerOnly(Path file) {
+        if (!file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            return new FileAttribute<?>[0];
+        }
+        return new FileAttribute<?>[] {PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"))};
+    }
+
+    private static void zero(ByteBuffer buffer) {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            buffer.put(ZEROS, 0, Math.min(ZEROS.length, buffer.remaining()));
+        }
+        buffer.clear();
+    }
+
+    /** State of one {@link #write}; used by the calling thread only. */
+    private final class SettlementRun {
+
+        private final FileChannel channel;
+        private final Deque<Batch> inFlight = new ArrayDeque<>();
+        private final Deque<ByteBuffer> freeBuffers = new ArrayDeque<>();
+        private List<SettlementCardNumber> pending = new ArrayList<>(batchSize);
+        private int pendingBytes;
+        private int pendingMaxPlaintextLength;
+        private ExportCursor cursor;
+        private long rows;
+
+        private SettlementRun(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeAll(Instant from, Instant to) throws IOException {
+            write(ByteBuffer.wrap(HEADER));
+            try {
+                while (true) {
+                    int page = paymentExportRepository.streamCardNumbers(from, to, cursor, pageSize, this::add);
+                    if (page < pageSize) {
+                        break;
+                    }
+                }
+                submit();
+                while (!inFlight.isEmpty()) {
+                    writeOldest();
+                }
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+
+        private void add(SettlementCardNumber row) {
+            int plaintextLength = AesGcmCrypto.plaintextLength(row.ciphertext());
+            pending.add(row);
+            pendingBytes += LINE_OVERHEAD_BYTES + plaintextLength;
+            pendingMaxPlaintextLength = Math.max(pendingMaxPlaintextLength, plaintextLength);
+            cursor = new ExportCursor(row.createdAt(), row.paymentId());
+            if (pending.size() == batchSize) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            if (inFlight.size() == maxInFlightBatches) {
+                writeOldest();
+            }
+            List<SettlementCardNumber> batchRows = pending;
+            int maxPlaintextLength = pendingMaxPlaintextLength;
+            ByteBuffer buffer = buffer(pendingBytes);
+            ForkJoinTask<ByteBuffer> task = workers.submit(() -> format(batchRows, maxPlaintextLength, buffer));
+            inFlight.addLast(new Batch(task, buffer, batchRows.size()));
+            pending = new ArrayList<>(batchSize);
+            pendingBytes = 0;
+            pendingMaxPlaintextLength = 0;
+        }
+
+        private void writeOldest() {
+            Batch batch = inFlight.removeFirst();
+            try {
+                write(batch.task().join());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                zero(batch.buffer());
+                freeBuffers.addLast(batch.buffer());
+            }
+            rows += batch.rows();
+            writtenRows.addAndGet(batch.rows());
+        }
+
+        private void write(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        /** A zeroed buffer of at least {@code capacity} bytes, reusing one from an earlier batch when it is large enough. */
+        private ByteBuffer buffer(int capacity) {
+            ByteBuffer buffer = freeBuffers.pollFirst();
+            if (buffer == null || buffer.capacity() < capacity) {
+                // Direct, so the channel writes it without copying plaintext into a JDK-owned temporary buffer.
+                return ByteBuffer.allocateDirect(capacity);
+            }
+            return buffer;
+        }
+
+        /** Waits for the batches still running and zeroes their buffers; plaintext must not outlive a failed run. */
+        void abandon() {
+            for (Batch batch : inFlight) {
+                batch.task().cancel(false);
+                batch.task().quietlyJoin();
+                zero(batch.buffer());
+            }
+            inFlight.clear();
+        }
+    }
+
+    private record Batch(ForkJoinTask<ByteBuffer> task, ByteBuffer buffer, int rows) {
+    }
+}
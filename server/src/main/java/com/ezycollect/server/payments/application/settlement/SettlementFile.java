@@ -0,0 +1,11 @@
+package com.ezycollect.server.payments.application.settlement;
+
+import java.nio.file.Path;
+
+/** A completed settlement file: where it is, how many payments it lists and its size. */
+public record SettlementFile(
+        Path path,
+        long rows,
+        long bytes
+) {
+}
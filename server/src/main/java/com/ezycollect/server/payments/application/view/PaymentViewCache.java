@@ -0,0 +1,91 @@
+package com.ezycollect.server.payments.application.view;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded read-through cache of rendered payment views keyed by payment id, so repeated reads and ETag revalidations
+ * are answered without MySQL or serialization.
+ *
+ * <p>Changes made through JPA evict the entry via {@link PaymentViewInvalidator}; JDBC writers call
+ * {@link #invalidate} or {@link #invalidateAll} themselves. The TTL bounds how long another
+ * instance's cache can serve a view after the payment changed.
+ */
+@Component
+public class PaymentViewCache implements MeterBinder {
+
+    private final Cache<UUID, RenderedPaymentView> cache;
+
+    public PaymentViewCache(
+            @Value("${payments.view-cache.maximum-size:100000}") long maximumSize,
+            @Value("${payments.view-cache.ttl:1m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cached view or renders it with {@code loader}; concurrent misses for one id share a single load.
+     * A {@code null} result (payment not found) is not cached, because a journaled payment can appear later.
+     */
+    public RenderedPaymentView get(UUID paymentId, Function<UUID, RenderedPaymentView> loader) {
+        return cache.get(paymentId, loader);
+    }
+
+    /**
+     * Evicts the view now and, inside a transaction, again once it completes: a read between the two evictions
+     * could otherwise cache the pre-commit row until the TTL expires.
+     */
+    public void invalidate(UUID paymentId) {
+        cache.invalidate(paymentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(paymentId);
+                }
+            });
+        }
+    }
+
+    /** {@link #invalidate} for many payments, with one completion callback for all of them. */
+    public void invalidateAll(Collection<UUID> paymentIds) {
+        if (paymentIds.isEmpty()) {
+            return;
+        }
+        cache.invalidateAll(paymentIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            List<UUID> evicted = List.copyOf(paymentIds);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidateAll(evicted);
+                }
+            });
+        }
+    }
+
+    void cleanUp() {
+        cache.cleanUp();
+    }
+
+    /** Exposes hit/miss/eviction counters and size as {@code cache.*} meters tagged {@code cache=payment-view}. */
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache, "payment-view");
+    }
+}
@@ -0,0 +1,24 @@
+package com.ezycollect.server.payments.application.view;
+
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA entity listener on {@link PaymentEntity} that evicts cached views of updated and deleted payments. Hibernate
+ * obtains it from the Spring context, so it shares the application's {@link PaymentViewCache}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PaymentViewInvalidator {
+
+    private final PaymentViewCache paymentViewCache;
+
+    @PostUpdate
+    @PostRemove
+    void paymentChanged(PaymentEntity payment) {
+        paymentViewCache.invalidate(payment.getId());
+    }
+}
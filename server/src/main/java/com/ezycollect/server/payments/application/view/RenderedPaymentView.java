@@ -0,0 +1,5 @@
+package com.ezycollect.server.payments.application.view;
+
+/** A payment view serialized once: the JSON response body and its strong, quoted ETag. */
+public record RenderedPaymentView(byte[] json, String etag) {
+}
@@ -0,0 +1,12 @@
+package com.ezycollect.server.payments.domain;
+
+import java.util.UUID;
+
+/** The stored card number of one payment: ciphertext, IV and the id of the key that encrypted it. */
+public record CardNumberCiphertext(
+        UUID paymentId,
+        String keyId,
+        byte[] iv,
+        byte[] ciphertext
+) {
+}
@@ -0,0 +1,139 @@
+package com.ezycollect.server.payments.domain;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Card number columns of {@code payments} and the {@code card_number_reencryption} cursor used to move them onto a new
+ * key. Payments are walked in primary key order; rows are read without locks because only re-encryption rewrites
+ * these columns, and every update is guarded so a row already on the target key is left alone.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardNumberReencryptionRepository {
+
+    private static final byte[] BEFORE_FIRST_PAYMENT = new byte[16];
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Creates the cursor of the re-encryption onto {@code targetKeyId} unless it exists. Call outside the chunk
+     * transactions: the shared lock {@code INSERT IGNORE} takes on an existing row, upgraded by a later
+     * {@code FOR UPDATE} in the same transaction, would deadlock instances working through the same cursor.
+     */
+    public void createCursor(String targetKeyId, Instant now) {
+        jdbcTemplate.update(
+                "INSERT IGNORE INTO card_number_reencryption (target_key_id, started_at) VALUES (?, ?)",
+                targetKeyId,
+                Timestamp.from(now));
+    }
+
+    /**
+     * Locks the cursor created by {@link #createCursor}; call in a transaction. Instances holding the lock in turn
+     * never process the same chunk twice.
+     */
+    public ReencryptionCursor lockCursor(String targetKeyId) {
+        return jdbcTemplate.queryForObject(
+                """
+                SELECT target_key_id, last_payment_id, scanned_rows, reencrypted_rows, started_at, completed_at
+                FROM card_number_reencryption
+                WHERE target_key_id = ?
+                FOR UPDATE
+                """,
+                (rs, rowNum) -> cursor(rs),
+                targetKeyId);
+    }
+
+    public Optional<ReencryptionCursor> findCursor(String targetKeyId) {
+        return jdbcTemplate.query(
+                """
+                SELECT target_key_id, last_payment_id, scanned_rows, reencrypted_rows, started_at, completed_at
+                FROM card_number_reencryption
+                WHERE target_key_id = ?
+                """,
+                (rs, rowNum) -> cursor(rs),
+                targetKeyId).stream().findFirst();
+    }
+
+    /** Reads the card numbers of the next {@code limit} payments after {@code lastPaymentId} (null for the start). */
+    public List<CardNumberCiphertext> readAfter(byte[] lastPaymentId, int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT id, card_number_key_id, card_number_iv, card_number_ciphertext
+                FROM payments
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """,
+                (rs, rowNum) -> new CardNumberCiphertext(
+                        PaymentIds.fromBytes(rs.getBytes("id")),
+                        rs.getString("card_number_key_id"),
+                        rs.getBytes("card_number_iv"),
+                        rs.getBytes("card_number_ciphertext")),
+                lastPaymentId == null ? BEFORE_FIRST_PAYMENT : lastPaymentId,
+                limit);
+    }
+
+    /**
+     * Writes re-encrypted card numbers as one JDBC batch, skipping rows that are already on their key; returns the
+     * number of rows changed.
+     */
+    public int updateAll(List<CardNumberCiphertext> cardNumbers) {
+        if (cardNumbers.isEmpty()) {
+            return 0;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                """
+                UPDATE payments
+                SET card_number_key_id = ?, card_number_iv = ?, card_number_ciphertext = ?
+                WHERE id = ? AND card_number_key_id <> ?
+                """,
+                cardNumbers,
+                cardNumbers.size(),
+                (ps, cardNumber) -> {
+                    ps.setString(1, cardNumber.keyId());
+                    ps.setBytes(2, cardNumber.iv());
+                    ps.setBytes(3, cardNumber.ciphertext());
+                    ps.setBytes(4, PaymentIds.toBytes(cardNumber.paymentId()));
+                    ps.setString(5, cardNumber.keyId());
+                })[0];
+        // Connector/J may report SUCCESS_NO_INFO for statements it rewrote into a multi-statement batch.
+        return Arrays.stream(counts).map(count -> count == Statement.SUCCESS_NO_INFO ? 1 : count).sum();
+    }
+
+    /** Moves the cursor past a processed chunk; call in the transaction that locked it. */
+    public void advance(String targetKeyId, byte[] lastPaymentId, int scannedRows, int reencryptedRows, Instant completedAt) {
+        jdbcTemplate.update(
+                """
+                UPDATE card_number_reencryption
+                SET last_payment_id = ?, scanned_rows = scanned_rows + ?, reencrypted_rows = reencrypted_rows + ?,
+                    completed_at = ?
+                WHERE target_key_id = ?
+                """,
+                lastPaymentId,
+                scannedRows,
+                reencryptedRows,
+                completedAt == null ? null : Timestamp.from(completedAt),
+                targetKeyId);
+    }
+
+    private static ReencryptionCursor cursor(ResultSet rs) throws SQLException {
+        Timestamp completedAt = rs.getTimestamp("completed_at");
+        return new ReencryptionCursor(
+                rs.getString("target_key_id"),
+                rs.getBytes("last_payment_id"),
+                rs.getLong("scanned_rows"),
+                rs.getLong("reencrypted_rows"),
+                rs.getTimestamp("started_at").toInstant(),
+                completedAt == null ? null : completedAt.toInstant());
+    }
+}
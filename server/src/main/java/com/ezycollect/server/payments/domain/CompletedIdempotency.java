@@ -0,0 +1,14 @@
+package com.ezycollect.server.payments.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record CompletedIdempotency(
+        String idempotencyKey,
+        String requestHash,
+        UUID paymentId,
+        int responseStatus,
+        byte[] responseBody,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,12 @@
+package com.ezycollect.server.payments.domain;
+
+public record IdempotencyClaim(
+        IdempotencyClaimOutcome outcome,
+        String storedRequestHash,
+        Integer responseStatus,
+        byte[] responseBody
+) {
+    public static IdempotencyClaim claimed(String requestHash) {
+        return new IdempotencyClaim(IdempotencyClaimOutcome.NEW, requestHash, null, null);
+    }
+}
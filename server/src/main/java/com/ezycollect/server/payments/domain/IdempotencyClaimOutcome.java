@@ -0,0 +1,12 @@
+package com.ezycollect.server.payments.domain;
+
+public enum IdempotencyClaimOutcome {
+    /** The key was unused and is now claimed by the caller. */
+    NEW,
+    /** The key was completed earlier with the same request hash; the stored response can be replayed. */
+    REPLAY,
+    /** The key was used earlier with a different request hash. */
+    CONFLICT,
+    /** The key is claimed with the same request hash but the original request has not completed yet. */
+    IN_PROGRESS
+}
@@ -0,0 +1,44 @@
+package com.ezycollect.server.payments.domain;
+
+import com.ezycollect.server.shared.concurrency.BoundedPool;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Storage encoding of idempotency columns: rows are keyed by the SHA-256 of the client's Idempotency-Key (UTF-8),
+ * and request hashes are stored as their 32 raw bytes instead of 64 hex characters.
+ */
+public final class IdempotencyStorageEncoding {
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final BoundedPool<MessageDigest> SHA_256 = new BoundedPool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 algorithm is unavailable", ex);
+        }
+    });
+
+    private IdempotencyStorageEncoding() {
+    }
+
+    public static byte[] keyDigest(String idempotencyKey) {
+        MessageDigest digest = SHA_256.acquire();
+        try {
+            return digest.digest(idempotencyKey.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            SHA_256.release(digest);
+        }
+    }
+
+    /** Raw bytes of a lowercase hex request hash as produced by {@code PaymentRequestHashService}. */
+    public static byte[] requestHashBytes(String requestHash) {
+        return HEX.parseHex(requestHash);
+    }
+
+    public static String requestHashHex(byte[] requestHash) {
+        return HEX.formatHex(requestHash);
+    }
+}
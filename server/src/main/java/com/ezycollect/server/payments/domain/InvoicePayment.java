@@ -0,0 +1,11 @@
+package com.ezycollect.server.payments.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public record InvoicePayment(
+        UUID paymentId,
+        PaymentStatus status,
+        Instant createdAt
+) {
+}
@@ -0,0 +1,17 @@
+package com.ezycollect.server.payments.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * A row of {@code payment_outbox}: an event about one payment with its JSON payload as UTF-8 bytes. {@code id} is
+ * assigned by the database and ignored on insert.
+ */
+public record OutboxEvent(
+        long id,
+        String eventType,
+        UUID paymentId,
+        byte[] payload,
+        Instant createdAt
+) {
+}
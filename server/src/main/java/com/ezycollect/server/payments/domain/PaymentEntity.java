@@ -1,25 +1,33 @@
 package com.ezycollect.server.payments.domain;
 
+import com.ezycollect.server.payments.application.view.PaymentViewInvalidator;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.Id;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import java.time.Instant;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
 @Table(name = "payments")
+@EntityListeners(PaymentViewInvalidator.class)
 @Getter
 @Setter
 public class PaymentEntity {
 
+    /** Time-ordered UUIDv7 from {@link PaymentIds}, stored as {@code BINARY(16)}. */
     @Id
-    @Column(length = 36, nullable = false, updatable = false)
-    private String id;
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(nullable = false, updatable = false, columnDefinition = "BINARY(16)")
+    private UUID id;
 
     @Column(nullable = false, length = 100)
     private String firstName;
@@ -41,6 +49,9 @@ public class PaymentEntity {
     @Column(nullable = false, columnDefinition = "BINARY(12)")
     private byte[] cardNumberIv;
 
+    @Column(nullable = false, length = 32)
+    private String cardNumberKeyId;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 32)
     private PaymentStatus status;
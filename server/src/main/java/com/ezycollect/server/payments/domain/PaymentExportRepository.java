@@ -0,0 +1,125 @@
+package com.ezycollect.server.payments.domain;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import javax.sql.DataSource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Streaming reads of {@code payments} for the NDJSON export and settlement files, in {@code (created_at, id)} keyset
+ * order over {@code idx_payments_created_at_id}.
+ *
+ * <p>On MySQL the fetch size is {@link Integer#MIN_VALUE}, which makes Connector/J stream rows from the server one at a
+ * time instead of buffering the whole result set; other databases (H2 for local benchmarks) use their default
+ * fetching. Each call reads one bounded page, so no query holds a connection or an InnoDB read view for the whole
+ * export.
+ */
+@Repository
+public class PaymentExportRepository {
+
+    private static final int MYSQL_STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    public PaymentExportRepository(DataSource dataSource) {
+        this.streamingJdbcTemplate = new JdbcTemplate(dataSource);
+        if (isMySql(dataSource)) {
+            streamingJdbcTemplate.setFetchSize(MYSQL_STREAMING_FETCH_SIZE);
+        }
+    }
+
+    /** Keyset position of an existing payment, used to resume an export after it. */
+    public Optional<ExportCursor> cursorOf(UUID paymentId) {
+        return streamingJdbcTemplate.query(
+                        "SELECT created_at FROM payments WHERE id = ?",
+                        (rs, rowNum) -> new ExportCursor(rs.getTimestamp("created_at").toInstant(), paymentId),
+                        (Object) PaymentIds.toBytes(paymentId))
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Streams up to {@code limit} payments created in {@code [from, to)} and ordered after {@code after} to
+     * {@code consumer}, one row at a time; the card number ciphertext is not read. Returns the number of rows.
+     */
+    public int streamPage(Instant from, Instant to, ExportCursor after, int limit, Consumer<PaymentEntity> consumer) {
+        return streamPage("id, first_name, last_name, card_last4, invoice_ids_json, status, created_at",
+                from, to, after, limit, rs -> {
+                    PaymentEntity payment = new PaymentEntity();
+                    payment.setId(PaymentIds.fromBytes(rs.getBytes("id")));
+                    payment.setFirstName(rs.getString("first_name"));
+                    payment.setLastName(rs.getString("last_name"));
+                    payment.setCardLast4(rs.getString("card_last4"));
+                    payment.setInvoiceIdsJson(rs.getString("invoice_ids_json"));
+                    payment.setStatus(PaymentStatus.valueOf(rs.getString("status")));
+                    payment.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+                    consumer.accept(payment);
+                });
+    }
+
+    /**
+     * Like {@link #streamPage(Instant, Instant, ExportCursor, int, Consumer)}, but streams only the encrypted card
+     * number of each payment, for settlement files.
+     */
+    public int streamCardNumbers(
+            Instant from, Instant to, ExportCursor after, int limit, Consumer<SettlementCardNumber> consumer) {
+        return streamPage("id, created_at, card_number_key_id, card_number_iv, card_number_ciphertext",
+                from, to, after, limit, rs -> consumer.accept(new SettlementCardNumber(
+                        PaymentIds.fromBytes(rs.getBytes("id")),
+                        rs.getTimestamp("created_at").toInstant(),
+                        rs.getString("card_number_key_id"),
+                        rs.getBytes("card_number_iv"),
+                        rs.getBytes("card_number_ciphertext"))));
+    }
+
+    private int streamPage(
+            String columns, Instant from, Instant to, ExportCursor after, int limit, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder("""
+                SELECT %s
+                FROM payments
+                WHERE created_at < ?
+                """.formatted(columns));
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.from(to));
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(from));
+        }
+        if (after != null) {
+            sql.append(" AND (created_at, id) > (?, ?)");
+            args.add(Timestamp.from(after.createdAt()));
+            args.add(PaymentIds.toBytes(after.paymentId()));
+        }
+        sql.append(" ORDER BY created_at, id LIMIT ?");
+        args.add(limit);
+
+        int[] rows = {0};
+        streamingJdbcTemplate.query(sql.toString(), rs -> {
+            handler.processRow(rs);
+            rows[0]++;
+        }, args.toArray());
+        return rows[0];
+    }
+
+    private static boolean isMySql(DataSource dataSource) {
+        try {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            return "MySQL".equalsIgnoreCase(product);
+        } catch (MetaDataAccessException ex) {
+            throw new IllegalStateException("Failed to read database product name", ex);
+        }
+    }
+
+    public record ExportCursor(Instant createdAt, UUID paymentId) {
+    }
+}
@@ -1,28 +1,234 @@
 package com.ezycollect.server.payments.domain;
 
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
-import lombok.RequiredArgsConstructor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+/**
+ * Rows are keyed by the 32-byte SHA-256 of the Idempotency-Key and store the request hash as raw bytes (see
+ * {@link IdempotencyStorageEncoding}); callers keep working with the key and the hex request hash. The original key is
+ * kept in a non-indexed column. Keys still in the pre-V7 legacy table are moved over before they are read or claimed.
+ *
+ * <p>Idempotency records expire {@code payments.idempotency.retention} after creation. Expired rows are invisible to
+ * lookups and are replaced when their key is claimed again, so correctness does not depend on how far behind
+ * {@link #purgeExpired} is.
+ */
 @Repository
-@RequiredArgsConstructor
 public class PaymentIdempotencyClaimRepository {
 
+    public static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
+    private static final RowMapper<StoredIdempotency> STORED_IDEMPOTENCY_ROW_MAPPER = (rs, rowNum) -> new StoredIdempotency(
+            rs.getString("idempotency_key"),
+            IdempotencyStorageEncoding.requestHashHex(rs.getBytes("request_hash")),
+            rs.getObject("response_status", Integer.class),
+            rs.getBytes("response_body"));
+
     private final JdbcTemplate jdbcTemplate;
+    private final PaymentIdempotencyLegacyRepository legacyRepository;
+    private final Duration retention;
 
-    public void insertClaim(String idempotencyKey, String requestHash, Instant now) {
-        jdbcTemplate.update(
+    public PaymentIdempotencyClaimRepository(
+            JdbcTemplate jdbcTemplate,
+            PaymentIdempotencyLegacyRepository legacyRepository,
+            @Value("${payments.idempotency.retention:24h}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.legacyRepository = legacyRepository;
+        this.retention = retention;
+    }
+
+    /**
+     * Claims the key without using a duplicate-key exception as control flow.
+     * A fresh key costs one INSERT IGNORE round trip; an existing key adds one primary-key SELECT on the same
+     * connection (MySQL has no INSERT ... RETURNING). INSERT IGNORE would silently truncate over-long keys, so
+     * callers must reject keys longer than {@link #MAX_IDEMPOTENCY_KEY_LENGTH} before claiming.
+     */
+    public IdempotencyClaim claim(String idempotencyKey, String requestHash, Instant now) {
+        byte[] keyDigest = IdempotencyStorageEncoding.keyDigest(idempotencyKey);
+        legacyRepository.moveKeys(List.of(idempotencyKey));
+        if (insertClaim(keyDigest, idempotencyKey, requestHash, now)) {
+            return IdempotencyClaim.claimed(requestHash);
+        }
+
+        Optional<StoredIdempotency> existing = findUnexpired(keyDigest);
+        if (existing.isEmpty()) {
+            // Only an expired record the purger has not reached yet holds a key without being visible to find.
+            deleteExpiredDigests(List.of(keyDigest));
+            if (insertClaim(keyDigest, idempotencyKey, requestHash, now)) {
+                return IdempotencyClaim.claimed(requestHash);
+            }
+            existing = findUnexpired(keyDigest);
+        }
+
+        return existing
+                .map(stored -> stored.toClaim(requestHash))
+                .orElseThrow(() -> new IllegalStateException("Idempotency record lookup failed after ignored insert"));
+    }
+
+    private boolean insertClaim(byte[] keyDigest, String idempotencyKey, String requestHash, Instant now) {
+        return jdbcTemplate.update(
                 """
-                INSERT INTO payment_idempotency (
-                  idempotency_key, request_hash, created_at, updated_at
-                ) VALUES (?, ?, ?, ?)
+                INSERT IGNORE INTO payment_idempotency (
+                  key_digest, idempotency_key, request_hash, created_at, updated_at
+                ) VALUES (?, ?, ?, ?, ?)
                 """,
+                keyDigest,
                 idempotencyKey,
-                requestHash,
+                IdempotencyStorageEncoding.requestHashBytes(requestHash),
                 Timestamp.from(now),
-                Timestamp.from(now));
+                Timestamp.from(now)) == 1;
+    }
+
+    /** Returns the unexpired record holding the key, if any. */
+    public Optional<StoredIdempotency> find(String idempotencyKey) {
+        legacyRepository.moveKeys(List.of(idempotencyKey));
+        return findUnexpired(IdempotencyStorageEncoding.keyDigest(idempotencyKey));
     }
-}
 
+    private Optional<StoredIdempotency> findUnexpired(byte[] keyDigest) {
+        return jdbcTemplate.query(
+                """
+                SELECT idempotency_key, request_hash, response_status, response_body
+                FROM payment_idempotency
+                WHERE key_digest = ? AND created_at >= ?
+                """,
+                STORED_IDEMPOTENCY_ROW_MAPPER,
+                keyDigest,
+                expiryCutoff()).stream().findFirst();
+    }
+
+    /** Deletes the expired records among the given keys so the keys can be inserted again; returns the count. */
+    public int deleteExpired(Collection<String> idempotencyKeys) {
+        legacyRepository.moveKeys(idempotencyKeys);
+        return deleteExpiredDigests(idempotencyKeys.stream().map(IdempotencyStorageEncoding::keyDigest).toList());
+    }
+
+    private int deleteExpiredDigests(List<byte[]> keyDigests) {
+        if (keyDigests.isEmpty()) {
+            return 0;
+        }
+        List<Object> args = new ArrayList<>(keyDigests.size() + 1);
+        args.addAll(keyDigests);
+        args.add(expiryCutoff());
+        return jdbcTemplate.update(
+                """
+                DELETE FROM payment_idempotency
+                WHERE key_digest IN (%s) AND created_at < ?
+                """.formatted(placeholders(keyDigests.size())),
+                args.toArray());
+    }
+
+    /**
+     * Deletes at most {@code limit} records created before {@code cutoff} in one short autocommit statement; the
+     * range scan on {@code idx_payment_idempotency_created_at} only locks the rows it deletes.
+     */
+    public int purgeExpired(Instant cutoff, int limit) {
+        return jdbcTemplate.update(
+                "DELETE FROM payment_idempotency WHERE created_at < ? LIMIT ?",
+                Timestamp.from(cutoff),
+                limit);
+    }
+
+    /** Creation time of the oldest record still stored, expired or not. */
+    public Optional<Instant> oldestCreatedAt() {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(created_at) FROM payment_idempotency", Timestamp.class);
+        return Optional.ofNullable(oldest).map(Timestamp::toInstant);
+    }
+
+    public Duration retention() {
+        return retention;
+    }
+
+    private Timestamp expiryCutoff() {
+        return Timestamp.from(Instant.now().minus(retention));
+    }
+
+    public void complete(String idempotencyKey, UUID paymentId, int responseStatus, byte[] responseBody, Instant now) {
+        jdbcTemplate.update(
+                """
+                UPDATE payment_idempotency
+                SET payment_id = ?, response_status = ?, response_body = ?, updated_at = ?
+                WHERE key_digest = ?
+                """,
+                PaymentIds.toBytes(paymentId),
+                responseStatus,
+                responseBody,
+                Timestamp.from(now),
+                IdempotencyStorageEncoding.keyDigest(idempotencyKey));
+    }
+
+    /**
+     * Locks the rows of the given keys until the surrounding transaction ends and returns the ones that exist.
+     * Under REPEATABLE READ the locking read also takes gap locks for the missing keys, so concurrent claims of
+     * those keys wait until the caller has inserted them with {@link #insertCompleted(List)}.
+     */
+    public Map<String, StoredIdempotency> lockExisting(Collection<String> idempotencyKeys) {
+        if (idempotencyKeys.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        legacyRepository.moveKeys(idempotencyKeys);
+        List<StoredIdempotency> rows = jdbcTemplate.query(
+                """
+                SELECT idempotency_key, request_hash, response_status, response_body
+                FROM payment_idempotency
+                WHERE key_digest IN (%s)
+                FOR UPDATE
+                """.formatted(placeholders(idempotencyKeys.size())),
+                STORED_IDEMPOTENCY_ROW_MAPPER,
+                idempotencyKeys.stream().map(IdempotencyStorageEncoding::keyDigest).toArray());
+        Map<String, StoredIdempotency> byKey = new HashMap<>(rows.size() * 2);
+        for (StoredIdempotency row : rows) {
+            byKey.put(row.idempotencyKey(), row);
+        }
+        return byKey;
+    }
+
+    /** Inserts already-completed claims as one JDBC batch (rewritten into multi-row INSERTs by Connector/J). */
+    public void insertCompleted(List<CompletedIdempotency> records) {
+        insertCompleted("INSERT", records);
+    }
+
+    /** Like {@link #insertCompleted(List)}, but keys that already exist are skipped instead of failing the batch. */
+    public void insertCompletedIfAbsent(List<CompletedIdempotency> records) {
+        insertCompleted("INSERT IGNORE", records);
+    }
+
+    private void insertCompleted(String insertVerb, List<CompletedIdempotency> records) {
+        jdbcTemplate.batchUpdate(
+                """
+                %s INTO payment_idempotency (
+                  key_digest, idempotency_key, request_hash, payment_id, response_status, response_body,
+                  created_at, updated_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """.formatted(insertVerb),
+                records,
+                records.size(),
+                (ps, record) -> {
+                    Timestamp createdAt = Timestamp.from(record.createdAt());
+                    ps.setBytes(1, IdempotencyStorageEncoding.keyDigest(record.idempotencyKey()));
+                    ps.setString(2, record.idempotencyKey());
+                    ps.setBytes(3, IdempotencyStorageEncoding.requestHashBytes(record.requestHash()));
+                    ps.setBytes(4, PaymentIds.toBytes(record.paymentId()));
+                    ps.setInt(5, record.responseStatus());
+                    ps.setBytes(6, record.responseBody());
+                    ps.setTimestamp(7, createdAt);
+                    ps.setTimestamp(8, createdAt);
+                });
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
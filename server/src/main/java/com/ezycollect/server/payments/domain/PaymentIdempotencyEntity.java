@@ -6,8 +6,11 @@ import jakarta.persistence.Id;
 import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
 import java.time.Instant;
+import java.util.UUID;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 @Entity
 @Table(name = "payment_idempotency")
@@ -15,22 +18,28 @@ import lombok.Setter;
 @Setter
 public class PaymentIdempotencyEntity {
 
+    /** SHA-256 of {@link #idempotencyKey}; see {@link IdempotencyStorageEncoding}. */
     @Id
+    @Column(name = "key_digest", nullable = false, length = 32, updatable = false)
+    private byte[] keyDigest;
+
     @Column(name = "idempotency_key", nullable = false, length = 255, updatable = false)
     private String idempotencyKey;
 
-    @Column(name = "request_hash", nullable = false, length = 64)
-    private String requestHash;
+    @Column(name = "request_hash", nullable = false, length = 32)
+    private byte[] requestHash;
 
-    @Column(name = "payment_id", length = 36)
-    private String paymentId;
+    @JdbcTypeCode(SqlTypes.BINARY)
+    @Column(name = "payment_id", columnDefinition = "BINARY(16)")
+    private UUID paymentId;
 
     @Column(name = "response_status")
     private Integer responseStatus;
 
+    /** The JSON response exactly as sent to the client (UTF-8), replayed without parsing. */
     @Lob
     @Column(name = "response_body")
-    private String responseBody;
+    private byte[] responseBody;
 
     @Column(name = "created_at", nullable = false)
     private Instant createdAt;
@@ -0,0 +1,163 @@
+package com.ezycollect.server.payments.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Rows written before V7 sit in {@code payment_idempotency_legacy} (VARCHAR key, hex request hash) until they are
+ * moved into the binary {@code payment_idempotency} table, either in bulk by the background backfill or one key at a
+ * time when a request touches a key that has not been moved yet.
+ *
+ * <p>A request only needs its key moved while the legacy row is still unexpired: expired records are invisible to
+ * lookups and replaced on claim, and the backfill's INSERT IGNORE skips a legacy row whose key was claimed again. The
+ * backfill therefore moves the newest rows first and, after each batch, records when the newest remaining row expires.
+ * From then on, and once the legacy table is empty, {@link #moveKeys} returns without a database round trip, so the
+ * per-request locking read only lasts until the backfill has moved the unexpired rows.
+ */
+@Repository
+public class PaymentIdempotencyLegacyRepository {
+
+    private static final RowMapper<LegacyRow> LEGACY_ROW_MAPPER = (rs, rowNum) -> new LegacyRow(
+            rs.getString("idempotency_key"),
+            rs.getString("request_hash"),
+            Optional.ofNullable(rs.getString("payment_id")).map(UUID::fromString).orElse(null),
+            rs.getObject("response_status", Integer.class),
+            Optional.ofNullable(rs.getString("response_body"))
+                    .map(body -> body.getBytes(StandardCharsets.UTF_8))
+                    .orElse(null),
+            rs.getTimestamp("created_at"),
+            rs.getTimestamp("updated_at"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+    private volatile boolean drained;
+    /** When the newest legacy row still present expires; requests skip the legacy table from then on. */
+    private volatile Instant liveUntil;
+
+    public PaymentIdempotencyLegacyRepository(
+            JdbcTemplate jdbcTemplate,
+            @Value("${payments.idempotency.retention:24h}") Duration retention) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = retention;
+        refreshLiveUntil();
+    }
+
+    public boolean drained() {
+        return drained;
+    }
+
+    /** Moves the unexpired legacy rows of the given keys, if any, so a following claim or lookup sees them. */
+    public void moveKeys(Collection<String> idempotencyKeys) {
+        if (drained || idempotencyKeys.isEmpty() || !Instant.now().isBefore(liveUntil)) {
+            return;
+        }
+        // A locking read does not open a REPEATABLE READ snapshot, so the caller's later reads still see rows
+        // committed by a concurrent claim of the same key.
+        move(jdbcTemplate.query(
+                """
+                SELECT idempotency_key, request_hash, payment_id, response_status, response_body, created_at, updated_at
+                FROM payment_idempotency_legacy
+                WHERE idempotency_key IN (%s)
+                FOR UPDATE
+                """.formatted(placeholders(idempotencyKeys.size())),
+                LEGACY_ROW_MAPPER,
+                idempotencyKeys.toArray()));
+    }
+
+    /** Moves up to {@code limit} rows, newest first; returns how many were moved. */
+    public int moveBatch(int limit) {
+        if (drained) {
+            return 0;
+        }
+        List<LegacyRow> rows = jdbcTemplate.query(
+                """
+                SELECT idempotency_key, request_hash, payment_id, response_status, response_body, created_at, updated_at
+                FROM payment_idempotency_legacy
+                ORDER BY created_at DESC
+                LIMIT ?
+                FOR UPDATE
+                """,
+                LEGACY_ROW_MAPPER,
+                limit);
+        if (rows.isEmpty()) {
+            drained = true;
+        }
+        move(rows);
+        return rows.size();
+    }
+
+    private void move(List<LegacyRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                """
+                INSERT IGNORE INTO payment_idempotency (
+                  key_digest, idempotency_key, request_hash, payment_id, response_status, response_body,
+                  created_at, updated_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?)
+                """,
+                rows,
+                rows.size(),
+                (ps, row) -> {
+                    ps.setBytes(1, IdempotencyStorageEncoding.keyDigest(row.idempotencyKey()));
+                    ps.setString(2, row.idempotencyKey());
+                    ps.setBytes(3, IdempotencyStorageEncoding.requestHashBytes(row.requestHash()));
+                    ps.setBytes(4, row.paymentId() == null ? null : PaymentIds.toBytes(row.paymentId()));
+                    ps.setObject(5, row.responseStatus(), Types.INTEGER);
+                    ps.setBytes(6, row.responseBody());
+                    ps.setTimestamp(7, row.createdAt());
+                    ps.setTimestamp(8, row.updatedAt());
+                });
+        jdbcTemplate.update(
+                "DELETE FROM payment_idempotency_legacy WHERE idempotency_key IN (%s)".formatted(placeholders(rows.size())),
+                rows.stream().map(LegacyRow::idempotencyKey).toArray());
+    }
+
+    /**
+     * Re-reads when the newest remaining legacy row expires. Call it after a {@link #moveBatch} transaction commits, so a
+     * rolled-back batch never lets requests skip rows that are still in the legacy table.
+     */
+    public void refreshLiveUntil() {
+        Optional<Instant> newest;
+        try {
+            // Reads the last entry of idx_payment_idempotency_created_at, which the renamed table kept.
+            newest = Optional.ofNullable(jdbcTemplate.queryForObject(
+                            "SELECT MAX(created_at) FROM payment_idempotency_legacy", Timestamp.class))
+                    .map(Timestamp::toInstant);
+        } catch (DataAccessException ex) {
+            // The legacy table has been dropped.
+            newest = Optional.empty();
+        }
+        liveUntil = newest.map(createdAt -> createdAt.plus(retention)).orElse(Instant.MIN);
+        drained = newest.isEmpty();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private record LegacyRow(
+            String idempotencyKey,
+            String requestHash,
+            UUID paymentId,
+            Integer responseStatus,
+            byte[] responseBody,
+            Timestamp createdAt,
+            Timestamp updatedAt
+    ) {
+    }
+}
@@ -2,6 +2,6 @@ package com.ezycollect.server.payments.domain;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface PaymentIdempotencyRepository extends JpaRepository<PaymentIdempotencyEntity, String> {
+public interface PaymentIdempotencyRepository extends JpaRepository<PaymentIdempotencyEntity, byte[]> {
 }
 
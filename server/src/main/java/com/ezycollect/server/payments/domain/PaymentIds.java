@@ -0,0 +1,97 @@
+package com.ezycollect.server.payments.domain;
+
+import com.ezycollect.server.shared.concurrency.BoundedPool;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Payment identifiers: RFC 9562 UUIDv7 values, stored as {@code BINARY(16)} and exposed in their canonical string form.
+ *
+ * <p>The 48-bit Unix millisecond timestamp leads, so new payments are appended at the right edge of the InnoDB
+ * clustered index instead of splitting random pages. The timestamp and a 12-bit counter in {@code rand_a} (RFC 9562
+ * method 1) are one instance-wide value advanced with a compare-and-set: the counter restarts at a random value every
+ * millisecond, so ids from this instance are strictly increasing whichever thread draws them. The 62 random bits of
+ * {@code rand_b} come from {@code SHA1PRNG} generators seeded once from the shared {@link SecureRandom} and kept in a
+ * {@link BoundedPool} rather than per thread, so a new virtual thread per request does not seed a new generator.
+ */
+public final class PaymentIds {
+
+    private static final int SEED_BYTES = 32;
+    private static final int COUNTER_BITS = 12;
+    private static final int COUNTER_MAX = (1 << COUNTER_BITS) - 1;
+    private static final long VERSION_7 = 0x7L << COUNTER_BITS;
+    private static final long VARIANT_RFC_9562 = 0x8000_0000_0000_0000L;
+    private static final long RAND_B_MASK = 0x3FFF_FFFF_FFFF_FFFFL;
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+    private static final BoundedPool<SecureRandom> GENERATORS = new BoundedPool<>(PaymentIds::newGenerator);
+    /** Milliseconds of the last id shifted left by {@link #COUNTER_BITS}, plus its counter. */
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    private PaymentIds() {
+    }
+
+    public static UUID next() {
+        SecureRandom random = GENERATORS.acquire();
+        try {
+            long timestampAndCounter = nextTimestampAndCounter(random);
+            long mostSignificant = ((timestampAndCounter >>> COUNTER_BITS) << 16)
+                    | VERSION_7
+                    | (timestampAndCounter & COUNTER_MAX);
+            long leastSignificant = VARIANT_RFC_9562 | (random.nextLong() & RAND_B_MASK);
+            return new UUID(mostSignificant, leastSignificant);
+        } finally {
+            GENERATORS.release(random);
+        }
+    }
+
+    public static byte[] toBytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        if (bytes.length != 16) {
+            throw new IllegalArgumentException("Payment id must be 16 bytes, got " + bytes.length);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static long nextTimestampAndCounter(SecureRandom random) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            long last = LAST_TIMESTAMP_AND_COUNTER.get();
+            long next;
+            if (now > last >>> COUNTER_BITS) {
+                // Start in the lower half so a millisecond has at least 2048 ids before it borrows the next one.
+                next = (now << COUNTER_BITS) | random.nextInt(COUNTER_MAX >> 1);
+            } else {
+                // Same millisecond, or the clock stepped back: count up, carrying into the next millisecond when full.
+                next = last + 1;
+            }
+            if (LAST_TIMESTAMP_AND_COUNTER.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    private static SecureRandom newGenerator() {
+        SecureRandom random;
+        try {
+            random = SecureRandom.getInstance("SHA1PRNG");
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("SHA1PRNG is unavailable", ex);
+        }
+        // Seeding before the first use replaces, rather than supplements, SHA1PRNG's own seeding.
+        byte[] seed = new byte[SEED_BYTES];
+        SECURE_RANDOM.nextBytes(seed);
+        random.setSeed(seed);
+        return random;
+    }
+}
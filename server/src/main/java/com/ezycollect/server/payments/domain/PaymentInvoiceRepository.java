@@ -0,0 +1,150 @@
+package com.ezycollect.server.payments.domain;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@code payment_invoices}: one row per invoice a payment covers, derived from {@code payments.invoice_ids_json}
+ * wherever payments are written (single create, batch, journal flush) and by the backfill for older payments.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentInvoiceRepository {
+
+    private static final TypeReference<List<String>> INVOICE_IDS = new TypeReference<>() {
+    };
+
+    private static final RowMapper<InvoicePayment> INVOICE_PAYMENT_ROW_MAPPER = (rs, rowNum) -> new InvoicePayment(
+            PaymentIds.fromBytes(rs.getBytes("id")),
+            PaymentStatus.valueOf(rs.getString("status")),
+            rs.getTimestamp("created_at").toInstant());
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /** Indexes the invoices of the given payments; rows that already exist are skipped. */
+    public void insertFor(List<PaymentEntity> payments) {
+        List<Object[]> rows = new ArrayList<>();
+        for (PaymentEntity payment : payments) {
+            byte[] paymentId = PaymentIds.toBytes(payment.getId());
+            Timestamp createdAt = Timestamp.from(payment.getCreatedAt());
+            for (String invoiceId : invoiceIds(payment.getInvoiceIdsJson())) {
+                rows.add(new Object[] {invoiceId, paymentId, createdAt});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(
+                    "INSERT IGNORE INTO payment_invoices (invoice_id, payment_id, created_at) VALUES (?, ?, ?)",
+                    rows);
+        }
+    }
+
+    /**
+     * Returns the given invoice ids that already have a payment. Inside a transaction the locking read also holds
+     * the gaps of unpaid invoices until commit, so concurrent payments of the same invoice serialize on this check
+     * (or deadlock, and the loser can be retried).
+     */
+    public Set<String> lockPaid(Collection<String> invoiceIds) {
+        if (invoiceIds.isEmpty()) {
+            return Set.of();
+        }
+        return new HashSet<>(jdbcTemplate.queryForList(
+                """
+                SELECT invoice_id
+                FROM payment_invoices
+                WHERE invoice_id IN (%s)
+                FOR UPDATE
+                """.formatted(placeholders(invoiceIds.size())),
+                String.class,
+                invoiceIds.toArray()));
+    }
+
+    /** One keyset page of the payments covering {@code invoiceId}, ordered by payment id. */
+    public List<InvoicePayment> findPayments(String invoiceId, UUID afterPaymentId, int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT p.id, p.status, p.created_at
+                FROM payment_invoices pi
+                JOIN payments p ON p.id = pi.payment_id
+                WHERE pi.invoice_id = ? AND pi.payment_id > ?
+                ORDER BY pi.payment_id
+                LIMIT ?
+                """,
+                INVOICE_PAYMENT_ROW_MAPPER,
+                invoiceId,
+                afterPaymentId == null ? new byte[16] : PaymentIds.toBytes(afterPaymentId),
+                limit);
+    }
+
+    /**
+     * Indexes the next {@code limit} payments after the backfill cursor and advances it; call in a transaction. The
+     * cursor row is locked for the duration, so instances running the backfill concurrently take turns instead of
+     * repeating each other's batches. Returns the number of payments read; fewer than {@code limit} means the
+     * backfill is complete.
+     */
+    public int backfillBatch(int limit) {
+        BackfillCursor cursor = jdbcTemplate.queryForObject(
+                "SELECT last_payment_id, completed_at FROM payment_invoices_backfill WHERE id = 1 FOR UPDATE",
+                (rs, rowNum) -> new BackfillCursor(rs.getBytes("last_payment_id"), rs.getTimestamp("completed_at")));
+        if (cursor.completedAt() != null) {
+            return 0;
+        }
+
+        List<PaymentEntity> payments = jdbcTemplate.query(
+                """
+                SELECT id, invoice_ids_json, created_at
+                FROM payments
+                WHERE id > ?
+                ORDER BY id
+                LIMIT ?
+                """,
+                (rs, rowNum) -> {
+                    PaymentEntity payment = new PaymentEntity();
+                    payment.setId(PaymentIds.fromBytes(rs.getBytes("id")));
+                    payment.setInvoiceIdsJson(rs.getString("invoice_ids_json"));
+                    payment.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+                    return payment;
+                },
+                cursor.lastPaymentId() == null ? new byte[16] : cursor.lastPaymentId(),
+                limit);
+        insertFor(payments);
+
+        byte[] lastPaymentId = payments.isEmpty()
+                ? cursor.lastPaymentId()
+                : PaymentIds.toBytes(payments.get(payments.size() - 1).getId());
+        jdbcTemplate.update(
+                "UPDATE payment_invoices_backfill SET last_payment_id = ?, completed_at = ? WHERE id = 1",
+                lastPaymentId,
+                payments.size() < limit ? Timestamp.from(Instant.now()) : null);
+        return payments.size();
+    }
+
+    private List<String> invoiceIds(String invoiceIdsJson) {
+        try {
+            return objectMapper.readValue(invoiceIdsJson, INVOICE_IDS);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to parse stored invoice IDs", ex);
+        }
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private record BackfillCursor(byte[] lastPaymentId, Timestamp completedAt) {
+    }
+}
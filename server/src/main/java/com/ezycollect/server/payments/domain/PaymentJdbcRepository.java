@@ -0,0 +1,109 @@
+package com.ezycollect.server.payments.domain;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * JDBC access to {@code payments} for bulk paths where a JPA persist/merge per row is too expensive.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentJdbcRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public void insertAll(List<PaymentEntity> payments) {
+        insertAll("INSERT", payments);
+    }
+
+    /** Skips rows whose id already exists, so a replayed write-ahead journal batch can be applied again safely. */
+    public void insertAllIfAbsent(List<PaymentEntity> payments) {
+        insertAll("INSERT IGNORE", payments);
+    }
+
+    /**
+     * Applies the changes in order as one JDBC batch of conditional updates. Each row moves only if its status is
+     * still one of the transition's sources when the update runs, so two racing changes of one payment cannot both
+     * apply and no row is read or locked beforehand. Returns the rows changed per entry: 1 if applied, 0 if the
+     * payment is missing or in another status.
+     */
+    public int[] transitionAll(List<PaymentStatusChange> changes) {
+        if (changes.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(
+                "UPDATE payments SET status = ? WHERE id = ? AND status IN (%s)".formatted(placeholders(PaymentTransition.MAX_SOURCES)),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        PaymentTransition transition = changes.get(i).transition();
+                        ps.setString(1, transition.target().name());
+                        ps.setBytes(2, PaymentIds.toBytes(changes.get(i).paymentId()));
+                        List<PaymentStatus> sources = transition.sources();
+                        for (int source = 0; source < PaymentTransition.MAX_SOURCES; source++) {
+                            // Unused slots repeat the first source, so every entry shares the same statement.
+                            ps.setString(3 + source, sources.get(source < sources.size() ? source : 0).name());
+                        }
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return changes.size();
+                    }
+                });
+    }
+
+    /** Current status of each given payment that exists. */
+    public Map<UUID, PaymentStatus> findStatuses(Collection<UUID> paymentIds) {
+        Map<UUID, PaymentStatus> statuses = new HashMap<>();
+        if (paymentIds.isEmpty()) {
+            return statuses;
+        }
+        jdbcTemplate.query(
+                "SELECT id, status FROM payments WHERE id IN (%s)".formatted(placeholders(paymentIds.size())),
+                rs -> {
+                    statuses.put(PaymentIds.fromBytes(rs.getBytes("id")), PaymentStatus.valueOf(rs.getString("status")));
+                },
+                paymentIds.stream().map(PaymentIds::toBytes).toArray());
+        return statuses;
+    }
+
+    private void insertAll(String insertVerb, List<PaymentEntity> payments) {
+        jdbcTemplate.batchUpdate(
+                """
+                %s INTO payments (
+                  id, first_name, last_name, card_last4, invoice_ids_json,
+                  card_number_ciphertext, card_number_iv, card_number_key_id, status, created_at
+                ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+                """.formatted(insertVerb),
+                payments,
+                payments.size(),
+                (ps, payment) -> {
+                    ps.setBytes(1, PaymentIds.toBytes(payment.getId()));
+                    ps.setString(2, payment.getFirstName());
+                    ps.setString(3, payment.getLastName());
+                    ps.setString(4, payment.getCardLast4());
+                    ps.setString(5, payment.getInvoiceIdsJson());
+                    ps.setBytes(6, payment.getCardNumberCiphertext());
+                    ps.setBytes(7, payment.getCardNumberIv());
+                    ps.setString(8, payment.getCardNumberKeyId());
+                    ps.setString(9, payment.getStatus().name());
+                    ps.setTimestamp(10, Timestamp.from(payment.getCreatedAt()));
+                });
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.ezycollect.server.payments.domain;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@code payment_outbox}: events written with the payments they describe and removed by the relay once published.
+ */
+@Repository
+@RequiredArgsConstructor
+public class PaymentOutboxRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /** Appends events in one JDBC batch; call in the transaction that writes their payments. */
+    public void insertAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO payment_outbox (event_type, payment_id, payload, created_at) VALUES (?, ?, ?, ?)",
+                events,
+                events.size(),
+                (ps, event) -> {
+                    ps.setString(1, event.eventType());
+                    ps.setBytes(2, PaymentIds.toBytes(event.paymentId()));
+                    ps.setBytes(3, event.payload());
+                    ps.setTimestamp(4, Timestamp.from(event.createdAt()));
+                });
+    }
+
+    /**
+     * Locks and returns up to {@code limit} of the oldest events that no other transaction has locked; call in a
+     * transaction. Rows claimed by a concurrent relay are skipped rather than waited for, so each event is claimed by
+     * one relay at a time.
+     */
+    public List<OutboxEvent> claim(int limit) {
+        return jdbcTemplate.query(
+                """
+                SELECT id, event_type, payment_id, payload, created_at
+                FROM payment_outbox
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """,
+                (rs, rowNum) -> new OutboxEvent(
+                        rs.getLong("id"),
+                        rs.getString("event_type"),
+                        PaymentIds.fromBytes(rs.getBytes("payment_id")),
+                        rs.getBytes("payload"),
+                        rs.getTimestamp("created_at").toInstant()),
+                limit);
+    }
+
+    /** Deletes claimed events with one statement; call in the transaction that claimed them. */
+    public int deleteAll(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(
+                "DELETE FROM payment_outbox WHERE id IN (%s)".formatted(placeholders(events.size())),
+                events.stream().map(OutboxEvent::id).toArray());
+    }
+
+    /** Creation time of the oldest event not yet deleted, claimed or not. */
+    public Optional<Instant> oldestCreatedAt() {
+        return jdbcTemplate.query(
+                        "SELECT created_at FROM payment_outbox ORDER BY id LIMIT 1",
+                        (rs, rowNum) -> rs.getTimestamp("created_at").toInstant())
+                .stream()
+                .findFirst();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+}
@@ -1,7 +1,8 @@
 package com.ezycollect.server.payments.domain;
 
+import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface PaymentRepository extends JpaRepository<PaymentEntity, String> {
+public interface PaymentRepository extends JpaRepository<PaymentEntity, UUID> {
 }
 
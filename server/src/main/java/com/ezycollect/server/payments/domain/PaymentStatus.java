@@ -1,6 +1,13 @@
 package com.ezycollect.server.payments.domain;
 
+/**
+ * Payment lifecycle. {@link PaymentTransition} lists the allowed moves: {@code CREATED -> AUTHORIZED -> CAPTURED ->
+ * REFUNDED}, and {@code CREATED} or {@code AUTHORIZED} to {@code FAILED}. {@code FAILED} and {@code REFUNDED} are final.
+ */
 public enum PaymentStatus {
-    CREATED
+    CREATED,
+    AUTHORIZED,
+    CAPTURED,
+    FAILED,
+    REFUNDED
 }
-
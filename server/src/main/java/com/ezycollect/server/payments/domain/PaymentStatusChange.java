@@ -0,0 +1,9 @@
+package com.ezycollect.server.payments.domain;
+
+import java.util.UUID;
+
+public record PaymentStatusChange(
+        UUID paymentId,
+        PaymentTransition transition
+) {
+}
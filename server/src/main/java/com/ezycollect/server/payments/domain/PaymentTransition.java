@@ -0,0 +1,34 @@
+package com.ezycollect.server.payments.domain;
+
+import java.util.List;
+
+/** A move between {@link PaymentStatus} values, allowed only from its {@link #sources()}. */
+public enum PaymentTransition {
+    AUTHORIZE(PaymentStatus.AUTHORIZED, PaymentStatus.CREATED),
+    CAPTURE(PaymentStatus.CAPTURED, PaymentStatus.AUTHORIZED),
+    FAIL(PaymentStatus.FAILED, PaymentStatus.CREATED, PaymentStatus.AUTHORIZED),
+    REFUND(PaymentStatus.REFUNDED, PaymentStatus.CAPTURED);
+
+    /** Most source statuses of any transition; the conditional update always binds this many. */
+    static final int MAX_SOURCES = 2;
+
+    private final PaymentStatus target;
+    private final List<PaymentStatus> sources;
+
+    PaymentTransition(PaymentStatus target, PaymentStatus... sources) {
+        this.target = target;
+        this.sources = List.of(sources);
+    }
+
+    public PaymentStatus target() {
+        return target;
+    }
+
+    public List<PaymentStatus> sources() {
+        return sources;
+    }
+
+    public boolean allowedFrom(PaymentStatus status) {
+        return sources.contains(status);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ezycollect.server.payments.domain;
+
+import java.time.Instant;
+
+/** Progress of re-encrypting card numbers onto {@code targetKeyId}; {@code lastPaymentId} is null before the first chunk. */
+public record ReencryptionCursor(
+        String targetKeyId,
+        byte[] lastPaymentId,
+        long scannedRows,
+        long reencryptedRows,
+        Instant startedAt,
+        Instant completedAt
+) {
+    public boolean complete() {
+        return completedAt != null;
+    }
+}
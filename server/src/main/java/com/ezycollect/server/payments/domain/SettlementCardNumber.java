@@ -0,0 +1,14 @@
+package com.ezycollect.server.payments.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/** The stored card number of one payment as read for a settlement file, with the payment's keyset position. */
+public record SettlementCardNumber(
+        UUID paymentId,
+        Instant createdAt,
+        String keyId,
+        byte[] iv,
+        byte[] ciphertext
+) {
+}
@@ -0,0 +1,39 @@
+package com.ezycollect.server.payments.domain;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+public record StoredIdempotency(
+        String idempotencyKey,
+        String requestHash,
+        Integer responseStatus,
+        byte[] responseBody
+) {
+    /** Classifies this stored record against the hash of the request that is trying to reuse its key. */
+    public IdempotencyClaim toClaim(String requestHash) {
+        IdempotencyClaimOutcome outcome;
+        if (!this.requestHash.equals(requestHash)) {
+            outcome = IdempotencyClaimOutcome.CONFLICT;
+        } else if (responseStatus == null || responseBody == null) {
+            outcome = IdempotencyClaimOutcome.IN_PROGRESS;
+        } else {
+            outcome = IdempotencyClaimOutcome.REPLAY;
+        }
+        return new IdempotencyClaim(outcome, this.requestHash, responseStatus, responseBody);
+    }
+
+    /** Compares the response body by content, so a record decoded again (e.g. from the journal) equals the original. */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof StoredIdempotency that
+                && Objects.equals(idempotencyKey, that.idempotencyKey)
+                && Objects.equals(requestHash, that.requestHash)
+                && Objects.equals(responseStatus, that.responseStatus)
+                && Arrays.equals(responseBody, that.responseBody);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(idempotencyKey, requestHash, responseStatus, Arrays.hashCode(responseBody));
+    }
+}
@@ -1,9 +1,17 @@
 package com.ezycollect.server.shared.api;
 
+import com.ezycollect.server.payments.application.error.ExportInProgressException;
 import com.ezycollect.server.payments.application.error.IdempotencyConflictException;
+import com.ezycollect.server.payments.application.error.IdempotencyRequestInProgressException;
+import com.ezycollect.server.payments.application.error.InvalidIdempotencyKeyException;
+import com.ezycollect.server.payments.application.error.InvalidPaymentTransitionException;
+import com.ezycollect.server.payments.application.error.InvalidQueryParameterException;
+import com.ezycollect.server.payments.application.error.InvoiceAlreadyPaidException;
 import com.ezycollect.server.payments.application.error.MissingIdempotencyKeyException;
+import com.ezycollect.server.payments.application.error.PaymentNotFoundException;
 import java.util.Comparator;
 import java.util.List;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -48,12 +56,59 @@ public class ApiExceptionHandler {
                 .body(ApiErrorResponse.simple("MISSING_IDEMPOTENCY_KEY", ex.getMessage()));
     }
 
+    @ExceptionHandler(InvalidIdempotencyKeyException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidIdempotencyKey(InvalidIdempotencyKeyException ex) {
+        return ResponseEntity.badRequest()
+                .body(ApiErrorResponse.simple("INVALID_IDEMPOTENCY_KEY", ex.getMessage()));
+    }
+
     @ExceptionHandler(IdempotencyConflictException.class)
     public ResponseEntity<ApiErrorResponse> handleIdempotencyConflict(IdempotencyConflictException ex) {
         return ResponseEntity.status(HttpStatus.CONFLICT)
                 .body(ApiErrorResponse.simple("IDEMPOTENCY_KEY_REUSED", ex.getMessage()));
     }
 
+    @ExceptionHandler(IdempotencyRequestInProgressException.class)
+    public ResponseEntity<ApiErrorResponse> handleIdempotencyRequestInProgress(IdempotencyRequestInProgressException ex) {
+        long seconds = Math.max(1, (ex.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .body(ApiErrorResponse.simple("IDEMPOTENCY_REQUEST_IN_PROGRESS", ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvoiceAlreadyPaidException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvoiceAlreadyPaid(InvoiceAlreadyPaidException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiErrorResponse.simple("INVOICE_ALREADY_PAID", ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidPaymentTransitionException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidPaymentTransition(InvalidPaymentTransitionException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(ApiErrorResponse.simple("INVALID_STATUS_TRANSITION", ex.getMessage()));
+    }
+
+    @ExceptionHandler(PaymentNotFoundException.class)
+    public ResponseEntity<ApiErrorResponse> handlePaymentNotFound(PaymentNotFoundException ex) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                .body(ApiErrorResponse.simple("PAYMENT_NOT_FOUND", ex.getMessage()));
+    }
+
+    @ExceptionHandler(ExportInProgressException.class)
+    public ResponseEntity<ApiErrorResponse> handleExportInProgress(ExportInProgressException ex) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .body(ApiErrorResponse.simple("EXPORT_IN_PROGRESS", ex.getMessage()));
+    }
+
+    @ExceptionHandler(InvalidQueryParameterException.class)
+    public ResponseEntity<ApiErrorResponse> handleInvalidQueryParameter(InvalidQueryParameterException ex) {
+        return ResponseEntity.badRequest()
+                .body(new ApiErrorResponse(
+                        "VALIDATION_ERROR",
+                        "Request validation failed",
+                        List.of(new ApiFieldError(ex.getParameter(), ex.getMessage()))));
+    }
+
     @ExceptionHandler(HttpMessageNotReadableException.class)
     public ResponseEntity<ApiErrorResponse> handleInvalidJson(HttpMessageNotReadableException ex) {
         return ResponseEntity.badRequest()
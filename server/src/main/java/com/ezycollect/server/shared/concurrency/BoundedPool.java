@@ -0,0 +1,71 @@
+package com.ezycollect.server.shared.concurrency;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Reusable, non-thread-safe helpers (digests, ciphers, random generators) shared by all threads of the instance.
+ *
+ * <p>A {@link ThreadLocal} cache only pays off while threads are reused; with a new virtual thread per request it
+ * builds a new helper for every request. This pool keeps up to {@code capacity} idle instances in slots that are taken
+ * and returned with a compare-and-set, starting at a slot picked by thread id, so callers neither lock nor block and a
+ * busy thread tends to get its own instance back. When every slot is empty a new instance is created; when every slot
+ * is full a returned instance is dropped.
+ */
+public final class BoundedPool<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final Supplier<T> factory;
+
+    /** Keeps up to two idle instances per processor, enough for every carrier or worker thread to find one. */
+    public BoundedPool(Supplier<T> factory) {
+        this(2 * Runtime.getRuntime().availableProcessors(), factory);
+    }
+
+    public BoundedPool(int capacity, Supplier<T> factory) {
+        if (capacity < 1) {
+            throw new IllegalStateException("Pool capacity must be positive: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.factory = factory;
+    }
+
+    /** Takes an idle instance, or creates one; the caller has it to itself until {@link #release}. */
+    public T acquire() {
+        int first = firstSlot();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (first + i) % slots.length();
+            T value = slots.get(slot);
+            if (value != null && slots.compareAndSet(slot, value, null)) {
+                return value;
+            }
+        }
+        return factory.get();
+    }
+
+    /** Returns an instance taken with {@link #acquire}; it must not be used afterwards. */
+    public void release(T value) {
+        int first = firstSlot();
+        for (int i = 0; i < slots.length(); i++) {
+            int slot = (first + i) % slots.length();
+            if (slots.get(slot) == null && slots.compareAndSet(slot, null, value)) {
+                return;
+            }
+        }
+    }
+
+    /** Idle instances currently held. */
+    public int idle() {
+        int idle = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    private int firstSlot() {
+        return (int) Math.floorMod(Thread.currentThread().getId(), (long) slots.length());
+    }
+}
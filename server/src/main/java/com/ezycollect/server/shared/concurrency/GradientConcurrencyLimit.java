@@ -0,0 +1,150 @@
+package com.ezycollect.server.shared.concurrency;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Adaptive cap on concurrent requests, adjusted from observed latency with the gradient algorithm: every sample window
+ * compares the window's average latency with a slowly moving long-term average. While latency stays within
+ * {@code tolerance} of that baseline the limit grows by about its square root per window; when queueing inflates
+ * latency the gradient {@code tolerance * longRtt / shortRtt} drops below 1 and the limit shrinks proportionally, down to
+ * half per window. A failed request backs the limit off by 10% at once; further failures within the same window do
+ * not, so a burst of concurrent errors costs 10% rather than collapsing the limit. Changes are smoothed and clamped to
+ * {@code [minLimit, maxLimit]}.
+ *
+ * <p>Acquiring is a CAS on the in-flight count. Samples are aggregated under a lock that is held for a few arithmetic
+ * operations per request.
+ */
+public class GradientConcurrencyLimit {
+
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double BACKOFF = 0.9;
+    private static final double SMOOTHING = 0.2;
+    /** Windows averaged into the long-term latency; at 500ms windows the baseline moves over about 30 seconds. */
+    private static final int LONG_WINDOWS = 60;
+    private static final int MIN_WINDOW_SAMPLES = 10;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    private long windowStartNanos;
+    private long windowRttSumNanos;
+    private int windowSamples;
+    private int windowMaxInFlight;
+    private double longRttNanos;
+    private long nextBackOffNanos;
+
+    public GradientConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window) {
+        this(initialLimit, minLimit, maxLimit, tolerance, window, System::nanoTime);
+    }
+
+    GradientConcurrencyLimit(
+            int initialLimit, int minLimit, int maxLimit, double tolerance, Duration window, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit || tolerance < 1) {
+            throw new IllegalStateException("Concurrency limit needs 1 <= min-limit <= max-limit and tolerance >= 1");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.tolerance = tolerance;
+        this.windowNanos = window.toNanos();
+        this.nanoClock = nanoClock;
+        this.windowStartNanos = nanoClock.getAsLong();
+        this.nextBackOffNanos = windowStartNanos;
+    }
+
+    /**
+     * Admits a request if fewer than {@code limit + headroom} are in flight and returns its start time for
+     * {@link #release}, or returns -1 without admitting it.
+     */
+    public long tryAcquire(int headroom) {
+        int cap = limit + headroom;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return nanoClock.getAsLong();
+            }
+        }
+    }
+
+    /**
+     * Ends a request admitted at {@code startNanos}. Only {@code sampled} requests feed the latency windows, so cheap
+     * requests such as replays do not pull the measured latency down; a {@code failed} request backs the limit off.
+     */
+    public void release(long startNanos, boolean sampled, boolean failed) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (failed) {
+            backOff();
+        } else if (sampled) {
+            sample(nanoClock.getAsLong() - startNanos, inFlightBefore);
+        }
+    }
+
+    public int limit() {
+        return limit;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void backOff() {
+        long now = nanoClock.getAsLong();
+        if (now - nextBackOffNanos < 0) {
+            return;
+        }
+        nextBackOffNanos = now + windowNanos;
+        limit = clamp(Math.floor(limit * BACKOFF));
+    }
+
+    private synchronized void sample(long rttNanos, int inFlightBefore) {
+        windowRttSumNanos += rttNanos;
+        windowSamples++;
+        windowMaxInFlight = Math.max(windowMaxInFlight, inFlightBefore);
+        long now = nanoClock.getAsLong();
+        if (now - windowStartNanos < windowNanos || windowSamples < MIN_WINDOW_SAMPLES) {
+            return;
+        }
+        double shortRttNanos = (double) windowRttSumNanos / windowSamples;
+        int maxInFlight = windowMaxInFlight;
+        windowStartNanos = now;
+        windowRttSumNanos = 0;
+        windowSamples = 0;
+        windowMaxInFlight = 0;
+        updateLimit(shortRttNanos, maxInFlight);
+    }
+
+    private void updateLimit(double shortRttNanos, int maxInFlight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+            return;
+        }
+        longRttNanos += (shortRttNanos - longRttNanos) / LONG_WINDOWS;
+        if (longRttNanos > 2 * shortRttNanos) {
+            // After a slow period, let the baseline catch up with recovered latency instead of waiting for the average.
+            longRttNanos = Math.max(shortRttNanos, longRttNanos * 0.95);
+        }
+        int current = limit;
+        if (maxInFlight < current / 2) {
+            // Too little traffic to tell whether a larger limit would queue.
+            return;
+        }
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRttNanos));
+        double step = (current * gradient + Math.sqrt(current) - current) * SMOOTHING;
+        // Round away from zero so that small limits still move.
+        limit = clamp(current + (step > 0 ? Math.ceil(step) : Math.floor(step)));
+    }
+
+    private int clamp(double value) {
+        return (int) Math.max(minLimit, Math.min(maxLimit, Math.round(value)));
+    }
+}
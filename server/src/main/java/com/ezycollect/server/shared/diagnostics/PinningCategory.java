@@ -0,0 +1,7 @@
+package com.ezycollect.server.shared.diagnostics;
+
+public enum PinningCategory {
+    JDBC,
+    CRYPTO,
+    OTHER
+}
@@ -0,0 +1,16 @@
+package com.ezycollect.server.shared.diagnostics;
+
+import java.util.List;
+import java.util.Map;
+
+public record PinningReport(
+        boolean active,
+        Map<PinningCategory, CategorySummary> byCategory,
+        List<Site> topSites
+) {
+    public record CategorySummary(long events, double totalPinnedMillis, double maxPinnedMillis) {
+    }
+
+    public record Site(String frame, long events) {
+    }
+}
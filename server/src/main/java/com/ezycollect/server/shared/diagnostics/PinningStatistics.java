@@ -0,0 +1,89 @@
+package com.ezycollect.server.shared.diagnostics;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Aggregates virtual-thread pinning events by what the pinned thread was doing (JDBC, crypto, other) and by the
+ * innermost application frame, so the report points at the call site that held the carrier thread.
+ */
+class PinningStatistics {
+
+    private static final String APPLICATION_PACKAGE = "com.ezycollect.";
+
+    private final Map<PinningCategory, CategoryCounters> categories = new EnumMap<>(PinningCategory.class);
+    private final ConcurrentHashMap<String, LongAdder> sites = new ConcurrentHashMap<>();
+
+    PinningStatistics() {
+        for (PinningCategory category : PinningCategory.values()) {
+            categories.put(category, new CategoryCounters());
+        }
+    }
+
+    /** Classifies a pinned stack from its frames' class names, innermost first. */
+    static PinningCategory classify(List<String> frameClassNames) {
+        for (String className : frameClassNames) {
+            if (className.startsWith("com.mysql.") || className.startsWith("com.zaxxer.hikari.")
+                    || className.startsWith("java.sql.") || className.startsWith("org.h2.")) {
+                return PinningCategory.JDBC;
+            }
+            if (className.startsWith("javax.crypto.") || className.startsWith("com.sun.crypto.")
+                    || className.startsWith("sun.security.")) {
+                return PinningCategory.CRYPTO;
+            }
+        }
+        return PinningCategory.OTHER;
+    }
+
+    /**
+     * Picks the innermost application frame; without one, the innermost frame outside the JDK (usually the driver or
+     * library that blocked), and only then the innermost frame of all.
+     */
+    static String site(List<String> frames) {
+        for (String frame : frames) {
+            if (frame.startsWith(APPLICATION_PACKAGE)) {
+                return frame;
+            }
+        }
+        for (String frame : frames) {
+            if (!frame.startsWith("java.") && !frame.startsWith("jdk.") && !frame.startsWith("sun.")) {
+                return frame;
+            }
+        }
+        return frames.isEmpty() ? "unknown" : frames.get(0);
+    }
+
+    void record(PinningCategory category, String site, long durationNanos) {
+        CategoryCounters counters = categories.get(category);
+        counters.events.increment();
+        counters.totalNanos.add(durationNanos);
+        counters.maxNanos.accumulateAndGet(durationNanos, Math::max);
+        sites.computeIfAbsent(site, key -> new LongAdder()).increment();
+    }
+
+    PinningReport report(int topSites) {
+        Map<PinningCategory, PinningReport.CategorySummary> byCategory = new EnumMap<>(PinningCategory.class);
+        categories.forEach((category, counters) -> byCategory.put(category, new PinningReport.CategorySummary(
+                counters.events.sum(),
+                counters.totalNanos.sum() / 1_000_000.0,
+                counters.maxNanos.get() / 1_000_000.0)));
+        List<PinningReport.Site> top = sites.entrySet().stream()
+                .map(entry -> new PinningReport.Site(entry.getKey(), entry.getValue().sum()))
+                .sorted(Comparator.comparingLong(PinningReport.Site::events).reversed())
+                .limit(topSites)
+                .collect(Collectors.toList());
+        return new PinningReport(true, byCategory, top);
+    }
+
+    private static final class CategoryCounters {
+        private final LongAdder events = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+    }
+}
@@ -0,0 +1,33 @@
+package com.ezycollect.server.shared.diagnostics;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/api/diagnostics", produces = MediaType.APPLICATION_JSON_VALUE)
+@Tag(name = "Diagnostics", description = "Operational statistics for the payments API")
+public class RuntimeDiagnosticsController {
+
+    private final VirtualThreadPinningMonitor pinningMonitor;
+
+    public RuntimeDiagnosticsController(ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor) {
+        // Absent unless the server runs request handling on virtual threads.
+        this.pinningMonitor = pinningMonitor.getIfAvailable();
+    }
+
+    @GetMapping("/virtual-thread-pinning")
+    @Operation(summary = "Virtual-thread pinning events by category (JDBC, crypto, other) and top call sites")
+    public PinningReport virtualThreadPinning() {
+        if (pinningMonitor == null) {
+            return new PinningReport(false, Map.of(), List.of());
+        }
+        return pinningMonitor.report();
+    }
+}
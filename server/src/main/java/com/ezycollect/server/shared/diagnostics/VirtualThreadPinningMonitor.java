@@ -0,0 +1,69 @@
+package com.ezycollect.server.shared.diagnostics;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.stereotype.Component;
+
+/**
+ * Streams JFR {@code jdk.VirtualThreadPinned} events in-process while the server runs on virtual threads
+ * ({@code spring.threads.virtual.enabled=true} on Java 21+). A pinned virtual thread blocks its carrier, typically
+ * inside a {@code synchronized} block in a JDBC driver or a crypto provider; events longer than the configured
+ * threshold are aggregated into a {@link PinningReport}.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadPinningMonitor {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    private static final int STACK_DEPTH = 64;
+    private static final int TOP_SITES = 10;
+
+    private final PinningStatistics statistics = new PinningStatistics();
+    private final RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(
+            @Value("${app.diagnostics.virtual-thread-pinning.threshold:5ms}") Duration threshold) {
+        this.stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::record);
+        stream.startAsync();
+    }
+
+    public PinningReport report() {
+        return statistics.report(TOP_SITES);
+    }
+
+    @PreDestroy
+    void close() {
+        stream.close();
+    }
+
+    private void record(RecordedEvent event) {
+        List<String> classNames = new ArrayList<>();
+        List<String> frames = new ArrayList<>();
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                if (frames.size() == STACK_DEPTH) {
+                    break;
+                }
+                String className = frame.getMethod().getType().getName();
+                classNames.add(className);
+                frames.add(className + "." + frame.getMethod().getName() + ":" + frame.getLineNumber());
+            }
+        }
+        statistics.record(
+                PinningStatistics.classify(classNames),
+                PinningStatistics.site(frames),
+                event.getDuration().toNanos());
+    }
+}
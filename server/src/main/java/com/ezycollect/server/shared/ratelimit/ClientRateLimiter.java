@@ -0,0 +1,82 @@
+package com.ezycollect.server.shared.ratelimit;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-client token buckets. Lookups of known clients are lock-free {@link ConcurrentHashMap} reads followed by a CAS
+ * on the client's {@link StripedTokenBucket}.
+ *
+ * <p>Memory is bounded in two ways. {@link #evictIdle} drops buckets that have refilled completely. A new bucket
+ * starts full, so this forgets at most a token taken while the bucket is being dropped. Once {@code maxClients}
+ * buckets exist, clients without one share a single overflow bucket with the default limit until eviction frees room.
+ */
+public class ClientRateLimiter {
+
+    private final int maxStripes;
+    private final int maxClients;
+    private final LongSupplier nanoClock;
+    private final ConcurrentHashMap<String, StripedTokenBucket> buckets = new ConcurrentHashMap<>();
+    private volatile Limits limits;
+    private volatile StripedTokenBucket overflow;
+
+    public ClientRateLimiter(RateLimit defaultLimit, Map<String, RateLimit> clientLimits, int maxStripes, int maxClients) {
+        this(defaultLimit, clientLimits, maxStripes, maxClients, System::nanoTime);
+    }
+
+    ClientRateLimiter(
+            RateLimit defaultLimit,
+            Map<String, RateLimit> clientLimits,
+            int maxStripes,
+            int maxClients,
+            LongSupplier nanoClock) {
+        this.maxStripes = maxStripes;
+        this.maxClients = maxClients;
+        this.nanoClock = nanoClock;
+        this.limits = new Limits(defaultLimit, Map.copyOf(clientLimits));
+        this.overflow = new StripedTokenBucket(defaultLimit, maxStripes, nanoClock.getAsLong());
+    }
+
+    /** Takes a token for {@code clientId}; returns 0, or the nanoseconds until the client's next token is due. */
+    public long tryAcquire(String clientId) {
+        long now = nanoClock.getAsLong();
+        StripedTokenBucket bucket = buckets.get(clientId);
+        if (bucket == null) {
+            bucket = buckets.size() < maxClients
+                    ? buckets.computeIfAbsent(clientId, id -> new StripedTokenBucket(limits.of(id), maxStripes, now))
+                    : overflow;
+        }
+        return bucket.tryAcquire(now, (int) Thread.currentThread().getId());
+    }
+
+    /**
+     * Switches to new limits. Buckets of clients whose limit changed are dropped, so those clients start over with a
+     * full bucket at the new limit; other clients keep their state.
+     */
+    public void replaceLimits(RateLimit defaultLimit, Map<String, RateLimit> clientLimits) {
+        Limits replaced = new Limits(defaultLimit, Map.copyOf(clientLimits));
+        limits = replaced;
+        if (!overflow.limit().equals(defaultLimit)) {
+            overflow = new StripedTokenBucket(defaultLimit, maxStripes, nanoClock.getAsLong());
+        }
+        buckets.entrySet().removeIf(entry -> !entry.getValue().limit().equals(replaced.of(entry.getKey())));
+    }
+
+    /** Drops the buckets of clients that have been idle long enough to refill. */
+    public void evictIdle() {
+        long now = nanoClock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.full(now));
+    }
+
+    public int clients() {
+        return buckets.size();
+    }
+
+    private record Limits(RateLimit defaultLimit, Map<String, RateLimit> clientLimits) {
+
+        RateLimit of(String clientId) {
+            return clientLimits.getOrDefault(clientId, defaultLimit);
+        }
+    }
+}
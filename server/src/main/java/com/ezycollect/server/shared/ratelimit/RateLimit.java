@@ -0,0 +1,28 @@
+package com.ezycollect.server.shared.ratelimit;
+
+/** Sustained {@code ratePerSecond} with bursts of up to {@code burst} requests. */
+public record RateLimit(
+        double ratePerSecond,
+        int burst
+) {
+    public RateLimit {
+        if (!(ratePerSecond > 0) || burst < 1) {
+            throw new IllegalStateException("Rate limits need a positive rate and a burst of at least 1");
+        }
+    }
+
+    /** Parses {@code rate} or {@code rate,burst}; the burst defaults to one second of the rate. */
+    public static RateLimit parse(String value) {
+        String[] parts = value.split(",");
+        try {
+            double rate = Double.parseDouble(parts[0].trim());
+            int burst = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : (int) Math.max(1, Math.ceil(rate));
+            if (parts.length > 2) {
+                throw new IllegalStateException("Rate limit must be rate or rate,burst: " + value);
+            }
+            return new RateLimit(rate, burst);
+        } catch (NumberFormatException ex) {
+            throw new IllegalStateException("Rate limit must be rate or rate,burst: " + value, ex);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.ezycollect.server.shared.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token bucket split into stripes that each hold a share of the rate and burst, so threads admitting requests for the
+ * same client mostly CAS different cache lines. A thread starts at its own stripe and moves on to the others only when
+ * that one is empty, so together the stripes admit the full rate and burst.
+ *
+ * <p>Each stripe is one long in the generic cell rate algorithm form: the time at which the stripe will be full again.
+ * Taking a token advances it by one emission interval from {@code max(it, now)}, which also refills the stripe for the
+ * time that passed. A stripe at or before {@code now} is full, so an idle bucket has no state worth keeping.
+ */
+final class StripedTokenBucket {
+
+    /** Longs per stripe: one 64-byte cache line each, so neighbouring stripes do not share a line. */
+    private static final int PADDING = 8;
+
+    /**
+     * Fewest tokens a stripe holds. Stripes refill in steps of one token each, so fewer, larger stripes keep small
+     * limits close to a single bucket; limits with a burst below this are not striped at all.
+     */
+    private static final int MIN_STRIPE_TOKENS = 4;
+
+    private final RateLimit limit;
+    private final int stripes;
+    private final long intervalNanos;
+    private final int baseTokens;
+    private final int stripesWithExtraToken;
+    private final AtomicLongArray fullAt;
+
+    StripedTokenBucket(RateLimit limit, int maxStripes, long nowNanos) {
+        this.limit = limit;
+        this.stripes = Math.max(1, Math.min(maxStripes, limit.burst() / MIN_STRIPE_TOKENS));
+        this.intervalNanos = Math.max(1, Math.round(stripes * 1e9 / limit.ratePerSecond()));
+        // The burst is split as evenly as whole tokens allow, so the stripes together hold exactly the burst.
+        this.baseTokens = limit.burst() / stripes;
+        this.stripesWithExtraToken = limit.burst() % stripes;
+        this.fullAt = new AtomicLongArray(stripes * PADDING);
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            fullAt.set(stripe * PADDING, nowNanos);
+        }
+    }
+
+    RateLimit limit() {
+        return limit;
+    }
+
+    /** Takes a token starting at stripe {@code probe}; returns 0, or the nanoseconds until the next token is due. */
+    long tryAcquire(long nowNanos, int probe) {
+        int first = Math.floorMod(probe, stripes);
+        long wait = Long.MAX_VALUE;
+        for (int offset = 0; offset < stripes; offset++) {
+            int stripe = (first + offset) % stripes;
+            int index = stripe * PADDING;
+            long burstNanos = (stripe < stripesWithExtraToken ? baseTokens + 1 : baseTokens) * intervalNanos;
+            while (true) {
+                long current = fullAt.get(index);
+                long next = Math.max(current, nowNanos) + intervalNanos;
+                long overdraw = next - nowNanos - burstNanos;
+                if (overdraw > 0) {
+                    wait = Math.min(wait, overdraw);
+                    break;
+                }
+                if (fullAt.compareAndSet(index, current, next)) {
+                    return 0;
+                }
+            }
+        }
+        return wait;
+    }
+
+    /** Whether every stripe has refilled completely, so the bucket can be dropped and later recreated full. */
+    boolean full(long nowNanos) {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (fullAt.get(stripe * PADDING) > nowNanos) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,7 @@
+-- Keyset order of the NDJSON export: WHERE (created_at, id) > (?, ?) ORDER BY created_at, id.
+-- InnoDB appends the primary key to secondary indexes anyway; naming id keeps the intent explicit.
+-- Built online so payment creation keeps writing to the table while the index is added.
+ALTER TABLE payments
+  ADD INDEX idx_payments_created_at_id (created_at, id),
+  ALGORITHM = INPLACE,
+  LOCK = NONE;
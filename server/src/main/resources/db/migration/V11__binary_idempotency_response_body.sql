@@ -0,0 +1,5 @@
+-- Completed idempotency records keep the exact UTF-8 bytes of the JSON response, which replays send as they are.
+-- The stored JSON is already UTF-8, so the conversion keeps every body byte for byte. Changing the column type
+-- rebuilds the table, which only holds the records of the retention window.
+ALTER TABLE payment_idempotency
+  MODIFY COLUMN response_body LONGBLOB NULL;
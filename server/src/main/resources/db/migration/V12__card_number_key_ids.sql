@@ -0,0 +1,15 @@
+-- Id of the key that encrypted each card number. Existing rows were all written with the single key of earlier
+-- releases, known as 'k1'; MySQL adds a column with a default as an instant metadata change, without a table rebuild.
+ALTER TABLE payments
+  ADD COLUMN card_number_key_id VARCHAR(32) CHARACTER SET ascii NOT NULL DEFAULT 'k1';
+
+-- Progress of the background re-encryption onto each key that became active; one row per target key, locked by
+-- each re-encryption chunk. Payments are walked in primary key order and last_payment_id is the resume point.
+CREATE TABLE card_number_reencryption (
+  target_key_id VARCHAR(32) CHARACTER SET ascii PRIMARY KEY,
+  last_payment_id BINARY(16) NULL,
+  scanned_rows BIGINT NOT NULL DEFAULT 0,
+  reencrypted_rows BIGINT NOT NULL DEFAULT 0,
+  started_at TIMESTAMP(6) NOT NULL,
+  completed_at TIMESTAMP(6) NULL
+);
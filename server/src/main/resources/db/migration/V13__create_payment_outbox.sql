@@ -0,0 +1,10 @@
+-- Events for downstream consumers, written in the transaction that creates the payment and deleted by the relay once
+-- published. Relays claim the lowest ids with FOR UPDATE SKIP LOCKED, so concurrent relays take disjoint batches
+-- without waiting on each other's row locks.
+CREATE TABLE payment_outbox (
+  id BIGINT AUTO_INCREMENT PRIMARY KEY,
+  event_type VARCHAR(64) CHARACTER SET ascii NOT NULL,
+  payment_id BINARY(16) NOT NULL,
+  payload LONGBLOB NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL
+);
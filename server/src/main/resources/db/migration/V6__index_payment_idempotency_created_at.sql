@@ -0,0 +1,6 @@
+-- Supports the retention purge (DELETE ... WHERE created_at < ? LIMIT ?) and the MIN(created_at) purge-lag probe.
+-- Built online so payment creation keeps writing to the table while the index is added.
+ALTER TABLE payment_idempotency
+  ADD INDEX idx_payment_idempotency_created_at (created_at),
+  ALGORITHM = INPLACE,
+  LOCK = NONE;
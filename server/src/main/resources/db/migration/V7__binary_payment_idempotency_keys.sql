@@ -0,0 +1,19 @@
+-- Rekeys idempotency records by the SHA-256 of the client key and stores request hashes as raw bytes, so the
+-- primary key and every secondary index entry carry a fixed 32-byte key instead of a VARCHAR(255).
+--
+-- The rename is a metadata-only operation. Existing rows stay in payment_idempotency_legacy and are moved by the
+-- application in small batches (IdempotencyLegacyBackfill); keys a request touches before that are moved on demand.
+-- The legacy table can be dropped in a later migration once it is empty.
+RENAME TABLE payment_idempotency TO payment_idempotency_legacy;
+
+CREATE TABLE payment_idempotency (
+  key_digest BINARY(32) PRIMARY KEY,
+  idempotency_key VARCHAR(255) NOT NULL,
+  request_hash BINARY(32) NOT NULL,
+  payment_id VARCHAR(36) NULL,
+  response_status INT NULL,
+  response_body LONGTEXT NULL,
+  created_at TIMESTAMP(6) NOT NULL DEFAULT CURRENT_TIMESTAMP(6),
+  updated_at TIMESTAMP(6) NULL DEFAULT NULL,
+  INDEX idx_payment_idempotency_created_at (created_at)
+);
@@ -0,0 +1,20 @@
+-- Payment ids become time-ordered UUIDv7 values stored as BINARY(16) (see PaymentIds). Existing random UUIDs are
+-- converted in place and keep their canonical string form in the API.
+ALTER TABLE payments
+  MODIFY COLUMN id VARBINARY(36) NOT NULL;
+
+UPDATE payments
+SET id = UUID_TO_BIN(id);
+
+ALTER TABLE payments
+  MODIFY COLUMN id BINARY(16) NOT NULL;
+
+ALTER TABLE payment_idempotency
+  MODIFY COLUMN payment_id VARBINARY(36) NULL;
+
+UPDATE payment_idempotency
+SET payment_id = UUID_TO_BIN(payment_id)
+WHERE payment_id IS NOT NULL;
+
+ALTER TABLE payment_idempotency
+  MODIFY COLUMN payment_id BINARY(16) NULL;
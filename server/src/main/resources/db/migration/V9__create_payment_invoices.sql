@@ -0,0 +1,17 @@
+-- One row per (invoice, payment), derived from payments.invoice_ids_json, so "payments for invoice X" is a primary key
+-- range scan. Invoice ids compare byte for byte; payment ids are time-ordered, so keyset pages come out oldest first.
+CREATE TABLE payment_invoices (
+  invoice_id VARCHAR(100) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL,
+  payment_id BINARY(16) NOT NULL,
+  created_at TIMESTAMP(6) NOT NULL,
+  PRIMARY KEY (invoice_id, payment_id)
+);
+
+-- Progress of the background backfill of payments created before V9; a single row, locked by each backfill batch.
+CREATE TABLE payment_invoices_backfill (
+  id TINYINT PRIMARY KEY,
+  last_payment_id BINARY(16) NULL,
+  completed_at TIMESTAMP(6) NULL
+);
+
+INSERT INTO payment_invoices_backfill (id) VALUES (1);
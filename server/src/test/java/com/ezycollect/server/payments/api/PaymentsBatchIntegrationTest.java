@@ -0,0 +1,111 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest(properties = "payments.batch.chunk-size=2")
+@AutoConfigureMockMvc
+class PaymentsBatchIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void cleanTables() {
+        jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("DELETE FROM payments");
+    }
+
+    @Test
+    void batchCreatesReplaysAndRejectsConflictsPerItemAcrossChunks() throws Exception {
+        MvcResult single = mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "batch-existing")
+                        .content(payment("Jane")))
+                .andExpect(status().isCreated())
+                .andReturn();
+        String existingId = objectMapper.readTree(single.getResponse().getContentAsString()).get("id").asText();
+
+        List<String> items = new ArrayList<>();
+        items.add(item("batch-1", "Ada"));
+        items.add(item("batch-existing", "Jane"));
+        items.add(item("batch-2", "Grace"));
+        items.add(item("batch-existing", "Mallory"));
+        items.add(item("batch-1", "Ada"));
+
+        MvcResult batch = mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"items\":[" + String.join(",", items) + "]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results.length()").value(5))
+                .andExpect(jsonPath("$.results[0].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[1].outcome").value("REPLAYED"))
+                .andExpect(jsonPath("$.results[1].payment.id").value(existingId))
+                .andExpect(jsonPath("$.results[2].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[3].outcome").value("CONFLICT"))
+                .andExpect(jsonPath("$.results[4].outcome").value("REPLAYED"))
+                .andReturn();
+
+        JsonNode results = objectMapper.readTree(batch.getResponse().getContentAsString()).get("results");
+        assertThat(results.get(4).get("payment")).isEqualTo(results.get(0).get("payment"));
+        assertThat(countRows("payments")).isEqualTo(3);
+        assertThat(countRows("payment_idempotency")).isEqualTo(3);
+
+        String storedPaymentId = jdbcTemplate.queryForObject(
+                "SELECT BIN_TO_UUID(payment_id) FROM payment_idempotency WHERE idempotency_key = ?", String.class, "batch-2");
+        assertThat(storedPaymentId).isEqualTo(results.get(2).get("payment").get("id").asText());
+
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "batch-2")
+                        .content(payment("Grace")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(storedPaymentId));
+    }
+
+    private String item(String key, String firstName) {
+        return "{\"idempotencyKey\":\"%s\",\"payment\":%s}".formatted(key, payment(firstName));
+    }
+
+    private String payment(String firstName) {
+        return """
+                {
+                  "firstName":"%s",
+                  "lastName":"Doe",
+                  "expiry":"12/25",
+                  "cvv":"123",
+                  "cardNumber":"4242424242424242",
+                  "invoiceIds":["INV-2025-002"]
+                }
+                """.formatted(firstName);
+    }
+
+    private int countRows(String tableName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName, Integer.class);
+        return count == null ? 0 : count;
+    }
+}
@@ -1,27 +1,60 @@
 package com.ezycollect.server.payments.api;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.containsString;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.options;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.ezycollect.server.payments.application.PaymentBatchService;
+import com.ezycollect.server.payments.application.PaymentExportService;
+import com.ezycollect.server.payments.application.PaymentExportService.PaymentExport;
+import com.ezycollect.server.payments.application.PaymentQueryService;
 import com.ezycollect.server.payments.application.PaymentService;
 import com.ezycollect.server.payments.application.PaymentServiceResult;
+import com.ezycollect.server.payments.application.PaymentTransitionService;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItemResult;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchItemResult.BatchItemOutcome;
+import com.ezycollect.server.payments.application.dto.CreatePaymentBatchResponse;
 import com.ezycollect.server.payments.application.dto.CreatePaymentResponse;
+import com.ezycollect.server.payments.application.dto.InvoicePaymentsResponse;
+import com.ezycollect.server.payments.application.dto.PaymentStatusResponse;
+import com.ezycollect.server.payments.application.dto.PaymentSummary;
+import com.ezycollect.server.payments.application.error.ExportInProgressException;
+import com.ezycollect.server.payments.application.error.IdempotencyRequestInProgressException;
+import com.ezycollect.server.payments.application.error.InvalidPaymentTransitionException;
+import com.ezycollect.server.payments.application.error.InvoiceAlreadyPaidException;
+import com.ezycollect.server.payments.application.view.RenderedPaymentView;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import com.ezycollect.server.payments.domain.PaymentTransition;
 import com.ezycollect.server.shared.api.ApiExceptionHandler;
 import com.ezycollect.server.shared.config.WebCorsConfig;
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -43,6 +76,18 @@ class PaymentsControllerTest {
     @MockBean
     private PaymentService paymentService;
 
+    @MockBean
+    private PaymentBatchService paymentBatchService;
+
+    @MockBean
+    private PaymentQueryService paymentQueryService;
+
+    @MockBean
+    private PaymentExportService paymentExportService;
+
+    @MockBean
+    private PaymentTransitionService paymentTransitionService;
+
     @Test
     void preflightRequestReturnsCorsHeadersForFrontendOrigin() throws Exception {
         mockMvc.perform(options("/payments")
@@ -58,11 +103,8 @@ class PaymentsControllerTest {
 
     @Test
     void validRequestReturnsCreatedWithoutSensitiveFields() throws Exception {
-        Instant createdAt = Instant.parse("2026-02-24T12:00:00Z");
         given(paymentService.createPayment(eq("idem-123"), any()))
-                .willReturn(new PaymentServiceResult(
-                        new CreatePaymentResponse("550e8400-e29b-41d4-a716-446655440000", "CREATED", createdAt),
-                        CREATED));
+                .willReturn(new PaymentServiceResult(createdResponseBody(), CREATED));
 
         mockMvc.perform(post("/payments")
                         .contentType(APPLICATION_JSON)
@@ -80,6 +122,20 @@ class PaymentsControllerTest {
                 .andExpect(jsonPath("$.lastName").doesNotExist());
     }
 
+    @Test
+    void replayWritesStoredResponseBytesUnchanged() throws Exception {
+        byte[] stored = createdResponseBody();
+        given(paymentService.createPayment(eq("idem-123"), any())).willReturn(new PaymentServiceResult(stored, OK));
+
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "idem-123")
+                        .content(validRequestJson()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
+                .andExpect(content().bytes(stored));
+    }
+
     @Test
     void missingIdempotencyKeyReturnsBadRequest() throws Exception {
         mockMvc.perform(post("/payments")
@@ -112,6 +168,20 @@ class PaymentsControllerTest {
         verifyNoInteractions(paymentService);
     }
 
+    @Test
+    void overLongIdempotencyKeyReturnsBadRequest() throws Exception {
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "k".repeat(256))
+                        .content(validRequestJson()))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value("INVALID_IDEMPOTENCY_KEY"))
+                .andExpect(jsonPath("$.message").value("Idempotency-Key must be at most 255 characters"));
+
+        verifyNoInteractions(paymentService);
+    }
+
     @Test
     void invalidExpiryReturnsFieldError() throws Exception {
         mockMvc.perform(post("/payments")
@@ -248,6 +318,305 @@ class PaymentsControllerTest {
         verifyNoInteractions(paymentService);
     }
 
+    @Test
+    void alreadyPaidInvoiceReturnsConflict() throws Exception {
+        given(paymentService.createPayment(eq("idem-123"), any()))
+                .willThrow(new InvoiceAlreadyPaidException(List.of("INV-2025-008")));
+
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "idem-123")
+                        .content(validRequestJson()))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("INVOICE_ALREADY_PAID"))
+                .andExpect(jsonPath("$.message").value("Invoices already have a payment: INV-2025-008"));
+    }
+
+    @Test
+    void requestStillInProgressReturnsConflictWithRetryAfter() throws Exception {
+        given(paymentService.createPayment(eq("idem-123"), any()))
+                .willThrow(new IdempotencyRequestInProgressException(Duration.ofMillis(1500)));
+
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "idem-123")
+                        .content(validRequestJson()))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "2"))
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_REQUEST_IN_PROGRESS"));
+    }
+
+    @Test
+    void invoicePaymentsArePagedWithCursor() throws Exception {
+        UUID cursor = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentQueryService.paymentsForInvoice("INV-2025-008", cursor, 2))
+                .willReturn(new InvoicePaymentsResponse(
+                        "INV-2025-008",
+                        List.of(new PaymentSummary(
+                                "0192f3c4-5d6f-7000-8a1b-2c3d4e5f6a7b",
+                                "CREATED",
+                                Instant.parse("2026-02-24T12:00:00Z"))),
+                        null));
+
+        mockMvc.perform(get("/payments")
+                        .param("invoiceId", "INV-2025-008")
+                        .param("cursor", cursor.toString())
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.invoiceId").value("INV-2025-008"))
+                .andExpect(jsonPath("$.payments[0].id").value("0192f3c4-5d6f-7000-8a1b-2c3d4e5f6a7b"))
+                .andExpect(jsonPath("$.payments[0].status").value("CREATED"))
+                .andExpect(jsonPath("$.nextCursor").isEmpty());
+    }
+
+    @Test
+    void invoicePaymentsUseDefaultPageSize() throws Exception {
+        given(paymentQueryService.paymentsForInvoice(eq("INV-2025-008"), isNull(), eq(50)))
+                .willReturn(new InvoicePaymentsResponse("INV-2025-008", List.of(), null));
+
+        mockMvc.perform(get("/payments").param("invoiceId", "INV-2025-008"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payments").isEmpty());
+    }
+
+    @Test
+    void paymentIsReturnedWithStrongEtag() throws Exception {
+        UUID id = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentQueryService.payment(id)).willReturn(Optional.of(renderedPayment(id)));
+
+        mockMvc.perform(get("/payments/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(jsonPath("$.id").value(id.toString()))
+                .andExpect(jsonPath("$.cardLast4").value("4242"));
+    }
+
+    @Test
+    void matchingIfNoneMatchReturnsNotModifiedWithoutBody() throws Exception {
+        UUID id = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentQueryService.payment(id)).willReturn(Optional.of(renderedPayment(id)));
+
+        mockMvc.perform(get("/payments/{id}", id).header("If-None-Match", "\"v0\", \"v1\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"v1\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/payments/{id}", id).header("If-None-Match", "W/\"v1\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/payments/{id}", id).header("If-None-Match", "\"v0\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void unknownPaymentReturnsNotFound() throws Exception {
+        UUID id = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentQueryService.payment(id)).willReturn(Optional.empty());
+
+        mockMvc.perform(get("/payments/{id}", id))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("PAYMENT_NOT_FOUND"));
+    }
+
+    @Test
+    void malformedPaymentIdReturnsValidationError() throws Exception {
+        mockMvc.perform(get("/payments/{id}", "not-a-uuid"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.fieldErrors[0].field").value("id"));
+
+        verifyNoInteractions(paymentQueryService);
+    }
+
+    @Test
+    void captureReturnsTheNewStatus() throws Exception {
+        UUID id = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentTransitionService.transition(id, PaymentTransition.CAPTURE))
+                .willReturn(new PaymentStatusResponse(id.toString(), "CAPTURED"));
+
+        mockMvc.perform(post("/payments/{id}/capture", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id.toString()))
+                .andExpect(jsonPath("$.status").value("CAPTURED"));
+    }
+
+    @Test
+    void transitionFromTheWrongStatusReturnsConflict() throws Exception {
+        UUID id = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        given(paymentTransitionService.transition(id, PaymentTransition.REFUND))
+                .willThrow(new InvalidPaymentTransitionException(id, PaymentStatus.AUTHORIZED, PaymentTransition.REFUND));
+
+        mockMvc.perform(post("/payments/{id}/refund", id))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("INVALID_STATUS_TRANSITION"))
+                .andExpect(jsonPath("$.message").value("Payment " + id + " is AUTHORIZED and cannot be refunded"));
+    }
+
+    @Test
+    void bulkTransitionWithoutTransitionReturnsFieldError() throws Exception {
+        mockMvc.perform(post("/payments/transitions")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"items\":[{\"paymentId\":\"0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b\"}]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.fieldErrors[0].field").value("items[0].transition"));
+
+        verifyNoInteractions(paymentTransitionService);
+    }
+
+    @Test
+    void exportStreamsNdjson() throws Exception {
+        PaymentExport export = exportWriting("{\"id\":1}\n{\"id\":2}\n");
+        given(paymentExportService.open(Instant.parse("2026-02-24T00:00:00Z"), null, null)).willReturn(export);
+
+        mockMvc.perform(get("/payments/export").param("from", "2026-02-24T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andExpect(content().string("{\"id\":1}\n{\"id\":2}\n"));
+
+        verify(export).close();
+    }
+
+    @Test
+    void exportIsGzippedWhenAccepted() throws Exception {
+        UUID after = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+        PaymentExport export = exportWriting("{\"id\":2}\n");
+        given(paymentExportService.open(null, null, after)).willReturn(export);
+
+        byte[] body = mockMvc.perform(get("/payments/export")
+                        .param("after", after.toString())
+                        .header("Accept-Encoding", "deflate, gzip;q=0.8"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            assertThat(new String(gzip.readAllBytes(), StandardCharsets.UTF_8))
+                    .isEqualTo("{\"id\":2}\n");
+        }
+    }
+
+    @Test
+    void concurrentExportIsRejected() throws Exception {
+        given(paymentExportService.open(null, null, null)).willThrow(new ExportInProgressException(1));
+
+        mockMvc.perform(get("/payments/export"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.code").value("EXPORT_IN_PROGRESS"));
+    }
+
+    @Test
+    void malformedExportBoundReturnsValidationError() throws Exception {
+        mockMvc.perform(get("/payments/export").param("to", "yesterday"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.fieldErrors[0].field").value("to"));
+
+        verifyNoInteractions(paymentExportService);
+    }
+
+    @ParameterizedTest
+    @MethodSource("invalidInvoiceQueries")
+    void invalidInvoiceQueryReturnsValidationError(String invoiceId, String cursor, String limit, String field)
+            throws Exception {
+        var request = get("/payments");
+        if (invoiceId != null) {
+            request.param("invoiceId", invoiceId);
+        }
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        if (limit != null) {
+            request.param("limit", limit);
+        }
+
+        mockMvc.perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.fieldErrors[0].field").value(field));
+
+        verifyNoInteractions(paymentQueryService);
+    }
+
+    private static Stream<Arguments> invalidInvoiceQueries() {
+        return Stream.of(
+                Arguments.of(null, null, null, "invoiceId"),
+                Arguments.of("  ", null, null, "invoiceId"),
+                Arguments.of("INV-2025-008", "not-a-cursor", null, "cursor"),
+                Arguments.of("INV-2025-008", null, "0", "limit"),
+                Arguments.of("INV-2025-008", null, "501", "limit"));
+    }
+
+    @Test
+    void batchRequestReturnsPerItemResults() throws Exception {
+        Instant createdAt = Instant.parse("2026-02-24T12:00:00Z");
+        given(paymentBatchService.createPayments(any()))
+                .willReturn(new CreatePaymentBatchResponse(List.of(
+                        new CreatePaymentBatchItemResult(
+                                "idem-1",
+                                BatchItemOutcome.CREATED,
+                                new CreatePaymentResponse("550e8400-e29b-41d4-a716-446655440000", "CREATED", createdAt)),
+                        new CreatePaymentBatchItemResult("idem-2", BatchItemOutcome.CONFLICT, null))));
+
+        mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("""
+                                {"items":[
+                                  {"idempotencyKey":"idem-1","payment":%s},
+                                  {"idempotencyKey":"idem-2","payment":%s}
+                                ]}
+                                """.formatted(validRequestJson(), validRequestJson())))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(APPLICATION_JSON))
+                .andExpect(jsonPath("$.results[0].idempotencyKey").value("idem-1"))
+                .andExpect(jsonPath("$.results[0].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[0].payment.id").value("550e8400-e29b-41d4-a716-446655440000"))
+                .andExpect(jsonPath("$.results[1].outcome").value("CONFLICT"))
+                .andExpect(content().string(not(containsString("424242424242"))));
+    }
+
+    @Test
+    void batchItemValidationErrorsAreReportedWithItemPath() throws Exception {
+        mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("""
+                                {"items":[
+                                  {"idempotencyKey":"  ","payment":{
+                                    "firstName":"Jane",
+                                    "lastName":"Doe",
+                                    "expiry":"13/25",
+                                    "cvv":"123",
+                                    "cardNumber":"424242424242",
+                                    "invoiceIds":["INV-2025-002"]
+                                  }}
+                                ]}
+                                """))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.fieldErrors[*].field", hasItem("items[0].idempotencyKey")))
+                .andExpect(jsonPath("$.fieldErrors[*].field", hasItem("items[0].payment.expiry")));
+
+        verifyNoInteractions(paymentBatchService);
+    }
+
+    @Test
+    void emptyBatchReturnsValidationError() throws Exception {
+        mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("{\"items\":[]}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("VALIDATION_ERROR"))
+                .andExpect(jsonPath("$.fieldErrors[*].field", hasItem("items")));
+
+        verifyNoInteractions(paymentBatchService);
+    }
+
     @ParameterizedTest
     @MethodSource("blankNamePayloads")
     void blankNamesReturnValidationErrors(String payload, String fieldName) throws Exception {
@@ -288,6 +657,25 @@ class PaymentsControllerTest {
                         """, "lastName"));
     }
 
+    private static PaymentExport exportWriting(String ndjson) throws Exception {
+        PaymentExport export = mock(PaymentExport.class);
+        willAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write(ndjson.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).given(export).writeTo(any());
+        return export;
+    }
+
+    private static RenderedPaymentView renderedPayment(UUID id) {
+        String json = "{\"id\":\"" + id + "\",\"status\":\"CREATED\",\"cardLast4\":\"4242\"}";
+        return new RenderedPaymentView(json.getBytes(StandardCharsets.UTF_8), "\"v1\"");
+    }
+
+    private byte[] createdResponseBody() {
+        return "{\"id\":\"550e8400-e29b-41d4-a716-446655440000\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-24T12:00:00Z\"}"
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
     private String validRequestJson() {
         return """
                 {
@@ -3,13 +3,32 @@ package com.ezycollect.server.payments.api;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.application.hash.PaymentRequestHashService;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyRecordPurger;
+import com.ezycollect.server.payments.domain.IdempotencyClaimOutcome;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyLegacyRepository;
 import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,7 +38,7 @@ import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
-@SpringBootTest
+@SpringBootTest(properties = "payments.idempotency.in-progress.max-wait=1s")
 @AutoConfigureMockMvc
 class PaymentsIdempotencyIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
 
@@ -32,9 +51,20 @@ class PaymentsIdempotencyIntegrationTest extends AbstractMySqlSpringBootIntegrat
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private IdempotencyRecordPurger idempotencyRecordPurger;
+
+    @Autowired
+    private PaymentIdempotencyClaimRepository paymentIdempotencyClaimRepository;
+
+    @Autowired
+    private PaymentRequestHashService paymentRequestHashService;
+
     @BeforeEach
     void cleanTables() {
         jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_idempotency_legacy");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
         jdbcTemplate.update("DELETE FROM payments");
     }
 
@@ -55,24 +85,27 @@ class PaymentsIdempotencyIntegrationTest extends AbstractMySqlSpringBootIntegrat
 
         MvcResult replay = postPayment(key, payload)
                 .andExpect(status().isOk())
+                .andExpect(content().contentType(APPLICATION_JSON))
                 .andExpect(jsonPath("$.id").exists())
                 .andExpect(jsonPath("$.status").value("CREATED"))
                 .andExpect(jsonPath("$.createdAt").exists())
                 .andReturn();
 
         JsonNode firstJson = objectMapper.readTree(first.getResponse().getContentAsString());
-        JsonNode replayJson = objectMapper.readTree(replay.getResponse().getContentAsString());
-        assertThat(replayJson).isEqualTo(firstJson);
+        assertThat(replay.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
         assertThat(countRows("payments")).isEqualTo(1);
         assertThat(countRows("payment_idempotency")).isEqualTo(1);
 
         IdempotencyRow row = loadIdempotencyRow(key);
         assertThat(row).isNotNull();
         assertThat(row.requestHash()).hasSize(64).matches("[a-f0-9]{64}");
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT LENGTH(request_hash) FROM payment_idempotency WHERE idempotency_key = ?", Integer.class, key))
+                .isEqualTo(32);
         assertThat(row.paymentId()).isEqualTo(firstJson.get("id").asText());
         assertThat(row.responseStatus()).isEqualTo(201);
+        assertThat(row.responseBody()).isEqualTo(first.getResponse().getContentAsString());
         JsonNode storedResponse = objectMapper.readTree(row.responseBody());
-        assertThat(storedResponse).isEqualTo(firstJson);
         assertThat(storedResponse.has("cardNumber")).isFalse();
         assertThat(storedResponse.has("cvv")).isFalse();
         assertThat(storedResponse.has("expiry")).isFalse();
@@ -111,13 +144,196 @@ class PaymentsIdempotencyIntegrationTest extends AbstractMySqlSpringBootIntegrat
                 .andReturn();
 
         JsonNode firstJson = objectMapper.readTree(first.getResponse().getContentAsString());
-        JsonNode replayJson = objectMapper.readTree(replay.getResponse().getContentAsString());
-        assertThat(replayJson).isEqualTo(firstJson);
+        assertThat(replay.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
+
+        assertThat(countRows("payments")).isEqualTo(1);
+        assertThat(countRows("payment_idempotency")).isEqualTo(1);
+    }
+
+    @Test
+    void replayOfCompletedClaimIsServedFromReplayCache() throws Exception {
+        String key = "idem-key-4";
+        String payload = validPayload("Jane", "Doe");
+
+        MvcResult first = postPayment(key, payload)
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        // With the stored claim gone, only the in-memory replay cache can answer the retry.
+        jdbcTemplate.update("DELETE FROM payment_idempotency WHERE idempotency_key = ?", key);
+
+        MvcResult replay = postPayment(key, payload)
+                .andExpect(status().isOk())
+                .andReturn();
+
+        JsonNode firstJson = objectMapper.readTree(first.getResponse().getContentAsString());
+        assertThat(replay.getResponse().getContentAsByteArray()).isEqualTo(first.getResponse().getContentAsByteArray());
+        assertThat(countRows("payment_idempotency")).isZero();
+
+        postPayment(key, validPayload("Jane", "Smith"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_KEY_REUSED"));
+    }
 
+    @Test
+    void hundredsOfConcurrentDuplicatesCreateOnePaymentAndShareItsResponse() throws Exception {
+        String key = "idem-concurrent";
+        String payload = validPayload("Jane", "Doe");
+        int duplicates = 200;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(duplicates);
+        List<MvcResult> results = new ArrayList<>();
+        try {
+            List<Future<MvcResult>> futures = new ArrayList<>();
+            for (int i = 0; i < duplicates; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return postPayment(key, payload).andReturn();
+                }));
+            }
+            start.countDown();
+            for (Future<MvcResult> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(results).extracting(result -> result.getResponse().getStatus())
+                .containsOnly(201, 200)
+                .filteredOn(status -> status == 201).hasSize(1);
+        byte[] body = results.get(0).getResponse().getContentAsByteArray();
+        assertThat(results).allSatisfy(result -> assertThat(result.getResponse().getContentAsByteArray()).isEqualTo(body));
         assertThat(countRows("payments")).isEqualTo(1);
         assertThat(countRows("payment_idempotency")).isEqualTo(1);
     }
 
+    @Test
+    void claimHeldByAnotherInstanceIsPolledUntilItCompletes() throws Exception {
+        String key = "idem-held-elsewhere";
+        String payload = validPayload("Jane", "Doe");
+        insertInProgressClaim(key, payload);
+        String storedBody =
+                "{\"id\":\"00000000-0000-0000-0000-000000000000\",\"status\":\"CREATED\",\"createdAt\":\"2026-01-01T00:00:00Z\"}";
+        CompletableFuture<Void> otherInstance = CompletableFuture.runAsync(() -> {
+            sleep(Duration.ofMillis(300));
+            jdbcTemplate.update(
+                    "UPDATE payment_idempotency SET response_status = 201, response_body = ? WHERE idempotency_key = ?",
+                    storedBody.getBytes(StandardCharsets.UTF_8),
+                    key);
+        });
+
+        postPayment(key, payload)
+                .andExpect(status().isOk())
+                .andExpect(content().string(storedBody));
+        otherInstance.join();
+        assertThat(countRows("payments")).isZero();
+    }
+
+    @Test
+    void claimHeldPastTheWaitBudgetReturnsRetryableConflict() throws Exception {
+        String key = "idem-stuck-elsewhere";
+        String payload = validPayload("Jane", "Doe");
+        insertInProgressClaim(key, payload);
+
+        postPayment(key, payload)
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_REQUEST_IN_PROGRESS"));
+        assertThat(countRows("payments")).isZero();
+    }
+
+    @Test
+    void expiredIdempotencyRecordDoesNotBlockANewPayment() throws Exception {
+        String key = "idem-key-5";
+        insertIdempotencyRow(key, Instant.now().minus(Duration.ofHours(25)));
+
+        MvcResult created = postPayment(key, validPayload("Jane", "Smith"))
+                .andExpect(status().isCreated())
+                .andReturn();
+
+        JsonNode createdJson = objectMapper.readTree(created.getResponse().getContentAsString());
+        IdempotencyRow row = loadIdempotencyRow(key);
+        assertThat(row.paymentId()).isEqualTo(createdJson.get("id").asText());
+        assertThat(row.createdAt()).isAfter(Instant.now().minus(Duration.ofMinutes(5)));
+        assertThat(countRows("payment_idempotency")).isEqualTo(1);
+    }
+
+    @Test
+    void purgerDeletesOnlyExpiredIdempotencyRecords() {
+        insertIdempotencyRow("idem-expired-1", Instant.now().minus(Duration.ofHours(30)));
+        insertIdempotencyRow("idem-expired-2", Instant.now().minus(Duration.ofHours(25)));
+        insertIdempotencyRow("idem-live", Instant.now().minus(Duration.ofHours(1)));
+
+        idempotencyRecordPurger.purge();
+
+        assertThat(jdbcTemplate.queryForList("SELECT idempotency_key FROM payment_idempotency", String.class))
+                .containsExactly("idem-live");
+    }
+
+    @Test
+    void legacyIdempotencyRecordsAreMovedIntoBinaryTable() throws Exception {
+        String key = "idem-key-legacy";
+        postPayment(key, validPayload("Jane", "Doe"))
+                .andExpect(status().isCreated());
+        IdempotencyRow created = loadIdempotencyRow(key);
+        // Simulate a record written before V7 by moving the row back into the legacy table.
+        jdbcTemplate.update(
+                """
+                INSERT INTO payment_idempotency_legacy
+                SELECT idempotency_key, LOWER(HEX(request_hash)), BIN_TO_UUID(payment_id), response_status,
+                  CONVERT(response_body USING utf8mb4), created_at, updated_at
+                FROM payment_idempotency
+                WHERE idempotency_key = ?
+                """,
+                key);
+        jdbcTemplate.update("DELETE FROM payment_idempotency WHERE idempotency_key = ?", key);
+
+        PaymentIdempotencyLegacyRepository legacyRepository =
+                new PaymentIdempotencyLegacyRepository(jdbcTemplate, Duration.ofHours(24));
+        assertThat(legacyRepository.drained()).isFalse();
+        assertThat(legacyRepository.moveBatch(100)).isEqualTo(1);
+        legacyRepository.refreshLiveUntil();
+        assertThat(legacyRepository.drained()).isTrue();
+
+        assertThat(countRows("payment_idempotency_legacy")).isZero();
+        assertThat(loadIdempotencyRow(key)).isEqualTo(created);
+        assertThat(paymentIdempotencyClaimRepository.find(key))
+                .hasValueSatisfying(stored -> {
+                    assertThat(stored.requestHash()).isEqualTo(created.requestHash());
+                    assertThat(stored.responseStatus()).isEqualTo(201);
+                });
+    }
+
+    @Test
+    void expiredLegacyIdempotencyRecordsAreSkippedByRequestsAndReplacedOnClaim() {
+        String key = "idem-key-legacy-expired";
+        Instant createdAt = Instant.now().minus(Duration.ofHours(30));
+        jdbcTemplate.update(
+                """
+                INSERT INTO payment_idempotency_legacy (
+                  idempotency_key, request_hash, payment_id, response_status, response_body, created_at, updated_at
+                ) VALUES (?, ?, NULL, NULL, NULL, ?, ?)
+                """,
+                key,
+                "a".repeat(64),
+                Timestamp.from(createdAt),
+                Timestamp.from(createdAt));
+        PaymentIdempotencyLegacyRepository legacyRepository =
+                new PaymentIdempotencyLegacyRepository(jdbcTemplate, Duration.ofHours(24));
+
+        legacyRepository.moveKeys(List.of(key));
+        assertThat(countRows("payment_idempotency_legacy")).isEqualTo(1);
+        assertThat(paymentIdempotencyClaimRepository.claim(key, "b".repeat(64), Instant.now()).outcome())
+                .isEqualTo(IdempotencyClaimOutcome.NEW);
+
+        assertThat(legacyRepository.moveBatch(100)).isEqualTo(1);
+        legacyRepository.refreshLiveUntil();
+        assertThat(legacyRepository.drained()).isTrue();
+        assertThat(paymentIdempotencyClaimRepository.find(key))
+                .hasValueSatisfying(stored -> assertThat(stored.requestHash()).isEqualTo("b".repeat(64)));
+    }
+
     private org.springframework.test.web.servlet.ResultActions postPayment(String key, String payload) throws Exception {
         return mockMvc.perform(post("/payments")
                 .contentType(APPLICATION_JSON)
@@ -147,19 +363,61 @@ class PaymentsIdempotencyIntegrationTest extends AbstractMySqlSpringBootIntegrat
         return count == null ? 0 : count;
     }
 
+    private void insertIdempotencyRow(String key, Instant createdAt) {
+        jdbcTemplate.update(
+                """
+                INSERT INTO payment_idempotency (
+                  key_digest, idempotency_key, request_hash, payment_id, response_status, response_body,
+                  created_at, updated_at
+                ) VALUES (UNHEX(SHA2(?, 256)), ?, UNHEX(?), UUID_TO_BIN(?), 201, ?, ?, ?)
+                """,
+                key,
+                key,
+                "0".repeat(64),
+                "00000000-0000-0000-0000-000000000000",
+                "{\"id\":\"00000000-0000-0000-0000-000000000000\",\"status\":\"CREATED\",\"createdAt\":\"2026-01-01T00:00:00Z\"}",
+                Timestamp.from(createdAt),
+                Timestamp.from(createdAt));
+    }
+
+    /** A claim as left by a request that is still running on another instance. */
+    private void insertInProgressClaim(String key, String payload) throws Exception {
+        String requestHash = paymentRequestHashService.hash(objectMapper.readValue(payload, CreatePaymentRequest.class));
+        Timestamp now = Timestamp.from(Instant.now());
+        jdbcTemplate.update(
+                """
+                INSERT INTO payment_idempotency (key_digest, idempotency_key, request_hash, created_at, updated_at)
+                VALUES (UNHEX(SHA2(?, 256)), ?, UNHEX(?), ?, ?)
+                """,
+                key,
+                key,
+                requestHash,
+                now,
+                now);
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     private IdempotencyRow loadIdempotencyRow(String key) {
         return jdbcTemplate.queryForObject(
                 """
-                SELECT idempotency_key, request_hash, payment_id, response_status, response_body, created_at, updated_at
+                SELECT idempotency_key, LOWER(HEX(request_hash)) AS request_hash, BIN_TO_UUID(payment_id) AS payment_id,
+                  response_status, response_body, created_at, updated_at
                 FROM payment_idempotency
-                WHERE idempotency_key = ?
+                WHERE key_digest = UNHEX(SHA2(?, 256))
                 """,
                 (rs, rowNum) -> new IdempotencyRow(
                         rs.getString("idempotency_key"),
                         rs.getString("request_hash"),
                         rs.getString("payment_id"),
                         rs.getInt("response_status"),
-                        rs.getString("response_body"),
+                        new String(rs.getBytes("response_body"), StandardCharsets.UTF_8),
                         rs.getTimestamp("created_at").toInstant(),
                         rs.getTimestamp("updated_at").toInstant()),
                 key);
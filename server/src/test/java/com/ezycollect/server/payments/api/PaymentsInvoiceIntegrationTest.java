@@ -0,0 +1,209 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.ezycollect.server.payments.application.invoice.InvoiceIndexBackfill;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest(properties = {"payments.invoices.reject-already-paid=true", "payments.batch.chunk-size=2"})
+@AutoConfigureMockMvc
+class PaymentsInvoiceIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentInvoiceRepository paymentInvoiceRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void cleanTables() {
+        jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("DELETE FROM payments");
+    }
+
+    @Test
+    void paymentsForInvoiceArePagedOldestFirst() throws Exception {
+        List<String> paymentIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            paymentIds.add(createPayment("page-" + i, "INV-PAGE-" + i, "INV-SHARED").get("id").asText());
+        }
+
+        JsonNode firstPage = listPayments("INV-SHARED", null, 2);
+        assertThat(ids(firstPage)).containsExactly(paymentIds.get(0), paymentIds.get(1));
+        assertThat(firstPage.get("nextCursor").asText()).isEqualTo(paymentIds.get(1));
+
+        JsonNode secondPage = listPayments("INV-SHARED", firstPage.get("nextCursor").asText(), 2);
+        assertThat(ids(secondPage)).containsExactly(paymentIds.get(2));
+        assertThat(secondPage.get("nextCursor").isNull()).isTrue();
+
+        assertThat(ids(listPayments("INV-PAGE-1", null, 50))).containsExactly(paymentIds.get(1));
+        assertThat(ids(listPayments("INV-UNKNOWN", null, 50))).isEmpty();
+    }
+
+    @Test
+    void payingAnAlreadyPaidInvoiceIsRejected() throws Exception {
+        createPayment("paid-1", "INV-PAID-1", "INV-PAID-2");
+
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "paid-2")
+                        .content(payload("INV-OPEN", "INV-PAID-2")))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("INVOICE_ALREADY_PAID"))
+                .andExpect(jsonPath("$.message").value("Invoices already have a payment: INV-PAID-2"));
+
+        assertThat(countRows("payments")).isEqualTo(1);
+        // The rejected claim is released, so the key can be reused for a payment of open invoices.
+        createPayment("paid-2", "INV-OPEN", "INV-OPEN-2");
+        // Replays of the original payment are not rejected.
+        mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "paid-1")
+                        .content(payload("INV-PAID-1", "INV-PAID-2")))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void batchRejectsItemsPayingInvoicesPaidEarlier() throws Exception {
+        createPayment("batch-paid", "INV-B-1", "INV-B-2");
+
+        mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("""
+                                {"items":[
+                                  {"idempotencyKey":"batch-a","payment":%s},
+                                  {"idempotencyKey":"batch-b","payment":%s},
+                                  {"idempotencyKey":"batch-c","payment":%s}
+                                ]}
+                                """.formatted(
+                                payload("INV-B-2", "INV-B-3"),
+                                payload("INV-B-4", "INV-B-5"),
+                                payload("INV-B-5", "INV-B-6"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].outcome").value("INVOICE_ALREADY_PAID"))
+                .andExpect(jsonPath("$.results[1].outcome").value("CREATED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("INVOICE_ALREADY_PAID"));
+
+        assertThat(countRows("payments")).isEqualTo(2);
+    }
+
+    @Test
+    void laterItemsWithTheKeyOfARejectedItemResolveAgainstItsPayloadInEveryChunk() throws Exception {
+        createPayment("reused-paid", "INV-R-1", "INV-R-2");
+        String rejected = payload("INV-R-2", "INV-R-3");
+        String open = payload("INV-R-4", "INV-R-5");
+
+        mockMvc.perform(post("/payments/batch")
+                        .contentType(APPLICATION_JSON)
+                        .content("""
+                                {"items":[
+                                  {"idempotencyKey":"reused","payment":%s},
+                                  {"idempotencyKey":"reused","payment":%s},
+                                  {"idempotencyKey":"reused","payment":%s},
+                                  {"idempotencyKey":"reused","payment":%s}
+                                ]}
+                                """.formatted(rejected, open, open, rejected)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].outcome").value("INVOICE_ALREADY_PAID"))
+                .andExpect(jsonPath("$.results[1].outcome").value("CONFLICT"))
+                .andExpect(jsonPath("$.results[2].outcome").value("CONFLICT"))
+                .andExpect(jsonPath("$.results[3].outcome").value("INVOICE_ALREADY_PAID"));
+
+        assertThat(countRows("payments")).isEqualTo(1);
+    }
+
+    @Test
+    void backfillIndexesPaymentsCreatedBeforeTheIndex() throws Exception {
+        String paymentId = createPayment("backfill", "INV-OLD-1", "INV-OLD-2").get("id").asText();
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("UPDATE payment_invoices_backfill SET last_payment_id = NULL, completed_at = NULL WHERE id = 1");
+        assertThat(ids(listPayments("INV-OLD-1", null, 50))).isEmpty();
+
+        // The application's backfill already completed at startup, so run a fresh one over the reset cursor.
+        InvoiceIndexBackfill backfill = new InvoiceIndexBackfill(
+                paymentInvoiceRepository, transactionTemplate, 1, Duration.ZERO, Duration.ofSeconds(30));
+        backfill.backfill();
+
+        assertThat(ids(listPayments("INV-OLD-1", null, 50))).containsExactly(paymentId);
+        assertThat(ids(listPayments("INV-OLD-2", null, 50))).containsExactly(paymentId);
+        assertThat(backfill.complete()).isTrue();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT completed_at IS NOT NULL FROM payment_invoices_backfill WHERE id = 1", Boolean.class))
+                .isTrue();
+    }
+
+    private JsonNode createPayment(String key, String invoiceId1, String invoiceId2) throws Exception {
+        MvcResult result = mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", key)
+                        .content(payload(invoiceId1, invoiceId2)))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private JsonNode listPayments(String invoiceId, String cursor, int limit) throws Exception {
+        var request = get("/payments").param("invoiceId", invoiceId).param("limit", String.valueOf(limit));
+        if (cursor != null) {
+            request.param("cursor", cursor);
+        }
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString());
+    }
+
+    private static List<String> ids(JsonNode page) {
+        List<String> ids = new ArrayList<>();
+        page.get("payments").forEach(payment -> ids.add(payment.get("id").asText()));
+        return ids;
+    }
+
+    private String payload(String invoiceId1, String invoiceId2) {
+        return """
+                {
+                  "firstName":"Jane",
+                  "lastName":"Doe",
+                  "expiry":"12/25",
+                  "cvv":"123",
+                  "cardNumber":"4242424242424242",
+                  "invoiceIds":["%s","%s"]
+                }
+                """.formatted(invoiceId1, invoiceId2);
+    }
+
+    private int countRows(String tableName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName, Integer.class);
+        return count == null ? 0 : count;
+    }
+}
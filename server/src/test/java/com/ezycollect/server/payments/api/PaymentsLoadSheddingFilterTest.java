@@ -0,0 +1,82 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.application.idempotency.CachedReplay;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyReplayCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class PaymentsLoadSheddingFilterTest {
+
+    private final IdempotencyReplayCache replayCache =
+            new IdempotencyReplayCache(100, Duration.ofMinutes(10), Duration.ofHours(24));
+    private final PaymentsLoadSheddingFilter filter = new PaymentsLoadSheddingFilter(
+            replayCache, new ObjectMapper(), 1, 1, 1, 1.5, Duration.ofMillis(500), 1.0, Duration.ofMillis(1500));
+
+    @Test
+    void requestsBeyondTheLimitAreShedWithRetryAfter() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(createRequest("first"), first, (request, response) -> {
+            MockHttpServletResponse second = new MockHttpServletResponse();
+            filter.doFilter(createRequest("second"), second, (innerRequest, innerResponse) -> { });
+            nested.add(second);
+        });
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        MockHttpServletResponse shed = nested.get(0);
+        assertThat(shed.getStatus()).isEqualTo(503);
+        assertThat(shed.getHeader("Retry-After")).isEqualTo("2");
+        assertThat(shed.getContentAsString()).contains("\"code\":\"OVERLOADED\"");
+    }
+
+    @Test
+    void replaysUseHeadroomWhileNewCreationsAreShed() throws Exception {
+        replayCache.put("completed", new CachedReplay("hash", "{}".getBytes()));
+        List<Integer> statuses = new ArrayList<>();
+
+        filter.doFilter(createRequest("first"), new MockHttpServletResponse(), (request, response) -> {
+            MockHttpServletResponse replay = new MockHttpServletResponse();
+            filter.doFilter(createRequest("completed"), replay, (innerRequest, innerResponse) -> { });
+            MockHttpServletResponse creation = new MockHttpServletResponse();
+            filter.doFilter(createRequest("new"), creation, (innerRequest, innerResponse) -> { });
+            statuses.add(replay.getStatus());
+            statuses.add(creation.getStatus());
+        });
+
+        assertThat(statuses).containsExactly(200, 503);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        filter.bindTo(registry);
+        assertThat(registry.get("payments.concurrency.rejected").tag("kind", "create").functionCounter().count())
+                .isEqualTo(1);
+        assertThat(registry.get("payments.concurrency.limit").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void otherEndpointsAreNotLimited() throws Exception {
+        List<MockHttpServletResponse> nested = new ArrayList<>();
+
+        filter.doFilter(createRequest("first"), new MockHttpServletResponse(), (request, response) -> {
+            MockHttpServletResponse read = new MockHttpServletResponse();
+            filter.doFilter(new MockHttpServletRequest("GET", "/payments/0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b"),
+                    read, (innerRequest, innerResponse) -> { });
+            nested.add(read);
+        });
+
+        assertThat(nested.get(0).getStatus()).isEqualTo(200);
+    }
+
+    private static MockHttpServletRequest createRequest(String idempotencyKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/payments");
+        request.addHeader("Idempotency-Key", idempotencyKey);
+        return request;
+    }
+}
@@ -0,0 +1,91 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+class PaymentsRateLimitFilterTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    void overLimitClientsGetTooManyRequestsWhileOthersPass() throws Exception {
+        PaymentsRateLimitFilter filter = filter(clientsFile("acme=1,2\n"));
+
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        MockHttpServletResponse limited = send(filter, "acme");
+        assertThat(status(filter, "globex")).isEqualTo(200);
+        assertThat(status(filter, null)).isEqualTo(200);
+
+        assertThat(limited.getStatus()).isEqualTo(429);
+        assertThat(limited.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(limited.getContentAsString())
+                .contains("\"code\":\"RATE_LIMITED\"")
+                .contains("\"fieldErrors\":[]");
+    }
+
+    @Test
+    void changedClientsFileIsReloaded() throws Exception {
+        Path file = clientsFile("acme=1,1\n");
+        PaymentsRateLimitFilter filter = filter(file);
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        assertThat(status(filter, "acme")).isEqualTo(429);
+
+        Files.writeString(file, "acme=1,3\n");
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().plusSeconds(60)));
+        filter.refresh();
+
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        assertThat(status(filter, "acme")).isEqualTo(200);
+        assertThat(status(filter, "acme")).isEqualTo(429);
+    }
+
+    @Test
+    void requestsOutsideThePaymentsApiAreNotLimited() throws Exception {
+        PaymentsRateLimitFilter filter = filter(clientsFile("default=1,1\n"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), response, (request, ignored) -> { });
+        }
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(status(filter, null)).isEqualTo(200);
+        assertThat(status(filter, null)).isEqualTo(429);
+    }
+
+    private PaymentsRateLimitFilter filter(Path clientsFile) {
+        return new PaymentsRateLimitFilter(
+                new ObjectMapper(), "X-Api-Key", 1000, 1000, clientsFile.toString(), Duration.ofSeconds(10), 4, 100);
+    }
+
+    private Path clientsFile(String content) throws Exception {
+        return Files.writeString(directory.resolve("clients.properties"), content);
+    }
+
+    private static int status(PaymentsRateLimitFilter filter, String apiKey) throws Exception {
+        return send(filter, apiKey).getStatus();
+    }
+
+    private static MockHttpServletResponse send(PaymentsRateLimitFilter filter, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/payments");
+        if (apiKey != null) {
+            request.addHeader("X-Api-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, (ignoredRequest, ignoredResponse) -> { });
+        return response;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.ezycollect.server.payments.domain.PaymentRepository;
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentsReadIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PaymentRepository paymentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void cleanTables() {
+        jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("DELETE FROM payments");
+    }
+
+    @Test
+    void createdPaymentIsReadMaskedAndRevalidatedWithEtag() throws Exception {
+        String id = createPayment();
+
+        MvcResult read = mockMvc.perform(get("/payments/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.firstName").value("Jane"))
+                .andExpect(jsonPath("$.cardLast4").value("4242"))
+                .andExpect(jsonPath("$.invoiceIds[0]").value("INV-2025-002"))
+                .andExpect(jsonPath("$.cardNumber").doesNotExist())
+                .andExpect(jsonPath("$.cvv").doesNotExist())
+                .andExpect(jsonPath("$.expiry").doesNotExist())
+                .andReturn();
+        String etag = read.getResponse().getHeader("ETag");
+        assertThat(etag).startsWith("\"").endsWith("\"");
+
+        mockMvc.perform(get("/payments/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void updatingThePaymentChangesItsEtag() throws Exception {
+        String id = createPayment();
+        String etag = mockMvc.perform(get("/payments/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        transactionTemplate.executeWithoutResult(status ->
+                paymentRepository.findById(UUID.fromString(id)).orElseThrow().setLastName("Smith"));
+
+        MvcResult reread = mockMvc.perform(get("/payments/{id}", id).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastName").value("Smith"))
+                .andReturn();
+        assertThat(reread.getResponse().getHeader("ETag")).isNotEqualTo(etag);
+    }
+
+    @Test
+    void unknownPaymentReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/payments/{id}", UUID.randomUUID()))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("PAYMENT_NOT_FOUND"));
+    }
+
+    @Test
+    void exportStreamsAllPaymentsInOrderAndResumesAfterAnId() throws Exception {
+        List<String> ids = List.of(createPayment(), createPayment(), createPayment());
+
+        List<String> lines = exportLines("/payments/export");
+        assertThat(lines).hasSize(3);
+        assertThat(lines).extracting(line -> objectMapper.readTree(line).get("id").asText())
+                .containsExactlyElementsOf(ids);
+        assertThat(objectMapper.readTree(lines.get(0)).get("cardLast4").asText()).isEqualTo("4242");
+        assertThat(lines.get(0)).doesNotContain("4242424242424242");
+
+        assertThat(exportLines("/payments/export?after=" + ids.get(0)))
+                .containsExactly(lines.get(1), lines.get(2));
+    }
+
+    private List<String> exportLines(String url) throws Exception {
+        String body = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return Arrays.stream(body.split("\n")).filter(line -> !line.isEmpty()).toList();
+    }
+
+    private String createPayment() throws Exception {
+        MvcResult result = mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", "read-" + UUID.randomUUID())
+                        .content("""
+                                {
+                                  "firstName":"Jane",
+                                  "lastName":"Doe",
+                                  "expiry":"12/25",
+                                  "cvv":"123",
+                                  "cardNumber":"4242424242424242",
+                                  "invoiceIds":["INV-2025-002"]
+                                }
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn();
+        return objectMapper.readTree(result.getResponse().getContentAsString()).get("id").asText();
+    }
+}
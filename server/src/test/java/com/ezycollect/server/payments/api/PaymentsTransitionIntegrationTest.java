@@ -0,0 +1,163 @@
+package com.ezycollect.server.payments.api;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PaymentsTransitionIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void cleanTables() {
+        jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("DELETE FROM payments");
+    }
+
+    @Test
+    void paymentMovesThroughItsLifecycleAndCachedViewsFollow() throws Exception {
+        String id = createPayment("lifecycle-1");
+        mockMvc.perform(get("/payments/{id}", id)).andExpect(jsonPath("$.status").value("CREATED"));
+
+        mockMvc.perform(post("/payments/{id}/capture", id))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.code").value("INVALID_STATUS_TRANSITION"));
+        mockMvc.perform(post("/payments/{id}/authorize", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("AUTHORIZED"));
+        mockMvc.perform(get("/payments/{id}", id)).andExpect(jsonPath("$.status").value("AUTHORIZED"));
+        mockMvc.perform(post("/payments/{id}/capture", id)).andExpect(status().isOk());
+        mockMvc.perform(post("/payments/{id}/refund", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("REFUNDED"));
+        mockMvc.perform(post("/payments/{id}/fail", id)).andExpect(status().isConflict());
+
+        mockMvc.perform(get("/payments/{id}", id)).andExpect(jsonPath("$.status").value("REFUNDED"));
+        mockMvc.perform(post("/payments/{id}/authorize", UUID.randomUUID())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bulkTransitionsApplyInOrderWithPerItemOutcomes() throws Exception {
+        String first = createPayment("bulk-1");
+        String second = createPayment("bulk-2");
+        String missing = UUID.randomUUID().toString();
+
+        mockMvc.perform(post("/payments/transitions")
+                        .contentType(APPLICATION_JSON)
+                        .content(transitions(
+                                first, "AUTHORIZE",
+                                first, "CAPTURE",
+                                second, "REFUND",
+                                missing, "FAIL",
+                                second, "FAIL")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.results[0].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$.results[1].outcome").value("APPLIED"))
+                .andExpect(jsonPath("$.results[1].status").value("CAPTURED"))
+                .andExpect(jsonPath("$.results[2].outcome").value("REJECTED"))
+                .andExpect(jsonPath("$.results[2].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[3].outcome").value("NOT_FOUND"))
+                .andExpect(jsonPath("$.results[4].outcome").value("APPLIED"));
+
+        assertThat(statusOf(first)).isEqualTo("CAPTURED");
+        assertThat(statusOf(second)).isEqualTo("FAILED");
+    }
+
+    @Test
+    void racingCaptureAndFailApplyExactlyOnce() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String id = createPayment("race-" + i);
+            mockMvc.perform(post("/payments/{id}/authorize", id)).andExpect(status().isOk());
+            ids.add(id);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> attempts = new ArrayList<>();
+        try {
+            for (String id : ids) {
+                for (String transition : List.of("capture", "fail", "capture", "fail")) {
+                    attempts.add(executor.submit(() -> mockMvc.perform(post("/payments/{id}/" + transition, id))
+                            .andReturn()
+                            .getResponse()
+                            .getStatus()));
+                }
+            }
+            int applied = 0;
+            for (Future<Integer> attempt : attempts) {
+                int status = attempt.get();
+                assertThat(status).isIn(200, 409);
+                applied += status == 200 ? 1 : 0;
+            }
+            assertThat(applied).isEqualTo(ids.size());
+        } finally {
+            executor.shutdownNow();
+        }
+        for (String id : ids) {
+            assertThat(statusOf(id)).isIn("CAPTURED", "FAILED");
+        }
+    }
+
+    private String createPayment(String idempotencyKey) throws Exception {
+        String body = mockMvc.perform(post("/payments")
+                        .contentType(APPLICATION_JSON)
+                        .header("Idempotency-Key", idempotencyKey)
+                        .content("""
+                                {
+                                  "firstName":"Ada",
+                                  "lastName":"Lovelace",
+                                  "expiry":"12/29",
+                                  "cvv":"123",
+                                  "cardNumber":"4242424242424242",
+                                  "invoiceIds":["INV-2025-002"]
+                                }
+                                """))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readTree(body).get("id").asText();
+    }
+
+    private static String transitions(String... idAndTransition) {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < idAndTransition.length; i += 2) {
+            items.add("{\"paymentId\":\"%s\",\"transition\":\"%s\"}".formatted(idAndTransition[i], idAndTransition[i + 1]));
+        }
+        return "{\"items\":[" + String.join(",", items) + "]}";
+    }
+
+    private String statusOf(String paymentId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT status FROM payments WHERE id = UUID_TO_BIN(?)", String.class, paymentId);
+    }
+}
@@ -0,0 +1,144 @@
+package com.ezycollect.server.payments.application;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.application.security.EncryptionKeyProvider;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import org.junit.jupiter.api.Test;
+
+class AesGcmCryptoTest {
+
+    private static final String KEY_B64 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String CARD_NUMBER = "4242424242424242";
+
+    private final EncryptionKeyProvider keyProvider = new EncryptionKeyProvider(KEY_B64);
+    private final AesGcmCrypto crypto = new AesGcmCrypto(keyProvider);
+
+    @Test
+    void stringCharBufferAndByteInputsDecryptToTheSamePlaintext() throws Exception {
+        CharBuffer chars = CharBuffer.wrap(CARD_NUMBER.toCharArray());
+
+        assertThat(decrypt(crypto.encrypt(CARD_NUMBER))).isEqualTo(CARD_NUMBER);
+        assertThat(decrypt(crypto.encrypt(chars))).isEqualTo(CARD_NUMBER);
+        assertThat(chars.remaining()).isEqualTo(CARD_NUMBER.length());
+        assertThat(decrypt(crypto.encrypt(CARD_NUMBER.getBytes(StandardCharsets.UTF_8)))).isEqualTo(CARD_NUMBER);
+    }
+
+    @Test
+    void encryptAllKeepsInputOrder() throws Exception {
+        List<String> cardNumbers = List.of("4111111111111111", "5500000000000004", "340000000000009");
+
+        List<EncryptedPayload> payloads = crypto.encryptAll(cardNumbers);
+
+        assertThat(payloads).hasSize(3);
+        for (int i = 0; i < cardNumbers.size(); i++) {
+            assertThat(decrypt(payloads.get(i))).isEqualTo(cardNumbers.get(i));
+        }
+    }
+
+    @Test
+    void ivsFromOneThreadShareAPrefixAndCount() {
+        byte[] first = crypto.encrypt(CARD_NUMBER).iv();
+        byte[] second = crypto.encrypt(CARD_NUMBER).iv();
+
+        assertThat(first).hasSize(12);
+        assertThat(Arrays.copyOf(second, 8)).isEqualTo(Arrays.copyOf(first, 8));
+        assertThat(counter(second)).isEqualTo(counter(first) + 1);
+    }
+
+    @Test
+    void ivsAreUniqueAcrossThreads() throws Exception {
+        Set<String> ivs = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        ivs.add(HexFormat.of().formatHex(crypto.encrypt(CARD_NUMBER).iv()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ivs).hasSize(8_000);
+    }
+
+    @Test
+    void ivCountersAdvanceAcrossShortLivedThreads() throws Exception {
+        // One encryption per new thread, as with a virtual thread per request.
+        List<byte[]> ivs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread(() -> ivs.add(crypto.encrypt(CARD_NUMBER).iv()));
+            thread.start();
+            thread.join();
+        }
+
+        for (int i = 1; i < ivs.size(); i++) {
+            assertThat(Arrays.copyOf(ivs.get(i), 8)).isEqualTo(Arrays.copyOf(ivs.get(0), 8));
+            assertThat(counter(ivs.get(i))).isEqualTo(counter(ivs.get(0)) + i);
+        }
+    }
+
+    @Test
+    void payloadsNameTheirKeyAndStayReadableAfterARotation() {
+        EncryptedPayload beforeRotation = crypto.encrypt(CARD_NUMBER);
+        AesGcmCrypto rotated = new AesGcmCrypto(new EncryptionKeyProvider(
+                "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=", "k2", "k1:" + KEY_B64));
+
+        EncryptedPayload afterRotation = rotated.encrypt(CARD_NUMBER);
+
+        assertThat(beforeRotation.keyId()).isEqualTo("k1");
+        assertThat(afterRotation.keyId()).isEqualTo("k2");
+        assertThat(new String(rotated.decrypt(beforeRotation), StandardCharsets.UTF_8)).isEqualTo(CARD_NUMBER);
+        assertThat(new String(rotated.decrypt(afterRotation), StandardCharsets.UTF_8)).isEqualTo(CARD_NUMBER);
+        assertThatThrownBy(() -> crypto.decrypt(afterRotation))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("k2");
+    }
+
+    @Test
+    void decryptsIntoAReusedScratchArray() {
+        byte[] scratch = new byte[32];
+        EncryptedPayload longer = crypto.encrypt(CARD_NUMBER);
+        EncryptedPayload shorter = crypto.encrypt("340000000000009");
+
+        int longerLength = crypto.decrypt(longer, scratch);
+        assertThat(longerLength).isEqualTo(AesGcmCrypto.plaintextLength(longer.ciphertext())).isEqualTo(16);
+        assertThat(new String(scratch, 0, longerLength, StandardCharsets.UTF_8)).isEqualTo(CARD_NUMBER);
+
+        int shorterLength = crypto.decrypt(shorter, scratch);
+        assertThat(new String(scratch, 0, shorterLength, StandardCharsets.UTF_8)).isEqualTo("340000000000009");
+        assertThatThrownBy(() -> crypto.decrypt(longer, new byte[15])).isInstanceOf(IllegalStateException.class);
+    }
+
+    private String decrypt(EncryptedPayload payload) throws Exception {
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, keyProvider.secretKey(), new GCMParameterSpec(128, payload.iv()));
+        return new String(cipher.doFinal(payload.ciphertext()), StandardCharsets.UTF_8);
+    }
+
+    private static long counter(byte[] iv) {
+        return ((iv[8] & 0xFFL) << 24) | ((iv[9] & 0xFFL) << 16) | ((iv[10] & 0xFFL) << 8) | (iv[11] & 0xFFL);
+    }
+}
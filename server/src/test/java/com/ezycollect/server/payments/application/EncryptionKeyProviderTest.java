@@ -1,17 +1,47 @@
 package com.ezycollect.server.payments.application;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.ezycollect.server.payments.application.security.EncryptionKeyProvider;
+import java.util.Base64;
 import org.junit.jupiter.api.Test;
 
 class EncryptionKeyProviderTest {
 
+    private static final String OLD_KEY_B64 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String NEW_KEY_B64 = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
     @Test
     void invalidBase64KeyFailsWithClearMessage() {
         assertThatThrownBy(() -> new EncryptionKeyProvider("not-base64"))
                 .isInstanceOf(IllegalStateException.class)
                 .hasMessageContaining("must be valid base64");
     }
+
+    @Test
+    void retiredKeysAreAvailableForDecryptionOnly() {
+        EncryptionKeyProvider provider = new EncryptionKeyProvider(NEW_KEY_B64, "k2", "k1:" + OLD_KEY_B64);
+
+        assertThat(provider.activeKeyId()).isEqualTo("k2");
+        assertThat(provider.secretKey()).isEqualTo(provider.secretKey("k2"));
+        assertThat(provider.secretKey("k1").getEncoded()).isEqualTo(Base64.getDecoder().decode(OLD_KEY_B64));
+        assertThatThrownBy(() -> provider.secretKey("k3"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PAYMENTS_ENCRYPTION_DECRYPTION_KEYS");
+    }
+
+    @Test
+    void keyIdsMustBeUniqueAndWellFormed() {
+        assertThatThrownBy(() -> new EncryptionKeyProvider(NEW_KEY_B64, "k1", "k1:" + OLD_KEY_B64))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("more than once");
+        assertThatThrownBy(() -> new EncryptionKeyProvider(NEW_KEY_B64, "k2", OLD_KEY_B64))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("id:base64");
+        assertThatThrownBy(() -> new EncryptionKeyProvider(NEW_KEY_B64, "key id", ""))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("PAYMENTS_ENCRYPTION_KEY_ID");
+    }
 }
 
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
 import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
@@ -21,14 +22,18 @@ class PaymentEncryptionPersistenceTest extends AbstractMySqlSpringBootIntegratio
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @BeforeEach
     void cleanTables() {
         jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
         jdbcTemplate.update("DELETE FROM payments");
     }
 
     @Test
-    void cardNumberIsStoredEncryptedAtRest() {
+    void cardNumberIsStoredEncryptedAtRest() throws Exception {
         String cardNumber = "4242424242424242";
         CreatePaymentRequest request = new CreatePaymentRequest();
         request.setFirstName("Jane");
@@ -41,13 +46,17 @@ class PaymentEncryptionPersistenceTest extends AbstractMySqlSpringBootIntegratio
         var response = paymentService.createPayment("idem-encryption-test", request);
 
         PaymentRow row = jdbcTemplate.queryForObject(
-                "SELECT card_number_ciphertext, card_number_iv, card_last4, invoice_ids_json FROM payments WHERE id = ?",
+                """
+                SELECT card_number_ciphertext, card_number_iv, card_last4, invoice_ids_json
+                FROM payments
+                WHERE id = UUID_TO_BIN(?)
+                """,
                 (rs, rowNum) -> new PaymentRow(
                         rs.getBytes("card_number_ciphertext"),
                         rs.getBytes("card_number_iv"),
                         rs.getString("card_last4"),
                         rs.getString("invoice_ids_json")),
-                response.response().id());
+                objectMapper.readTree(response.responseBody()).get("id").asText());
 
         assertThat(row).isNotNull();
         assertThat(row.ciphertext()).isNotNull().isNotEmpty();
@@ -63,7 +72,7 @@ class PaymentEncryptionPersistenceTest extends AbstractMySqlSpringBootIntegratio
     void paymentsSchemaDoesNotContainPlaintextSensitiveColumns() {
         List<String> columns = paymentColumns();
         assertThat(columns).doesNotContain("cvv", "expiry", "card_number", "card_number_plaintext");
-        assertThat(columns).contains("card_number_ciphertext", "card_number_iv");
+        assertThat(columns).contains("card_number_ciphertext", "card_number_iv", "card_number_key_id");
     }
 
     private boolean containsAsciiSequence(byte[] haystack, String plaintext) {
@@ -3,7 +3,14 @@ package com.ezycollect.server.payments.application.hash;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
 
 class PaymentRequestHashServiceTest {
@@ -54,6 +61,88 @@ class PaymentRequestHashServiceTest {
         assertThat(paymentRequestHashService.hash(r1)).isNotEqualTo(paymentRequestHashService.hash(r2));
     }
 
+    @Test
+    void hashesMatchValuesStoredByTheObjectMapperImplementation() {
+        // Golden values produced by the original Jackson-based hashing; payment_idempotency rows depend on them.
+        assertThat(paymentRequestHashService.hash(request(
+                "Ada", "Lovelace", "12/29", "123456789012", List.of("INV-2", "INV-1"))))
+                .isEqualTo("5823cae4a187725bd3a44d113117682e66612537c3e2536fadf0de68712cdf7a");
+        assertThat(paymentRequestHashService.hash(request(
+                "Zo\u00eb \"Q\" \\ x\u0001y\tz",
+                "\u540d\u524d \ud83d\ude00",
+                "12/29",
+                "4242424242424242",
+                List.of("INV-\u00e9", "INV-\u007f", "INV-a/b"))))
+                .isEqualTo("1dcd47aa1d18e28e9177c03bb20a263286d0b37515d23aaf0f9d265c4555e5c6");
+        assertThat(paymentRequestHashService.hash(request(null, null, null, null, null)))
+                .isEqualTo("95cc506eb21e4d7366855bc0979cc316d5e3f02943b2b038ca23f6cf2f1bc066");
+        assertThat(paymentRequestHashService.hash(request(
+                "a\bb\fc\nd\re\u001f", "x\u2028y", "01/30", "12", List.of())))
+                .isEqualTo("cbd85338b3b07b32236be94d448286cdb5aa0770868540ba9cbc70d2af41b41a");
+    }
+
+    @Test
+    void hashesMatchObjectMapperCanonicalJsonForRandomInput() throws Exception {
+        ObjectMapper canonicalObjectMapper = new ObjectMapper()
+                .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+                .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        Random random = new Random(42);
+
+        for (int i = 0; i < 2_000; i++) {
+            List<String> invoiceIds = new ArrayList<>();
+            for (int j = random.nextInt(40); j > 0; j--) {
+                invoiceIds.add(randomString(random));
+            }
+            CreatePaymentRequest request = request(
+                    randomString(random), randomString(random), randomString(random), randomString(random), invoiceIds);
+
+            LegacyCanonicalRequest legacy = new LegacyCanonicalRequest(
+                    request.getFirstName(),
+                    request.getLastName(),
+                    request.getExpiry(),
+                    request.getCardNumber().substring(Math.max(0, request.getCardNumber().length() - 4)),
+                    request.getInvoiceIds().stream().sorted().toList());
+            String expected = HexFormat.of().formatHex(sha256.digest(canonicalObjectMapper.writeValueAsBytes(legacy)));
+
+            assertThat(paymentRequestHashService.hash(request)).isEqualTo(expected);
+        }
+    }
+
+    private static String randomString(Random random) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = random.nextInt(300); i > 0; i--) {
+            switch (random.nextInt(5)) {
+                case 0 -> sb.append((char) random.nextInt(0x80));
+                case 1 -> sb.append((char) (0x80 + random.nextInt(0x780)));
+                case 2 -> sb.append((char) (0x800 + random.nextInt(0xF800)));
+                case 3 -> sb.appendCodePoint(0x10000 + random.nextInt(0x100000));
+                default -> sb.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static CreatePaymentRequest request(
+            String firstName, String lastName, String expiry, String cardNumber, List<String> invoiceIds) {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setFirstName(firstName);
+        request.setLastName(lastName);
+        request.setExpiry(expiry);
+        request.setCardNumber(cardNumber);
+        request.setInvoiceIds(invoiceIds);
+        return request;
+    }
+
+    private record LegacyCanonicalRequest(
+            String firstName,
+            String lastName,
+            String expiry,
+            String cardLast4,
+            List<String> invoiceIds
+    ) {
+    }
+
     private CreatePaymentRequest baseRequest() {
         CreatePaymentRequest request = new CreatePaymentRequest();
         request.setFirstName("Ada");
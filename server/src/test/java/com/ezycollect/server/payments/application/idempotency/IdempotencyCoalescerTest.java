@@ -0,0 +1,107 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ezycollect.server.payments.application.error.IdempotencyRequestInProgressException;
+import com.ezycollect.server.payments.application.idempotency.IdempotencyCoalescer.InFlight;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyCoalescerTest {
+
+    private static final int DUPLICATES = 300;
+    private static final byte[] RESPONSE = "{\"id\":\"payment-1\"}".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void concurrentDuplicatesAreAnsweredByOneLeader() throws Exception {
+        IdempotencyCoalescer coalescer = coalescer(Duration.ofSeconds(10));
+        AtomicInteger leaders = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch followersWaiting = new CountDownLatch(DUPLICATES - 1);
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+        try {
+            List<Future<byte[]>> responses = new ArrayList<>();
+            for (int i = 0; i < DUPLICATES; i++) {
+                responses.add(executor.submit(() -> {
+                    start.await();
+                    return attempt(coalescer, leaders, followersWaiting);
+                }));
+            }
+            start.countDown();
+
+            for (Future<byte[]> response : responses) {
+                assertThat(response.get(10, TimeUnit.SECONDS)).isEqualTo(RESPONSE);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(leaders).hasValue(1);
+    }
+
+    @Test
+    void followersOfAnAbandonedLeaderGetNoResponse() {
+        IdempotencyCoalescer coalescer = coalescer(Duration.ofSeconds(1));
+        assertThat(coalescer.lead("idem-1", "hash-1")).isNull();
+        InFlight leader = coalescer.lead("idem-1", "hash-1");
+
+        coalescer.abandon("idem-1");
+
+        assertThat(coalescer.await(leader, coalescer.deadline())).isNull();
+        assertThat(coalescer.lead("idem-1", "hash-1")).isNull();
+    }
+
+    @Test
+    void followerGivesUpWithRetryAfterAtTheDeadline() {
+        IdempotencyCoalescer coalescer = coalescer(Duration.ofMillis(50));
+        coalescer.lead("idem-1", "hash-1");
+        InFlight leader = coalescer.lead("idem-1", "hash-2");
+
+        assertThat(leader.requestHash()).isEqualTo("hash-1");
+        assertThatThrownBy(() -> coalescer.await(leader, coalescer.deadline()))
+                .isInstanceOf(IdempotencyRequestInProgressException.class)
+                .extracting(ex -> ((IdempotencyRequestInProgressException) ex).getRetryAfter())
+                .isEqualTo(Duration.ofSeconds(2));
+    }
+
+    @Test
+    void pollingStopsOnceSettledOrAtTheDeadline() {
+        IdempotencyCoalescer coalescer = coalescer(Duration.ofMillis(200));
+        AtomicInteger checks = new AtomicInteger();
+
+        assertThat(coalescer.poll(coalescer.deadline(), () -> checks.incrementAndGet() == 3)).isTrue();
+        assertThat(checks).hasValue(3);
+
+        long started = System.nanoTime();
+        assertThat(coalescer.poll(coalescer.deadline(), () -> false)).isFalse();
+        assertThat(Duration.ofNanos(System.nanoTime() - started)).isBetween(Duration.ofMillis(190), Duration.ofSeconds(2));
+    }
+
+    /** The leader finishes only once every duplicate is waiting on it, so no duplicate can lead a second time. */
+    private static byte[] attempt(IdempotencyCoalescer coalescer, AtomicInteger leaders, CountDownLatch followersWaiting)
+            throws InterruptedException {
+        InFlight leader = coalescer.lead("idem-1", "hash-1");
+        if (leader == null) {
+            leaders.incrementAndGet();
+            followersWaiting.await(10, TimeUnit.SECONDS);
+            coalescer.complete("idem-1", RESPONSE);
+            return RESPONSE;
+        }
+        followersWaiting.countDown();
+        return coalescer.await(leader, coalescer.deadline());
+    }
+
+    private static IdempotencyCoalescer coalescer(Duration maxWait) {
+        return new IdempotencyCoalescer(maxWait, Duration.ofMillis(5), Duration.ofMillis(40), Duration.ofSeconds(2));
+    }
+}
@@ -0,0 +1,63 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyRecordPurgerTest {
+
+    private final PaymentIdempotencyClaimRepository repository = mock(PaymentIdempotencyClaimRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final IdempotencyRecordPurger purger = new IdempotencyRecordPurger(
+            repository, 100, Duration.ZERO, 3, Duration.ofMinutes(1), Duration.ofSeconds(30));
+
+    @BeforeEach
+    void setUp() {
+        when(repository.retention()).thenReturn(Duration.ofHours(24));
+        when(repository.oldestCreatedAt()).thenReturn(Optional.empty());
+        purger.bindTo(registry);
+    }
+
+    @Test
+    void runStopsAtTheFirstPartialBatch() {
+        when(repository.purgeExpired(any(), eq(100))).thenReturn(100, 100, 42);
+
+        purger.purge();
+
+        verify(repository, times(3)).purgeExpired(any(), eq(100));
+        assertThat(registry.get("payments.idempotency.purged").functionCounter().count()).isEqualTo(242);
+    }
+
+    @Test
+    void runIsBoundedByMaxBatchesAndReportsTheRemainingLag() {
+        when(repository.purgeExpired(any(), eq(100))).thenReturn(100);
+        when(repository.oldestCreatedAt()).thenReturn(Optional.of(Instant.now().minus(Duration.ofHours(25))));
+
+        purger.purge();
+
+        verify(repository, times(3)).purgeExpired(any(), eq(100));
+        assertThat(purger.lag()).isBetween(Duration.ofMinutes(59), Duration.ofMinutes(61));
+        assertThat(registry.get("payments.idempotency.purge.lag").timeGauge().value()).isGreaterThan(3500);
+    }
+
+    @Test
+    void noLagWhileTheOldestRecordIsUnexpired() {
+        when(repository.oldestCreatedAt()).thenReturn(Optional.of(Instant.now().minus(Duration.ofHours(1))));
+
+        purger.purge();
+
+        assertThat(purger.lag()).isZero();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyReplayCacheTest {
+
+    @Test
+    void storedReplayIsReturnedAndCountedAsHit() {
+        IdempotencyReplayCache cache = new IdempotencyReplayCache(10, Duration.ofMinutes(1), Duration.ofHours(24));
+        CachedReplay replay = new CachedReplay("hash-1", response("payment-1"));
+
+        assertThat(cache.get("idem-1")).isNull();
+        cache.put("idem-1", replay);
+
+        assertThat(cache.get("idem-1")).isEqualTo(replay);
+        ReplayCacheStats stats = cache.stats();
+        assertThat(stats.hitCount()).isEqualTo(1);
+        assertThat(stats.missCount()).isEqualTo(1);
+        assertThat(stats.estimatedSize()).isEqualTo(1);
+    }
+
+    @Test
+    void cacheIsBoundedBySize() {
+        IdempotencyReplayCache cache = new IdempotencyReplayCache(5, Duration.ofMinutes(1), Duration.ofHours(24));
+
+        for (int i = 0; i < 100; i++) {
+            cache.put("idem-" + i, new CachedReplay("hash-" + i, response("payment-" + i)));
+        }
+
+        // Caffeine evicts on a background executor; cleanUp runs pending maintenance on this thread.
+        cache.cleanUp();
+        int present = 0;
+        for (int i = 0; i < 100; i++) {
+            if (cache.get("idem-" + i) != null) {
+                present++;
+            }
+        }
+        assertThat(present).isLessThanOrEqualTo(5);
+        assertThat(cache.stats().evictionCount()).isGreaterThanOrEqualTo(95);
+    }
+
+    private byte[] response(String id) {
+        return ("{\"id\":\"" + id + "\",\"status\":\"CREATED\",\"createdAt\":\"2026-02-24T12:00:00Z\"}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
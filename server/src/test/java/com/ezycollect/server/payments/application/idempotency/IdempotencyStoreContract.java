@@ -0,0 +1,152 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.domain.CompletedIdempotency;
+import com.ezycollect.server.payments.domain.IdempotencyClaim;
+import com.ezycollect.server.payments.domain.IdempotencyClaimOutcome;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Behaviour every {@link IdempotencyStore} must have, run against each implementation by its test class. Keys are
+ * random so implementations backed by a shared database need no cleanup.
+ */
+interface IdempotencyStoreContract {
+
+    byte[] RESPONSE = "{\"id\":\"payment-1\",\"status\":\"CREATED\"}".getBytes(StandardCharsets.UTF_8);
+
+    IdempotencyStore store();
+
+    TransactionTemplate transactionTemplate();
+
+    @Test
+    default void completedClaimIsReplayedAndConflictsWithOtherRequests() {
+        String key = newKey();
+        String hash = requestHash("a");
+        UUID paymentId = UUID.randomUUID();
+
+        IdempotencyClaim first = transactionTemplate().execute(status -> {
+            IdempotencyClaim claim = store().claim(key, hash, Instant.now());
+            store().complete(key, paymentId, 201, RESPONSE, Instant.now());
+            return claim;
+        });
+
+        assertThat(first.outcome()).isEqualTo(IdempotencyClaimOutcome.NEW);
+        IdempotencyClaim replay = store().claim(key, hash, Instant.now());
+        assertThat(replay.outcome()).isEqualTo(IdempotencyClaimOutcome.REPLAY);
+        assertThat(replay.responseStatus()).isEqualTo(201);
+        assertThat(replay.responseBody()).isEqualTo(RESPONSE);
+        assertThat(store().claim(key, requestHash("b"), Instant.now()).outcome())
+                .isEqualTo(IdempotencyClaimOutcome.CONFLICT);
+        assertThat(store().find(key)).contains(new StoredIdempotency(key, hash, 201, RESPONSE));
+    }
+
+    @Test
+    default void claimIsInProgressUntilCompleted() {
+        String key = newKey();
+        String hash = requestHash("a");
+
+        assertThat(store().claim(key, hash, Instant.now()).outcome()).isEqualTo(IdempotencyClaimOutcome.NEW);
+
+        assertThat(store().claim(key, hash, Instant.now()).outcome()).isEqualTo(IdempotencyClaimOutcome.IN_PROGRESS);
+        assertThat(store().find(key)).contains(new StoredIdempotency(key, hash, null, null));
+        store().complete(key, UUID.randomUUID(), 201, RESPONSE, Instant.now());
+        assertThat(store().claim(key, hash, Instant.now()).outcome()).isEqualTo(IdempotencyClaimOutcome.REPLAY);
+    }
+
+    @Test
+    default void rolledBackClaimFreesTheKey() {
+        String key = newKey();
+        String hash = requestHash("a");
+
+        transactionTemplate().executeWithoutResult(status -> {
+            store().claim(key, hash, Instant.now());
+            store().complete(key, UUID.randomUUID(), 201, RESPONSE, Instant.now());
+            status.setRollbackOnly();
+        });
+
+        assertThat(store().find(key)).isEmpty();
+        assertThat(store().claim(key, requestHash("b"), Instant.now()).outcome())
+                .isEqualTo(IdempotencyClaimOutcome.NEW);
+    }
+
+    @Test
+    default void expiredRecordIsInvisibleAndCanBeClaimedAgain() {
+        String key = newKey();
+        Instant longAgo = Instant.now().minus(Duration.ofHours(25));
+        store().claim(key, requestHash("a"), longAgo);
+        store().complete(key, UUID.randomUUID(), 201, RESPONSE, longAgo);
+
+        assertThat(store().find(key)).isEmpty();
+        assertThat(store().claim(key, requestHash("b"), Instant.now()).outcome())
+                .isEqualTo(IdempotencyClaimOutcome.NEW);
+        assertThat(store().find(key)).contains(new StoredIdempotency(key, requestHash("b"), null, null));
+    }
+
+    @Test
+    default void claimAllReturnsExistingRecordsAndCompletesTheRest() {
+        String existingKey = newKey();
+        String newKey = newKey();
+        store().claim(existingKey, requestHash("a"), Instant.now());
+        store().complete(existingKey, UUID.randomUUID(), 201, RESPONSE, Instant.now());
+        Map<String, String> hashes = new LinkedHashMap<>();
+        hashes.put(existingKey, requestHash("a"));
+        hashes.put(newKey, requestHash("b"));
+
+        Map<String, StoredIdempotency> existing = transactionTemplate().execute(status -> {
+            Map<String, StoredIdempotency> found = store().claimAll(hashes, Instant.now());
+            store().completeAll(List.of(new CompletedIdempotency(
+                    newKey, requestHash("b"), UUID.randomUUID(), 201, RESPONSE, Instant.now())));
+            return found;
+        });
+
+        assertThat(existing).containsOnlyKeys(existingKey);
+        assertThat(existing.get(existingKey)).isEqualTo(new StoredIdempotency(existingKey, requestHash("a"), 201, RESPONSE));
+        assertThat(store().find(newKey)).contains(new StoredIdempotency(newKey, requestHash("b"), 201, RESPONSE));
+    }
+
+    @Test
+    default void keysClaimedInBatchButNotCompletedAreFreeAfterCommit() {
+        String key = newKey();
+
+        Map<String, StoredIdempotency> existing = transactionTemplate().execute(
+                status -> store().claimAll(Map.of(key, requestHash("a")), Instant.now()));
+
+        assertThat(existing).isEmpty();
+        assertThat(store().find(key)).isEmpty();
+        assertThat(store().claim(key, requestHash("b"), Instant.now()).outcome())
+                .isEqualTo(IdempotencyClaimOutcome.NEW);
+    }
+
+    @Test
+    default void rolledBackBatchFreesItsKeys() {
+        String key = newKey();
+
+        transactionTemplate().executeWithoutResult(status -> {
+            store().claimAll(Map.of(key, requestHash("a")), Instant.now());
+            store().completeAll(List.of(new CompletedIdempotency(
+                    key, requestHash("a"), UUID.randomUUID(), 201, RESPONSE, Instant.now())));
+            status.setRollbackOnly();
+        });
+
+        assertThat(store().find(key)).isEmpty();
+    }
+
+    private static String newKey() {
+        return "contract-" + UUID.randomUUID();
+    }
+
+    private static String requestHash(String seed) {
+        return HexFormat.of().formatHex(String.format("%-32s", seed).getBytes(StandardCharsets.US_ASCII));
+    }
+}
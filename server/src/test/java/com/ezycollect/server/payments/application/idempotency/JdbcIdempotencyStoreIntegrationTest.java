@@ -0,0 +1,26 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@SpringBootTest
+class JdbcIdempotencyStoreIntegrationTest extends AbstractMySqlSpringBootIntegrationTest implements IdempotencyStoreContract {
+
+    @Autowired
+    private JdbcIdempotencyStore store;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public IdempotencyStore store() {
+        return store;
+    }
+
+    @Override
+    public TransactionTemplate transactionTemplate() {
+        return transactionTemplate;
+    }
+}
@@ -0,0 +1,166 @@
+package com.ezycollect.server.payments.application.idempotency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ezycollect.server.payments.domain.IdempotencyClaimOutcome;
+import com.ezycollect.server.payments.domain.StoredIdempotency;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+class MappedIdempotencyStoreTest implements IdempotencyStoreContract {
+
+    private static final String HASH = HexFormat.of().formatHex(new byte[32]);
+
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(new NoOpTransactionManager());
+
+    @TempDir
+    Path directory;
+
+    private MappedIdempotencyStore store;
+
+    @BeforeEach
+    void open() {
+        store = open(1024, 4);
+    }
+
+    @AfterEach
+    void close() throws InterruptedException {
+        store.shutdown();
+    }
+
+    @Override
+    public IdempotencyStore store() {
+        return store;
+    }
+
+    @Override
+    public TransactionTemplate transactionTemplate() {
+        return transactionTemplate;
+    }
+
+    @Test
+    void completedRecordsSurviveReopening() throws InterruptedException {
+        store.claim("key-1", HASH, Instant.now());
+        store.complete("key-1", UUID.randomUUID(), 201, RESPONSE, Instant.now());
+        store.shutdown();
+
+        store = open(1024, 4);
+
+        assertThat(store.find("key-1")).contains(new StoredIdempotency("key-1", HASH, 201, RESPONSE));
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void claimsInProgressAreDroppedOnReopening() throws InterruptedException {
+        store.claim("abandoned", HASH, Instant.now());
+        store.claim("completed", HASH, Instant.now());
+        store.complete("completed", UUID.randomUUID(), 201, RESPONSE, Instant.now());
+        store.shutdown();
+
+        store = open(1024, 4);
+
+        assertThat(store.find("abandoned")).isEmpty();
+        assertThat(store.find("completed")).isPresent();
+        assertThat(store.claim("abandoned", HASH, Instant.now()).outcome()).isEqualTo(IdempotencyClaimOutcome.NEW);
+    }
+
+    @Test
+    void reopeningWithAnotherLayoutFails() throws InterruptedException {
+        store.shutdown();
+
+        assertThatThrownBy(() -> open(2048, 4)).isInstanceOf(IllegalStateException.class);
+
+        store = open(1024, 4);
+    }
+
+    @Test
+    void fullTableReusesExpiredSlotsAndOtherwiseRejectsClaims() throws InterruptedException {
+        store.shutdown();
+        store = open("small.table", 8, 1);
+        Instant longAgo = Instant.now().minus(Duration.ofHours(25));
+        for (int i = 0; i < 6; i++) {
+            store.claim("old-" + i, HASH, longAgo);
+        }
+
+        for (int i = 0; i < 6; i++) {
+            assertThat(store.claim("new-" + i, HASH, Instant.now()).outcome()).isEqualTo(IdempotencyClaimOutcome.NEW);
+        }
+
+        assertThatThrownBy(() -> store.claim("one-too-many", HASH, Instant.now()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("payments.idempotency.mmap.capacity");
+    }
+
+    @Test
+    void oversizedResponseIsRejectedBeforeTheCommit() {
+        byte[] oversized = new byte[157];
+
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(status -> {
+            store.claim("key-1", HASH, Instant.now());
+            store.complete("key-1", UUID.randomUUID(), 201, oversized, Instant.now());
+        })).isInstanceOf(IllegalStateException.class).hasMessageContaining("max-response-size");
+
+        assertThat(store.find("key-1")).isEmpty();
+    }
+
+    @Test
+    void cannotBeCombinedWithJournalMode() {
+        assertThatThrownBy(() -> new MappedIdempotencyStore(directory.resolve("journal.table"), 1024, 4,
+                DataSize.ofBytes(156), Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofHours(24), true))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void reportsEntriesAndCapacity() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        store.bindTo(registry);
+        store.claim("key-1", HASH, Instant.now());
+
+        assertThat(registry.get("payments.idempotency.store.entries").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("payments.idempotency.store.capacity").gauge().value()).isEqualTo(1024);
+    }
+
+    private MappedIdempotencyStore open(int capacity, int segments) {
+        return open("idempotency.table", capacity, segments);
+    }
+
+    private MappedIdempotencyStore open(String file, int capacity, int segments) {
+        return new MappedIdempotencyStore(directory.resolve(file), capacity, segments,
+                DataSize.ofBytes(156), Duration.ofSeconds(1), Duration.ofMinutes(1), Duration.ofHours(24), false);
+    }
+
+    /** Runs transaction synchronizations without a resource, which is all the store relies on. */
+    private static final class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.ezycollect.server.payments.application.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+class JournaledPaymentCodecTest {
+
+    @Test
+    void decodedRecordKeepsTheResponseBytesAndEqualsTheAppendedClaim() {
+        PaymentEntity payment = new PaymentEntity();
+        payment.setId(PaymentIds.next());
+        payment.setFirstName("Ada");
+        payment.setLastName("Lovelace");
+        payment.setCardLast4("4242");
+        payment.setInvoiceIdsJson("[\"INV-2025-008\"]");
+        payment.setCardNumberCiphertext(new byte[] {1, 2, 3});
+        payment.setCardNumberIv(new byte[12]);
+        payment.setCardNumberKeyId("k2");
+        payment.setStatus(PaymentStatus.CREATED);
+        payment.setCreatedAt(Instant.parse("2026-02-24T12:00:00.123456Z"));
+        byte[] responseBody = "{\"id\":\"%s\",\"status\":\"CREATED\"}".formatted(payment.getId())
+                .getBytes(StandardCharsets.UTF_8);
+        JournaledPayment record = new JournaledPayment("idem-1", "a".repeat(64), 201, responseBody, payment);
+
+        JournaledPayment decoded = JournaledPaymentCodec.decode(JournaledPaymentCodec.encode(record));
+
+        assertThat(decoded.responseBody()).isEqualTo(responseBody);
+        assertThat(decoded.payment().getId()).isEqualTo(payment.getId());
+        assertThat(decoded.payment().getCreatedAt()).isEqualTo(payment.getCreatedAt());
+        assertThat(decoded.payment().getCardNumberKeyId()).isEqualTo("k2");
+        // The flusher removes a key from the unflushed index only while it still holds this very claim.
+        assertThat(decoded.toStored()).isEqualTo(record.toStored()).hasSameHashCodeAs(record.toStored());
+    }
+}
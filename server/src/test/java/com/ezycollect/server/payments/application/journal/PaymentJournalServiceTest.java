@@ -0,0 +1,139 @@
+package com.ezycollect.server.payments.application.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.ezycollect.server.payments.application.outbox.PaymentOutbox;
+import com.ezycollect.server.payments.domain.PaymentEntity;
+import com.ezycollect.server.payments.domain.PaymentIdempotencyClaimRepository;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentInvoiceRepository;
+import com.ezycollect.server.payments.domain.PaymentJdbcRepository;
+import com.ezycollect.server.payments.domain.PaymentStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+class PaymentJournalServiceTest {
+
+    private final PaymentJdbcRepository paymentJdbcRepository = mock(PaymentJdbcRepository.class);
+    private final List<String> flushedLastNames = new ArrayList<>();
+    private PaymentJournalService service;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void recordThatKeepsFailingIsQuarantinedAndLaterRecordsFlush() throws IOException {
+        doAnswer(invocation -> {
+            List<PaymentEntity> payments = invocation.getArgument(0);
+            if (payments.stream().anyMatch(payment -> payment.getLastName().equals("Poison"))) {
+                throw new IllegalStateException("Data too long for column 'last_name'");
+            }
+            payments.forEach(payment -> flushedLastNames.add(payment.getLastName()));
+            return null;
+        }).when(paymentJdbcRepository).insertAllIfAbsent(anyList());
+        service = service(2);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindTo(registry);
+        service.append("idem-1", "a".repeat(64), payment("Before"), 201, body());
+        service.append("idem-2", "b".repeat(64), payment("Poison"), 201, body());
+        service.append("idem-3", "c".repeat(64), payment("After"), 201, body());
+
+        // The whole batch fails twice, then records are retried one at a time.
+        assertThatThrownBy(service::flush).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(service::flush).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(service::flush).isInstanceOf(IllegalStateException.class);
+        assertThat(flushedLastNames).containsExactly("Before");
+        assertThat(quarantinedFiles()).isEmpty();
+
+        service.flush();
+
+        assertThat(flushedLastNames).containsExactly("Before", "After");
+        assertThat(service.unflushedCount()).isZero();
+        assertThat(registry.get("payments.journal.quarantined").functionCounter().count()).isEqualTo(1);
+        assertThat(quarantinedFiles()).singleElement().satisfies(file ->
+                assertThat(JournaledPaymentCodec.decode(Files.readAllBytes(file)).idempotencyKey()).isEqualTo("idem-2"));
+    }
+
+    @Test
+    void transientFailuresBelowTheLimitQuarantineNothing() throws IOException {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Communications link failure");
+        }).doAnswer(invocation -> null).when(paymentJdbcRepository).insertAllIfAbsent(anyList());
+        service = service(2);
+        service.append("idem-1", "a".repeat(64), payment("Ada"), 201, body());
+
+        assertThatThrownBy(service::flush).isInstanceOf(IllegalStateException.class);
+        service.flush();
+
+        assertThat(service.unflushedCount()).isZero();
+        assertThat(quarantinedFiles()).isEmpty();
+    }
+
+    private PaymentJournalService service(int maxFlushAttempts) {
+        return new PaymentJournalService(
+                mock(PaymentIdempotencyClaimRepository.class),
+                paymentJdbcRepository,
+                mock(PaymentInvoiceRepository.class),
+                mock(PaymentOutbox.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                directory,
+                DataSize.ofKilobytes(64),
+                Duration.ofHours(1),
+                10,
+                maxFlushAttempts);
+    }
+
+    private List<Path> quarantinedFiles() throws IOException {
+        Path quarantine = directory.resolve("quarantine");
+        if (!Files.exists(quarantine)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(quarantine)) {
+            return files.toList();
+        }
+    }
+
+    private static PaymentEntity payment(String lastName) {
+        PaymentEntity payment = new PaymentEntity();
+        payment.setId(PaymentIds.next());
+        payment.setFirstName("Ada");
+        payment.setLastName(lastName);
+        payment.setCardLast4("4242");
+        payment.setInvoiceIdsJson("[\"INV-2025-008\"]");
+        payment.setCardNumberCiphertext(new byte[] {1, 2, 3});
+        payment.setCardNumberIv(new byte[12]);
+        payment.setCardNumberKeyId("k2");
+        payment.setStatus(PaymentStatus.CREATED);
+        payment.setCreatedAt(Instant.parse("2026-02-24T12:00:00.123456Z"));
+        return payment;
+    }
+
+    private static byte[] body() {
+        return "{\"status\":\"CREATED\"}".getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+package com.ezycollect.server.payments.application.journal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.ezycollect.server.payments.application.journal.PaymentJournal.JournalEntry;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class PaymentJournalTest {
+
+    private static final int SEGMENT_SIZE = 64;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void durableRecordsAreReadBackInOrderAcrossSegments() {
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            for (int i = 0; i < 10; i++) {
+                journal.awaitDurable(journal.append(payload("record-" + i)));
+            }
+
+            assertThat(texts(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE)))
+                    .containsExactly("record-0", "record-1", "record-2", "record-3", "record-4",
+                            "record-5", "record-6", "record-7", "record-8", "record-9");
+        }
+    }
+
+    @Test
+    void reopenedJournalReplaysRecordsAfterCheckpointOnly() {
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            long first = journal.append(payload("record-0"));
+            journal.awaitDurable(journal.append(payload("record-1")));
+            journal.checkpoint(first);
+        }
+
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            assertThat(texts(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE))).containsExactly("record-1");
+
+            journal.awaitDurable(journal.append(payload("record-2")));
+            assertThat(texts(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE)))
+                    .containsExactly("record-1", "record-2");
+        }
+    }
+
+    @Test
+    void failedSyncFailsWaitingAndLaterAppends() {
+        UncheckedIOException diskError = new UncheckedIOException(new IOException("Input/output error"));
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE, segment -> {
+            throw diskError;
+        })) {
+            long position = journal.append(payload("record-0"));
+
+            assertThatThrownBy(() -> journal.awaitDurable(position))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasCause(diskError);
+            assertThatThrownBy(() -> journal.append(payload("record-1")))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasCause(diskError);
+            assertThat(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE)).isEmpty();
+        }
+    }
+
+    @Test
+    void tornTailIsDiscardedOnRecovery() throws Exception {
+        long end;
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            end = journal.append(payload("record-0"));
+            journal.awaitDurable(journal.append(payload("record-1")));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(file -> file.getFileName().toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        // Corrupt the second record's payload so its checksum no longer matches, as after a partial page write.
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(end + PaymentJournal.RECORD_HEADER_BYTES);
+            file.write('X');
+        }
+
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            assertThat(texts(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE))).containsExactly("record-0");
+            assertThat(journal.durablePosition()).isEqualTo(end);
+        }
+    }
+
+    @Test
+    void checkpointDeletesFullyConsumedSegments() throws Exception {
+        try (PaymentJournal journal = new PaymentJournal(directory, SEGMENT_SIZE)) {
+            long end = 0;
+            for (int i = 0; i < 10; i++) {
+                end = journal.append(payload("record-" + i));
+            }
+            journal.awaitDurable(end);
+            assertThat(segmentCount()).isGreaterThan(1);
+
+            journal.checkpoint(end);
+
+            assertThat(segmentCount()).isEqualTo(1);
+            assertThat(journal.readDurable(journal.checkpoint(), Integer.MAX_VALUE)).isEmpty();
+        }
+    }
+
+    private long segmentCount() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).count();
+        }
+    }
+
+    private static byte[] payload(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> texts(List<JournalEntry> entries) {
+        return entries.stream().map(entry -> new String(entry.payload(), StandardCharsets.UTF_8)).toList();
+    }
+}
@@ -0,0 +1,66 @@
+package com.ezycollect.server.payments.application.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Outcome;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Sample;
+import com.ezycollect.server.payments.application.metrics.PaymentCreationMetrics.Stage;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class PaymentCreationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PaymentCreationMetrics metrics = new PaymentCreationMetrics(registry);
+
+    @Test
+    void reachedStagesAreRecordedUnderTheFinalOutcome() {
+        Sample sample = metrics.start();
+        sample.lap(Stage.HASH);
+        sample.lap(Stage.REPLAY_LOOKUP);
+        sample.lap(Stage.CLAIM);
+        sample.outcome(Outcome.REPLAYED);
+        sample.finish();
+
+        assertThat(createTimer("replayed").count()).isEqualTo(1);
+        assertThat(stageTimer("hash", "replayed").count()).isEqualTo(1);
+        assertThat(stageTimer("claim", "replayed").count()).isEqualTo(1);
+        assertThat(stageTimer("encrypt", "replayed").count()).isZero();
+        assertThat(stageTimer("hash", "created").count()).isZero();
+    }
+
+    @Test
+    void repeatedLapsOfOneStageAreRecordedOnce() throws InterruptedException {
+        Sample sample = metrics.start();
+        Thread.sleep(2);
+        sample.lap(Stage.SAVE);
+        Thread.sleep(2);
+        sample.lap(Stage.SAVE);
+        sample.outcome(Outcome.CREATED);
+        sample.finish();
+
+        Timer save = stageTimer("save", "created");
+        assertThat(save.count()).isEqualTo(1);
+        assertThat(save.totalTime(TimeUnit.MILLISECONDS)).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    void requestsWithoutAnOutcomeAreCountedAsErrors() {
+        Sample sample = metrics.start();
+        sample.lap(Stage.HASH);
+        sample.finish();
+
+        assertThat(createTimer("error").count()).isEqualTo(1);
+        assertThat(stageTimer("hash", "error").count()).isEqualTo(1);
+    }
+
+    private Timer createTimer(String outcome) {
+        return registry.get(PaymentCreationMetrics.CREATE_TIMER).tag("outcome", outcome).timer();
+    }
+
+    private Timer stageTimer(String stage, String outcome) {
+        return registry.get(PaymentCreationMetrics.STAGE_TIMER).tag("stage", stage).tag("outcome", outcome).timer();
+    }
+}
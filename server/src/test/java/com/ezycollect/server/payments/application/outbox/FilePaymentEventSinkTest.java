@@ -0,0 +1,39 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FilePaymentEventSinkTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsOneLinePerEventAcrossBatchesAndRestarts() throws Exception {
+        Path file = directory.resolve("outbox/payment-events.ndjson");
+        FilePaymentEventSink sink = new FilePaymentEventSink(file);
+        sink.publish(List.of(event("{\"n\":1}"), event("{\"n\":2}")));
+        sink.publish(List.of(event("{\"n\":3}")));
+        sink.close();
+
+        FilePaymentEventSink reopened = new FilePaymentEventSink(file);
+        reopened.publish(List.of(event("{\"n\":4}")));
+        reopened.close();
+
+        assertThat(Files.readAllLines(file)).containsExactly("{\"n\":1}", "{\"n\":2}", "{\"n\":3}", "{\"n\":4}");
+    }
+
+    private static OutboxEvent event(String payload) {
+        return new OutboxEvent(0, PaymentOutbox.PAYMENT_CREATED, PaymentIds.next(),
+                payload.getBytes(StandardCharsets.UTF_8), Instant.now());
+    }
+}
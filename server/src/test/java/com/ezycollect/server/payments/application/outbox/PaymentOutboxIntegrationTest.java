@@ -0,0 +1,123 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.ezycollect.server.payments.application.PaymentService;
+import com.ezycollect.server.payments.application.dto.CreatePaymentRequest;
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.support.AbstractMySqlSpringBootIntegrationTest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@SpringBootTest(properties = {
+        "payments.outbox.enabled=true",
+        "payments.outbox.sink=queue",
+        "payments.outbox.relay.batch-size=7",
+        // Scheduled runs would race the relays started by the test.
+        "payments.outbox.relay.interval=1h"
+})
+class PaymentOutboxIntegrationTest extends AbstractMySqlSpringBootIntegrationTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private PaymentOutboxRelay relay;
+
+    @Autowired
+    private QueuePaymentEventSink sink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void cleanTables() {
+        jdbcTemplate.update("DELETE FROM payment_outbox");
+        jdbcTemplate.update("DELETE FROM payment_idempotency");
+        jdbcTemplate.update("DELETE FROM payment_invoices");
+        jdbcTemplate.update("DELETE FROM payments");
+        sink.drainTo(new ArrayList<>(), Integer.MAX_VALUE);
+    }
+
+    @Test
+    void createdPaymentIsRecordedInTheSameTransactionAndRelayedOnce() throws Exception {
+        paymentService.createPayment("outbox-1", request("Ada"));
+        paymentService.createPayment("outbox-1", request("Ada"));
+
+        assertThat(countRows("payment_outbox")).isEqualTo(1);
+
+        relay.relay();
+
+        List<OutboxEvent> published = new ArrayList<>();
+        sink.drainTo(published, 10);
+        assertThat(published).hasSize(1);
+        JsonNode payload = objectMapper.readTree(published.get(0).payload());
+        assertThat(payload.get("type").asText()).isEqualTo("PaymentCreated");
+        assertThat(payload.get("paymentId").asText()).isEqualTo(published.get(0).paymentId().toString());
+        assertThat(payload.get("invoiceIds").get(0).asText()).isEqualTo("INV-2025-00001");
+        assertThat(countRows("payment_outbox")).isZero();
+    }
+
+    @Test
+    void concurrentRelaysPublishEveryEventExactlyOnce() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            paymentService.createPayment("outbox-" + i, request("Payer " + i));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> relays = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                relays.add(executor.submit(() -> {
+                    start.await();
+                    relay.relay();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : relays) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<OutboxEvent> published = new ArrayList<>();
+        sink.drainTo(published, Integer.MAX_VALUE);
+        List<UUID> paymentIds = published.stream().map(OutboxEvent::paymentId).toList();
+        assertThat(paymentIds).hasSize(200).doesNotHaveDuplicates();
+        assertThat(countRows("payment_outbox")).isZero();
+    }
+
+    private static CreatePaymentRequest request(String firstName) {
+        CreatePaymentRequest request = new CreatePaymentRequest();
+        request.setFirstName(firstName);
+        request.setLastName("Lovelace");
+        request.setExpiry("12/29");
+        request.setCvv("123");
+        request.setCardNumber("4242424242424242");
+        request.setInvoiceIds(List.of("INV-2025-00001"));
+        return request;
+    }
+
+    private int countRows(String tableName) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + tableName, Integer.class);
+        return count == null ? 0 : count;
+    }
+}
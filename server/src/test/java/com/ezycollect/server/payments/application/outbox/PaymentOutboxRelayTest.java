@@ -0,0 +1,74 @@
+package com.ezycollect.server.payments.application.outbox;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ezycollect.server.payments.domain.OutboxEvent;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.PaymentOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class PaymentOutboxRelayTest {
+
+    private final PaymentOutboxRepository repository = mock(PaymentOutboxRepository.class);
+    private final QueuePaymentEventSink sink = new QueuePaymentEventSink(5);
+    private final PaymentOutboxRelay relay = new PaymentOutboxRelay(
+            repository,
+            sink,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            2,
+            10,
+            Duration.ofSeconds(1));
+
+    @Test
+    void publishesAndDeletesBatchesUntilAShortOne() {
+        List<OutboxEvent> first = List.of(event(1), event(2));
+        List<OutboxEvent> last = List.of(event(3));
+        when(repository.claim(2)).thenReturn(first, last);
+        when(repository.oldestCreatedAt()).thenReturn(Optional.empty());
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        relay.bindTo(registry);
+
+        relay.relay();
+
+        List<OutboxEvent> published = new ArrayList<>();
+        sink.drainTo(published, 10);
+        assertThat(published).extracting(OutboxEvent::id).containsExactly(1L, 2L, 3L);
+        verify(repository).deleteAll(first);
+        verify(repository).deleteAll(last);
+        assertThat(registry.get("payments.outbox.published").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("payments.outbox.lag").timeGauge().value(TimeUnit.SECONDS)).isZero();
+    }
+
+    @Test
+    void eventsThatCannotBePublishedStayInTheOutbox() {
+        sink.publish(List.of(event(1), event(2), event(3), event(4)));
+        when(repository.claim(2)).thenReturn(List.of(event(5), event(6)));
+        when(repository.oldestCreatedAt()).thenReturn(Optional.of(Instant.now().minusSeconds(30)));
+
+        relay.relay();
+
+        verify(repository, never()).deleteAll(anyList());
+        assertThat(sink.size()).isEqualTo(4);
+        assertThat(relay.lag()).isGreaterThanOrEqualTo(Duration.ofSeconds(30));
+    }
+
+    private static OutboxEvent event(long id) {
+        return new OutboxEvent(id, PaymentOutbox.PAYMENT_CREATED, PaymentIds.next(),
+                ("{\"n\":" + id + "}").getBytes(StandardCharsets.UTF_8), Instant.now());
+    }
+}
@@ -0,0 +1,140 @@
+package com.ezycollect.server.payments.application.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.ezycollect.server.payments.domain.CardNumberCiphertext;
+import com.ezycollect.server.payments.domain.CardNumberReencryptionRepository;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.ReencryptionCursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class CardNumberReencryptionTest {
+
+    private static final String OLD_KEY_B64 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String NEW_KEY_B64 = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+
+    private final AesGcmCrypto oldCrypto = new AesGcmCrypto(new EncryptionKeyProvider(OLD_KEY_B64));
+    private final AesGcmCrypto crypto = new AesGcmCrypto(new EncryptionKeyProvider(NEW_KEY_B64, "k2", "k1:" + OLD_KEY_B64));
+    private final CardNumberReencryptionRepository repository = mock(CardNumberReencryptionRepository.class);
+    private final CardNumberReencryption reencryption = new CardNumberReencryption(
+            repository,
+            crypto,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)),
+            3,
+            1_000_000,
+            2,
+            Duration.ofMinutes(1));
+
+    @AfterEach
+    void shutdown() {
+        reencryption.shutdown();
+    }
+
+    @Test
+    void rewritesRowsUnderRetiredKeysAndCompletesOnAShortChunk() {
+        List<CardNumberCiphertext> firstChunk = List.of(
+                stored(oldCrypto, "4111111111111111"), stored(crypto, "5500000000000004"), stored(oldCrypto, "340000000000009"));
+        List<CardNumberCiphertext> lastChunk = List.of(stored(oldCrypto, "4242424242424242"));
+        byte[] firstChunkEnd = PaymentIds.toBytes(firstChunk.get(2).paymentId());
+        when(repository.lockCursor("k2"))
+                .thenReturn(cursor(null, 0, null))
+                .thenReturn(cursor(firstChunkEnd, 3, null));
+        when(repository.readAfter(null, 3)).thenReturn(firstChunk);
+        when(repository.readAfter(firstChunkEnd, 3)).thenReturn(lastChunk);
+        List<List<CardNumberCiphertext>> written = new ArrayList<>();
+        when(repository.updateAll(anyList())).thenAnswer(invocation -> {
+            List<CardNumberCiphertext> rows = invocation.getArgument(0);
+            written.add(rows);
+            return rows.size();
+        });
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        reencryption.bindTo(registry);
+
+        reencryption.reencrypt();
+
+        assertThat(written).hasSize(2);
+        assertThat(written.get(0)).extracting(CardNumberCiphertext::paymentId)
+                .containsExactly(firstChunk.get(0).paymentId(), firstChunk.get(2).paymentId());
+        assertThat(written.get(0)).allSatisfy(row -> assertThat(row.keyId()).isEqualTo("k2"));
+        assertThat(plaintext(written.get(0).get(1))).isEqualTo("340000000000009");
+        assertThat(plaintext(written.get(1).get(0))).isEqualTo("4242424242424242");
+        verify(repository).advance("k2", firstChunkEnd, 3, 2, null);
+        verify(repository).advance(eq("k2"), eq(PaymentIds.toBytes(lastChunk.get(0).paymentId())), eq(1), eq(1), any(Instant.class));
+        assertThat(reencryption.complete()).isTrue();
+        assertThat(registry.get("payments.encryption.reencrypted").functionCounter().count()).isEqualTo(3);
+        assertThat(registry.get("payments.encryption.reencryption.scanned").gauge().value()).isEqualTo(4);
+        // The cursor row is created once per run, before and outside the chunk transactions that lock it.
+        InOrder order = inOrder(repository);
+        order.verify(repository).createCursor(eq("k2"), any(Instant.class));
+        order.verify(repository, times(2)).lockCursor("k2");
+        verify(repository).createCursor(eq("k2"), any(Instant.class));
+    }
+
+    @Test
+    void completedCursorIsNotScannedAgain() {
+        when(repository.lockCursor("k2")).thenReturn(cursor(new byte[16], 10, Instant.now()));
+
+        reencryption.reencrypt();
+        reencryption.reencrypt();
+
+        assertThat(reencryption.complete()).isTrue();
+        verify(repository, never()).readAfter(any(), anyInt());
+    }
+
+    @Test
+    void rowUnderAnUnknownKeyLeavesTheCursorWhereItWas() {
+        CardNumberCiphertext unknown = new CardNumberCiphertext(PaymentIds.next(), "k0", new byte[12], new byte[32]);
+        when(repository.lockCursor("k2")).thenReturn(cursor(null, 0, null));
+        when(repository.readAfter(null, 3)).thenReturn(List.of(unknown));
+
+        reencryption.reencrypt();
+
+        verify(repository, never()).updateAll(anyList());
+        verify(repository, never()).advance(any(), any(), anyInt(), anyInt(), any());
+        assertThat(reencryption.complete()).isFalse();
+    }
+
+    @Test
+    void rejectsANonPositiveRowRate() {
+        assertThatThrownBy(() -> new CardNumberReencryption(
+                        repository, crypto, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                        3, 0, 2, Duration.ofMinutes(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("max-rows-per-second");
+    }
+
+    private String plaintext(CardNumberCiphertext row) {
+        return new String(crypto.decrypt(new EncryptedPayload(row.keyId(), row.iv(), row.ciphertext())), StandardCharsets.UTF_8);
+    }
+
+    private static CardNumberCiphertext stored(AesGcmCrypto crypto, String cardNumber) {
+        EncryptedPayload payload = crypto.encrypt(cardNumber);
+        return new CardNumberCiphertext(PaymentIds.next(), payload.keyId(), payload.iv(), payload.ciphertext());
+    }
+
+    private static ReencryptionCursor cursor(byte[] lastPaymentId, long scannedRows, Instant completedAt) {
+        return new ReencryptionCursor("k2", lastPaymentId, scannedRows, 0, Instant.now(), completedAt);
+    }
+}
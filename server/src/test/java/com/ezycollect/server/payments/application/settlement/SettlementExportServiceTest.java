@@ -0,0 +1,128 @@
+package com.ezycollect.server.payments.application.settlement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.ezycollect.server.payments.application.security.AesGcmCrypto;
+import com.ezycollect.server.payments.application.security.EncryptedPayload;
+import com.ezycollect.server.payments.application.security.EncryptionKeyProvider;
+import com.ezycollect.server.payments.domain.PaymentExportRepository;
+import com.ezycollect.server.payments.domain.PaymentExportRepository.ExportCursor;
+import com.ezycollect.server.payments.domain.PaymentIds;
+import com.ezycollect.server.payments.domain.SettlementCardNumber;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SettlementExportServiceTest {
+
+    private static final String OLD_KEY_B64 = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+    private static final String NEW_KEY_B64 = "ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=";
+    private static final Instant FROM = Instant.parse("2026-03-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-03-02T00:00:00Z");
+
+    private final AesGcmCrypto oldCrypto = new AesGcmCrypto(new EncryptionKeyProvider(OLD_KEY_B64));
+    private final AesGcmCrypto crypto = new AesGcmCrypto(new EncryptionKeyProvider(NEW_KEY_B64, "k2", "k1:" + OLD_KEY_B64));
+    private final PaymentExportRepository repository = mock(PaymentExportRepository.class);
+    // Pages, batches and the in-flight window are small so one file spans several of each.
+    private final SettlementExportService service = new SettlementExportService(repository, crypto, 5, 3, 2, 3);
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void shutdown() {
+        service.shutdown();
+    }
+
+    @Test
+    void writesDecryptedCardNumbersInKeysetOrderAcrossPagesAndBatches() throws Exception {
+        List<SettlementCardNumber> rows = new ArrayList<>();
+        List<String> expectedLines = new ArrayList<>(List.of("payment_id,card_number,created_at"));
+        for (int i = 0; i < 23; i++) {
+            String cardNumber = "4111111111111" + String.format("%03d", i);
+            SettlementCardNumber row = stored(i % 2 == 0 ? oldCrypto : crypto, cardNumber, FROM.plusSeconds(i));
+            rows.add(row);
+            expectedLines.add(row.paymentId() + "," + cardNumber + "," + row.createdAt());
+        }
+        pagesOf(rows);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        service.bindTo(registry);
+        Path file = directory.resolve("settlement.csv");
+
+        SettlementFile written = service.write(FROM, TO, file);
+
+        assertThat(Files.readAllLines(file)).containsExactlyElementsOf(expectedLines);
+        assertThat(written).isEqualTo(new SettlementFile(file, 23, Files.size(file)));
+        assertThat(Files.getPosixFilePermissions(file)).isEqualTo(PosixFilePermissions.fromString("rw-------"));
+        assertThat(directory.resolve("settlement.csv.part")).doesNotExist();
+        assertThat(registry.get("payments.settlement.rows").functionCounter().count()).isEqualTo(23);
+    }
+
+    @Test
+    void failedRunLeavesNoFile() {
+        List<SettlementCardNumber> rows = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rows.add(stored(crypto, "4242424242424242", FROM.plusSeconds(i)));
+        }
+        SettlementCardNumber unknownKey = rows.get(7);
+        rows.set(7, new SettlementCardNumber(
+                unknownKey.paymentId(), unknownKey.createdAt(), "k0", unknownKey.iv(), unknownKey.ciphertext()));
+        pagesOf(rows);
+        Path file = directory.resolve("settlement.csv");
+
+        assertThatThrownBy(() -> service.write(FROM, TO, file))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("k0");
+
+        assertThat(file).doesNotExist();
+        assertThat(directory.resolve("settlement.csv.part")).doesNotExist();
+    }
+
+    @Test
+    void existingFileIsNotOverwritten() throws Exception {
+        Path file = Files.writeString(directory.resolve("settlement.csv"), "earlier run\n");
+
+        assertThatThrownBy(() -> service.write(FROM, TO, file)).isInstanceOf(FileAlreadyExistsException.class);
+
+        assertThat(Files.readString(file)).isEqualTo("earlier run\n");
+    }
+
+    /** Serves {@code rows} (in keyset order) page by page, honouring the cursor and limit. */
+    @SuppressWarnings("unchecked")
+    private void pagesOf(List<SettlementCardNumber> rows) {
+        when(repository.streamCardNumbers(any(), any(), any(), anyInt(), any())).thenAnswer(invocation -> {
+            ExportCursor after = invocation.getArgument(2);
+            int limit = invocation.getArgument(3);
+            Consumer<SettlementCardNumber> consumer = invocation.getArgument(4);
+            int start = 0;
+            if (after != null) {
+                while (!rows.get(start).paymentId().equals(after.paymentId())) {
+                    start++;
+                }
+                start++;
+            }
+            List<SettlementCardNumber> page = rows.subList(start, Math.min(start + limit, rows.size()));
+            page.forEach(consumer);
+            return page.size();
+        });
+    }
+
+    private static SettlementCardNumber stored(AesGcmCrypto crypto, String cardNumber, Instant createdAt) {
+        EncryptedPayload payload = crypto.encrypt(cardNumber);
+        return new SettlementCardNumber(PaymentIds.next(), createdAt, payload.keyId(), payload.iv(), payload.ciphertext());
+    }
+}
@@ -0,0 +1,61 @@
+package com.ezycollect.server.payments.application.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+class PaymentViewCacheTest {
+
+    private final PaymentViewCache cache = new PaymentViewCache(10, Duration.ofMinutes(1));
+    private final UUID paymentId = UUID.fromString("0192f3c4-5d6e-7f80-9a1b-2c3d4e5f6a7b");
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void viewIsLoadedOnceUntilInvalidated() {
+        RenderedPaymentView first = cache.get(paymentId, this::load);
+        assertThat(cache.get(paymentId, this::load)).isSameAs(first);
+        assertThat(loads).hasValue(1);
+
+        cache.invalidate(paymentId);
+
+        assertThat(cache.get(paymentId, this::load)).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void missingPaymentIsNotCached() {
+        assertThat(cache.get(paymentId, id -> null)).isNull();
+
+        assertThat(cache.get(paymentId, this::load)).isNotNull();
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidationInsideATransactionIsRepeatedWhenItCompletes() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(paymentId);
+            // A concurrent reader caches the row before the updating transaction commits.
+            cache.get(paymentId, this::load);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        cache.get(paymentId, this::load);
+        assertThat(loads).hasValue(2);
+    }
+
+    private RenderedPaymentView load(UUID id) {
+        int version = loads.incrementAndGet();
+        return new RenderedPaymentView(("{\"id\":\"" + id + "\"}").getBytes(StandardCharsets.UTF_8), "\"v" + version + "\"");
+    }
+}
@@ -0,0 +1,85 @@
+package com.ezycollect.server.payments.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class PaymentIdsTest {
+
+    @Test
+    void idsAreVersion7WithTheCurrentTimestamp() {
+        long before = System.currentTimeMillis();
+        UUID id = PaymentIds.next();
+        long after = System.currentTimeMillis();
+
+        assertThat(id.version()).isEqualTo(7);
+        assertThat(id.variant()).isEqualTo(2);
+        assertThat(id.getMostSignificantBits() >>> 16).isBetween(before, after + 1);
+    }
+
+    @Test
+    void idsFromOneThreadAreStrictlyIncreasingInByteOrder() {
+        byte[] previous = PaymentIds.toBytes(PaymentIds.next());
+        for (int i = 0; i < 20_000; i++) {
+            byte[] current = PaymentIds.toBytes(PaymentIds.next());
+            assertThat(Arrays.compareUnsigned(current, previous)).isPositive();
+            previous = current;
+        }
+    }
+
+    @Test
+    void idsFromSuccessiveShortLivedThreadsAreStrictlyIncreasing() throws Exception {
+        List<byte[]> ids = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Thread thread = new Thread(() -> ids.add(PaymentIds.toBytes(PaymentIds.next())));
+            thread.start();
+            thread.join();
+        }
+
+        for (int i = 1; i < ids.size(); i++) {
+            assertThat(Arrays.compareUnsigned(ids.get(i), ids.get(i - 1))).isPositive();
+        }
+    }
+
+    @Test
+    void bytesRoundTripToTheCanonicalForm() {
+        UUID id = UUID.fromString("0190f5c2-7d3a-7b21-9c4e-5f6a7b8c9d0e");
+
+        byte[] bytes = PaymentIds.toBytes(id);
+
+        assertThat(bytes).hasSize(16).startsWith(0x01, 0x90, 0xf5, 0xc2);
+        assertThat(PaymentIds.fromBytes(bytes)).isEqualTo(id);
+    }
+
+    @Test
+    void idsAreUniqueAcrossThreads() throws Exception {
+        Set<UUID> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(PaymentIds.next());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(80_000);
+    }
+}
@@ -0,0 +1,72 @@
+package com.ezycollect.server.shared.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class BoundedPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+    private final BoundedPool<int[]> pool = new BoundedPool<>(2, () -> {
+        created.incrementAndGet();
+        return new int[1];
+    });
+
+    @Test
+    void reusesReleasedInstancesAcrossThreads() throws Exception {
+        for (int i = 0; i < 50; i++) {
+            // One acquire per new thread, as with a virtual thread per request.
+            Thread thread = new Thread(() -> pool.release(pool.acquire()));
+            thread.start();
+            thread.join();
+        }
+
+        assertThat(created).hasValue(1);
+        assertThat(pool.idle()).isEqualTo(1);
+    }
+
+    @Test
+    void createsBeyondTheIdleInstancesAndKeepsAtMostCapacity() {
+        List<int[]> taken = List.of(pool.acquire(), pool.acquire(), pool.acquire());
+        assertThat(created).hasValue(3);
+
+        taken.forEach(pool::release);
+
+        assertThat(pool.idle()).isEqualTo(2);
+        pool.acquire();
+        assertThat(created).hasValue(3);
+    }
+
+    @Test
+    void neverHandsOneInstanceToTwoCallers() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        int[] owned = pool.acquire();
+                        int value = ++owned[0];
+                        Thread.onSpinWait();
+                        if (owned[0] != value) {
+                            return false;
+                        }
+                        pool.release(owned);
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertThat(future.get()).isTrue();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
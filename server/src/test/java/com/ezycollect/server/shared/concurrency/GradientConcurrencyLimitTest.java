@@ -0,0 +1,105 @@
+package com.ezycollect.server.shared.concurrency;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class GradientConcurrencyLimitTest {
+
+    private long nanos;
+    private final GradientConcurrencyLimit limit =
+            new GradientConcurrencyLimit(20, 4, 100, 1.5, Duration.ofMillis(500), () -> nanos);
+
+    @Test
+    void admitsUpToTheLimitPlusHeadroom() {
+        for (int i = 0; i < 20; i++) {
+            assertThat(limit.tryAcquire(0)).isNotNegative();
+        }
+        assertThat(limit.tryAcquire(0)).isNegative();
+        assertThat(limit.tryAcquire(2)).isNotNegative();
+        assertThat(limit.tryAcquire(2)).isNotNegative();
+        assertThat(limit.tryAcquire(2)).isNegative();
+        assertThat(limit.inFlight()).isEqualTo(22);
+
+        limit.release(nanos, true, false);
+        assertThat(limit.tryAcquire(2)).isNotNegative();
+    }
+
+    @Test
+    void growsWhileSaturatedAtSteadyLatency() {
+        for (int window = 0; window < 10; window++) {
+            runWindow(limit.limit(), 10);
+        }
+
+        assertThat(limit.limit()).isGreaterThan(30);
+    }
+
+    @Test
+    void shrinksWhenLatencyRisesAndRecoversAfterwards() {
+        for (int window = 0; window < 5; window++) {
+            runWindow(limit.limit(), 10);
+        }
+        int before = limit.limit();
+
+        for (int window = 0; window < 10; window++) {
+            runWindow(limit.limit(), 60);
+        }
+        int congested = limit.limit();
+        for (int window = 0; window < 20; window++) {
+            runWindow(limit.limit(), 10);
+        }
+
+        assertThat(congested).isLessThan(before / 2);
+        assertThat(limit.limit()).isGreaterThan(congested);
+    }
+
+    @Test
+    void failuresBackOffOncePerWindowDownToTheMinimum() {
+        long[] starts = new long[20];
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = limit.tryAcquire(0);
+        }
+        for (long start : starts) {
+            limit.release(start, false, true);
+        }
+        assertThat(limit.limit()).isEqualTo(18);
+
+        for (int window = 0; window < 30; window++) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(500);
+            limit.release(limit.tryAcquire(0), false, true);
+        }
+
+        assertThat(limit.limit()).isEqualTo(4);
+        assertThat(limit.inFlight()).isZero();
+    }
+
+    @Test
+    void doesNotGrowWithoutDemand() {
+        for (int window = 0; window < 10; window++) {
+            runWindow(2, 10);
+        }
+
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    /** {@code concurrency} requests at a time, each taking {@code rttMillis}, for one 500ms sample window. */
+    private void runWindow(int concurrency, long rttMillis) {
+        long windowEnd = nanos + TimeUnit.MILLISECONDS.toNanos(500);
+        int samples = 0;
+        while (nanos < windowEnd || samples < 10) {
+            long[] starts = new long[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                starts[i] = limit.tryAcquire(0);
+            }
+            nanos += TimeUnit.MILLISECONDS.toNanos(rttMillis);
+            for (long start : starts) {
+                if (start >= 0) {
+                    limit.release(start, true, false);
+                    samples++;
+                }
+            }
+        }
+    }
+}
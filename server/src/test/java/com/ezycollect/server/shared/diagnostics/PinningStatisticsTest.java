@@ -0,0 +1,50 @@
+package com.ezycollect.server.shared.diagnostics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class PinningStatisticsTest {
+
+    @Test
+    void stacksAreClassifiedByTheLibraryThatPinned() {
+        assertThat(PinningStatistics.classify(List.of(
+                "java.lang.VirtualThread", "com.mysql.cj.protocol.a.NativeProtocol", "com.ezycollect.server.Foo")))
+                .isEqualTo(PinningCategory.JDBC);
+        assertThat(PinningStatistics.classify(List.of("java.lang.VirtualThread", "com.sun.crypto.provider.GaloisCounterMode")))
+                .isEqualTo(PinningCategory.CRYPTO);
+        assertThat(PinningStatistics.classify(List.of("java.lang.VirtualThread", "java.lang.Object")))
+                .isEqualTo(PinningCategory.OTHER);
+    }
+
+    @Test
+    void siteIsTheInnermostApplicationFrame() {
+        assertThat(PinningStatistics.site(List.of(
+                "java.lang.VirtualThread.parkOnCarrierThread:677",
+                "com.mysql.cj.NativeSession.execSQL:1000",
+                "com.ezycollect.server.payments.domain.PaymentJdbcRepository.insertAll:40")))
+                .isEqualTo("com.ezycollect.server.payments.domain.PaymentJdbcRepository.insertAll:40");
+        assertThat(PinningStatistics.site(List.of(
+                "java.lang.VirtualThread.parkOnCarrierThread:677",
+                "com.mysql.cj.NativeSession.execSQL:1000")))
+                .isEqualTo("com.mysql.cj.NativeSession.execSQL:1000");
+    }
+
+    @Test
+    void reportAggregatesEventsPerCategoryAndSite() {
+        PinningStatistics statistics = new PinningStatistics();
+        statistics.record(PinningCategory.JDBC, "site-a", 2_000_000);
+        statistics.record(PinningCategory.JDBC, "site-a", 6_000_000);
+        statistics.record(PinningCategory.CRYPTO, "site-b", 1_000_000);
+
+        PinningReport report = statistics.report(10);
+
+        assertThat(report.active()).isTrue();
+        assertThat(report.byCategory().get(PinningCategory.JDBC))
+                .isEqualTo(new PinningReport.CategorySummary(2, 8.0, 6.0));
+        assertThat(report.byCategory().get(PinningCategory.OTHER).events()).isZero();
+        assertThat(report.topSites()).containsExactly(
+                new PinningReport.Site("site-a", 2), new PinningReport.Site("site-b", 1));
+    }
+}
@@ -0,0 +1,103 @@
+package com.ezycollect.server.shared.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ClientRateLimiterTest {
+
+    private long nanos = 1_000;
+    private final ClientRateLimiter limiter = new ClientRateLimiter(
+            new RateLimit(10, 5), Map.of("partner", new RateLimit(100, 20)), 4, 3, () -> nanos);
+
+    @Test
+    void admitsTheBurstThenTheSustainedRatePerClient() {
+        assertThat(admitted("acme", 10)).isEqualTo(5);
+        assertThat(admitted("partner", 30)).isEqualTo(20);
+        assertThat(limiter.tryAcquire("acme")).isEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+
+        nanos += TimeUnit.MILLISECONDS.toNanos(500);
+
+        assertThat(admitted("acme", 10)).isEqualTo(5);
+        assertThat(admitted("other", 10)).isEqualTo(5);
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheBurst() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger admitted = new AtomicInteger();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        if (limiter.tryAcquire("partner") == 0) {
+                            admitted.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(admitted).hasValue(20);
+    }
+
+    @Test
+    void idleBucketsAreEvictedAndNewClientsOverflowAtTheCap() {
+        admitted("a", 1);
+        admitted("b", 1);
+        admitted("c", 1);
+        assertThat(admitted("d", 10)).isEqualTo(5);
+        assertThat(admitted("e", 10)).isZero();
+        assertThat(limiter.clients()).isEqualTo(3);
+
+        nanos += TimeUnit.SECONDS.toNanos(1);
+        limiter.evictIdle();
+
+        assertThat(limiter.clients()).isZero();
+        assertThat(admitted("e", 10)).isEqualTo(5);
+    }
+
+    @Test
+    void replacingLimitsResetsOnlyClientsWhoseLimitChanged() {
+        admitted("acme", 5);
+        admitted("partner", 20);
+
+        limiter.replaceLimits(new RateLimit(10, 5), Map.of("partner", new RateLimit(100, 40)));
+
+        assertThat(admitted("acme", 5)).isZero();
+        assertThat(admitted("partner", 50)).isEqualTo(40);
+    }
+
+    @Test
+    void parsesRateAndOptionalBurst() {
+        assertThat(RateLimit.parse("25")).isEqualTo(new RateLimit(25, 25));
+        assertThat(RateLimit.parse("0.5, 3")).isEqualTo(new RateLimit(0.5, 3));
+        assertThatThrownBy(() -> RateLimit.parse("fast")).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> RateLimit.parse("10,0")).isInstanceOf(IllegalStateException.class);
+    }
+
+    private int admitted(String clientId, int attempts) {
+        int admitted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(clientId) == 0) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+}